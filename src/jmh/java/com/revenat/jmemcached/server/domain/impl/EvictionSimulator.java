@@ -0,0 +1,191 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.InnerStorage;
+
+/**
+ * Replays trace of the key reads against single storage shard bounded by the
+ * given count of bytes, once per {@link EvictionPolicy}, and reports object
+ * and byte hit ratios of each policy. Every miss is followed by the put of the
+ * missed key, as the clients of the cache would do.
+ * <p>
+ * Arguments: {@code <trace> <maxBytes> [valueSize]}. Trace is either a file
+ * with a key per line, optionally followed by the value size separated by
+ * whitespace, or one of the generated traces:
+ * <ul>
+ * <li>{@value #SYNTHETIC_TRACE} - zipfian reads interrupted by scans over keys
+ * read only once</li>
+ * <li>{@value #MIXED_SIZES_TRACE} - zipfian reads of the keys whose value sizes
+ * follow Pareto distribution from {@value #MIN_MIXED_SIZE} bytes to
+ * {@value #MAX_MIXED_SIZE} bytes, independently of their popularity</li>
+ * </ul>
+ * Values of the keys without size in the trace take {@code valueSize} bytes,
+ * {@value #DEFAULT_VALUE_SIZE} by default. Sizes are rounded down to three
+ * significant bits, so values of the same size can share a single array.
+ */
+public class EvictionSimulator {
+	static final String SYNTHETIC_TRACE = "synthetic";
+	static final String MIXED_SIZES_TRACE = "mixed";
+	static final int DEFAULT_VALUE_SIZE = 100;
+
+	private static final int SYNTHETIC_KEY_COUNT = 100_000;
+	private static final int SYNTHETIC_READ_COUNT = 2_000_000;
+	private static final int SYNTHETIC_SCAN_INTERVAL = 200_000;
+	private static final int SYNTHETIC_SCAN_LENGTH = 50_000;
+	private static final long SYNTHETIC_SEED = 42L;
+	private static final int MIN_MIXED_SIZE = 20;
+	private static final int MAX_MIXED_SIZE = 500 * 1024;
+	private static final double MIXED_SIZE_PARETO_SHAPE = 0.6;
+
+	private final String[] keys;
+	private final int[] sizes;
+
+	EvictionSimulator(String[] keys, int[] sizes) {
+		this.keys = keys;
+		this.sizes = sizes;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: EvictionSimulator <trace file|" + SYNTHETIC_TRACE + "|" + MIXED_SIZES_TRACE
+					+ "> <maxBytes> [valueSize]");
+			System.exit(1);
+		}
+		long maxBytes = Long.parseLong(args[1]);
+		int valueSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_VALUE_SIZE;
+		EvictionSimulator simulator;
+		if (SYNTHETIC_TRACE.equals(args[0])) {
+			simulator = synthetic(valueSize);
+		} else if (MIXED_SIZES_TRACE.equals(args[0])) {
+			simulator = mixedSizes();
+		} else {
+			simulator = load(args[0], valueSize);
+		}
+
+		System.out.printf("%,d reads, %,d bytes%n", simulator.keys.length, maxBytes);
+		System.out.printf("%-12s %10s %15s %12s%n", "policy", "hit ratio", "byte hit ratio", "evictions");
+		for (EvictionPolicy policy : EvictionPolicy.values()) {
+			Result result = simulator.replay(policy, maxBytes);
+			System.out.printf("%-12s %9.2f%% %14.2f%% %,12d%n", policy, 100.0 * result.hitRatio(),
+					100.0 * result.byteHitRatio(), result.evictionCount);
+		}
+	}
+
+	Result replay(EvictionPolicy policy, long maxBytes) {
+		InnerStorage storage = new InnerStorage(new DefaultDateTimeProvider(Clock.systemUTC()), maxBytes,
+				InnerStorage.DEFAULT_EXPIRATION_TICK_MILLIS, policy);
+		Map<Integer, byte[]> values = new HashMap<>();
+		long hitCount = 0;
+		long readBytes = 0;
+		long hitBytes = 0;
+		for (int i = 0; i < keys.length; i++) {
+			readBytes += sizes[i];
+			byte[] value = storage.get(keys[i]);
+			if (value != null) {
+				hitCount++;
+				hitBytes += value.length;
+			} else {
+				storage.put(keys[i], null, values.computeIfAbsent(sizes[i], byte[]::new));
+			}
+		}
+		return new Result(keys.length, hitCount, readBytes, hitBytes, storage.getEvictionCount());
+	}
+
+	static EvictionSimulator load(String traceFile, int valueSize) throws IOException {
+		List<String> keys = new ArrayList<>();
+		List<Integer> sizes = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(traceFile), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+				if (fields[0].isEmpty()) {
+					continue;
+				}
+				keys.add(fields[0]);
+				sizes.add(roundSize(fields.length > 1 ? Integer.parseInt(fields[1]) : valueSize));
+			}
+		}
+		return new EvictionSimulator(keys.toArray(new String[0]),
+				sizes.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	static EvictionSimulator synthetic(int valueSize) {
+		KeyDistribution distribution = KeyDistribution.create(KeyDistribution.ZIPFIAN, SYNTHETIC_KEY_COUNT);
+		Random random = new Random(SYNTHETIC_SEED);
+		String[] keys = new String[SYNTHETIC_READ_COUNT];
+		int scanKey = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (i % SYNTHETIC_SCAN_INTERVAL < SYNTHETIC_SCAN_LENGTH) {
+				keys[i] = "scan-" + scanKey++;
+			} else {
+				keys[i] = "key-" + distribution.nextIndex(random);
+			}
+		}
+		int[] sizes = new int[keys.length];
+		Arrays.fill(sizes, roundSize(valueSize));
+		return new EvictionSimulator(keys, sizes);
+	}
+
+	static EvictionSimulator mixedSizes() {
+		KeyDistribution distribution = KeyDistribution.create(KeyDistribution.ZIPFIAN, SYNTHETIC_KEY_COUNT);
+		Random random = new Random(SYNTHETIC_SEED);
+		int[] keySizes = new int[SYNTHETIC_KEY_COUNT];
+		for (int i = 0; i < keySizes.length; i++) {
+			double size = MIN_MIXED_SIZE / Math.pow(1.0 - random.nextDouble(), 1.0 / MIXED_SIZE_PARETO_SHAPE);
+			keySizes[i] = roundSize((int) Math.min(MAX_MIXED_SIZE, size));
+		}
+		String[] keys = new String[SYNTHETIC_READ_COUNT];
+		int[] sizes = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			int index = distribution.nextIndex(random);
+			keys[i] = "key-" + index;
+			sizes[i] = keySizes[index];
+		}
+		return new EvictionSimulator(keys, sizes);
+	}
+
+	private static int roundSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("value size should be >= 1: " + size);
+		}
+		int step = Math.max(1, Integer.highestOneBit(size) >> 2);
+		return size / step * step;
+	}
+
+	static class Result {
+		final long readCount;
+		final long hitCount;
+		final long readBytes;
+		final long hitBytes;
+		final long evictionCount;
+
+		Result(long readCount, long hitCount, long readBytes, long hitBytes, long evictionCount) {
+			this.readCount = readCount;
+			this.hitCount = hitCount;
+			this.readBytes = readBytes;
+			this.hitBytes = hitBytes;
+			this.evictionCount = evictionCount;
+		}
+
+		double hitRatio() {
+			return readCount == 0 ? 0.0 : (double) hitCount / readCount;
+		}
+
+		double byteHitRatio() {
+			return readBytes == 0 ? 0.0 : (double) hitBytes / readBytes;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.ExpiredDataCleaner;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.InnerStorage;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.StorageItem;
+
+/**
+ * Measures cost of the single {@link ExpiredDataCleaner} run over the storage
+ * holding {@code keyCount} items without time-to-live, while
+ * {@code expirationsPerTick} items expire between the runs. Cost of the
+ * {@code clearExpiredItems} should follow the count of expirations, while the
+ * {@code scanAllItems} baseline, which checks every item like the cleaner used
+ * to, follows the size of the keyspace.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExpiredDataCleanerBenchmark {
+	private static final long TICK_MILLIS = 1000L;
+	private static final byte[] DATA = new byte[16];
+
+	@Param({"100000", "1000000", "5000000"})
+	private int keyCount;
+
+	@Param({"10", "1000"})
+	private int expirationsPerTick;
+
+	private ManualDateTimeProvider dateTimeProvider;
+	private InnerStorage storage;
+	private ExpiredDataCleaner cleaner;
+	private long nextKey;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dateTimeProvider = new ManualDateTimeProvider();
+		storage = new InnerStorage(dateTimeProvider, InnerStorage.UNBOUNDED, TICK_MILLIS);
+		for (int i = 0; i < keyCount; i++) {
+			storage.put("key-" + i, null, DATA);
+		}
+		cleaner = new ExpiredDataCleaner(storage, (int) TICK_MILLIS);
+	}
+
+	/**
+	 * Adds items expiring during the current tick and moves time to the next one.
+	 * Measured operations take far longer than the per-invocation bookkeeping.
+	 */
+	@Setup(Level.Invocation)
+	public void expireItems() {
+		for (int i = 0; i < expirationsPerTick; i++) {
+			storage.put("ttl-" + nextKey++, 0L, DATA);
+		}
+		dateTimeProvider.currentTimeMillis += TICK_MILLIS;
+	}
+
+	@Benchmark
+	public void clearExpiredItems() {
+		cleaner.clearExpiredItems();
+	}
+
+	@Benchmark
+	public void scanAllItems() {
+		for (Map.Entry<String, StorageItem> entry : storage) {
+			if (storage.isExpired(entry.getValue())) {
+				storage.remove(entry.getKey());
+			}
+		}
+	}
+
+	private static class ManualDateTimeProvider implements DateTimeProvider {
+		private long currentTimeMillis;
+
+		@Override
+		public long getCurrentTimeInMillis() {
+			return currentTimeMillis;
+		}
+
+		@Override
+		public LocalDateTime getDateTimeFrom(long millis) {
+			return LocalDateTime.MIN;
+		}
+	}
+}
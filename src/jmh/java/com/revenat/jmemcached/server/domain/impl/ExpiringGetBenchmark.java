@@ -0,0 +1,70 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.InnerStorage;
+
+/**
+ * Measures latency of getting items with time-to-live, whose expiration is
+ * checked on each get, using precise and coarse clocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExpiringGetBenchmark {
+	private static final int KEY_COUNT = 100_000;
+	private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	@Param({"precise", "coarse"})
+	private String clock;
+
+	private DateTimeProvider dateTimeProvider;
+	private InnerStorage storage;
+	private String[] keys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		DateTimeProvider systemClock = new DefaultDateTimeProvider(Clock.systemDefaultZone());
+		dateTimeProvider = "coarse".equals(clock) ? new CoarseDateTimeProvider(systemClock, 1) : systemClock;
+		storage = new InnerStorage(dateTimeProvider);
+		keys = new String[KEY_COUNT];
+		for (int i = 0; i < KEY_COUNT; i++) {
+			keys[i] = "key-" + i;
+			storage.put(keys[i], TTL_MILLIS, new byte[16]);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (dateTimeProvider instanceof CoarseDateTimeProvider) {
+			((CoarseDateTimeProvider) dateTimeProvider).close();
+		}
+	}
+
+	@Benchmark
+	public byte[] get() {
+		return storage.get(keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+	}
+}
@@ -0,0 +1,63 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.Random;
+
+import com.revenat.jmemcached.server.loadgen.ZipfianGenerator;
+
+/**
+ * Chooses indexes of the keys in the range {@code [0, keyCount)} which
+ * benchmarks access.
+ */
+abstract class KeyDistribution {
+	static final String UNIFORM = "uniform";
+	static final String ZIPFIAN = "zipfian";
+	static final double ZIPFIAN_SKEW = 0.99;
+
+	final int keyCount;
+
+	KeyDistribution(int keyCount) {
+		if (keyCount < 1) {
+			throw new IllegalArgumentException("keyCount should be >= 1: " + keyCount);
+		}
+		this.keyCount = keyCount;
+	}
+
+	static KeyDistribution create(String name, int keyCount) {
+		switch (name) {
+		case UNIFORM:
+			return new Uniform(keyCount);
+		case ZIPFIAN:
+			return new Zipfian(keyCount, ZIPFIAN_SKEW);
+		default:
+			throw new IllegalArgumentException("Unknown key distribution: " + name);
+		}
+	}
+
+	abstract int nextIndex(Random random);
+
+	private static class Uniform extends KeyDistribution {
+
+		Uniform(int keyCount) {
+			super(keyCount);
+		}
+
+		@Override
+		int nextIndex(Random random) {
+			return random.nextInt(keyCount);
+		}
+	}
+
+	private static class Zipfian extends KeyDistribution {
+		private final ZipfianGenerator generator;
+
+		Zipfian(int keyCount, double skew) {
+			super(keyCount);
+			this.generator = new ZipfianGenerator(keyCount, skew);
+		}
+
+		@Override
+		int nextIndex(Random random) {
+			return generator.nextIndex(random);
+		}
+	}
+}
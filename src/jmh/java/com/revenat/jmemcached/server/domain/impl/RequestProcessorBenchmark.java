@@ -0,0 +1,129 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.revenat.jmemcached.protocol.RequestWriter;
+import com.revenat.jmemcached.protocol.impl.RequestConverter;
+import com.revenat.jmemcached.protocol.impl.ResponseConverter;
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+import com.revenat.jmemcached.server.domain.RequestProcessor;
+
+/**
+ * Measures time and allocations per request of the
+ * {@link DefaultRequestProcessor}, which decodes request of every
+ * {@link Command} from memory, passes it through the {@link CommandHandler}
+ * chain and encodes the response. Requests of the {@link Command#PUT} and
+ * responses to the {@link Command#GET} carry values of {@code valueSize}
+ * bytes. Logging is off, like it's configured on the test classpath, so only
+ * the guarded debug calls are measured.
+ * <p>
+ * Run with {@code -prof gc} to get allocation rate and bytes per request
+ * ({@code gc.alloc.rate.norm}) from the GC profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestProcessorBenchmark {
+	private static final String KEY = "benchmark-key";
+	private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	@Param({"GET", "PUT", "REMOVE", "CLEAR"})
+	private Command command;
+
+	@Param({"16", "1024", "65536", "1048576"})
+	private int valueSize;
+
+	private DefaultServerStorage storage;
+	private RequestProcessor requestProcessor;
+	private byte[] value;
+	private RewindableInputStream clientInput;
+	private OutputStream clientOutput;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		storage = new DefaultServerStorage(new DefaultDateTimeProvider(Clock.systemDefaultZone()),
+				ServerStorageBenchmark.CLEAR_DATA_INTERVAL_MILLIS);
+		ClientConnectionHandlerFactory factory = new ClientConnectionHandlerFactory(storage);
+		requestProcessor = new DefaultRequestProcessor(new RequestConverter(), new ResponseConverter(),
+				factory.getCommandHandler());
+		value = ServerStorageBenchmark.createValue(valueSize);
+		storage.put(KEY, value);
+		clientInput = new RewindableInputStream(encode(createRequest()));
+		clientOutput = OutputStream.nullOutputStream();
+	}
+
+	private Request createRequest() {
+		switch (command) {
+		case PUT:
+			return Request.withKeyAndData(Command.PUT, KEY, value, TTL_MILLIS);
+		case CLEAR:
+			return Request.empty(Command.CLEAR);
+		default:
+			return Request.withKey(command, KEY);
+		}
+	}
+
+	private static byte[] encode(Request request) throws IOException {
+		RequestWriter requestWriter = new RequestConverter();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		requestWriter.writeTo(out, request);
+		return out.toByteArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		storage.close();
+	}
+
+	/**
+	 * Processes the request. Item removed by the {@link Command#REMOVE} is put
+	 * back to the storage first, so each one finds it.
+	 */
+	@Benchmark
+	public void process() throws IOException {
+		if (command == Command.REMOVE) {
+			storage.put(KEY, value);
+		}
+		clientInput.rewind();
+		requestProcessor.process(clientInput, clientOutput);
+	}
+
+	/**
+	 * Input stream over the encoded request, which can be read again and again
+	 * without allocations.
+	 */
+	private static class RewindableInputStream extends ByteArrayInputStream {
+
+		RewindableInputStream(byte[] buffer) {
+			super(buffer);
+		}
+
+		void rewind() {
+			pos = 0;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+/**
+ * Measures cost which {@link RecordingCommandHandler} adds to the
+ * {@link Command#GET} request handled by the {@link CommandHandler} chain,
+ * when several threads record to the same {@link RequestRecorder}. At 1M
+ * requests per second the whole request takes 1 microsecond, so the difference
+ * between {@code recordingChain} and {@code plainChain} is the share of it
+ * spent on the statistics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestRecordingBenchmark {
+	private static final Request GET_REQUEST = Request.withKey(Command.GET, "benchmark-key");
+
+	private DefaultServerStorage storage;
+	private CommandHandler plainChain;
+	private CommandHandler recordingChain;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		storage = new DefaultServerStorage(new DefaultDateTimeProvider(Clock.systemDefaultZone()),
+				ServerStorageBenchmark.CLEAR_DATA_INTERVAL_MILLIS);
+		storage.put(GET_REQUEST.getKey(), new byte[16]);
+		AbstractCommandHandler handler = new GetCommandHandler(storage);
+		handler.add(new UnsupportedCommandHandler(storage));
+		plainChain = handler;
+		recordingChain = new RecordingCommandHandler(handler, new RequestRecorder());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		storage.close();
+	}
+
+	@Benchmark
+	public Response plainChain() {
+		return plainChain.handle(GET_REQUEST);
+	}
+
+	@Benchmark
+	public Response recordingChain() {
+		return recordingChain.handle(GET_REQUEST);
+	}
+}
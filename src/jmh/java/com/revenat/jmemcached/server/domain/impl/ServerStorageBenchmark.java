@@ -0,0 +1,177 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.ServerStorage;
+import com.revenat.jmemcached.server.domain.StorageEngine;
+
+/**
+ * Measures throughput of the {@link ServerStorage} operations for every
+ * {@link StorageEngine}, {@code keyCount} keys in the key space, values of
+ * {@code valueSize} bytes and keys chosen by the {@code distribution}. Thread
+ * count is given with {@code -t}, {@link StorageBenchmarkRunner} runs the
+ * benchmarks with 1 to 64 threads.
+ * <p>
+ * Storage is bounded by {@link #MAX_BYTES}, so it's preloaded with as many keys
+ * of the key space as fit into it and only those are chosen by the hit
+ * benchmarks. Other benchmarks use the whole key space, so puts of the large
+ * key spaces measure eviction too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ServerStorageBenchmark {
+	static final long MAX_BYTES = 4L * 1024 * 1024 * 1024;
+	static final int CLEAR_DATA_INTERVAL_MILLIS = 10_000;
+
+	@Param({"HEAP", "OFF_HEAP"})
+	private StorageEngine engine;
+
+	@Param({"10000", "1000000", "10000000"})
+	private int keyCount;
+
+	@Param({"16", "1024", "65536"})
+	private int valueSize;
+
+	@Param({KeyDistribution.UNIFORM, KeyDistribution.ZIPFIAN})
+	private String distribution;
+
+	private DateTimeProvider dateTimeProvider;
+	private ServerStorage storage;
+	private String[] keys;
+	private String[] missingKeys;
+	private KeyDistribution keyDistribution;
+	private KeyDistribution hitKeyDistribution;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dateTimeProvider = new CoarseDateTimeProvider(new DefaultDateTimeProvider(Clock.systemDefaultZone()), 1);
+		storage = createStorage(engine, dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS);
+		keys = createKeys("key-", keyCount);
+		missingKeys = createKeys("missing-key-", keyCount);
+		keyDistribution = KeyDistribution.create(distribution, keyCount);
+
+		// off-heap chunks may be up to a quarter larger than the values
+		long itemBytes = valueSize + valueSize / 4 + DefaultServerStorage.StorageItem.ENTRY_OVERHEAD_BYTES;
+		int preloadedKeyCount = (int) Math.min(keyCount, MAX_BYTES / itemBytes * 9 / 10);
+		byte[] value = createValue(valueSize);
+		for (int i = 0; i < preloadedKeyCount; i++) {
+			// own copy for every item, like the decoded requests have
+			storage.put(keys[i], Arrays.copyOf(value, valueSize));
+		}
+		hitKeyDistribution = KeyDistribution.create(distribution, preloadedKeyCount);
+	}
+
+	static ServerStorage createStorage(StorageEngine engine, DateTimeProvider dateTimeProvider,
+			int clearDataInterval) {
+		if (engine == StorageEngine.OFF_HEAP) {
+			return new OffHeapServerStorage(dateTimeProvider, clearDataInterval, MAX_BYTES);
+		}
+		return new DefaultServerStorage(dateTimeProvider, clearDataInterval, MAX_BYTES,
+				Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	static String[] createKeys(String prefix, int keyCount) {
+		String[] keys = new String[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = prefix + i;
+		}
+		return keys;
+	}
+
+	static byte[] createValue(int valueSize) {
+		byte[] value = new byte[valueSize];
+		ThreadLocalRandom.current().nextBytes(value);
+		return value;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		storage.close();
+		((CoarseDateTimeProvider) dateTimeProvider).close();
+	}
+
+	/**
+	 * Value every thread puts, so allocation of the request data is not measured.
+	 */
+	@State(Scope.Thread)
+	public static class ThreadValue {
+		byte[] value;
+
+		@Setup(Level.Trial)
+		public void setUp(ServerStorageBenchmark benchmark) {
+			value = createValue(benchmark.valueSize);
+		}
+	}
+
+	@Benchmark
+	public Status put(ThreadValue threadValue) {
+		return storage.put(nextKey(), threadValue.value);
+	}
+
+	@Benchmark
+	public byte[] getHit() {
+		return storage.get(keys[hitKeyDistribution.nextIndex(ThreadLocalRandom.current())]);
+	}
+
+	@Benchmark
+	public byte[] getMiss() {
+		return storage.get(missingKeys[keyDistribution.nextIndex(ThreadLocalRandom.current())]);
+	}
+
+	/**
+	 * Removes one of the preloaded keys and puts it back, so the storage keeps its
+	 * size. Cost of the removal alone is this one minus the {@link #put}.
+	 */
+	@Benchmark
+	public Status remove(ThreadValue threadValue) {
+		String key = keys[hitKeyDistribution.nextIndex(ThreadLocalRandom.current())];
+		storage.remove(key);
+		return storage.put(key, threadValue.value);
+	}
+
+	@Benchmark
+	public Object read90write10(ThreadValue threadValue) {
+		return readOrWrite(90, threadValue);
+	}
+
+	@Benchmark
+	public Object read50write50(ThreadValue threadValue) {
+		return readOrWrite(50, threadValue);
+	}
+
+	private Object readOrWrite(int readPercent, ThreadValue threadValue) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String key = keys[keyDistribution.nextIndex(random)];
+		if (random.nextInt(100) < readPercent) {
+			return storage.get(key);
+		}
+		return storage.put(key, threadValue.value);
+	}
+
+	private String nextKey() {
+		return keys[keyDistribution.nextIndex(ThreadLocalRandom.current())];
+	}
+}
@@ -0,0 +1,35 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the storage benchmarks with every count of threads from
+ * {@link #THREAD_COUNTS}, which can't be a benchmark parameter. Takes the same
+ * arguments as {@link org.openjdk.jmh.Main}, benchmarks of the
+ * {@link ServerStorageBenchmark} and {@link TtlStorageBenchmark} run if none
+ * are included.
+ */
+public class StorageBenchmarkRunner {
+	private static final int[] THREAD_COUNTS = {1, 4, 16, 64};
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		for (int threadCount : THREAD_COUNTS) {
+			OptionsBuilder options = new OptionsBuilder();
+			options.parent(commandLineOptions);
+			if (commandLineOptions.getIncludes().isEmpty()) {
+				options.include(ServerStorageBenchmark.class.getSimpleName())
+						.include(TtlStorageBenchmark.class.getSimpleName());
+			}
+			options.threads(threadCount)
+					.resultFormat(ResultFormatType.JSON)
+					.result("storage-benchmark-" + threadCount + "-threads.json");
+			new Runner(options.build()).run();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.InnerStorage;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.StorageItem;
+
+/**
+ * Measures with JOL heap footprint of the entries of the {@link InnerStorage}
+ * against the baseline one, which kept items with the key, boxed expiration
+ * time and per-item clock reference in the {@link ConcurrentHashMap}, and
+ * projects the difference to {@link #ENTRY_COUNT} entries. Each entry is
+ * accounted as a whole: map node, key, item and everything item refers to,
+ * apart from the data and clock objects shared by all the sampled entries.
+ */
+public class StorageItemFootprintTest {
+	private static final int ENTRY_COUNT = 10_000_000;
+	private static final int SAMPLE_SIZE = 100_000;
+	private static final byte[] DATA = new byte[16];
+	private static final long TTL_MILLIS = 60_000L;
+
+	private final DateTimeProvider dateTimeProvider = new DefaultDateTimeProvider(Clock.systemUTC());
+
+	@Test
+	public void shouldTakeLessHeapPerEntryThanBaseline() throws Exception {
+		assertSmallerThanBaseline(null);
+	}
+
+	@Test
+	public void shouldTakeLessHeapPerExpiringEntryThanBaseline() throws Exception {
+		assertSmallerThanBaseline(TTL_MILLIS);
+	}
+
+	@Test
+	public void shouldKeepOnlyDataAndExpirationTimeInPlainItem() throws Exception {
+		assertThat(instanceFieldsOf(StorageItem.class), equalTo(setOf("data", "expiresAt")));
+	}
+
+	@Test
+	public void shouldKeepNoStateOfParticularEvictionPolicyInItem() throws Exception {
+		assertThat(instanceFieldsOf(EvictableItem.class), equalTo(setOf("referenced", "queuedIn", "prev", "next")));
+	}
+
+	private void assertSmallerThanBaseline(Long ttl) {
+		InnerStorage storage = new InnerStorage(dateTimeProvider);
+		Map<String, BaselineStorageItem> baselineItems = new ConcurrentHashMap<>();
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			String key = "key-" + i;
+			// distinct time-to-live values, so boxed expiration times are not cached
+			Long itemTtl = ttl != null ? ttl + i : null;
+			storage.put(key, itemTtl, DATA);
+			baselineItems.put(key, new BaselineStorageItem(key, itemTtl, DATA, dateTimeProvider));
+		}
+
+		double bytes = bytesPerEntry(storage);
+		double baselineBytes = bytesPerEntry(baselineItems);
+		long savedMegabytes = (long) ((baselineBytes - bytes) * ENTRY_COUNT) / (1024 * 1024);
+		assertThat(String.format("Bytes per entry: %.1f, baseline: %.1f, saved at %,d entries: %,d MB", bytes,
+				baselineBytes, ENTRY_COUNT, savedMegabytes), bytes, lessThan(baselineBytes));
+	}
+
+	/**
+	 * Storage itself and the empty structures it keeps are accounted as well,
+	 * which is negligible for the sample size.
+	 */
+	private double bytesPerEntry(Object entries) {
+		long total = GraphLayout.parseInstance(entries).totalSize();
+		long sharedTotal = GraphLayout.parseInstance(DATA, dateTimeProvider).totalSize();
+		return (double) (total - sharedTotal) / SAMPLE_SIZE;
+	}
+
+	private static Set<String> instanceFieldsOf(Class<?> itemClass) {
+		Set<String> fields = new HashSet<>();
+		for (Field field : itemClass.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				fields.add(field.getName());
+			}
+		}
+		return fields;
+	}
+
+	private static Set<String> setOf(String... names) {
+		return new HashSet<>(Arrays.asList(names));
+	}
+
+	/**
+	 * Copy of the {@link StorageItem} as it was before expiration, eviction and
+	 * persistence were introduced.
+	 */
+	@SuppressWarnings("unused")
+	private static class BaselineStorageItem {
+		final String key;
+		final Long ttl;
+		final byte[] data;
+		private final DateTimeProvider dateTimeProvider;
+
+		BaselineStorageItem(String key, Long ttl, byte[] data, DateTimeProvider dateTimeProvider) {
+			this.key = key;
+			this.data = data;
+			this.ttl = ttl != null ? ttl + dateTimeProvider.getCurrentTimeInMillis() : null;
+			this.dateTimeProvider = dateTimeProvider;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.ServerStorage;
+import com.revenat.jmemcached.server.domain.StorageEngine;
+
+/**
+ * Measures throughput of the {@link ServerStorage} whose every item has short
+ * time-to-live, so the expired data cleaners run every
+ * {@link #CLEAR_DATA_INTERVAL_MILLIS} concurrently with the measured operations
+ * and remove large share of the items each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TtlStorageBenchmark {
+	private static final int CLEAR_DATA_INTERVAL_MILLIS = 100;
+	private static final int MAX_TTL_MILLIS = 1000;
+
+	@Param({"HEAP", "OFF_HEAP"})
+	private StorageEngine engine;
+
+	@Param({"10000", "1000000"})
+	private int keyCount;
+
+	@Param({"16", "1024"})
+	private int valueSize;
+
+	@Param({KeyDistribution.UNIFORM, KeyDistribution.ZIPFIAN})
+	private String distribution;
+
+	private DateTimeProvider dateTimeProvider;
+	private ServerStorage storage;
+	private String[] keys;
+	private KeyDistribution keyDistribution;
+	private byte[] value;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dateTimeProvider = new CoarseDateTimeProvider(new DefaultDateTimeProvider(Clock.systemDefaultZone()), 1);
+		storage = ServerStorageBenchmark.createStorage(engine, dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS);
+		keys = ServerStorageBenchmark.createKeys("key-", keyCount);
+		keyDistribution = KeyDistribution.create(distribution, keyCount);
+		value = ServerStorageBenchmark.createValue(valueSize);
+		for (String key : keys) {
+			storage.put(key, nextTtl(), value);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		storage.close();
+		((CoarseDateTimeProvider) dateTimeProvider).close();
+	}
+
+	@Benchmark
+	public Status put() {
+		return storage.put(nextKey(), nextTtl(), value);
+	}
+
+	@Benchmark
+	public Object read90write10() {
+		if (ThreadLocalRandom.current().nextInt(100) < 90) {
+			return storage.get(nextKey());
+		}
+		return storage.put(nextKey(), nextTtl(), value);
+	}
+
+	private String nextKey() {
+		return keys[keyDistribution.nextIndex(ThreadLocalRandom.current())];
+	}
+
+	private static long nextTtl() {
+		return 1 + ThreadLocalRandom.current().nextInt(MAX_TTL_MILLIS);
+	}
+}
@@ -0,0 +1,68 @@
+package com.revenat.jmemcached.server;
+
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.server.loadgen.LatencyHistogram;
+import com.revenat.jmemcached.server.loadgen.LoadGeneratorConfig;
+import com.revenat.jmemcached.server.loadgen.LoadResult;
+import com.revenat.jmemcached.server.loadgen.LoadRunner;
+
+/**
+ * Command line load generator, which drives running {@code JMemcached} server
+ * with the open-loop load and prints percentiles of the latencies corrected for
+ * coordinated omission. Run it with {@code --help} to see the options.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+public class LoadGenerator {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+
+	public static void main(String[] args) {
+		Thread.currentThread().setName("LoadGenerator-main thread");
+		if (args.length == 1 && "--help".equals(args[0])) {
+			System.out.println(LoadGeneratorConfig.USAGE);
+			return;
+		}
+
+		try {
+			LoadGeneratorConfig config = LoadGeneratorConfig.parse(args);
+			LOGGER.info("Starting load: {}", config);
+			LoadResult result = new LoadRunner(config).run();
+			printReport(config, result);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(LoadGeneratorConfig.USAGE);
+			System.exit(1);
+		} catch (Exception e) {
+			LOGGER.error("Load generation failed: " + e.getMessage(), e);
+			System.exit(1);
+		}
+	}
+
+	private static void printReport(LoadGeneratorConfig config, LoadResult result) {
+		long requestCount = result.getRequestCount();
+		System.out.printf(Locale.ROOT, "Requests: %,d, achieved rate: %,.0f/s of %,d/s target, misses: %,d%n",
+				requestCount, (double) requestCount / config.getDurationSeconds(), config.getTargetRate(),
+				result.getMissCount());
+		if (result.getFailureCount() > 0) {
+			System.out.printf(Locale.ROOT, "Failed connections: %d, last failure: %s%n", result.getFailureCount(),
+					result.getLastFailure());
+		}
+		System.out.printf(Locale.ROOT, "%-10s %20s %20s%n", "Percentile", "Response time, us", "Service time, us");
+		for (double percentile : PERCENTILES) {
+			System.out.printf(Locale.ROOT, "%-10s %20.1f %20.1f%n", percentile == 100 ? "max" : percentile,
+					micros(result.getResponseTime(), percentile), micros(result.getServiceTime(), percentile));
+		}
+		System.out.println("Response time is measured from the scheduled send time and is corrected for "
+				+ "coordinated omission, service time is not.");
+	}
+
+	private static double micros(LatencyHistogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+}
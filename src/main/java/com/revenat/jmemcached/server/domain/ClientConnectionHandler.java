@@ -9,4 +9,12 @@ package com.revenat.jmemcached.server.domain;
  */
 public interface ClientConnectionHandler extends Runnable {
 
+	/**
+	 * Tells the client that server is too busy to serve its connection and
+	 * closes it. Called instead of {@link #run()} for the connection which
+	 * hasn't been admitted. Does nothing by default.
+	 */
+	default void reject() {
+		// nothing to release
+	}
 }
@@ -0,0 +1,33 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * Management interface of the worker threads and connection queue of the
+ * {@link ServerConnectionManager}, registered in the platform MBean server
+ * while {@link Server} is running. See {@link ConnectionStatistics} for the
+ * meaning of the attributes.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public interface ConnectionPoolMXBean {
+
+	int getActiveWorkerCount();
+
+	int getWorkerCount();
+
+	int getLargestWorkerCount();
+
+	int getMaxWorkerCount();
+
+	long getCurrentConnectionCount();
+
+	long getQueuedConnectionCount();
+
+	long getAdmittedConnectionCount();
+
+	long getRejectedConnectionCount();
+
+	long getTimedOutConnectionCount();
+
+	long getMaxQueueWaitMillis();
+}
@@ -0,0 +1,73 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This interface represents live statistics of the client connections admitted
+ * by the {@link ServerConnectionManager}. Values are updated while connections
+ * are established, so each call may return different result.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public interface ConnectionStatistics {
+
+	/**
+	 * Returns count of connections currently served by the worker threads.
+	 */
+	long getCurrentConnectionCount();
+
+	/**
+	 * Returns count of connections currently waiting for the worker thread.
+	 */
+	long getQueuedConnectionCount();
+
+	/**
+	 * Returns total count of connections which have got the worker thread.
+	 */
+	long getAdmittedConnectionCount();
+
+	/**
+	 * Returns total count of connections rejected since there was no room left
+	 * in the queue.
+	 */
+	long getRejectedConnectionCount();
+
+	/**
+	 * Returns total count of connections rejected since they waited for the
+	 * worker thread longer than allowed.
+	 */
+	long getTimedOutConnectionCount();
+
+	/**
+	 * Returns total time in milliseconds connections have waited for the worker
+	 * thread.
+	 */
+	long getTotalQueueWaitMillis();
+
+	/**
+	 * Returns longest time in milliseconds single connection has waited for the
+	 * worker thread.
+	 */
+	long getMaxQueueWaitMillis();
+
+	/**
+	 * Returns count of worker threads currently serving connections.
+	 */
+	int getActiveWorkerCount();
+
+	/**
+	 * Returns count of worker threads currently started.
+	 */
+	int getWorkerCount();
+
+	/**
+	 * Returns largest count of worker threads which have ever been started at
+	 * the same time.
+	 */
+	int getLargestWorkerCount();
+
+	/**
+	 * Returns maximum count of worker threads which may be started, or {@code 0}
+	 * if count of worker threads is not bounded.
+	 */
+	int getMaxWorkerCount();
+}
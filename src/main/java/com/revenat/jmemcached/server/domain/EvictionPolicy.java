@@ -0,0 +1,31 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This enumeration represents the ways bounded {@link StorageEngine#HEAP}
+ * storage chooses items to evict when new item does not fit into it.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public enum EvictionPolicy {
+
+	/**
+	 * Approximate least recently used item is evicted, giving recently read
+	 * items second chance.
+	 */
+	CLOCK,
+
+	/**
+	 * New items wait in the small recency window and enter the main region only
+	 * if they are estimated to be used more often than the item they would
+	 * evict, so items used once don't flush frequently used ones.
+	 */
+	W_TINY_LFU,
+
+	/**
+	 * Item with the lowest frequency of use per byte is evicted, aged by the
+	 * inflation clock, so many small items used often are kept in place of one
+	 * large item used as often.
+	 */
+	GDSF
+}
@@ -0,0 +1,35 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * Management interface of the background cleaner removing expired data from
+ * the {@link ServerStorage}, registered in the platform MBean server while
+ * {@link Server} is running. Last run is the one which has finished last,
+ * whichever cleaner thread has made it.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public interface ExpiredDataCleanerMXBean {
+
+	long getRunCount();
+
+	double getLastRunDurationMillis();
+
+	long getLastScannedCount();
+
+	long getLastRemovedCount();
+
+	double getTotalRunDurationMillis();
+
+	long getTotalScannedCount();
+
+	long getTotalRemovedCount();
+
+	/**
+	 * Removes expired data right away, without waiting for the next run of the
+	 * cleaner.
+	 *
+	 * @return count of the removed expired items
+	 */
+	int clearExpiredData();
+}
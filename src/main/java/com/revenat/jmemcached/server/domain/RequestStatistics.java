@@ -0,0 +1,41 @@
+package com.revenat.jmemcached.server.domain;
+
+import com.revenat.jmemcached.protocol.model.Command;
+
+/**
+ * This interface represents live statistics of the requests handled by the
+ * server. Values are updated while requests are handled, so each call may
+ * return different result.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public interface RequestStatistics {
+
+	/**
+	 * Returns total count of handled requests with specified {@code command}.
+	 */
+	long getCommandCount(Command command);
+
+	/**
+	 * Returns total count of {@link Command#GET} requests which have found the
+	 * data.
+	 */
+	long getHitCount();
+
+	/**
+	 * Returns total count of {@link Command#GET} requests which haven't found the
+	 * data.
+	 */
+	long getMissCount();
+
+	/**
+	 * Returns time in nanoseconds which specified {@code percentile} of the
+	 * requests with specified {@code command} has been handled within, or
+	 * {@code 0} if there were no such requests. Value is precise to about 6
+	 * percent.
+	 *
+	 * @param percentile percentile between {@code 0} and {@code 100}
+	 */
+	long getLatencyPercentileNanos(Command command, double percentile);
+}
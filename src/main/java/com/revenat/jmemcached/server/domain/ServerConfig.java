@@ -1,5 +1,7 @@
 package com.revenat.jmemcached.server.domain;
 
+import java.nio.file.Path;
+
 /**
  * Component responsible for storing all the server-specific configurations for
  * the server module of the {@code JMemcached} application.
@@ -21,6 +23,24 @@ public interface ServerConfig {
 	 */
 	int getServerPort();
 
+	/**
+	 * Returns port number of the admin endpoint serving server metrics in the
+	 * Prometheus text format, or {@code 0} if metrics are not served.
+	 */
+	int getMetricsPort();
+
+	/**
+	 * Returns port number server is listening on for the clients speaking
+	 * memcached text protocol, or {@code 0} if text protocol is not served.
+	 */
+	int getTextPort();
+
+	/**
+	 * Returns port number server is listening on for the clients speaking
+	 * memcached binary protocol, or {@code 0} if binary protocol is not served.
+	 */
+	int getBinaryPort();
+
 	/**
 	 * Returns initial count of worker threads to be created in the server's worker
 	 * thread pool.
@@ -30,7 +50,107 @@ public interface ServerConfig {
 	/**
 	 * Returns maximum count of worker threads to be created in the server's worker
 	 * thread pool. Effectively designate maximum number of clients to be served by
-	 * the server at the same time.
+	 * the server at the same time. Ignored for {@link WorkerThreadType#VIRTUAL}
+	 * worker threads.
 	 */
 	int getMaxThreadCount();
+
+	/**
+	 * Returns maximum count of client connections which may wait for the worker
+	 * thread while all the worker threads are busy, or {@code 0} if such
+	 * connections are rejected right away. Ignored for
+	 * {@link WorkerThreadType#VIRTUAL} worker threads.
+	 */
+	int getConnectionQueueSize();
+
+	/**
+	 * Returns maximum time in milliseconds client connection may wait for the
+	 * worker thread before it's rejected.
+	 */
+	int getConnectionQueueMaxWait();
+
+	/**
+	 * Returns {@link ServerTransport} server uses to serve connections with its
+	 * clients.
+	 */
+	ServerTransport getTransport();
+
+	/**
+	 * Returns count of event-loop threads to be created when server uses
+	 * {@link ServerTransport#NIO} transport. Each event-loop thread multiplexes
+	 * many client connections at the same time.
+	 */
+	int getEventLoopCount();
+
+	/**
+	 * Returns {@link WorkerThreadType} of the threads serving client connections
+	 * when server uses {@link ServerTransport#BLOCKING} transport.
+	 */
+	WorkerThreadType getWorkerThreadType();
+
+	/**
+	 * Returns maximum count of bytes server's storage may occupy, including keys
+	 * and per-item overhead, or {@code 0} if storage is not bounded. Bounded
+	 * storage evicts items chosen by {@link #getEvictionPolicy()} to free space
+	 * for new ones.
+	 */
+	long getStorageMaxBytes();
+
+	/**
+	 * Returns {@link EvictionPolicy} bounded {@link StorageEngine#HEAP} storage
+	 * uses to choose items to evict.
+	 */
+	EvictionPolicy getEvictionPolicy();
+
+	/**
+	 * Returns {@link StorageEngine} server's storage uses to keep the data. For
+	 * {@link StorageEngine#OFF_HEAP} engine {@link #getStorageMaxBytes()} is the
+	 * amount of native memory reserved for the values and is always positive.
+	 */
+	StorageEngine getStorageEngine();
+
+	/**
+	 * Returns count of independent shards {@link StorageEngine#HEAP} storage
+	 * spreads its items over. Each shard gets equal part of
+	 * {@link #getStorageMaxBytes()}.
+	 */
+	int getStorageShardCount();
+
+	/**
+	 * Returns path of the file server saves snapshot of its storage to and loads
+	 * it from when it starts, or {@code null} if storage is not persisted.
+	 * Snapshots are supported by {@link StorageEngine#HEAP} storage only.
+	 */
+	Path getSnapshotFile();
+
+	/**
+	 * Returns interval in milliseconds between the snapshots saved while server
+	 * runs, or {@code 0} if snapshot is saved only when server stops.
+	 */
+	int getSnapshotInterval();
+
+	/**
+	 * Returns {@link SnapshotLoadMode} server loads snapshot of its storage with
+	 * when it starts.
+	 */
+	SnapshotLoadMode getSnapshotLoadMode();
+
+	/**
+	 * Returns path of the file server logs mutations of its storage to and
+	 * replays them from when it starts, or {@code null} if mutations are not
+	 * logged. Write log is supported by {@link StorageEngine#HEAP} storage only
+	 * and excludes snapshots.
+	 */
+	Path getWriteLogFile();
+
+	/**
+	 * Returns {@link WriteLogSyncPolicy} write log is forced to the disk with.
+	 */
+	WriteLogSyncPolicy getWriteLogSyncPolicy();
+
+	/**
+	 * Returns interval in milliseconds between the forces of the write log to the
+	 * disk with {@link WriteLogSyncPolicy#INTERVAL} policy.
+	 */
+	int getWriteLogSyncInterval();
 }
@@ -20,10 +20,19 @@ public interface ServerConnectionManager {
 	 * @throws ConnectionRejectedException if new connection can not be established
 	 *                                     due the fact that server might reached
 	 *                                     it's capacity limit for total
-	 *                                     simultaneously opened connections.
+	 *                                     simultaneously opened and queued
+	 *                                     connections. Connection is rejected by
+	 *                                     {@link ClientConnectionHandler#reject()}
+	 *                                     before.
 	 */
 	void establishConnection(ClientConnectionHandler connectionHandler);
 
+	/**
+	 * Returns live {@link ConnectionStatistics} of the connections established by
+	 * this manager.
+	 */
+	ConnectionStatistics getStatistics();
+
 	/**
 	 * Shutdowns current instance of the {@link ServerConnectionManager}, thus
 	 * closing all currently active connections.
@@ -1,5 +1,8 @@
 package com.revenat.jmemcached.server.domain;
 
+import java.util.List;
+import java.util.Map;
+
 import com.revenat.jmemcached.protocol.model.Status;
 
 /**
@@ -23,7 +26,8 @@ public interface ServerStorage extends AutoCloseable {
 	 * @return {@link Status} which represents result of this operation
 	 * @throws NullPointerException     if whether {@code key} or {@code data} is
 	 *                                  null.
-	 * @throws IllegalArgumentException if {@code data} is empty.
+	 * @throws IllegalArgumentException if {@code data} is too large to fit into
+	 *                                  the storage.
 	 */
 	Status put(String key, long ttl, byte[] data);
 
@@ -36,7 +40,8 @@ public interface ServerStorage extends AutoCloseable {
 	 * @return {@link Status} which represents result of this operation
 	 * @throws NullPointerException     if either {@code key} or {@code data} is
 	 *                                  null.
-	 * @throws IllegalArgumentException if {@code data} is empty.
+	 * @throws IllegalArgumentException if {@code data} is too large to fit into
+	 *                                  the storage.
 	 */
 	Status put(String key, byte[] data);
 
@@ -45,11 +50,46 @@ public interface ServerStorage extends AutoCloseable {
 	 * 
 	 * @param key key to get data associated with.
 	 * @return data associated with a specified {@code key} or an empty array if no
-	 *         data with such key exists in the storage.
+	 *         data with such key exists in the storage. Since empty data can be
+	 *         stored as well, use {@link #find(String)} to tell absent key from
+	 *         the present one.
 	 * @throws NullPointerException if {@code key} is null.
 	 */
 	byte[] get(String key);
 
+	/**
+	 * Returns data associated with a specified {@code key}, telling absent key
+	 * from the one associated with empty data.
+	 * 
+	 * @param key key to get data associated with.
+	 * @return data associated with a specified {@code key} or {@code null} if no
+	 *         data with such key exists in the storage.
+	 * @throws NullPointerException if {@code key} is null.
+	 */
+	byte[] find(String key);
+
+	/**
+	 * Returns data associated with each of the specified {@code keys}. Storage
+	 * serves all the keys at once, which is cheaper than getting them one by one.
+	 * 
+	 * @param keys keys to get data associated with.
+	 * @return map of the keys found in the storage to their data, in the order of
+	 *         {@code keys}. Keys with no data in the storage are absent from it.
+	 * @throws NullPointerException if {@code keys} or any of them is null.
+	 */
+	Map<String, byte[]> getAll(List<String> keys);
+
+	/**
+	 * Returns time left in milliseconds until data associated with a specified
+	 * {@code key} expires.
+	 * 
+	 * @param key key of the data to get time-to-live of.
+	 * @return remaining time-to-live in milliseconds, or {@code -1} if data never
+	 *         expires or no data with such key exists in the storage.
+	 * @throws NullPointerException if {@code key} is null.
+	 */
+	long getTtl(String key);
+
 	/**
 	 * Removes data associated with a specified {@code key} if any.
 	 * 
@@ -65,4 +105,9 @@ public interface ServerStorage extends AutoCloseable {
 	 * @return {@link Status} which represents result of this operation.
 	 */
 	Status clear();
+
+	/**
+	 * Returns live {@link StorageStatistics} of this storage.
+	 */
+	StorageStatistics getStatistics();
 }
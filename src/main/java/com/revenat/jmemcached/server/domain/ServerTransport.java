@@ -0,0 +1,23 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This enumeration represents the ways server can serve connections with its
+ * clients.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public enum ServerTransport {
+
+	/**
+	 * Each client connection is served by its own worker thread using blocking
+	 * socket streams.
+	 */
+	BLOCKING,
+
+	/**
+	 * Client connections are multiplexed over a small fixed set of event-loop
+	 * threads using non-blocking socket channels.
+	 */
+	NIO
+}
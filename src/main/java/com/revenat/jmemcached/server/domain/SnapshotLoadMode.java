@@ -0,0 +1,24 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This enumeration represents the ways server loads snapshot of its storage
+ * when it starts.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public enum SnapshotLoadMode {
+
+	/**
+	 * Snapshot is loaded before server starts accepting client connections.
+	 */
+	BLOCKING,
+
+	/**
+	 * Server accepts client connections while snapshot is being loaded, so clients
+	 * get misses for the keys not loaded yet. Data put by clients is never replaced
+	 * by the snapshot one, and data removed or cleared by them is not loaded
+	 * after.
+	 */
+	BACKGROUND
+}
@@ -0,0 +1,22 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This enumeration represents the ways server's storage can keep the data of
+ * its clients.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public enum StorageEngine {
+
+	/**
+	 * Each stored value is a separate object on the Java heap.
+	 */
+	HEAP,
+
+	/**
+	 * Stored values are kept in the slabs of native memory outside the Java
+	 * heap, so only a compact index of them is visible to the garbage collector.
+	 */
+	OFF_HEAP
+}
@@ -0,0 +1,42 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * Management interface of the {@link ServerStorage}, registered in the platform
+ * MBean server while {@link Server} is running. Rates are per second, averaged
+ * over the time since they were read last, but not less than a second.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public interface StorageMXBean {
+
+	long getItemCount();
+
+	long getUsedBytes();
+
+	long getMaxBytes();
+
+	long getEvictionCount();
+
+	long getExpiredCount();
+
+	long getGetCount();
+
+	long getPutCount();
+
+	long getRemoveCount();
+
+	double getGetRate();
+
+	double getPutRate();
+
+	double getRemoveRate();
+
+	double getHitRatio();
+
+	/**
+	 * Requests the storage to be persisted right away, if it's persisted in
+	 * snapshots.
+	 */
+	void saveSnapshot();
+}
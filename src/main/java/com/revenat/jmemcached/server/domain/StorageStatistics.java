@@ -0,0 +1,41 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This interface represents live statistics of the {@link ServerStorage}.
+ * Values are updated while storage is used, so each call may return different
+ * result.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public interface StorageStatistics {
+
+	/**
+	 * Returns count of items currently present in the storage.
+	 */
+	long getItemCount();
+
+	/**
+	 * Returns estimated count of bytes occupied by the items currently present in
+	 * the storage, including keys and per-item overhead.
+	 */
+	long getUsedBytes();
+
+	/**
+	 * Returns maximum count of bytes storage is allowed to occupy, or {@code 0} if
+	 * storage is not bounded.
+	 */
+	long getMaxBytes();
+
+	/**
+	 * Returns total count of items evicted from the storage to free space for new
+	 * items.
+	 */
+	long getEvictionCount();
+
+	/**
+	 * Returns total count of items removed from the storage since their
+	 * time-to-live has passed.
+	 */
+	long getExpiredCount();
+}
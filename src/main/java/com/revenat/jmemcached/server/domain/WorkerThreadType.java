@@ -0,0 +1,25 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This enumeration represents kinds of worker threads server can use to serve
+ * connections with its clients when it uses {@link ServerTransport#BLOCKING}
+ * transport.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public enum WorkerThreadType {
+
+	/**
+	 * Connections are served by the bounded pool of platform threads. Once all
+	 * the threads are busy new connections are rejected.
+	 */
+	PLATFORM,
+
+	/**
+	 * Each connection is served by its own virtual thread, so idle connections do
+	 * not occupy platform threads and there is no limit for the count of
+	 * connections served at the same time.
+	 */
+	VIRTUAL
+}
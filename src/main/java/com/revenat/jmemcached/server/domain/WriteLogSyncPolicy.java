@@ -0,0 +1,31 @@
+package com.revenat.jmemcached.server.domain;
+
+/**
+ * This enumeration represents the policies of forcing storage write log to the
+ * disk.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+public enum WriteLogSyncPolicy {
+
+	/**
+	 * Mutation is answered only after it has been forced to the disk, along with
+	 * all the mutations written in the same batch. Not supported by
+	 * {@link ServerTransport#NIO} transport, whose event loop can not wait for
+	 * the disk.
+	 */
+	ALWAYS,
+
+	/**
+	 * Log is forced to the disk periodically, so mutations of the last interval
+	 * may be lost if machine crashes.
+	 */
+	INTERVAL,
+
+	/**
+	 * Log is never forced to the disk explicitly, operating system writes it when
+	 * it decides to.
+	 */
+	NEVER
+}
@@ -0,0 +1,110 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
+
+/**
+ * {@link ClientConnectionHandler} serving the client which speaks memcached
+ * binary protocol. Like the {@link TextClientConnectionHandler}, it sends
+ * responses only when there are no more bytes of the next request received,
+ * so the batch of pipelined quiet commands costs only a few writes.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class BinaryClientConnectionHandler implements ClientConnectionHandler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BinaryClientConnectionHandler.class);
+	private static final byte[] BUSY_MESSAGE = "Too many open connections".getBytes(StandardCharsets.US_ASCII);
+
+	private final Socket clientSocket;
+	private final BinaryCommandProcessor commandProcessor;
+
+	BinaryClientConnectionHandler(Socket clientSocket, BinaryCommandProcessor commandProcessor) {
+		this.clientSocket = requireNonNull(clientSocket, "clientSocket can not be null");
+		this.commandProcessor = requireNonNull(commandProcessor, "commandProcessor can not be null");
+	}
+
+	@Override
+	public void run() {
+		PipelineOutputStream clientOutput = null;
+		try {
+			BinaryRequestReader requestReader = new BinaryRequestReader(clientSocket.getInputStream(),
+					DefaultClientConnectionHandler.BUFFER_SIZE);
+			clientOutput = new PipelineOutputStream(clientSocket.getOutputStream(),
+					DefaultClientConnectionHandler.BUFFER_SIZE);
+
+			while (shouldContinue() && commandProcessor.process(requestReader, clientOutput)) {
+				if (!requestReader.hasBufferedInput()) {
+					clientOutput.flushPipeline();
+				}
+			}
+		} catch (EOFException | SocketException e) {
+			LOGGER.info("Remote client connection closed: {}: {}", clientSocket.getRemoteSocketAddress(), e.getMessage());
+		} catch (IOException e) {
+			if (!clientSocket.isClosed()) {
+				LOGGER.error("IO Error: " + e.getMessage(), e);
+			}
+		} catch (JMemcachedException e) {
+			LOGGER.error(e.getMessage(), e);
+		} finally {
+			flushPendingResponses(clientOutput);
+			closeClientSocket();
+		}
+	}
+
+	/**
+	 * Tells the client that server is busy with the response of the
+	 * {@code Busy} status, and closes the connection.
+	 */
+	@Override
+	public void reject() {
+		LOGGER.info("Rejecting client connection: {}", clientSocket.getRemoteSocketAddress());
+		try {
+			byte[] header = new byte[BinaryRequestReader.HEADER_LENGTH];
+			BinaryCommandProcessor.writeHeader(header, BinaryCommandProcessor.NOOP, BinaryCommandProcessor.BUSY, 0, 0,
+					BUSY_MESSAGE.length, 0);
+			OutputStream clientOutput = clientSocket.getOutputStream();
+			clientOutput.write(header);
+			clientOutput.write(BUSY_MESSAGE);
+			clientOutput.flush();
+		} catch (IOException e) {
+			LOGGER.debug("Reject client connection failed: {}", e.getMessage());
+		} finally {
+			closeClientSocket();
+		}
+	}
+
+	private void flushPendingResponses(PipelineOutputStream clientOutput) {
+		if (clientOutput != null && !clientSocket.isClosed()) {
+			try {
+				clientOutput.flushPipeline();
+			} catch (IOException e) {
+				LOGGER.debug("Flush pending responses failed: {}", e.getMessage());
+			}
+		}
+	}
+
+	private boolean shouldContinue() {
+		return !Thread.interrupted();
+	}
+
+	private void closeClientSocket() {
+		try {
+			clientSocket.close();
+		} catch (IOException e) {
+			LOGGER.error("Close socket failed: " + e.getMessage(), e);
+		}
+	}
+}
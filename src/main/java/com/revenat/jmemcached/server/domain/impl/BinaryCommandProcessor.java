@@ -0,0 +1,415 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.server.domain.impl.MemcachedCommands.NonNumericValueException;
+
+/**
+ * Processes requests of the memcached binary protocol, read by the
+ * {@link BinaryRequestReader}, by executing them with the
+ * {@link MemcachedCommands}. Supported commands are {@code Get}, {@code GetK},
+ * {@code Set}, {@code Add}, {@code Replace}, {@code Delete}, {@code Increment},
+ * {@code Decrement}, {@code Touch}, {@code Flush}, {@code Stat}, {@code Noop}
+ * and {@code Quit}, along with the quiet variants of all of them but the last
+ * four.
+ * <p>
+ * Quiet command is answered only if it fails, and quiet retrieval is not
+ * answered on miss either, so the client may pipeline the batch of quiet
+ * commands terminated by the {@code Noop}, and take the responses received
+ * before the one of the {@code Noop} as all the misses and errors of the batch.
+ * <p>
+ * Items have no versions, so the compare-and-swap mutations are answered with
+ * {@code Not supported}, and the CAS of the responses is always {@code 0}, same
+ * as the flags of the retrievals. Single processor serves single connection.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class BinaryCommandProcessor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BinaryCommandProcessor.class);
+
+	static final int RESPONSE_MAGIC = 0x81;
+
+	static final int GET = 0x00;
+	static final int SET = 0x01;
+	static final int ADD = 0x02;
+	static final int REPLACE = 0x03;
+	static final int DELETE = 0x04;
+	static final int INCREMENT = 0x05;
+	static final int DECREMENT = 0x06;
+	static final int QUIT = 0x07;
+	static final int FLUSH = 0x08;
+	static final int GETQ = 0x09;
+	static final int NOOP = 0x0A;
+	static final int GETK = 0x0C;
+	static final int GETKQ = 0x0D;
+	static final int STAT = 0x10;
+	static final int SETQ = 0x11;
+	static final int ADDQ = 0x12;
+	static final int REPLACEQ = 0x13;
+	static final int DELETEQ = 0x14;
+	static final int INCREMENTQ = 0x15;
+	static final int DECREMENTQ = 0x16;
+	static final int QUITQ = 0x17;
+	static final int FLUSHQ = 0x18;
+	static final int TOUCH = 0x1C;
+
+	static final int NO_ERROR = 0x00;
+	static final int KEY_NOT_FOUND = 0x01;
+	static final int KEY_EXISTS = 0x02;
+	static final int VALUE_TOO_LARGE = 0x03;
+	static final int INVALID_ARGUMENTS = 0x04;
+	static final int NON_NUMERIC_VALUE = 0x06;
+	static final int UNKNOWN_COMMAND = 0x81;
+	static final int NOT_SUPPORTED = 0x83;
+	static final int BUSY = 0x85;
+
+	/**
+	 * Expiration of the increment or decrement which tells not to create absent
+	 * item.
+	 */
+	private static final long NO_INITIAL_VALUE = 0xFFFFFFFFL;
+	private static final byte[] ZERO_FLAGS = new byte[4];
+	private static final int COUNTER_LENGTH = 8;
+
+	private final MemcachedCommands commands;
+	private final byte[] header = new byte[BinaryRequestReader.HEADER_LENGTH];
+
+	/**
+	 * @param commands {@link MemcachedCommands} requests are executed with
+	 */
+	BinaryCommandProcessor(MemcachedCommands commands) {
+		this.commands = requireNonNull(commands, "commands can not be null");
+	}
+
+	/**
+	 * Reads next request from the {@code reader} and writes response to it, if
+	 * any, into the {@code out} stream. Invalid requests and the ones storage
+	 * can't serve are answered with the error status, and connection can be used
+	 * further.
+	 *
+	 * @return {@code false} if the client has closed the connection or asked to
+	 *         close it
+	 */
+	boolean process(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (!reader.readRequest()) {
+			return false;
+		}
+		try {
+			return processRequest(reader, out);
+		} catch (NonNumericValueException e) {
+			writeError(reader, out, NON_NUMERIC_VALUE, e.getMessage());
+		} catch (IllegalArgumentException e) {
+			writeError(reader, out, INVALID_ARGUMENTS, e.getMessage());
+		}
+		return true;
+	}
+
+	private boolean processRequest(BinaryRequestReader reader, OutputStream out) throws IOException {
+		int opcode = reader.getOpcode();
+		switch (opcode) {
+		case GET:
+		case GETQ:
+		case GETK:
+		case GETKQ:
+			get(reader, out);
+			break;
+		case SET:
+		case SETQ:
+		case ADD:
+		case ADDQ:
+		case REPLACE:
+		case REPLACEQ:
+			store(reader, out);
+			break;
+		case DELETE:
+		case DELETEQ:
+			delete(reader, out);
+			break;
+		case INCREMENT:
+		case INCREMENTQ:
+		case DECREMENT:
+		case DECREMENTQ:
+			incrementOrDecrement(reader, out);
+			break;
+		case TOUCH:
+			touch(reader, out);
+			break;
+		case FLUSH:
+		case FLUSHQ:
+			flush(reader, out);
+			break;
+		case STAT:
+			stat(reader, out);
+			break;
+		case NOOP:
+			writeSuccess(reader, out);
+			break;
+		case QUIT:
+			writeSuccess(reader, out);
+			return false;
+		case QUITQ:
+			return false;
+		default:
+			writeError(reader, out, UNKNOWN_COMMAND, "Unknown command");
+		}
+		return true;
+	}
+
+	private void get(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (!hasShape(reader, 0, true, false)) {
+			writeInvalidArguments(reader, out);
+			return;
+		}
+		int opcode = reader.getOpcode();
+		boolean withKey = opcode == GETK || opcode == GETKQ;
+		String key = reader.getKey();
+		byte[] data = commands.get(Collections.singletonList(key)).get(key);
+		if (data != null) {
+			writeHeader(reader, out, NO_ERROR, withKey ? reader.getKeyLength() : 0, ZERO_FLAGS.length, data.length);
+			out.write(ZERO_FLAGS);
+			if (withKey) {
+				reader.writeKey(out);
+			}
+			out.write(data);
+		} else if (!isQuiet(opcode)) {
+			writeError(reader, out, KEY_NOT_FOUND, "Not found");
+		}
+	}
+
+	private void store(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (reader.getExtrasLength() != 8 || reader.getKeyLength() == 0
+				|| reader.getKeyLength() > TextRequestReader.MAX_KEY_LENGTH) {
+			writeInvalidArguments(reader, out);
+			return;
+		}
+		if (reader.getValueLength() > MemcachedCommands.MAX_DATA_LENGTH) {
+			writeError(reader, out, VALUE_TOO_LARGE, "Too large.");
+			return;
+		}
+		if (reader.getCas() != 0) {
+			writeError(reader, out, NOT_SUPPORTED, "Compare-and-swap is not supported");
+			return;
+		}
+		String key = reader.getKey();
+		Long ttl = commands.ttlOf(Integer.toUnsignedLong(reader.getExtrasInt(4)));
+		byte[] data = reader.readValue();
+
+		int opcode = reader.getOpcode();
+		if (opcode == ADD || opcode == ADDQ) {
+			if (!commands.add(key, ttl, data)) {
+				writeError(reader, out, KEY_EXISTS, "Data exists for key.");
+				return;
+			}
+		} else if (opcode == REPLACE || opcode == REPLACEQ) {
+			if (!commands.replace(key, ttl, data)) {
+				writeError(reader, out, KEY_NOT_FOUND, "Not found");
+				return;
+			}
+		} else {
+			commands.set(key, ttl, data);
+		}
+		writeQuietSuccess(reader, out);
+	}
+
+	private void delete(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (!hasShape(reader, 0, true, false)) {
+			writeInvalidArguments(reader, out);
+			return;
+		}
+		if (reader.getCas() != 0) {
+			writeError(reader, out, NOT_SUPPORTED, "Compare-and-swap is not supported");
+			return;
+		}
+		if (!commands.delete(reader.getKey())) {
+			writeError(reader, out, KEY_NOT_FOUND, "Not found");
+			return;
+		}
+		writeQuietSuccess(reader, out);
+	}
+
+	/**
+	 * Adds or subtracts the delta to the value of the item, creating absent item
+	 * with the initial value unless expiration is {@code 0xFFFFFFFF}.
+	 */
+	private void incrementOrDecrement(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (!hasShape(reader, 20, true, false)) {
+			writeInvalidArguments(reader, out);
+			return;
+		}
+		if (reader.getCas() != 0) {
+			writeError(reader, out, NOT_SUPPORTED, "Compare-and-swap is not supported");
+			return;
+		}
+		String key = reader.getKey();
+		long delta = reader.getExtrasLong(0);
+		long initial = reader.getExtrasLong(8);
+		long expiration = Integer.toUnsignedLong(reader.getExtrasInt(16));
+		boolean increment = reader.getOpcode() == INCREMENT || reader.getOpcode() == INCREMENTQ;
+
+		Long value = commands.incrementOrDecrement(key, delta, increment);
+		if (value == null && expiration != NO_INITIAL_VALUE) {
+			if (commands.add(key, commands.ttlOf(expiration), MemcachedCommands.toBytes(initial))) {
+				value = initial;
+			} else {
+				// created by another client in the meantime
+				value = commands.incrementOrDecrement(key, delta, increment);
+			}
+		}
+		if (value == null) {
+			writeError(reader, out, KEY_NOT_FOUND, "Not found");
+			return;
+		}
+		if (!isQuiet(reader.getOpcode())) {
+			writeHeader(reader, out, NO_ERROR, 0, 0, COUNTER_LENGTH);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				out.write((int) (value >>> shift));
+			}
+		}
+	}
+
+	private void touch(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (!hasShape(reader, 4, true, false)) {
+			writeInvalidArguments(reader, out);
+			return;
+		}
+		Long ttl = commands.ttlOf(Integer.toUnsignedLong(reader.getExtrasInt(0)));
+		if (!commands.touch(reader.getKey(), ttl)) {
+			writeError(reader, out, KEY_NOT_FOUND, "Not found");
+			return;
+		}
+		writeSuccess(reader, out);
+	}
+
+	private void flush(BinaryRequestReader reader, OutputStream out) throws IOException {
+		boolean withExpiration = reader.getExtrasLength() == 4;
+		if (!hasShape(reader, withExpiration ? 4 : 0, false, false)) {
+			writeInvalidArguments(reader, out);
+			return;
+		}
+		if (withExpiration && reader.getExtrasInt(0) != 0) {
+			writeError(reader, out, NOT_SUPPORTED, "Delayed flush is not supported");
+			return;
+		}
+		commands.flushAll();
+		writeQuietSuccess(reader, out);
+	}
+
+	/**
+	 * Sends each statistic in the response of its own, with the name as the key
+	 * and the value as the value, terminated by the empty response. Groups of
+	 * statistics are not supported.
+	 */
+	private void stat(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (!hasShape(reader, 0, false, false)) {
+			writeInvalidArguments(reader, out);
+			return;
+		}
+		if (reader.getKeyLength() != 0) {
+			writeError(reader, out, KEY_NOT_FOUND, "Not found");
+			return;
+		}
+		for (Map.Entry<String, String> stat : commands.stats().entrySet()) {
+			byte[] name = stat.getKey().getBytes(StandardCharsets.US_ASCII);
+			byte[] value = stat.getValue().getBytes(StandardCharsets.US_ASCII);
+			writeHeader(reader, out, NO_ERROR, name.length, 0, value.length);
+			out.write(name);
+			out.write(value);
+		}
+		writeSuccess(reader, out);
+	}
+
+	/**
+	 * Tells whether the request has extras of the {@code extrasLength}, the key
+	 * if it's {@code keyRequired}, and the value if it's {@code valueRequired}.
+	 * Key which is not required is allowed though, and no key may be longer
+	 * than the one of the text protocol.
+	 */
+	private static boolean hasShape(BinaryRequestReader reader, int extrasLength, boolean keyRequired,
+			boolean valueRequired) {
+		return reader.getExtrasLength() == extrasLength && (!keyRequired || reader.getKeyLength() != 0)
+				&& reader.getKeyLength() <= TextRequestReader.MAX_KEY_LENGTH
+				&& (reader.getValueLength() != 0) == valueRequired;
+	}
+
+	private static boolean isQuiet(int opcode) {
+		switch (opcode) {
+		case GETQ:
+		case GETKQ:
+		case SETQ:
+		case ADDQ:
+		case REPLACEQ:
+		case DELETEQ:
+		case INCREMENTQ:
+		case DECREMENTQ:
+		case QUITQ:
+		case FLUSHQ:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void writeQuietSuccess(BinaryRequestReader reader, OutputStream out) throws IOException {
+		if (!isQuiet(reader.getOpcode())) {
+			writeSuccess(reader, out);
+		}
+	}
+
+	private void writeSuccess(BinaryRequestReader reader, OutputStream out) throws IOException {
+		writeHeader(reader, out, NO_ERROR, 0, 0, 0);
+	}
+
+	private void writeInvalidArguments(BinaryRequestReader reader, OutputStream out) throws IOException {
+		writeError(reader, out, INVALID_ARGUMENTS, "Invalid arguments");
+	}
+
+	private void writeError(BinaryRequestReader reader, OutputStream out, int status, String message)
+			throws IOException {
+		LOGGER.debug("Binary protocol request {} failed: {} {}", reader.getOpcode(), status, message);
+		byte[] value = message.getBytes(StandardCharsets.US_ASCII);
+		writeHeader(reader, out, status, 0, 0, value.length);
+		out.write(value);
+	}
+
+	private void writeHeader(BinaryRequestReader reader, OutputStream out, int status, int keyLength,
+			int extrasLength, int valueLength) throws IOException {
+		writeHeader(header, reader.getOpcode(), status, keyLength, extrasLength, valueLength, reader.getOpaque());
+		out.write(header);
+	}
+
+	/**
+	 * Fills the {@code header} of the response, leaving its CAS as it is, which
+	 * is zero in the header of the fresh array.
+	 */
+	static void writeHeader(byte[] header, int opcode, int status, int keyLength, int extrasLength,
+			int valueLength, int opaque) {
+		int bodyLength = extrasLength + keyLength + valueLength;
+		header[0] = (byte) RESPONSE_MAGIC;
+		header[1] = (byte) opcode;
+		header[2] = (byte) (keyLength >>> 8);
+		header[3] = (byte) keyLength;
+		header[4] = (byte) extrasLength;
+		header[5] = 0; // data type, always raw bytes
+		header[6] = (byte) (status >>> 8);
+		header[7] = (byte) status;
+		writeInt(header, 8, bodyLength);
+		writeInt(header, 12, opaque);
+	}
+
+	private static void writeInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+}
@@ -0,0 +1,186 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+
+/**
+ * Streaming reader of the requests of the memcached binary protocol. Header,
+ * extras and key of the request are read into the buffers reused by all the
+ * requests of the connection, while the value is read into the array of its
+ * exact size, which is then stored as it is. Value which is neither read nor
+ * skipped is skipped when the next request is read, so the reader always stays
+ * at the boundary of the requests. Single reader serves single connection.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class BinaryRequestReader {
+	static final int HEADER_LENGTH = 24;
+	static final int REQUEST_MAGIC = 0x80;
+
+	private static final int MAX_EXTRAS_LENGTH = 0xFF;
+	private static final int MAX_KEY_LENGTH = 0xFFFF;
+
+	private final BufferedInputStream bufferedIn;
+	private final DataInputStream in;
+	private final byte[] extras = new byte[MAX_EXTRAS_LENGTH];
+	private final byte[] key = new byte[MAX_KEY_LENGTH];
+
+	private int opcode;
+	private int extrasLength;
+	private int keyLength;
+	private long valueLength;
+	private int opaque;
+	private long cas;
+
+	BinaryRequestReader(InputStream in, int bufferSize) {
+		requireNonNull(in, "in can not be null");
+		if (bufferSize < HEADER_LENGTH) {
+			throw new IllegalArgumentException("bufferSize should be >= " + HEADER_LENGTH + ": " + bufferSize);
+		}
+		this.bufferedIn = new BufferedInputStream(in, bufferSize);
+		this.in = new DataInputStream(bufferedIn);
+	}
+
+	/**
+	 * Reads header, extras and key of the next request. They stay available
+	 * until the next request is read.
+	 *
+	 * @return {@code false} if the stream has ended before the next request
+	 * @throws EOFException        if the stream has ended in the middle of the
+	 *                             request
+	 * @throws JMemcachedException if the header is not the one of the request,
+	 *                             so the boundary of the next request is unknown
+	 */
+	boolean readRequest() throws IOException {
+		skipValue();
+		int magic = in.read();
+		if (magic < 0) {
+			return false;
+		}
+		if (magic != REQUEST_MAGIC) {
+			throw new JMemcachedException("Invalid magic of the binary protocol request: " + magic);
+		}
+		opcode = in.readUnsignedByte();
+		keyLength = in.readUnsignedShort();
+		extrasLength = in.readUnsignedByte();
+		in.readUnsignedByte(); // data type, always raw bytes
+		in.readUnsignedShort(); // vbucket id, not used
+		long bodyLength = Integer.toUnsignedLong(in.readInt());
+		opaque = in.readInt();
+		cas = in.readLong();
+
+		valueLength = bodyLength - extrasLength - keyLength;
+		if (valueLength < 0) {
+			throw new JMemcachedException("Invalid body length of the binary protocol request: " + bodyLength);
+		}
+		in.readFully(extras, 0, extrasLength);
+		in.readFully(key, 0, keyLength);
+		return true;
+	}
+
+	int getOpcode() {
+		return opcode;
+	}
+
+	/**
+	 * Returns opaque value of the request, which is sent back unchanged with its
+	 * response.
+	 */
+	int getOpaque() {
+		return opaque;
+	}
+
+	long getCas() {
+		return cas;
+	}
+
+	int getExtrasLength() {
+		return extrasLength;
+	}
+
+	/**
+	 * Returns big-endian 32-bit number of the extras, starting at the
+	 * {@code offset}.
+	 */
+	int getExtrasInt(int offset) {
+		return (extras[offset] & 0xFF) << 24 | (extras[offset + 1] & 0xFF) << 16 | (extras[offset + 2] & 0xFF) << 8
+				| extras[offset + 3] & 0xFF;
+	}
+
+	/**
+	 * Returns big-endian 64-bit number of the extras, starting at the
+	 * {@code offset}.
+	 */
+	long getExtrasLong(int offset) {
+		return Integer.toUnsignedLong(getExtrasInt(offset)) << 32 | Integer.toUnsignedLong(getExtrasInt(offset + 4));
+	}
+
+	int getKeyLength() {
+		return keyLength;
+	}
+
+	/**
+	 * Returns the key decoded as UTF-8 string.
+	 */
+	String getKey() {
+		return new String(key, 0, keyLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the key as it has been received into the {@code out} stream.
+	 */
+	void writeKey(OutputStream out) throws IOException {
+		out.write(key, 0, keyLength);
+	}
+
+	/**
+	 * Returns length of the value which has not been read or skipped yet.
+	 */
+	long getValueLength() {
+		return valueLength;
+	}
+
+	/**
+	 * Reads the value of the request.
+	 */
+	byte[] readValue() throws IOException {
+		byte[] value = new byte[(int) valueLength];
+		in.readFully(value);
+		valueLength = 0;
+		return value;
+	}
+
+	/**
+	 * Skips the value of the request which is not going to be read.
+	 */
+	void skipValue() throws IOException {
+		while (valueLength > 0) {
+			int skipped = in.skipBytes((int) Math.min(valueLength, Integer.MAX_VALUE));
+			if (skipped == 0) {
+				if (in.read() < 0) {
+					throw new EOFException("Stream has ended in the middle of the request value");
+				}
+				skipped = 1;
+			}
+			valueLength -= skipped;
+		}
+	}
+
+	/**
+	 * Tells whether bytes of the next request have already been received, so
+	 * responses may wait to be sent along with the next ones.
+	 */
+	boolean hasBufferedInput() throws IOException {
+		return bufferedIn.available() > 0;
+	}
+}
@@ -0,0 +1,64 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link InputStream} implementation which reads bytes from the underlying
+ * {@link ByteBuffer}. Besides reading it tracks whether somebody tried to read
+ * more bytes than the buffer currently contains, which allows to detect that
+ * the buffer holds only a part of the message being decoded.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+	private boolean underflow;
+
+	ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = requireNonNull(buffer, "buffer can not be null");
+		this.underflow = false;
+	}
+
+	@Override
+	public int read() {
+		if (!buffer.hasRemaining()) {
+			underflow = true;
+			return -1;
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (!buffer.hasRemaining()) {
+			underflow = true;
+			return -1;
+		}
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		if (count < len) {
+			underflow = true;
+		}
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	/**
+	 * Returns {@code true} if there was an attempt to read more bytes than the
+	 * underlying buffer contained.
+	 */
+	boolean isUnderflow() {
+		return underflow;
+	}
+}
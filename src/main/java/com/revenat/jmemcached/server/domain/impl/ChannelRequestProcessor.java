@@ -0,0 +1,96 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.protocol.RequestReader;
+import com.revenat.jmemcached.protocol.ResponseWriter;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+/**
+ * Component responsible for incremental processing of client's requests received
+ * by non-blocking channel. Unlike {@link DefaultRequestProcessor} it never blocks
+ * waiting for the rest of the request: if the input buffer contains only a part
+ * of the request, buffer is left untouched until more bytes arrive.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ChannelRequestProcessor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChannelRequestProcessor.class);
+
+	private final RequestReader requestReader;
+	private final ResponseWriter responseWriter;
+	private final CommandHandler commandHandler;
+
+	ChannelRequestProcessor(RequestReader requestReader, ResponseWriter responseWriter,
+			CommandHandler commandHandler) {
+		this.requestReader = requireNonNull(requestReader, "requestReader can not be null");
+		this.responseWriter = requireNonNull(responseWriter, "responseWriter can not be null");
+		this.commandHandler = requireNonNull(commandHandler, "commandHandler can not be null");
+	}
+
+	/**
+	 * Tries to decode single {@link Request} from the {@code input} buffer, handles
+	 * it and writes {@link Response} to the {@code output}.
+	 *
+	 * @param input  buffer (in read mode) with bytes received from the client
+	 * @param output stream to write encoded {@link Response} to
+	 * @return {@code true} if request has been processed, {@code false} if
+	 *         {@code input} does not contain complete request yet, in which case
+	 *         {@code input} position remains unchanged
+	 * @throws IOException         if request is malformed or response can not be
+	 *                             written
+	 * @throws JMemcachedException if error occurred during handling the request
+	 */
+	boolean process(ByteBuffer input, OutputStream output) throws IOException {
+		if (!input.hasRemaining()) {
+			return false;
+		}
+		int requestStart = input.position();
+		Request request = readRequest(input);
+		if (request == null) {
+			input.position(requestStart);
+			return false;
+		}
+		try {
+			Response response = commandHandler.handle(request);
+			responseWriter.writeTo(output, response);
+			LOGGER.debug("Command {} -> {}", request, response);
+			return true;
+		} catch (RuntimeException e) {
+			throw new JMemcachedException("Process request failed", e);
+		}
+	}
+
+	/**
+	 * Returns decoded {@link Request} or {@code null} if {@code input} does not
+	 * contain complete request.
+	 */
+	private Request readRequest(ByteBuffer input) throws IOException {
+		ByteBufferInputStream in = new ByteBufferInputStream(input);
+		try {
+			Request request = requestReader.readFrom(in);
+			return in.isUnderflow() ? null : request;
+		} catch (IOException e) {
+			if (in.isUnderflow()) {
+				return null;
+			}
+			throw e;
+		} catch (RuntimeException e) {
+			if (in.isUnderflow()) {
+				return null;
+			}
+			throw new JMemcachedException("Process request failed", e);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import com.revenat.jmemcached.server.domain.ServerStorage;
+
+/**
+ * {@link ServerStorage} whose expired items are removed by the background
+ * cleaner, which may also be run on demand.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+interface CleanableStorage extends ServerStorage {
+
+	/**
+	 * Removes expired items right away in the calling thread, the same way the
+	 * background cleaner does, and records the run to the
+	 * {@link #getCleanerStatistics()}.
+	 *
+	 * @return count of the removed expired items
+	 */
+	int clearExpiredData();
+
+	/**
+	 * Returns {@link CleanerStatistics} of the runs removing expired items.
+	 */
+	CleanerStatistics getCleanerStatistics();
+}
@@ -0,0 +1,74 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the runs which remove expired items from the storage. Runs may
+ * be recorded by several cleaner threads at once, so totals are striped
+ * counters and the last run is the one which has finished last.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class CleanerStatistics {
+	private final LongAdder runCount = new LongAdder();
+	private final LongAdder totalRunNanos = new LongAdder();
+	private final LongAdder totalScannedCount = new LongAdder();
+	private final LongAdder totalRemovedCount = new LongAdder();
+	private volatile LastRun lastRun = new LastRun(0L, 0L, 0L);
+
+	/**
+	 * Records single run of the cleaner.
+	 *
+	 * @param durationNanos time in nanoseconds run has taken
+	 * @param scannedCount  count of items checked for expiration
+	 * @param removedCount  count of expired items removed
+	 */
+	void recordRun(long durationNanos, long scannedCount, long removedCount) {
+		runCount.increment();
+		totalRunNanos.add(durationNanos);
+		totalScannedCount.add(scannedCount);
+		totalRemovedCount.add(removedCount);
+		lastRun = new LastRun(durationNanos, scannedCount, removedCount);
+	}
+
+	long getRunCount() {
+		return runCount.sum();
+	}
+
+	long getTotalRunNanos() {
+		return totalRunNanos.sum();
+	}
+
+	long getTotalScannedCount() {
+		return totalScannedCount.sum();
+	}
+
+	long getTotalRemovedCount() {
+		return totalRemovedCount.sum();
+	}
+
+	long getLastRunNanos() {
+		return lastRun.durationNanos;
+	}
+
+	long getLastScannedCount() {
+		return lastRun.scannedCount;
+	}
+
+	long getLastRemovedCount() {
+		return lastRun.removedCount;
+	}
+
+	private static class LastRun {
+		final long durationNanos;
+		final long scannedCount;
+		final long removedCount;
+
+		LastRun(long durationNanos, long scannedCount, long removedCount) {
+			this.durationNanos = durationNanos;
+			this.scannedCount = scannedCount;
+			this.removedCount = removedCount;
+		}
+	}
+}
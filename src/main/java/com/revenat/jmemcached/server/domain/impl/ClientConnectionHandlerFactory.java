@@ -3,6 +3,7 @@ package com.revenat.jmemcached.server.domain.impl;
 import static java.util.Objects.requireNonNull;
 
 import java.net.Socket;
+import java.time.Clock;
 
 import com.revenat.jmemcached.exception.JMemcachedException;
 import com.revenat.jmemcached.protocol.RequestReader;
@@ -11,8 +12,10 @@ import com.revenat.jmemcached.protocol.impl.RequestConverter;
 import com.revenat.jmemcached.protocol.impl.ResponseConverter;
 import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
 import com.revenat.jmemcached.server.domain.CommandHandler;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
 import com.revenat.jmemcached.server.domain.RequestProcessor;
 import com.revenat.jmemcached.server.domain.ServerStorage;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
 
 /**
  * Factory class responsible for building new instances of the
@@ -30,19 +33,41 @@ class ClientConnectionHandlerFactory implements AutoCloseable {
 	private final ResponseWriter responseWriter;
 	private final CommandHandler commandHandler;
 	private final RequestProcessor requestProcessor;
+	private final ChannelRequestProcessor channelRequestProcessor;
+	private final RequestRecorder requestRecorder;
+	private final DateTimeProvider dateTimeProvider;
 	
 	private boolean isClosed;
 
 	ClientConnectionHandlerFactory(ServerStorage storage) {
+		this(storage, null);
+	}
+
+	/**
+	 * @param writeLog {@link WriteLog} mutations of the storage are logged to, or
+	 *                 {@code null} if they are not logged
+	 */
+	ClientConnectionHandlerFactory(ServerStorage storage, WriteLog writeLog) {
+		this(storage, writeLog, new DefaultDateTimeProvider(Clock.systemDefaultZone()));
+	}
+
+	/**
+	 * @param dateTimeProvider {@link DateTimeProvider} expiration times of the
+	 *                         memcached protocol requests are converted by
+	 */
+	ClientConnectionHandlerFactory(ServerStorage storage, WriteLog writeLog, DateTimeProvider dateTimeProvider) {
 		this.storage = requireNonNull(storage);
+		this.dateTimeProvider = requireNonNull(dateTimeProvider, "dateTimeProvider can not be null");
 		this.isClosed = false;
 		this.requestReader = new RequestConverter();
 		this.responseWriter = new ResponseConverter();
-		this.commandHandler = buildHandlersChain(storage);
+		this.requestRecorder = new RequestRecorder();
+		this.commandHandler = buildHandlersChain(storage, writeLog);
 		this.requestProcessor = new DefaultRequestProcessor(requestReader, responseWriter, commandHandler);
+		this.channelRequestProcessor = new ChannelRequestProcessor(requestReader, responseWriter, commandHandler);
 	}
 
-	private CommandHandler buildHandlersChain(ServerStorage stor) {
+	private CommandHandler buildHandlersChain(ServerStorage stor, WriteLog writeLog) {
 		AbstractCommandHandler handler = new GetCommandHandler(stor);
 
 		handler.add(new PutCommandHandler(stor));
@@ -50,7 +75,8 @@ class ClientConnectionHandlerFactory implements AutoCloseable {
 		handler.add(new ClearCommandHandler(stor));
 		handler.add(new UnsupportedCommandHandler(stor));
 
-		return handler;
+		CommandHandler chain = writeLog != null ? new WriteLogCommandHandler(handler, writeLog) : handler;
+		return new RecordingCommandHandler(chain, requestRecorder);
 	}
 
 	/**
@@ -69,6 +95,85 @@ class ClientConnectionHandlerFactory implements AutoCloseable {
 		return new DefaultClientConnectionHandler(clientSocket, requestProcessor);
 	}
 
+	/**
+	 * Builds new {@link ClientConnectionHandler} instance for handling
+	 * connection of the client speaking memcached text protocol.
+	 * 
+	 * @param clientSocket {@link Socket} representing client's connection with
+	 *                     the server.
+	 * @param commands     {@link MemcachedCommands} shared by the memcached
+	 *                     protocol connections
+	 * @throws JMemcachedException if try to create {@link ClientConnectionHandler}
+	 *                             after the factory has been closed.
+	 */
+	ClientConnectionHandler createTextConnectionHandler(Socket clientSocket, MemcachedCommands commands) {
+		if (isClosed) {
+			throw new JMemcachedException("Can not create ClientConnectionHandler: factory has been closed!");
+		}
+		return new TextClientConnectionHandler(clientSocket, new TextCommandProcessor(commands));
+	}
+
+	/**
+	 * Builds new {@link ClientConnectionHandler} instance for handling
+	 * connection of the client speaking memcached binary protocol.
+	 * 
+	 * @param clientSocket {@link Socket} representing client's connection with
+	 *                     the server.
+	 * @param commands     {@link MemcachedCommands} shared by the memcached
+	 *                     protocol connections
+	 * @throws JMemcachedException if try to create {@link ClientConnectionHandler}
+	 *                             after the factory has been closed.
+	 */
+	ClientConnectionHandler createBinaryConnectionHandler(Socket clientSocket, MemcachedCommands commands) {
+		if (isClosed) {
+			throw new JMemcachedException("Can not create ClientConnectionHandler: factory has been closed!");
+		}
+		return new BinaryClientConnectionHandler(clientSocket, new BinaryCommandProcessor(commands));
+	}
+
+	/**
+	 * Builds new {@link MemcachedCommands} which shares {@link CommandHandler}
+	 * chain and {@link RequestRecorder} with all {@link ClientConnectionHandler}s
+	 * produced by this factory.
+	 * 
+	 * @param serverStats {@link ServerStats} reported by the commands
+	 */
+	MemcachedCommands createMemcachedCommands(ServerStats serverStats) {
+		return new MemcachedCommands(commandHandler, storage, requestRecorder, serverStats, dateTimeProvider);
+	}
+
+	/**
+	 * Returns head of the {@link CommandHandler} chain shared by all the
+	 * connections served by this factory.
+	 */
+	CommandHandler getCommandHandler() {
+		return commandHandler;
+	}
+
+	/**
+	 * Returns {@link RequestRecorder} of the requests handled by the
+	 * {@link CommandHandler} chain of this factory.
+	 */
+	RequestRecorder getRequestRecorder() {
+		return requestRecorder;
+	}
+
+	/**
+	 * Returns {@link StorageStatistics} of the storage requests are served from.
+	 */
+	StorageStatistics getStorageStatistics() {
+		return storage.getStatistics();
+	}
+
+	/**
+	 * Returns {@link ChannelRequestProcessor} instance which shares
+	 * {@link CommandHandler} chain with all {@link ClientConnectionHandler}s
+	 * produced by this factory.
+	 */
+	ChannelRequestProcessor getChannelRequestProcessor() {
+		return channelRequestProcessor;
+	}
+
 	@Override
 	public void close() throws Exception {
 		isClosed = true;
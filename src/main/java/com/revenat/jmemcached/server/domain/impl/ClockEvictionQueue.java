@@ -0,0 +1,172 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+
+/**
+ * {@link EvictionQueue} which keeps track of the {@link EvictableItem}s order and
+ * chooses eviction victims using approximate LRU algorithm (CLOCK, also known
+ * as "second chance").
+ * <p>
+ * Items are spread over several independently locked segments by their key
+ * hash. Reading an item never locks: it only marks item as recently used, so
+ * when eviction reaches such an item it is moved to the tail of its segment
+ * instead of being evicted.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ClockEvictionQueue implements EvictionQueue {
+	private static final byte QUEUED = 1;
+
+	private final Segment[] segments;
+	private final AtomicInteger hand;
+
+	ClockEvictionQueue(int segmentCount) {
+		if (segmentCount < 1) {
+			throw new IllegalArgumentException("segmentCount should be >= 1: " + segmentCount);
+		}
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment();
+		}
+		this.hand = new AtomicInteger();
+	}
+
+	@Override
+	public void add(EvictableItem item) {
+		segmentFor(item).add(item);
+	}
+
+	@Override
+	public void remove(EvictableItem item) {
+		segmentFor(item).remove(item);
+	}
+
+	@Override
+	public void touch(EvictableItem item) {
+		item.referenced = true;
+	}
+
+	@Override
+	public EvictableItem evict() {
+		// second pass is needed only if all the items were recently used
+		for (int i = 0; i < 2 * segments.length; i++) {
+			int index = Math.floorMod(hand.getAndIncrement(), segments.length);
+			EvictableItem victim = segments[index].evict();
+			if (victim != null) {
+				return victim;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	private Segment segmentFor(EvictableItem item) {
+		return segments[Math.floorMod(item.key.hashCode(), segments.length)];
+	}
+
+	/**
+	 * Single segment of the {@link ClockEvictionQueue}, which represents doubly
+	 * linked list of the {@link EvictableItem}s guarded by its own lock.
+	 */
+	private static class Segment {
+		private final ReentrantLock lock = new ReentrantLock();
+		private EvictableItem head;
+		private EvictableItem tail;
+		private int size;
+
+		void add(EvictableItem item) {
+			lock.lock();
+			try {
+				linkLast(item);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void remove(EvictableItem item) {
+			lock.lock();
+			try {
+				if (item.queuedIn != EvictableItem.NOT_QUEUED) {
+					unlink(item);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Makes single pass over the segment and returns first item which was not
+		 * used recently, or {@code null} if there is no such item.
+		 */
+		EvictableItem evict() {
+			lock.lock();
+			try {
+				for (int i = size; i > 0; i--) {
+					EvictableItem candidate = head;
+					unlink(candidate);
+					if (candidate.referenced) {
+						// give recently used item second chance
+						candidate.referenced = false;
+						linkLast(candidate);
+					} else {
+						return candidate;
+					}
+				}
+				return null;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void clear() {
+			lock.lock();
+			try {
+				while (head != null) {
+					unlink(head);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void linkLast(EvictableItem item) {
+			item.prev = tail;
+			item.next = null;
+			if (tail == null) {
+				head = item;
+			} else {
+				tail.next = item;
+			}
+			tail = item;
+			item.queuedIn = QUEUED;
+			size++;
+		}
+
+		private void unlink(EvictableItem item) {
+			if (item.prev == null) {
+				head = item.next;
+			} else {
+				item.prev.next = item.next;
+			}
+			if (item.next == null) {
+				tail = item.prev;
+			} else {
+				item.next.prev = item.prev;
+			}
+			item.prev = null;
+			item.next = null;
+			item.queuedIn = EvictableItem.NOT_QUEUED;
+			size--;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+
+/**
+ * This {@link DateTimeProvider} implementation serves current time from a
+ * volatile field which is refreshed from the underlying provider by the single
+ * ticker thread once per tick. Reading current time on the hot path is
+ * therefore a plain memory read, at the cost of being up to one tick behind.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class CoarseDateTimeProvider implements DateTimeProvider, AutoCloseable {
+	private static final String TICKER_THREAD_NAME = "coarseClockTickerThread";
+
+	private final DateTimeProvider dateTimeProvider;
+	private final long tickNanos;
+	private final Thread ticker;
+	private volatile long currentTimeInMillis;
+
+	/**
+	 * @param dateTimeProvider provider of the precise current time
+	 * @param tickMillis       how often current time is refreshed, in milliseconds
+	 */
+	CoarseDateTimeProvider(DateTimeProvider dateTimeProvider, long tickMillis) {
+		this.dateTimeProvider = requireNonNull(dateTimeProvider, "dateTimeProvider can not be null");
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException("tickMillis should be >= 1: " + tickMillis);
+		}
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.currentTimeInMillis = dateTimeProvider.getCurrentTimeInMillis();
+		this.ticker = new Thread(this::tick, TICKER_THREAD_NAME);
+		this.ticker.setDaemon(true);
+		this.ticker.start();
+	}
+
+	private void tick() {
+		while (!Thread.currentThread().isInterrupted()) {
+			currentTimeInMillis = dateTimeProvider.getCurrentTimeInMillis();
+			LockSupport.parkNanos(tickNanos);
+		}
+	}
+
+	@Override
+	public long getCurrentTimeInMillis() {
+		return currentTimeInMillis;
+	}
+
+	@Override
+	public LocalDateTime getDateTimeFrom(long millis) {
+		return dateTimeProvider.getDateTimeFrom(millis);
+	}
+
+	/**
+	 * Stops the ticker thread. Current time is not refreshed afterwards.
+	 */
+	@Override
+	public void close() {
+		ticker.interrupt();
+	}
+}
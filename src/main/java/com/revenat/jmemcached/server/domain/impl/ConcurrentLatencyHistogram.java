@@ -0,0 +1,113 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with log-linear buckets:
+ * each power of two range is split into {@link #SUB_BUCKET_COUNT} equal
+ * buckets, so any recorded value is known with relative error below 1/16,
+ * whatever its magnitude is. Values above about half an hour fall into the last
+ * bucket.
+ * <p>
+ * Recording takes uncontended increments of the bucket counter and of the sum
+ * of values, which are striped across threads once they start contending for
+ * them.
+ * <p>
+ * Unlike the load generator's
+ * {@link com.revenat.jmemcached.server.loadgen.LatencyHistogram}, which is
+ * recorded by a single thread and keeps three significant digits, this one is
+ * shared by all the worker threads and keeps few enough buckets to be exported
+ * as is.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ConcurrentLatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+	private final LongAdder totalNanos = new LongAdder();
+
+	ConcurrentLatencyHistogram() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	void record(long valueNanos) {
+		buckets[bucketIndex(valueNanos)].increment();
+		totalNanos.add(valueNanos);
+	}
+
+	/**
+	 * Returns sum of the values recorded so far.
+	 */
+	long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 * Returns counts of values recorded in each bucket so far.
+	 */
+	long[] getCounts() {
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns upper bound of the bucket holding specified {@code percentile} of
+	 * the values recorded so far, or {@code 0} if nothing has been recorded.
+	 */
+	long getPercentile(double percentile) {
+		return getPercentile(getCounts(), percentile);
+	}
+
+	static long getPercentile(long[] counts, double percentile) {
+		long totalCount = 0;
+		for (long count : counts) {
+			totalCount += count;
+		}
+		if (totalCount == 0) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(totalCount * Math.min(percentile, 100.0) / 100.0));
+		long seenCount = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seenCount += counts[i];
+			if (seenCount >= rank) {
+				return bucketUpperBound(i);
+			}
+		}
+		return bucketUpperBound(counts.length - 1);
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return value < 0 ? 0 : (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+	}
+
+	static long bucketLowerBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		return (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+	}
+
+	static long bucketUpperBound(int index) {
+		return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : bucketLowerBound(index + 1) - 1;
+	}
+}
@@ -0,0 +1,71 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import com.revenat.jmemcached.server.domain.ConnectionPoolMXBean;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+
+/**
+ * Default implementation of the {@link ConnectionPoolMXBean} interface, which
+ * reads the {@link ConnectionStatistics} of the connection manager.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ConnectionPoolMonitor implements ConnectionPoolMXBean {
+	private final ConnectionStatistics statistics;
+
+	ConnectionPoolMonitor(ConnectionStatistics statistics) {
+		this.statistics = requireNonNull(statistics, "statistics can not be null");
+	}
+
+	@Override
+	public int getActiveWorkerCount() {
+		return statistics.getActiveWorkerCount();
+	}
+
+	@Override
+	public int getWorkerCount() {
+		return statistics.getWorkerCount();
+	}
+
+	@Override
+	public int getLargestWorkerCount() {
+		return statistics.getLargestWorkerCount();
+	}
+
+	@Override
+	public int getMaxWorkerCount() {
+		return statistics.getMaxWorkerCount();
+	}
+
+	@Override
+	public long getCurrentConnectionCount() {
+		return statistics.getCurrentConnectionCount();
+	}
+
+	@Override
+	public long getQueuedConnectionCount() {
+		return statistics.getQueuedConnectionCount();
+	}
+
+	@Override
+	public long getAdmittedConnectionCount() {
+		return statistics.getAdmittedConnectionCount();
+	}
+
+	@Override
+	public long getRejectedConnectionCount() {
+		return statistics.getRejectedConnectionCount();
+	}
+
+	@Override
+	public long getTimedOutConnectionCount() {
+		return statistics.getTimedOutConnectionCount();
+	}
+
+	@Override
+	public long getMaxQueueWaitMillis() {
+		return statistics.getMaxQueueWaitMillis();
+	}
+}
@@ -0,0 +1,54 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded queue of the client connections waiting for the worker thread of the
+ * {@link ThreadPoolExecutor}. Unlike plain bounded queue, which makes executor
+ * start threads beyond its core size only once the queue is full, it refuses
+ * connections while executor has no idle threads and may start new ones, so
+ * connections are queued only when all the worker threads are busy.
+ * <p>
+ * Executor should use {@link #rejectionHandler()}, which queues connection
+ * refused this way if executor couldn't start new thread after all.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ConnectionQueue extends LinkedBlockingQueue<Runnable> {
+	private static final long serialVersionUID = 3652462164317722094L;
+
+	private transient ThreadPoolExecutor threadPool;
+
+	ConnectionQueue(int capacity) {
+		super(capacity);
+	}
+
+	void setThreadPool(ThreadPoolExecutor threadPool) {
+		this.threadPool = threadPool;
+	}
+
+	@Override
+	public boolean offer(Runnable connection) {
+		if (threadPool != null && threadPool.getPoolSize() < threadPool.getMaximumPoolSize()
+				&& threadPool.getActiveCount() >= threadPool.getPoolSize()) {
+			return false;
+		}
+		return super.offer(connection);
+	}
+
+	/**
+	 * Returns {@link RejectedExecutionHandler} which queues connection executor
+	 * has failed to start new thread for, and rejects it only if queue is full.
+	 */
+	RejectedExecutionHandler rejectionHandler() {
+		return (connection, executor) -> {
+			if (executor.isShutdown() || !super.offer(connection)) {
+				throw new RejectedExecutionException("Connection queue is full");
+			}
+		};
+	}
+}
@@ -2,10 +2,10 @@ package com.revenat.jmemcached.server.domain.impl;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
 
@@ -19,12 +19,17 @@ import com.revenat.jmemcached.server.domain.RequestProcessor;
 /**
  * Default implementation of the {@link ClientConnectionHandler} interface.
  * Uses {@link Socket} to represents connection with a client.
+ * <p>
+ * Socket streams are buffered for the whole life of the connection. Responses
+ * are sent only when there are no more bytes of the next request received, so
+ * client pipelining its requests gets the responses in a few large writes.
  * 
  * @author Vitaly Dragun
  *
  */
 class DefaultClientConnectionHandler implements ClientConnectionHandler {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultClientConnectionHandler.class);
+	static final int BUFFER_SIZE = 8 * 1024;
 	
 	private final Socket clientSocket;
 	private final RequestProcessor requestProcessor;
@@ -36,12 +41,16 @@ class DefaultClientConnectionHandler implements ClientConnectionHandler {
 
 	@Override
 	public void run() {
+		PipelineOutputStream clientOutput = null;
 		try {
-			InputStream clientInput = clientSocket.getInputStream();
-			OutputStream clientOutput = clientSocket.getOutputStream();
+			InputStream clientInput = new BufferedInputStream(clientSocket.getInputStream(), BUFFER_SIZE);
+			clientOutput = new PipelineOutputStream(clientSocket.getOutputStream(), BUFFER_SIZE);
 			
 			while (shouldContinue()) {
 				requestProcessor.process(clientInput, clientOutput);
+				if (clientInput.available() == 0) {
+					clientOutput.flushPipeline();
+				}
 			}
 		} catch (EOFException | SocketException e) {
 			LOGGER.info("Remote client connection closed: {}: {}", clientSocket.getRemoteSocketAddress(), e.getMessage());
@@ -53,10 +62,36 @@ class DefaultClientConnectionHandler implements ClientConnectionHandler {
 			LOGGER.error(e.getMessage(), e);
 		}
 		finally {
+			flushPendingResponses(clientOutput);
 			closeClientSocket();
 		}
 	}
 	
+	/**
+	 * Closes connection of the client which hasn't been admitted. Native
+	 * protocol has no status to tell the client server is busy, so it learns
+	 * that from the closed connection.
+	 */
+	@Override
+	public void reject() {
+		LOGGER.info("Rejecting client connection: {}", clientSocket.getRemoteSocketAddress());
+		closeClientSocket();
+	}
+	
+	/**
+	 * Sends responses to the requests received before the client has stopped
+	 * sending new ones, if it still waits for them.
+	 */
+	private void flushPendingResponses(PipelineOutputStream clientOutput) {
+		if (clientOutput != null && !clientSocket.isClosed()) {
+			try {
+				clientOutput.flushPipeline();
+			} catch (IOException e) {
+				LOGGER.debug("Flush pending responses failed: {}", e.getMessage());
+			}
+		}
+	}
+	
 	private boolean shouldContinue() {
 		return !Thread.interrupted();
 	}
@@ -2,6 +2,8 @@ package com.revenat.jmemcached.server.domain.impl;
 
 import static java.util.Objects.requireNonNull;
 
+import java.lang.management.ManagementFactory;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,12 +22,41 @@ class DefaultServer implements Server {
 	
 	private final ServerConfig serverConfig;
 	private final ServerTask serverTask;
+	private final StoragePersistence storagePersistence;
+	private final ManagementBeans managementBeans;
+	private final MetricsEndpoint metricsEndpoint;
 	private final Thread mainServerThread;
 	private volatile boolean serverStopped;
 	
 	DefaultServer(ServerTask serverTask, ServerConfig serverConfig) {
+		this(serverTask, serverConfig, StoragePersistence.NONE);
+	}
+	
+	DefaultServer(ServerTask serverTask, ServerConfig serverConfig, StoragePersistence storagePersistence) {
+		this(serverTask, serverConfig, storagePersistence,
+				new ManagementBeans(ManagementFactory.getPlatformMBeanServer(), serverConfig.getServerPort()));
+	}
+	
+	/**
+	 * @param managementBeans {@link ManagementBeans} registered while server is
+	 *                        running
+	 */
+	DefaultServer(ServerTask serverTask, ServerConfig serverConfig, StoragePersistence storagePersistence,
+			ManagementBeans managementBeans) {
+		this(serverTask, serverConfig, storagePersistence, managementBeans, MetricsEndpoint.NONE);
+	}
+	
+	/**
+	 * @param metricsEndpoint {@link MetricsEndpoint} serving metrics while server
+	 *                        is running
+	 */
+	DefaultServer(ServerTask serverTask, ServerConfig serverConfig, StoragePersistence storagePersistence,
+			ManagementBeans managementBeans, MetricsEndpoint metricsEndpoint) {
 		this.serverTask = requireNonNull(serverTask, "serverTask can not be null");
 		this.serverConfig = requireNonNull(serverConfig, "serverConfig can not be null");
+		this.storagePersistence = requireNonNull(storagePersistence, "storagePersistence can not be null");
+		this.managementBeans = requireNonNull(managementBeans, "managementBeans can not be null");
+		this.metricsEndpoint = requireNonNull(metricsEndpoint, "metricsEndpoint can not be null");
 		this.serverTask.setServer(this);
 		this.mainServerThread = createMainServerThread(serverTask);
 	}
@@ -45,6 +76,9 @@ class DefaultServer implements Server {
 					+ "Please create a new server instance.");
 		}
 		Runtime.getRuntime().addShutdownHook(getShutdownHook());
+		storagePersistence.restore();
+		managementBeans.register();
+		metricsEndpoint.start();
 		mainServerThread.start();
 		LOGGER.info("Server started: {}", serverConfig);
 	}
@@ -66,6 +100,9 @@ class DefaultServer implements Server {
 	private void shutdownServer() {
 		mainServerThread.interrupt();
 		serverTask.shutdown();
+		metricsEndpoint.close();
+		managementBeans.close();
+		storagePersistence.close();
 		LOGGER.info("Server stopped");
 		serverStopped = true;
 	}
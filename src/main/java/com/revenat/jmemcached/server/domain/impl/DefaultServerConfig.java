@@ -1,10 +1,20 @@
 package com.revenat.jmemcached.server.domain.impl;
 
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Properties;
 
 import com.revenat.jmemcached.exception.JMemcachedConfigException;
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
 import com.revenat.jmemcached.server.domain.ResourceLoader;
 import com.revenat.jmemcached.server.domain.ServerConfig;
+import com.revenat.jmemcached.server.domain.ServerTransport;
+import com.revenat.jmemcached.server.domain.SnapshotLoadMode;
+import com.revenat.jmemcached.server.domain.WriteLogSyncPolicy;
+import com.revenat.jmemcached.server.domain.StorageEngine;
+import com.revenat.jmemcached.server.domain.WorkerThreadType;
 
 /**
  * Default implementation of the {@link ServerConfig}
@@ -15,16 +25,52 @@ import com.revenat.jmemcached.server.domain.ServerConfig;
 class DefaultServerConfig implements ServerConfig {
 	static final String MAX_THREAD_COUNT_PROPERTY = "jmemcached.server.max.thread.count";
 	static final String INIT_THREAD_COUNT_PROPERTY = "jmemcached.server.init.thread.count";
+	static final String CONNECTION_QUEUE_SIZE_PROPERTY = "jmemcached.server.connection.queue.size";
+	static final String CONNECTION_QUEUE_MAX_WAIT_PROPERTY = "jmemcached.server.connection.queue.max.wait";
 	static final String SERVER_PORT_PROPERTY = "jmemcached.server.port";
+	static final String METRICS_PORT_PROPERTY = "jmemcached.server.metrics.port";
+	static final String TEXT_PORT_PROPERTY = "jmemcached.server.text.port";
+	static final String BINARY_PORT_PROPERTY = "jmemcached.server.binary.port";
 	static final String CLEAR_DATA_INTERVAL_PROPERTY = "jmemcached.storage.clear.data.interval";
+	static final String TRANSPORT_PROPERTY = "jmemcached.server.transport";
+	static final String EVENT_LOOP_COUNT_PROPERTY = "jmemcached.server.event.loop.count";
+	static final String WORKER_THREAD_TYPE_PROPERTY = "jmemcached.server.worker.thread.type";
+	static final String STORAGE_MAX_BYTES_PROPERTY = "jmemcached.storage.max.bytes";
+	static final String STORAGE_ENGINE_PROPERTY = "jmemcached.storage.engine";
+	static final String EVICTION_POLICY_PROPERTY = "jmemcached.storage.eviction.policy";
+	static final String STORAGE_SHARD_COUNT_PROPERTY = "jmemcached.storage.shard.count";
+	static final String SNAPSHOT_FILE_PROPERTY = "jmemcached.storage.snapshot.file";
+	static final String SNAPSHOT_INTERVAL_PROPERTY = "jmemcached.storage.snapshot.interval";
+	static final String SNAPSHOT_LOAD_MODE_PROPERTY = "jmemcached.storage.snapshot.load.mode";
+	static final String WRITE_LOG_FILE_PROPERTY = "jmemcached.storage.write.log.file";
+	static final String WRITE_LOG_SYNC_PROPERTY = "jmemcached.storage.write.log.sync";
+	static final String WRITE_LOG_SYNC_INTERVAL_PROPERTY = "jmemcached.storage.write.log.sync.interval";
 	static final String SERVER_PROPERTIES = "server.properties";
 	
 	private final Properties applicationProperties;
 	
 	private final int clearDataInterval;
 	private final int serverPort;
+	private final int metricsPort;
+	private final int textPort;
+	private final int binaryPort;
 	private final int initThreadCount;
 	private final int maxThreadCount;
+	private final int connectionQueueSize;
+	private final int connectionQueueMaxWait;
+	private final ServerTransport transport;
+	private final int eventLoopCount;
+	private final WorkerThreadType workerThreadType;
+	private final long storageMaxBytes;
+	private final StorageEngine storageEngine;
+	private final EvictionPolicy evictionPolicy;
+	private final int storageShardCount;
+	private final Path snapshotFile;
+	private final int snapshotInterval;
+	private final SnapshotLoadMode snapshotLoadMode;
+	private final Path writeLogFile;
+	private final WriteLogSyncPolicy writeLogSyncPolicy;
+	private final int writeLogSyncInterval;
 	
 	DefaultServerConfig(Properties overrideProperties, ResourceLoader resourceLoader) {
 		this.applicationProperties = resourceLoader.loadProperties(SERVER_PROPERTIES);
@@ -43,6 +89,33 @@ class DefaultServerConfig implements ServerConfig {
 				throw new JMemcachedConfigException(SERVER_PORT_PROPERTY +" should be between 0 and 65535: " + port);
 			}
 		});
+		this.metricsPort = getProperty(METRICS_PORT_PROPERTY, 0, port -> {
+			if (port < 0 || port > 65535) {
+				throw new JMemcachedConfigException(METRICS_PORT_PROPERTY + " should be between 0 and 65535: " + port);
+			}
+			if (port != 0 && port == serverPort) {
+				throw new JMemcachedConfigException(
+						METRICS_PORT_PROPERTY + " should differ from " + SERVER_PORT_PROPERTY + ": " + port);
+			}
+		});
+		this.textPort = getProperty(TEXT_PORT_PROPERTY, 0, port -> {
+			if (port < 0 || port > 65535) {
+				throw new JMemcachedConfigException(TEXT_PORT_PROPERTY + " should be between 0 and 65535: " + port);
+			}
+			if (port != 0 && (port == serverPort || port == metricsPort)) {
+				throw new JMemcachedConfigException(TEXT_PORT_PROPERTY + " should differ from " + SERVER_PORT_PROPERTY
+						+ " and " + METRICS_PORT_PROPERTY + ": " + port);
+			}
+		});
+		this.binaryPort = getProperty(BINARY_PORT_PROPERTY, 0, port -> {
+			if (port < 0 || port > 65535) {
+				throw new JMemcachedConfigException(BINARY_PORT_PROPERTY + " should be between 0 and 65535: " + port);
+			}
+			if (port != 0 && (port == serverPort || port == metricsPort || port == textPort)) {
+				throw new JMemcachedConfigException(BINARY_PORT_PROPERTY + " should differ from " + SERVER_PORT_PROPERTY
+						+ ", " + METRICS_PORT_PROPERTY + " and " + TEXT_PORT_PROPERTY + ": " + port);
+			}
+		});
 		this.initThreadCount = getProperty(INIT_THREAD_COUNT_PROPERTY, threadCount -> {
 			if (threadCount < 1) {
 				throw new JMemcachedConfigException(INIT_THREAD_COUNT_PROPERTY + " should be >= 1: " + threadCount);
@@ -54,8 +127,129 @@ class DefaultServerConfig implements ServerConfig {
 			+ INIT_THREAD_COUNT_PROPERTY +"): " + threadCount);
 			}
 		});
+		this.connectionQueueSize = getProperty(CONNECTION_QUEUE_SIZE_PROPERTY, 128, queueSize -> {
+			if (queueSize < 0) {
+				throw new JMemcachedConfigException(CONNECTION_QUEUE_SIZE_PROPERTY + " should be >= 0: " + queueSize);
+			}
+		});
+		this.connectionQueueMaxWait = getProperty(CONNECTION_QUEUE_MAX_WAIT_PROPERTY, 1000, maxWait -> {
+			if (maxWait < 1) {
+				throw new JMemcachedConfigException(
+						CONNECTION_QUEUE_MAX_WAIT_PROPERTY + " should be >= 1 millis: " + maxWait);
+			}
+		});
+		this.transport = getProperty(TRANSPORT_PROPERTY, ServerTransport.class, ServerTransport.BLOCKING);
+		this.eventLoopCount = getProperty(EVENT_LOOP_COUNT_PROPERTY, Runtime.getRuntime().availableProcessors(),
+				loopCount -> {
+			if (loopCount < 1) {
+				throw new JMemcachedConfigException(EVENT_LOOP_COUNT_PROPERTY + " should be >= 1: " + loopCount);
+			}
+		});
+		this.workerThreadType = getProperty(WORKER_THREAD_TYPE_PROPERTY, WorkerThreadType.class,
+				WorkerThreadType.PLATFORM);
+		this.storageMaxBytes = getLongProperty(STORAGE_MAX_BYTES_PROPERTY, 0L);
+		if (storageMaxBytes < 0) {
+			throw new JMemcachedConfigException(STORAGE_MAX_BYTES_PROPERTY + " should be >= 0: " + storageMaxBytes);
+		}
+		this.storageEngine = getProperty(STORAGE_ENGINE_PROPERTY, StorageEngine.class, StorageEngine.HEAP);
+		if (storageEngine == StorageEngine.OFF_HEAP && storageMaxBytes == 0) {
+			throw new JMemcachedConfigException(STORAGE_MAX_BYTES_PROPERTY + " should be > 0 for "
+					+ StorageEngine.OFF_HEAP + " " + STORAGE_ENGINE_PROPERTY);
+		}
+		this.evictionPolicy = getProperty(EVICTION_POLICY_PROPERTY, EvictionPolicy.class, EvictionPolicy.CLOCK);
+		if (evictionPolicy != EvictionPolicy.CLOCK && storageEngine != StorageEngine.HEAP) {
+			throw new JMemcachedConfigException(EVICTION_POLICY_PROPERTY + "=" + evictionPolicy
+					+ " is supported only by " + StorageEngine.HEAP + " " + STORAGE_ENGINE_PROPERTY);
+		}
+		this.storageShardCount = getProperty(STORAGE_SHARD_COUNT_PROPERTY,
+				Runtime.getRuntime().availableProcessors() * 4, shardCount -> {
+			if (shardCount < 1) {
+				throw new JMemcachedConfigException(STORAGE_SHARD_COUNT_PROPERTY + " should be >= 1: " + shardCount);
+			}
+		});
+		this.snapshotFile = getPathProperty(SNAPSHOT_FILE_PROPERTY);
+		if (snapshotFile != null && storageEngine != StorageEngine.HEAP) {
+			throw new JMemcachedConfigException(SNAPSHOT_FILE_PROPERTY + " is supported only by "
+					+ StorageEngine.HEAP + " " + STORAGE_ENGINE_PROPERTY);
+		}
+		this.snapshotInterval = getProperty(SNAPSHOT_INTERVAL_PROPERTY, 0, interval -> {
+			if (interval != 0 && interval < 1000) {
+				throw new JMemcachedConfigException(
+						SNAPSHOT_INTERVAL_PROPERTY + " should be 0 or >= 1000 millis: " + interval);
+			}
+		});
+		this.snapshotLoadMode = getProperty(SNAPSHOT_LOAD_MODE_PROPERTY, SnapshotLoadMode.class,
+				SnapshotLoadMode.BLOCKING);
+		this.writeLogFile = getPathProperty(WRITE_LOG_FILE_PROPERTY);
+		if (writeLogFile != null && storageEngine != StorageEngine.HEAP) {
+			throw new JMemcachedConfigException(WRITE_LOG_FILE_PROPERTY + " is supported only by "
+					+ StorageEngine.HEAP + " " + STORAGE_ENGINE_PROPERTY);
+		}
+		if (writeLogFile != null && snapshotFile != null) {
+			throw new JMemcachedConfigException(
+					WRITE_LOG_FILE_PROPERTY + " can not be used along with " + SNAPSHOT_FILE_PROPERTY);
+		}
+		this.writeLogSyncPolicy = getProperty(WRITE_LOG_SYNC_PROPERTY, WriteLogSyncPolicy.class,
+				WriteLogSyncPolicy.INTERVAL);
+		if (writeLogFile != null && writeLogSyncPolicy == WriteLogSyncPolicy.ALWAYS
+				&& transport == ServerTransport.NIO) {
+			// waiting for the force would stall every connection of the event loop
+			throw new JMemcachedConfigException(WRITE_LOG_SYNC_PROPERTY + "=" + writeLogSyncPolicy
+					+ " is not supported by " + ServerTransport.NIO + " " + TRANSPORT_PROPERTY);
+		}
+		this.writeLogSyncInterval = getProperty(WRITE_LOG_SYNC_INTERVAL_PROPERTY, 1000, interval -> {
+			if (interval < 1) {
+				throw new JMemcachedConfigException(
+						WRITE_LOG_SYNC_INTERVAL_PROPERTY + " should be >= 1 millis: " + interval);
+			}
+		});
 	}
-	
+
+	private Path getPathProperty(String propertyName) {
+		String propertyValue = applicationProperties.getProperty(propertyName);
+		if (propertyValue == null || propertyValue.trim().isEmpty()) {
+			return null;
+		}
+		try {
+			return Paths.get(propertyValue.trim());
+		} catch (InvalidPathException e) {
+			throw new JMemcachedConfigException(propertyName + " should be a file path: " + propertyValue);
+		}
+	}
+
+	private long getLongProperty(String propertyName, long defaultValue) {
+		String propertyValue = applicationProperties.getProperty(propertyName);
+		if (propertyValue == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(propertyValue.trim());
+		} catch (NumberFormatException e) {
+			throw new JMemcachedConfigException(propertyName + " should be a number: " + propertyValue);
+		}
+	}
+
+	private <E extends Enum<E>> E getProperty(String propertyName, Class<E> enumType, E defaultValue) {
+		String propertyValue = applicationProperties.getProperty(propertyName);
+		if (propertyValue == null) {
+			return defaultValue;
+		}
+		try {
+			return Enum.valueOf(enumType, propertyValue.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new JMemcachedConfigException(propertyName + " should be one of "
+					+ Arrays.toString(enumType.getEnumConstants()) + ": " + propertyValue);
+		}
+	}
+
+	private int getProperty(String propertyName, int defaultValue, BoundaryChecker checker) {
+		if (applicationProperties.getProperty(propertyName) == null) {
+			checker.check(defaultValue);
+			return defaultValue;
+		}
+		return getProperty(propertyName, checker);
+	}
+
 	private int getProperty(String propertyName, BoundaryChecker checker) {
 		String propertyValue = applicationProperties.getProperty(propertyName);
 		try {
@@ -77,6 +271,21 @@ class DefaultServerConfig implements ServerConfig {
 		return serverPort;
 	}
 
+	@Override
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+
+	@Override
+	public int getTextPort() {
+		return textPort;
+	}
+
+	@Override
+	public int getBinaryPort() {
+		return binaryPort;
+	}
+
 	@Override
 	public int getInitThreadCount() {
 		return initThreadCount;
@@ -86,12 +295,94 @@ class DefaultServerConfig implements ServerConfig {
 	public int getMaxThreadCount() {
 		return maxThreadCount;
 	}
+
+	@Override
+	public int getConnectionQueueSize() {
+		return connectionQueueSize;
+	}
+
+	@Override
+	public int getConnectionQueueMaxWait() {
+		return connectionQueueMaxWait;
+	}
+	
+	@Override
+	public ServerTransport getTransport() {
+		return transport;
+	}
+
+	@Override
+	public int getEventLoopCount() {
+		return eventLoopCount;
+	}
 	
+	@Override
+	public WorkerThreadType getWorkerThreadType() {
+		return workerThreadType;
+	}
+
+	@Override
+	public long getStorageMaxBytes() {
+		return storageMaxBytes;
+	}
+
+	@Override
+	public StorageEngine getStorageEngine() {
+		return storageEngine;
+	}
+
+	@Override
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	@Override
+	public int getStorageShardCount() {
+		return storageShardCount;
+	}
+
+	@Override
+	public Path getSnapshotFile() {
+		return snapshotFile;
+	}
+
+	@Override
+	public int getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	@Override
+	public SnapshotLoadMode getSnapshotLoadMode() {
+		return snapshotLoadMode;
+	}
+
+	@Override
+	public Path getWriteLogFile() {
+		return writeLogFile;
+	}
+
+	@Override
+	public WriteLogSyncPolicy getWriteLogSyncPolicy() {
+		return writeLogSyncPolicy;
+	}
+
+	@Override
+	public int getWriteLogSyncInterval() {
+		return writeLogSyncInterval;
+	}
+
 	@Override
 	public String toString() {
-		return String.format("DefaultServerConfig: port=%d, initThreadCount=%d, maxThreadCount=%d,"
-				+ " clearDataInterval=%d millis",
-				getServerPort(), getInitThreadCount(), getMaxThreadCount(), getClearDataInterval());
+		return String.format("DefaultServerConfig: port=%d, metricsPort=%d, textPort=%d, binaryPort=%d, initThreadCount=%d, maxThreadCount=%d,"
+				+ " connectionQueueSize=%d, connectionQueueMaxWait=%d millis, clearDataInterval=%d millis, transport=%s, eventLoopCount=%d, workerThreadType=%s,"
+				+ " storageMaxBytes=%d, storageEngine=%s, evictionPolicy=%s, storageShardCount=%d, snapshotFile=%s,"
+				+ " snapshotInterval=%d millis, snapshotLoadMode=%s, writeLogFile=%s, writeLogSyncPolicy=%s,"
+				+ " writeLogSyncInterval=%d millis",
+				getServerPort(), getMetricsPort(), getTextPort(), getBinaryPort(), getInitThreadCount(), getMaxThreadCount(), getConnectionQueueSize(),
+				getConnectionQueueMaxWait(), getClearDataInterval(),
+				getTransport(), getEventLoopCount(), getWorkerThreadType(), getStorageMaxBytes(),
+				getStorageEngine(), getEvictionPolicy(), getStorageShardCount(), getSnapshotFile(), getSnapshotInterval(),
+				getSnapshotLoadMode(), getWriteLogFile(), getWriteLogSyncPolicy(), getWriteLogSyncInterval());
 	}
 	
 	@FunctionalInterface
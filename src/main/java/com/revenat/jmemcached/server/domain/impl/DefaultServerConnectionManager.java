@@ -2,8 +2,19 @@ package com.revenat.jmemcached.server.domain.impl;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
 import com.revenat.jmemcached.server.domain.ServerConnectionManager;
 import com.revenat.jmemcached.server.domain.exception.ConnectionRejectedException;
 
@@ -12,28 +23,253 @@ import com.revenat.jmemcached.server.domain.exception.ConnectionRejectedExceptio
  * which encapsulates worker thread pool which in turn responsible for
  * allocating worker thread for each new connection between server and its
  * client.
+ * <p>
+ * Connection which can not get worker thread right away may wait for it in
+ * the queue of the thread pool, but not longer than the maximum queue wait
+ * time. Connection which hasn't got into the queue, or has waited for too
+ * long, is rejected, so the client learns it should retry later instead of
+ * waiting for the response which would never come. The wait time is watched
+ * by the timer, so connection is rejected once its time is up even if all the
+ * worker threads stay busy.
+ * <p>
+ * Worker threads are counted by the thread pool itself if it's
+ * {@link ThreadPoolExecutor}, otherwise each connection being served is
+ * considered to have its own worker thread, like the virtual one.
  * 
  * @author Vitaly Dragun
  *
  */
-class DefaultServerConnectionManager implements ServerConnectionManager {
+class DefaultServerConnectionManager implements ServerConnectionManager, ConnectionStatistics {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultServerConnectionManager.class);
+	static final long UNLIMITED_QUEUE_WAIT = 0L;
+	private static final String QUEUE_TIMER_THREAD_NAME = "ConnectionQueueTimer";
+
 	private final ExecutorService threadPool;
+	private final long queueWaitLimitNanos;
+	private final ScheduledThreadPoolExecutor queueTimer;
+	private final LongAdder currentCount = new LongAdder();
+	private final LongAdder queuedCount = new LongAdder();
+	private final LongAdder admittedCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+	private final LongAdder timedOutCount = new LongAdder();
+	private final LongAdder totalQueueWaitNanos = new LongAdder();
+	private final LongAccumulator longestQueueWaitNanos = new LongAccumulator(Math::max, 0L);
+	private final LongAccumulator largestCurrentCount = new LongAccumulator(Math::max, 0L);
 
 	DefaultServerConnectionManager(ExecutorService workerThreadPool) {
+		this(workerThreadPool, UNLIMITED_QUEUE_WAIT);
+	}
+
+	/**
+	 * @param maxQueueWaitMillis maximum time in milliseconds connection may wait
+	 *                           for the worker thread, or
+	 *                           {@link #UNLIMITED_QUEUE_WAIT}
+	 */
+	DefaultServerConnectionManager(ExecutorService workerThreadPool, long maxQueueWaitMillis) {
 		this.threadPool = workerThreadPool;
+		this.queueWaitLimitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+		this.queueTimer = maxQueueWaitMillis != UNLIMITED_QUEUE_WAIT ? createQueueTimer() : null;
+	}
+
+	private static ScheduledThreadPoolExecutor createQueueTimer() {
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, job -> {
+			Thread timerThread = new Thread(job, QUEUE_TIMER_THREAD_NAME);
+			timerThread.setDaemon(true);
+			return timerThread;
+		});
+		// connections mostly get worker thread in time, so their timeouts should not pile up
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
 	}
 
 	@Override
 	public void establishConnection(ClientConnectionHandler connectionHandler) {
+		queuedCount.increment();
+		QueuedConnection connection = new QueuedConnection(connectionHandler, System.nanoTime());
 		try {
-			threadPool.submit(connectionHandler);
+			threadPool.execute(connection);
+			if (queueTimer != null) {
+				connection.scheduleTimeout();
+			}
 		} catch (RejectedExecutionException e) {
+			connection.cancelTimeout();
+			queuedCount.decrement();
+			rejectedCount.increment();
+			connectionHandler.reject();
 			throw new ConnectionRejectedException("All connection slots are occupied: new connection attempt has been rejected.", e);
 		}
 	}
 
+	@Override
+	public ConnectionStatistics getStatistics() {
+		return this;
+	}
+
+	@Override
+	public long getCurrentConnectionCount() {
+		return currentCount.sum();
+	}
+
+	@Override
+	public long getQueuedConnectionCount() {
+		return queuedCount.sum();
+	}
+
+	@Override
+	public long getAdmittedConnectionCount() {
+		return admittedCount.sum();
+	}
+
+	@Override
+	public long getRejectedConnectionCount() {
+		return rejectedCount.sum();
+	}
+
+	@Override
+	public long getTimedOutConnectionCount() {
+		return timedOutCount.sum();
+	}
+
+	@Override
+	public long getTotalQueueWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalQueueWaitNanos.sum());
+	}
+
+	@Override
+	public long getMaxQueueWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(longestQueueWaitNanos.get());
+	}
+
+	@Override
+	public int getActiveWorkerCount() {
+		if (threadPool instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) threadPool).getActiveCount();
+		}
+		return (int) getCurrentConnectionCount();
+	}
+
+	@Override
+	public int getWorkerCount() {
+		if (threadPool instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) threadPool).getPoolSize();
+		}
+		return (int) getCurrentConnectionCount();
+	}
+
+	@Override
+	public int getLargestWorkerCount() {
+		if (threadPool instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) threadPool).getLargestPoolSize();
+		}
+		return (int) largestCurrentCount.get();
+	}
+
+	@Override
+	public int getMaxWorkerCount() {
+		if (threadPool instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) threadPool).getMaximumPoolSize();
+		}
+		return 0;
+	}
+
+	/**
+	 * Stops the worker threads and rejects connections still waiting for them.
+	 */
 	@Override
 	public void shutdown() {
-		threadPool.shutdownNow();
+		if (queueTimer != null) {
+			queueTimer.shutdownNow();
+		}
+		for (Runnable connection : threadPool.shutdownNow()) {
+			if (connection instanceof QueuedConnection) {
+				((QueuedConnection) connection).connectionHandler.reject();
+			}
+		}
+	}
+
+	/**
+	 * Connection waiting for the worker thread, which is served once it gets one
+	 * unless its time in the queue is up. Either worker thread or the timer
+	 * takes the connection, whichever comes first.
+	 */
+	private class QueuedConnection implements Runnable {
+		private final ClientConnectionHandler connectionHandler;
+		private final long queuedAtNanos;
+		private final AtomicBoolean taken = new AtomicBoolean();
+		private volatile ScheduledFuture<?> timeout;
+
+		QueuedConnection(ClientConnectionHandler connectionHandler, long queuedAtNanos) {
+			this.connectionHandler = connectionHandler;
+			this.queuedAtNanos = queuedAtNanos;
+		}
+
+		void scheduleTimeout() {
+			long delayNanos = queueWaitLimitNanos - (System.nanoTime() - queuedAtNanos);
+			try {
+				timeout = queueTimer.schedule(this::timeOut, Math.max(delayNanos, 0L), TimeUnit.NANOSECONDS);
+			} catch (RejectedExecutionException e) {
+				// timer is shut down along with the thread pool, which rejects the connection itself
+			}
+			if (taken.get()) {
+				cancelTimeout();
+			}
+		}
+
+		void cancelTimeout() {
+			ScheduledFuture<?> scheduledTimeout = timeout;
+			if (scheduledTimeout != null) {
+				scheduledTimeout.cancel(false);
+			}
+		}
+
+		@Override
+		public void run() {
+			if (!taken.compareAndSet(false, true)) {
+				return;
+			}
+			cancelTimeout();
+			long waitNanos = System.nanoTime() - queuedAtNanos;
+			if (queueWaitLimitNanos != UNLIMITED_QUEUE_WAIT && waitNanos > queueWaitLimitNanos) {
+				reject(waitNanos);
+				return;
+			}
+			leaveQueue(waitNanos);
+			admittedCount.increment();
+			currentCount.increment();
+			if (!(threadPool instanceof ThreadPoolExecutor)) {
+				largestCurrentCount.accumulate(currentCount.sum());
+			}
+			try {
+				connectionHandler.run();
+			} catch (RuntimeException e) {
+				LOGGER.error("Serve connection failed: " + e.getMessage(), e);
+			} finally {
+				currentCount.decrement();
+			}
+		}
+
+		private void timeOut() {
+			if (!taken.compareAndSet(false, true)) {
+				return;
+			}
+			if (threadPool instanceof ThreadPoolExecutor) {
+				((ThreadPoolExecutor) threadPool).remove(this);
+			}
+			reject(System.nanoTime() - queuedAtNanos);
+		}
+
+		private void reject(long waitNanos) {
+			leaveQueue(waitNanos);
+			timedOutCount.increment();
+			LOGGER.warn("Connection has waited for the worker thread for {} millis and has been rejected",
+					TimeUnit.NANOSECONDS.toMillis(waitNanos));
+			connectionHandler.reject();
+		}
+
+		private void leaveQueue(long waitNanos) {
+			queuedCount.decrement();
+			totalQueueWaitNanos.add(waitNanos);
+			longestQueueWaitNanos.accumulate(waitNanos);
+		}
 	}
 }
@@ -23,6 +23,9 @@ class DefaultServerContext implements ServerContext {
 	
 	private final ServerConnectionManager connectionManager;
 	private final ServerSocket serverSocket;
+	private final ServerSocket textServerSocket;
+	private final ServerSocket binaryServerSocket;
+	private final MemcachedCommands memcachedCommands;
 	private final ClientConnectionHandlerFactory handlerFactory;
 	
 	DefaultServerContext(ServerConfig serverConfig,
@@ -40,8 +43,43 @@ class DefaultServerContext implements ServerContext {
 		int serverPort = serverConfig.getServerPort();
 		
 		this.handlerFactory = connectionHandlerFactory;
-		this.connectionManager = connectionManagerFactory.createServerConnectionManager(initThreadCount, maxThreadCount);
+		this.connectionManager = connectionManagerFactory.createServerConnectionManager(initThreadCount, maxThreadCount,
+				serverConfig.getConnectionQueueSize(), serverConfig.getConnectionQueueMaxWait());
 		this.serverSocket = socketFactory.createServerSocket(serverPort);
+		this.textServerSocket = createOptionalServerSocket(socketFactory, serverConfig.getTextPort());
+		this.binaryServerSocket = createBinaryServerSocket(socketFactory, serverConfig.getBinaryPort());
+		this.memcachedCommands = textServerSocket != null || binaryServerSocket != null
+				? connectionHandlerFactory.createMemcachedCommands(getServerStats())
+				: null;
+	}
+
+	private ServerSocket createBinaryServerSocket(ServerSocketFactory socketFactory, int binaryPort) {
+		try {
+			return createOptionalServerSocket(socketFactory, binaryPort);
+		} catch (RuntimeException e) {
+			if (textServerSocket != null) {
+				closeResource(textServerSocket, "Error while closing text protocol Server socket");
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates server socket of the port which is served optionally, closing the
+	 * main server socket if it can't be created.
+	 * 
+	 * @return server socket, or {@code null} if the port is {@code 0}
+	 */
+	private ServerSocket createOptionalServerSocket(ServerSocketFactory socketFactory, int port) {
+		if (port == 0) {
+			return null;
+		}
+		try {
+			return socketFactory.createServerSocket(port);
+		} catch (RuntimeException e) {
+			closeResource(serverSocket, "Error while closing Server socket");
+			throw e;
+		}
 	}
 
 	@Override
@@ -49,6 +87,16 @@ class DefaultServerContext implements ServerContext {
 		return serverSocket;
 	}
 
+	@Override
+	public ServerSocket getTextServerSocket() {
+		return textServerSocket;
+	}
+
+	@Override
+	public ServerSocket getBinaryServerSocket() {
+		return binaryServerSocket;
+	}
+
 	@Override
 	public ServerConnectionManager getServerConnectionManager() {
 		return connectionManager;
@@ -58,10 +106,37 @@ class DefaultServerContext implements ServerContext {
 	public ClientConnectionHandler buildNewClientConnectionHandler(Socket clientSocket) {
 		return handlerFactory.createClientConnectionHandler(clientSocket);
 	}
+
+	@Override
+	public ClientConnectionHandler buildNewTextConnectionHandler(Socket clientSocket) {
+		return handlerFactory.createTextConnectionHandler(clientSocket, memcachedCommands);
+	}
+
+	@Override
+	public ClientConnectionHandler buildNewBinaryConnectionHandler(Socket clientSocket) {
+		return handlerFactory.createBinaryConnectionHandler(clientSocket, memcachedCommands);
+	}
+
+	@Override
+	public ChannelRequestProcessor getChannelRequestProcessor() {
+		return handlerFactory.getChannelRequestProcessor();
+	}
+	
+	@Override
+	public ServerStats getServerStats() {
+		return new ServerStats(handlerFactory.getStorageStatistics(), handlerFactory.getRequestRecorder(),
+				connectionManager.getStatistics());
+	}
 	
 	@Override
 	public void close() {
 		closeResource(serverSocket, "Error while closing Server socket");
+		if (textServerSocket != null) {
+			closeResource(textServerSocket, "Error while closing text protocol Server socket");
+		}
+		if (binaryServerSocket != null) {
+			closeResource(binaryServerSocket, "Error while closing binary protocol Server socket");
+		}
 		connectionManager.shutdown();
 		closeResource(handlerFactory, "Error while closing connectionHandlerFactory");
 	}
@@ -2,57 +2,149 @@ package com.revenat.jmemcached.server.domain.impl;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.revenat.jmemcached.protocol.model.Status;
 import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
 import com.revenat.jmemcached.server.domain.ServerStorage;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
 
 /**
  * Default implementation of the {@link ServerStorage} interface which periodically
- * checks for expired items in the store and deletes the found ones.
+ * checks for expired items in the store and deletes the found ones. Storage can be
+ * bounded by the maximum count of bytes it may occupy, in which case items chosen
+ * by the {@link EvictionPolicy} are evicted to free space for new ones.
+ * <p>
+ * Items are spread by their keys over several independent shards, each with its
+ * own eviction and expiration state, share of the budget and counters. Expired
+ * items are cleaned by several threads in parallel, each taking care of its own
+ * group of shards. Item larger than the share of its shard still fits into the
+ * storage, see {@link StorageBudget}.
  * 
  * @author Vitaly Dragun
  *
  */
-class DefaultServerStorage implements ServerStorage {
+class DefaultServerStorage implements CleanableStorage, StorageStatistics {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultServerStorage.class);
-	private static final String CLEAR_THREAD_NAME = "expiredDataCleanerThread";
+	private static final String CLEAR_THREAD_NAME = "expiredDataCleanerThread-";
 	private static final String KEY_CAN_NOT_BE_NULL = "key can not be null";
 
-	private final InnerStorage storage;
+	private final InnerStorage[] shards;
+	private final long maxBytes;
 	private final ExecutorService executorService;
-	private final ExpiredDataCleaner expiredDataCleaner;
+	private final CleanerStatistics cleanerStatistics = new CleanerStatistics();
+	private final List<ExpiredDataCleaner> cleaners = new ArrayList<>();
+	/* Keys removed since the restoring has started, or null if storage is not being restored */
+	private volatile Map<String, Boolean> restoreTombstones;
 
 	DefaultServerStorage(DateTimeProvider dateTimeProvider, int clearDataInterval) {
-		this.storage = new InnerStorage(dateTimeProvider);
-		this.executorService = createClearExpiredDataExecutorService();
-		this.expiredDataCleaner = new ExpiredDataCleaner(storage, clearDataInterval);
-		this.executorService.submit(expiredDataCleaner);
+		this(dateTimeProvider, clearDataInterval, InnerStorage.UNBOUNDED, 1);
 	}
 
-	private ExecutorService createClearExpiredDataExecutorService() {
-		return Executors.newSingleThreadExecutor(createClearExpiredDataThreadFactory());
+	/**
+	 * @param maxBytes   maximum count of bytes storage may occupy, {@code 0} means
+	 *                   storage is not bounded. Each shard gets equal part of it.
+	 * @param shardCount count of shards to spread items over
+	 */
+	DefaultServerStorage(DateTimeProvider dateTimeProvider, int clearDataInterval, long maxBytes, int shardCount) {
+		this(dateTimeProvider, clearDataInterval, maxBytes, shardCount, EvictionPolicy.CLOCK);
+	}
+
+	/**
+	 * @param evictionPolicy {@link EvictionPolicy} each shard of the bounded
+	 *                       storage uses to choose items to evict
+	 */
+	DefaultServerStorage(DateTimeProvider dateTimeProvider, int clearDataInterval, long maxBytes, int shardCount,
+			EvictionPolicy evictionPolicy) {
+		requireNonNull(evictionPolicy, "evictionPolicy can not be null");
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("shardCount should be >= 1: " + shardCount);
+		}
+		this.maxBytes = maxBytes;
+		this.shards = createShards(dateTimeProvider, clearDataInterval, maxBytes, shardCount, evictionPolicy);
+		int cleanerCount = Math.min(shardCount, Runtime.getRuntime().availableProcessors());
+		this.executorService = Executors.newFixedThreadPool(cleanerCount, createClearExpiredDataThreadFactory());
+		for (int i = 0; i < cleanerCount; i++) {
+			ExpiredDataCleaner cleaner = new ExpiredDataCleaner(shardGroup(i, cleanerCount), clearDataInterval,
+					cleanerStatistics);
+			cleaners.add(cleaner);
+			executorService.submit(cleaner);
+		}
+	}
+
+	private static InnerStorage[] createShards(DateTimeProvider dateTimeProvider, int clearDataInterval,
+			long maxBytes, int shardCount, EvictionPolicy evictionPolicy) {
+		StorageBudget budget = maxBytes == InnerStorage.UNBOUNDED ? null
+				: new StorageBudget(Math.max(1, maxBytes / shardCount), shardCount);
+		InnerStorage[] shards = new InnerStorage[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new InnerStorage(dateTimeProvider, budget, clearDataInterval, evictionPolicy);
+		}
+		if (budget != null) {
+			budget.setShards(shards);
+		}
+		return shards;
+	}
+
+	private List<InnerStorage> shardGroup(int group, int groupCount) {
+		List<InnerStorage> shardGroup = new ArrayList<>();
+		for (int i = group; i < shards.length; i += groupCount) {
+			shardGroup.add(shards[i]);
+		}
+		return shardGroup;
 	}
 
 	private ThreadFactory createClearExpiredDataThreadFactory() {
+		AtomicInteger threadCount = new AtomicInteger();
 		return job -> {
-			Thread clearExpiredDataJobThread = new Thread(job, CLEAR_THREAD_NAME);
+			Thread clearExpiredDataJobThread = new Thread(job, CLEAR_THREAD_NAME + threadCount.getAndIncrement());
 			clearExpiredDataJobThread.setPriority(Thread.MIN_PRIORITY);
 			clearExpiredDataJobThread.setDaemon(true);
 			return clearExpiredDataJobThread;
 		};
 	}
 
+	/**
+	 * Returns shard responsible for the specified {@code key}.
+	 */
+	private InnerStorage shardFor(String key) {
+		return shards[shardIndex(key.hashCode(), shards.length)];
+	}
+
+	/**
+	 * Returns index of the shard for the specified key {@code hash}. Hash is mixed
+	 * by the MurmurHash3 finalizer first, so keys differing only in the last
+	 * characters are spread evenly, whatever the count of shards is.
+	 */
+	static int shardIndex(int hash, int shardCount) {
+		int h = hash;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return Math.floorMod(h, shardCount);
+	}
+
 	@Override
 	public Status put(String key, long ttl, byte[] data) {
 		return putInStorage(key, ttl, data);
@@ -61,20 +153,13 @@ class DefaultServerStorage implements ServerStorage {
 	private Status putInStorage(String key, Long ttl, byte[] data) {
 		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
 		requireNonNull(data, "data can not be null");
-		requireNotEmpty(data);
 
-		byte[] oldData = storage.put(key, ttl, data);
+		byte[] oldData = shardFor(key).put(key, ttl, data);
 		Status status = oldData == null ? Status.ADDED : Status.REPLACED;
 		LOGGER.debug("Data with key '{}' was {} in the storage", key, status);
 		return status;
 	}
 
-	private static void requireNotEmpty(byte[] data) {
-		if (data.length == 0) {
-			throw new IllegalArgumentException("data can not be empty");
-		}
-	}
-
 	@Override
 	public Status put(String key, byte[] data) {
 		return putInStorage(key, null, data);
@@ -82,119 +167,828 @@ class DefaultServerStorage implements ServerStorage {
 
 	@Override
 	public byte[] get(String key) {
+		byte[] data = find(key);
+		return data != null ? data : new byte[0];
+	}
+
+	@Override
+	public byte[] find(String key) {
 		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
 
-		byte[] data = storage.get(key);
+		byte[] data = shardFor(key).get(key);
 		if (data == null) {
 			LOGGER.debug("Data with key '{}' was not found in the storage", key);
-			return new byte[0];
+			return null;
 		}
 		LOGGER.debug("Data with key '{}' was retrieved from the storage", key);
 		return data;
 	}
 
+	/**
+	 * Reads each key from its shard directly, since reads of the shards take no
+	 * locks and gain nothing from grouping the keys by shard.
+	 */
+	@Override
+	public Map<String, byte[]> getAll(List<String> keys) {
+		requireNonNull(keys, "keys can not be null");
+
+		Map<String, byte[]> result = new LinkedHashMap<>();
+		for (String key : keys) {
+			byte[] data = shardFor(requireNonNull(key, KEY_CAN_NOT_BE_NULL)).get(key);
+			if (data != null) {
+				result.put(key, data);
+			}
+		}
+		LOGGER.debug("{} of {} keys were retrieved from the storage", result.size(), keys.size());
+		return result;
+	}
+
+	@Override
+	public long getTtl(String key) {
+		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
+
+		return shardFor(key).getTtl(key);
+	}
+
+	/**
+	 * Starts restoring of the persisted storage state, which clients may modify
+	 * meanwhile. Until {@link #finishRestore()} is called, keys removed by the
+	 * clients are remembered, so the items restored after are not brought back,
+	 * and nothing is restored to the shard after it has been cleared.
+	 */
+	void startRestore() {
+		restoreTombstones = new ConcurrentHashMap<>();
+		for (InnerStorage shard : shards) {
+			shard.startRestore();
+		}
+	}
+
+	/**
+	 * Finishes restoring started by {@link #startRestore()}.
+	 */
+	void finishRestore() {
+		restoreTombstones = null;
+		for (InnerStorage shard : shards) {
+			shard.finishRestore();
+		}
+	}
+
+	/**
+	 * Puts item restored from the persisted storage state, unless the key is
+	 * already present or has been removed since the restoring has started.
+	 * 
+	 * @param expiresAt time in milliseconds after which item is expired, or
+	 *                  {@link StorageItem#NEVER_EXPIRES}
+	 */
+	void restore(String key, long expiresAt, byte[] data) {
+		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
+		requireNonNull(data, "data can not be null");
+
+		Map<String, Boolean> tombstones = restoreTombstones;
+		if (tombstones == null) {
+			shardFor(key).restore(key, expiresAt, data);
+			return;
+		}
+		// removal of the key waits for the item to be restored, or is seen by it
+		tombstones.computeIfAbsent(key, k -> {
+			shardFor(key).restore(key, expiresAt, data);
+			return null;
+		});
+	}
+
+	/**
+	 * Puts item replayed from the persisted storage mutations, replacing the
+	 * present one if any.
+	 * 
+	 * @param expiresAt time in milliseconds after which item is expired, or
+	 *                  {@link StorageItem#NEVER_EXPIRES}
+	 */
+	void putExpiringAt(String key, long expiresAt, byte[] data) {
+		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
+		requireNonNull(data, "data can not be null");
+
+		shardFor(key).putExpiringAt(key, expiresAt, data);
+	}
+
 	@Override
 	public Status remove(String key) {
 		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
 
-		byte[] data =  storage.remove(key);
+		Map<String, Boolean> tombstones = restoreTombstones;
+		if (tombstones != null) {
+			tombstones.put(key, Boolean.TRUE);
+		}
+		byte[] data = shardFor(key).remove(key);
 		Status status = data != null ? Status.REMOVED : Status.NOT_FOUND;
 		LOGGER.debug("Data with key '{}' was {} in/from the storage", key, status);
 		return status;
 	}
 
+	/**
+	 * Replaces items of each shard with the empty generation, so clearing takes
+	 * time proportional to the count of shards rather than items.
+	 */
 	@Override
 	public Status clear() {
-		storage.clear();
+		for (InnerStorage shard : shards) {
+			shard.clear();
+		}
 		LOGGER.debug("Storage has been cleared");
 		return Status.CLEARED;
 	}
 
+	@Override
+	public StorageStatistics getStatistics() {
+		return this;
+	}
+
+	@Override
+	public long getItemCount() {
+		long itemCount = 0;
+		for (InnerStorage shard : shards) {
+			itemCount += shard.getItemCount();
+		}
+		return itemCount;
+	}
+
+	@Override
+	public long getUsedBytes() {
+		long usedBytes = 0;
+		for (InnerStorage shard : shards) {
+			usedBytes += shard.getUsedBytes();
+		}
+		return usedBytes;
+	}
+
+	@Override
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	@Override
+	public long getEvictionCount() {
+		long evictionCount = 0;
+		for (InnerStorage shard : shards) {
+			evictionCount += shard.getEvictionCount();
+		}
+		return evictionCount;
+	}
+
+	@Override
+	public long getExpiredCount() {
+		long expiredCount = 0;
+		for (InnerStorage shard : shards) {
+			expiredCount += shard.getExpiredCount();
+		}
+		return expiredCount;
+	}
+
+	@Override
+	public int clearExpiredData() {
+		int removedCount = 0;
+		for (ExpiredDataCleaner cleaner : cleaners) {
+			removedCount += cleaner.clearExpiredItems();
+		}
+		return removedCount;
+	}
+
+	@Override
+	public CleanerStatistics getCleanerStatistics() {
+		return cleanerStatistics;
+	}
+
+	/**
+	 * Returns shards of this storage, each of which can be iterated over its
+	 * items.
+	 */
+	List<InnerStorage> getShards() {
+		return Collections.unmodifiableList(Arrays.asList(shards));
+	}
+
 	@Override
 	public void close() throws Exception {
-		executorService.shutdown();
+		executorService.shutdownNow();
 	}
 	
 	/**
-	 * This inner class represents in-memory storage for server clients data
-	 * and fully supports concurrent modification operations, which is essential
-	 * in case of the server multithreading nature.
+	 * This inner class represents in-memory storage for server clients data,
+	 * used as a single shard of the {@link DefaultServerStorage}, and fully
+	 * supports concurrent modification operations, which is essential in case of
+	 * the server multithreading nature. If storage is bounded, it evicts items
+	 * chosen by its {@link EvictionPolicy} before new item would exceed the
+	 * limit.
+	 * <p>
+	 * Items are kept by the current {@link Generation}, which {@link #clear()}
+	 * replaces with the empty one, so clearing takes constant time whatever the
+	 * count of items is. Items of the replaced generation are reclaimed by the
+	 * garbage collector once operations still working with them are over.
 	 * 
 	 * @author Vitaly Dragun
 	 *
 	 */
-	static class InnerStorage implements Iterable<StorageItem>{
-		private Map<String, StorageItem> items = new ConcurrentHashMap<>();
+	static class InnerStorage implements Iterable<Map.Entry<String, StorageItem>>, StorageStatistics {
+		static final long UNBOUNDED = 0L;
+		static final long DEFAULT_EXPIRATION_TICK_MILLIS = 1000L;
+		private static final int EVICTION_SEGMENT_COUNT = 8;
+
+		private volatile Generation current;
+		/* Generation items are restored to, or null if shard is not being restored */
+		private volatile Generation restored;
 		private final DateTimeProvider dateTimeProvider;
+		private final StorageBudget budget;
+		private final long maxBytes;
+		private final long expirationTickMillis;
+		private final EvictionPolicy evictionPolicy;
+		private final LongAdder evictionCount = new LongAdder();
+		private final LongAdder expiredCount = new LongAdder();
 		
 		InnerStorage(DateTimeProvider dateTimeProvider) {
+			this(dateTimeProvider, UNBOUNDED);
+		}
+		
+		InnerStorage(DateTimeProvider dateTimeProvider, long maxBytes) {
+			this(dateTimeProvider, maxBytes, DEFAULT_EXPIRATION_TICK_MILLIS);
+		}
+		
+		/**
+		 * @param expirationTickMillis precision in milliseconds with which expired
+		 *                             items are found by {@link #takeExpiredItems()}
+		 */
+		InnerStorage(DateTimeProvider dateTimeProvider, long maxBytes, long expirationTickMillis) {
+			this(dateTimeProvider, maxBytes, expirationTickMillis, EvictionPolicy.CLOCK);
+		}
+		
+		InnerStorage(DateTimeProvider dateTimeProvider, long maxBytes, long expirationTickMillis,
+				EvictionPolicy evictionPolicy) {
+			this(dateTimeProvider, createSingleShardBudget(maxBytes), expirationTickMillis, evictionPolicy);
+			if (budget != null) {
+				budget.setShards(this);
+			}
+		}
+
+		/**
+		 * @param budget {@link StorageBudget} shared with the other shards, or
+		 *               {@code null} if storage is not bounded
+		 */
+		InnerStorage(DateTimeProvider dateTimeProvider, StorageBudget budget, long expirationTickMillis,
+				EvictionPolicy evictionPolicy) {
 			this.dateTimeProvider = dateTimeProvider;
+			this.budget = budget;
+			this.maxBytes = budget != null ? budget.getShareBytes() : UNBOUNDED;
+			this.expirationTickMillis = expirationTickMillis;
+			this.evictionPolicy = requireNonNull(evictionPolicy, "evictionPolicy can not be null");
+			this.current = new Generation();
+		}
+		
+		private static StorageBudget createSingleShardBudget(long maxBytes) {
+			if (maxBytes < 0) {
+				throw new IllegalArgumentException("maxBytes should be >= 0: " + maxBytes);
+			}
+			return maxBytes != UNBOUNDED ? new StorageBudget(maxBytes, 1) : null;
 		}
 		
 		byte[] put(String key, Long ttl, byte[] data) {
-			StorageItem item = new StorageItem(key, ttl, data, dateTimeProvider);
-			StorageItem oldItem = items.put(key, item);
+			long expiresAt = ttl != null ? dateTimeProvider.getCurrentTimeInMillis() + ttl : StorageItem.NEVER_EXPIRES;
+			return putExpiringAt(key, expiresAt, data);
+		}
+		
+		/**
+		 * Puts the item expiring at the specified time in milliseconds, or never if
+		 * it's {@link StorageItem#NEVER_EXPIRES}.
+		 * 
+		 * @return data of the replaced item, or {@code null} if key was absent
+		 */
+		byte[] putExpiringAt(String key, long expiresAt, byte[] data) {
+			Generation generation = current;
+			StorageItem item = createItem(key, expiresAt, data);
+			if (isBounded()) {
+				generation.ensureCapacityFor(key, item);
+			}
+			StorageItem oldItem = generation.items.put(key, item);
+			generation.onAdded(key, item);
+			if (oldItem != null) {
+				generation.onRemoved(key, oldItem);
+			}
 			return oldItem != null ? oldItem.data : null;
 		}
 		
+		/**
+		 * Makes items restored by {@link #restore(String, long, byte[])} go to the
+		 * current generation, so they are dropped along with it once the shard is
+		 * cleared.
+		 */
+		void startRestore() {
+			restored = current;
+		}
+
+		void finishRestore() {
+			restored = null;
+		}
+
+		/**
+		 * Puts the restored item expiring at the specified time, unless the key is
+		 * already present or the shard has been cleared since the restoring has
+		 * started.
+		 * 
+		 * @return {@code true} if item has been put
+		 */
+		boolean restore(String key, long expiresAt, byte[] data) {
+			Generation generation = restored;
+			if (generation == null) {
+				generation = current;
+			} else if (generation != current) {
+				return false;
+			}
+			StorageItem item = createItem(key, expiresAt, data);
+			if (isBounded()) {
+				generation.ensureCapacityFor(key, item);
+			}
+			if (generation.items.putIfAbsent(key, item) == null) {
+				generation.onAdded(key, item);
+				return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * Creates the item of the least class which keeps the state the shard needs
+		 * for it.
+		 */
+		private StorageItem createItem(String key, long expiresAt, byte[] data) {
+			if (isBounded()) {
+				return new EvictableItem(key, expiresAt, data);
+			}
+			if (expiresAt != StorageItem.NEVER_EXPIRES) {
+				return new ExpiringItem(key, expiresAt, data);
+			}
+			return new StorageItem(expiresAt, data);
+		}
+		
+		/**
+		 * Returns data of the item with specified {@code key}, or {@code null} if
+		 * there is no such item. Expired item is removed right away instead of
+		 * waiting for the {@link ExpiredDataCleaner}.
+		 */
 		byte[] get(String key) {
-			StorageItem item = items.get(key);
-			return (item != null && !item.isExpired()) ? item.data : null;
+			Generation generation = current;
+			StorageItem item = generation.items.get(key);
+			if (item == null) {
+				return null;
+			}
+			if (isExpired(item)) {
+				if (generation.items.remove(key, item)) {
+					generation.onRemoved(key, item);
+					expiredCount.increment();
+				}
+				return null;
+			}
+			if (isBounded()) {
+				generation.evictionQueue.touch((EvictableItem) item);
+			}
+			return item.data;
+		}
+		
+		/**
+		 * Returns time in milliseconds left until the item with specified
+		 * {@code key} expires, or {@code -1} if it never expires or there is no
+		 * such item.
+		 */
+		long getTtl(String key) {
+			StorageItem item = current.items.get(key);
+			if (item == null || !item.expires()) {
+				return -1;
+			}
+			long currentTimeMillis = dateTimeProvider.getCurrentTimeInMillis();
+			return item.isExpired(currentTimeMillis) ? -1 : item.expiresAt - currentTimeMillis;
 		}
 		
 		byte[] remove(String key) {
-			StorageItem item = items.remove(key);
+			Generation generation = current;
+			StorageItem item = generation.items.remove(key);
+			if (item != null) {
+				generation.onRemoved(key, item);
+			}
 			return item != null ? item.data : null;
 		}
 		
+		/**
+		 * Removes specified {@code item} only if it's still associated with its key.
+		 * 
+		 * @return {@code true} if item has been removed
+		 */
+		boolean remove(ExpiringItem item) {
+			Generation generation = current;
+			if (generation.items.remove(item.key, item)) {
+				generation.onRemoved(item.key, item);
+				return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * Removes specified expired {@code item} only if it's still associated with
+		 * its key, counting it as expired.
+		 * 
+		 * @return {@code true} if item has been removed
+		 */
+		boolean removeExpired(ExpiringItem item) {
+			if (remove(item)) {
+				expiredCount.increment();
+				return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * Replaces all the items with the empty generation. Operations which have
+		 * started before may still finish on the replaced one, as if they were
+		 * done before the clear.
+		 */
 		void clear() {
-			items.clear();
+			if (!isBounded()) {
+				current = new Generation();
+				return;
+			}
+			synchronized (this) {
+				Generation cleared = current;
+				current = new Generation();
+				budget.giveBack(cleared.largeItemBytes);
+			}
+		}
+
+		/**
+		 * Evicts items until the ones not larger than the share of the shard fit
+		 * into what is left of it.
+		 */
+		void evictToShareLimit() {
+			current.ensureCapacityFor(0L);
+		}
+		
+		/**
+		 * Checks whether specified {@code item} is expired. Clock is read only for
+		 * items with time-to-live.
+		 */
+		boolean isExpired(StorageItem item) {
+			return item.expires() && item.isExpired(dateTimeProvider.getCurrentTimeInMillis());
+		}
+		
+		/**
+		 * Returns items whose time-to-live has passed since the previous call. Only
+		 * items with time-to-live are looked at, and only the ones which are due.
+		 * Returned items may be already removed or replaced in the storage.
+		 */
+		List<ExpiringItem> takeExpiredItems() {
+			return current.expirationWheel.advance(dateTimeProvider.getCurrentTimeInMillis());
+		}
+
+		/**
+		 * Iterates over the keys of the items together with the items.
+		 */
+		@Override
+		public Iterator<Map.Entry<String, StorageItem>> iterator() {
+			return current.items.entrySet().iterator();
 		}
 
 		@Override
-		public Iterator<StorageItem> iterator() {
-			return items.values().iterator();
+		public long getItemCount() {
+			return current.items.size();
+		}
+
+		@Override
+		public long getUsedBytes() {
+			return current.usedBytes.sum();
+		}
+
+		@Override
+		public long getMaxBytes() {
+			return maxBytes;
+		}
+
+		@Override
+		public long getEvictionCount() {
+			return evictionCount.sum();
+		}
+
+		@Override
+		public long getExpiredCount() {
+			return expiredCount.sum();
+		}
+		
+		private boolean isBounded() {
+			return maxBytes != UNBOUNDED;
+		}
+
+		private EvictionQueue createEvictionQueue() {
+			switch (evictionPolicy) {
+			case W_TINY_LFU:
+				return new TinyLfuEvictionQueue(maxBytes);
+			case GDSF:
+				return new GdsfEvictionQueue();
+			default:
+				return new ClockEvictionQueue(EVICTION_SEGMENT_COUNT);
+			}
+		}
+
+		/**
+		 * Items put into the shard since it was created or cleared last time,
+		 * together with their eviction and expiration state.
+		 */
+		private class Generation {
+			private final Map<String, StorageItem> items = new ConcurrentHashMap<>();
+			private final EvictionQueue evictionQueue = isBounded() ? createEvictionQueue() : null;
+			private final TimingWheel expirationWheel = new TimingWheel(expirationTickMillis,
+					dateTimeProvider.getCurrentTimeInMillis());
+			private final LongAdder usedBytes = new LongAdder();
+			/* Bytes of the items larger than the share, borrowed from the budget, guarded by the shard */
+			private volatile long largeItemBytes;
+
+			private void ensureCapacityFor(String key, StorageItem item) {
+				long size = item.size(key);
+				if (!budget.isLarge(size)) {
+					ensureCapacityFor(size);
+				} else if (!budget.hasRoomFor(size)) {
+					throw new IllegalArgumentException("data is too large to fit into the storage: "
+							+ item.data.length + " bytes");
+				}
+			}
+
+			/**
+			 * Evicts items until the ones not larger than the share, together with
+			 * the specified count of bytes, fit into what is left of the share.
+			 */
+			private void ensureCapacityFor(long bytes) {
+				while (usedBytes.sum() - largeItemBytes + bytes > budget.getShareLimit()) {
+					EvictableItem victim = evictionQueue.evict();
+					if (victim == null) {
+						break;
+					}
+					if (items.remove(victim.key, victim)) {
+						usedBytes.add(-victim.size());
+						cancelExpiration(victim);
+						onLargeItemRemoved(victim.size());
+						evictionCount.increment();
+						LOGGER.debug("Evicted StorageItem={}", victim);
+					}
+				}
+			}
+
+			private void onAdded(String key, StorageItem item) {
+				long size = item.size(key);
+				usedBytes.add(size);
+				if (isBounded()) {
+					evictionQueue.add((EvictableItem) item);
+					if (budget.isLarge(size)) {
+						onLargeItemAdded(size);
+					}
+				}
+				if (item.expires()) {
+					expirationWheel.schedule((ExpiringItem) item);
+				}
+			}
+
+			private void onRemoved(String key, StorageItem item) {
+				long size = item.size(key);
+				usedBytes.add(-size);
+				if (isBounded()) {
+					evictionQueue.remove((EvictableItem) item);
+					onLargeItemRemoved(size);
+				}
+				cancelExpiration(item);
+			}
+
+			/**
+			 * Borrows the size of the large item from the budget, so all the shards
+			 * evict their other items to leave room for it. Nothing is borrowed for
+			 * the generation which has been already cleared.
+			 */
+			private void onLargeItemAdded(long size) {
+				synchronized (InnerStorage.this) {
+					if (current != this) {
+						return;
+					}
+					largeItemBytes += size;
+					budget.borrow(size);
+				}
+				budget.evictToShareLimits();
+			}
+
+			private void onLargeItemRemoved(long size) {
+				if (!budget.isLarge(size)) {
+					return;
+				}
+				synchronized (InnerStorage.this) {
+					if (current == this) {
+						largeItemBytes -= size;
+						budget.giveBack(size);
+					}
+				}
+			}
+
+			private void cancelExpiration(StorageItem item) {
+				if (item.expires()) {
+					expirationWheel.cancel((ExpiringItem) item);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This inner class represents count of bytes all the shards of the bounded
+	 * {@link DefaultServerStorage} may occupy together. Each shard owns equal
+	 * share of it and evicts its items to stay within the share, so shards never
+	 * have to agree on the eviction. Item larger than the share is still stored
+	 * as long as it fits into the whole budget: its size is borrowed from the
+	 * shares of all the shards, which evict other items to stay within what is
+	 * left of their shares, until the large item is removed and its size is given
+	 * back.
+	 */
+	static class StorageBudget {
+		private final long shareBytes;
+		private final int shardCount;
+		private final AtomicLong borrowedBytes = new AtomicLong();
+		private List<InnerStorage> shards = Collections.emptyList();
+
+		/**
+		 * @param shareBytes count of bytes single shard owns
+		 */
+		StorageBudget(long shareBytes, int shardCount) {
+			this.shareBytes = shareBytes;
+			this.shardCount = shardCount;
+		}
+
+		void setShards(InnerStorage... shards) {
+			this.shards = Arrays.asList(shards);
+		}
+
+		long getShareBytes() {
+			return shareBytes;
+		}
+
+		long getMaxBytes() {
+			return shareBytes * shardCount;
+		}
+
+		/**
+		 * Returns count of bytes each shard may occupy with the items not larger
+		 * than its share.
+		 */
+		long getShareLimit() {
+			return shareBytes - (borrowedBytes.get() + shardCount - 1) / shardCount;
+		}
+
+		/**
+		 * Checks whether item of the specified {@code size} is larger than the
+		 * share of the shard.
+		 */
+		boolean isLarge(long size) {
+			return size > shareBytes;
+		}
+
+		/**
+		 * Checks whether {@code size} of the large item can be borrowed.
+		 */
+		boolean hasRoomFor(long size) {
+			return borrowedBytes.get() + size <= getMaxBytes();
+		}
+
+		void borrow(long bytes) {
+			borrowedBytes.addAndGet(bytes);
+		}
+
+		void giveBack(long bytes) {
+			borrowedBytes.addAndGet(-bytes);
+		}
+
+		/**
+		 * Makes all the shards evict items which don't fit into what is left of
+		 * their shares.
+		 */
+		void evictToShareLimits() {
+			for (InnerStorage shard : shards) {
+				shard.evictToShareLimit();
+			}
 		}
 	}
 
 	/**
 	 * This inner class is a {@link DefaultServerStorage} specific component which
-	 * represents single item in the store.
+	 * represents single item in the store. Plain item keeps only its data and
+	 * expiration time, since the key is kept by the storage map. Items which have
+	 * to be found by the expiration or eviction state are the subclasses of it,
+	 * created only when needed: {@link ExpiringItem} for the items with
+	 * time-to-live and {@link EvictableItem} for all the items of the bounded
+	 * storage.
 	 * 
 	 * @author Vitaly Dragun
 	 *
 	 */
 	static class StorageItem {
-		final String key;
-		final Long ttl;
+		/**
+		 * Estimated count of bytes occupied by the item itself, its key and data
+		 * objects and by the storage map entry, apart from the key characters
+		 * and data bytes.
+		 */
+		static final int ENTRY_OVERHEAD_BYTES = 128;
+		static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
 		final byte[] data;
-		private final DateTimeProvider dateTimeProvider;
+		/** Time in milliseconds after which item is expired, or {@link #NEVER_EXPIRES} */
+		final long expiresAt;
 
-		StorageItem(String key, Long ttl, byte[] data, DateTimeProvider dateTimeProvider) {
-			this.key = key;
+		StorageItem(long expiresAt, byte[] data) {
 			this.data = data;
-			this.ttl = ttl != null ? ttl + dateTimeProvider.getCurrentTimeInMillis() : null;
-			this.dateTimeProvider = dateTimeProvider;
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * Returns estimated count of bytes occupied by the item with specified
+		 * {@code key} in the storage.
+		 */
+		long size(String key) {
+			return ENTRY_OVERHEAD_BYTES + 2L * key.length() + data.length;
 		}
 
-		boolean isExpired() {
-			return ttl != null && ttl.longValue() < dateTimeProvider.getCurrentTimeInMillis();
+		boolean expires() {
+			return expiresAt != NEVER_EXPIRES;
+		}
+
+		boolean isExpired(long currentTimeMillis) {
+			return expiresAt < currentTimeMillis;
 		}
 
 		@Override
 		public String toString() {
-			String s = String.format("[%s]=%d bytes", key, data.length);
-			if (ttl != null) {
-				s += String.format(" (%s)", dateTimeProvider.getDateTimeFrom(ttl.longValue()));
+			String s = String.format("%d bytes", data.length);
+			if (expires()) {
+				s += String.format(" (%s)", Instant.ofEpochMilli(expiresAt));
 			}
 			return s;
 		}
 	}
 
+	/**
+	 * {@link StorageItem} which knows its key and can be linked into the
+	 * {@link TimingWheel}, so it's removed from the storage once expired.
+	 * 
+	 * @author Vitaly Dragun
+	 *
+	 */
+	static class ExpiringItem extends StorageItem {
+		final String key;
+
+		/* Expiration related state, see TimingWheel */
+		int wheelSlot = -1;
+		ExpiringItem wheelPrev;
+		ExpiringItem wheelNext;
+
+		ExpiringItem(String key, long expiresAt, byte[] data) {
+			super(expiresAt, data);
+			this.key = key;
+		}
+
+		/**
+		 * Returns estimated count of bytes occupied by the item in the storage.
+		 */
+		long size() {
+			return size(key);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[%s]=%s", key, super.toString());
+		}
+	}
+
+	/**
+	 * {@link ExpiringItem} which can be linked into the {@link EvictionQueue} of
+	 * the bounded storage. It keeps the expiration state whether it has
+	 * time-to-live or not, since items of the bounded storage may expire as well.
+	 * 
+	 * @author Vitaly Dragun
+	 *
+	 */
+	static class EvictableItem extends ExpiringItem {
+		static final byte NOT_QUEUED = 0;
+
+		/*
+		 * Eviction related state shared by all the EvictionQueue implementations,
+		 * the rest of their state is kept by the queues themselves
+		 */
+		volatile boolean referenced;
+		/* Queue specific part of the eviction queue item is in, or NOT_QUEUED */
+		byte queuedIn;
+		EvictableItem prev;
+		EvictableItem next;
+
+		EvictableItem(String key, long expiresAt, byte[] data) {
+			super(key, expiresAt, data);
+		}
+	}
+
 	/**
 	 * This inner class is strictly specific to {@link DefaultServerStorage} and
 	 * represents a cleaning task that should be done in a separate thread and is
-	 * aimed to clean expired {@link StorageItem}s from the store.
+	 * aimed to clean expired {@link ExpiringItem}s from the group of shards.
 	 * 
 	 * @author Vitaly Dragun
 	 *
@@ -202,12 +996,18 @@ class DefaultServerStorage implements ServerStorage {
 	static class ExpiredDataCleaner implements Runnable {
 		private static final Logger LOGGER = LoggerFactory.getLogger(ExpiredDataCleaner.class);
 
-		private final InnerStorage storage;
+		private final List<InnerStorage> shards;
 		private final int clearDataIntervalMillis;
+		private final CleanerStatistics statistics;
 
 		ExpiredDataCleaner(InnerStorage storage, int clearDataIntervalMillis) {
-			this.storage = storage;
+			this(Collections.singletonList(storage), clearDataIntervalMillis, new CleanerStatistics());
+		}
+
+		ExpiredDataCleaner(List<InnerStorage> shards, int clearDataIntervalMillis, CleanerStatistics statistics) {
+			this.shards = shards;
 			this.clearDataIntervalMillis = clearDataIntervalMillis;
+			this.statistics = statistics;
 		}
 
 		@Override
@@ -229,13 +1029,30 @@ class DefaultServerStorage implements ServerStorage {
 			return !Thread.interrupted();
 		}
 		
-		void clearExpiredItems() {
-			for (StorageItem item : storage) {
-				if (item.isExpired()) {
-					storage.remove(item.key);
-					LOGGER.debug("Removed expired StorageItem={}", item);
+		/**
+		 * Removes items of the shards which have expired since the previous run.
+		 * 
+		 * @return count of the removed expired items
+		 */
+		int clearExpiredItems() {
+			long startedAt = System.nanoTime();
+			int scannedCount = 0;
+			int removedCount = 0;
+			for (InnerStorage storage : shards) {
+				for (ExpiringItem item : storage.takeExpiredItems()) {
+					scannedCount++;
+					if (storage.removeExpired(item)) {
+						removedCount++;
+						LOGGER.debug("Removed expired StorageItem={}", item);
+					}
 				}
 			}
+			statistics.recordRun(System.nanoTime() - startedAt, scannedCount, removedCount);
+			return removedCount;
+		}
+
+		CleanerStatistics getStatistics() {
+			return statistics;
 		}
 
 		private void sleepUntilNextCheck() throws InterruptedException {
@@ -0,0 +1,164 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedConfigException;
+import com.revenat.jmemcached.exception.JMemcachedException;
+
+/**
+ * This {@link Runnable} implementation represents single event-loop thread job
+ * which serves many client connections at the same time using one
+ * {@link Selector}. New client connections are handed over to the event loop
+ * via {@link #register(SocketChannel)} method.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class EventLoop implements Runnable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventLoop.class);
+
+	private final Selector selector;
+	private final ChannelRequestProcessor requestProcessor;
+	private final Queue<SocketChannel> pendingChannels;
+	private volatile boolean stopped;
+
+	EventLoop(ChannelRequestProcessor requestProcessor) {
+		this.requestProcessor = requireNonNull(requestProcessor, "requestProcessor can not be null");
+		this.pendingChannels = new ConcurrentLinkedQueue<>();
+		this.selector = openSelector();
+		this.stopped = false;
+	}
+
+	private static Selector openSelector() {
+		try {
+			return Selector.open();
+		} catch (IOException e) {
+			throw new JMemcachedConfigException("Can not open selector for the event loop", e);
+		}
+	}
+
+	/**
+	 * Hands over new client connection to this event loop. Can be called from any
+	 * thread.
+	 */
+	void register(SocketChannel clientChannel) {
+		pendingChannels.add(clientChannel);
+		selector.wakeup();
+	}
+
+	/**
+	 * Stops this event loop, closing all the client connections it serves.
+	 */
+	void shutdown() {
+		stopped = true;
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!stopped && !Thread.currentThread().isInterrupted()) {
+				selector.select();
+				registerPendingChannels();
+				processSelectedKeys();
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			if (!stopped) {
+				LOGGER.error("Event loop failed: " + e.getMessage(), e);
+			}
+		} finally {
+			closeAllConnections();
+		}
+	}
+
+	private void registerPendingChannels() {
+		SocketChannel clientChannel;
+		while ((clientChannel = pendingChannels.poll()) != null) {
+			try {
+				clientChannel.configureBlocking(false);
+				SelectionKey key = clientChannel.register(selector, SelectionKey.OP_READ);
+				key.attach(new NioClientConnection(clientChannel, key, requestProcessor));
+				LOGGER.info("A new client connection has been established: {}",
+						clientChannel.socket().getRemoteSocketAddress());
+			} catch (IOException e) {
+				LOGGER.error("Can't register client connection: " + e.getMessage(), e);
+				closeChannel(clientChannel);
+			}
+		}
+	}
+
+	private void processSelectedKeys() {
+		Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+		while (selectedKeys.hasNext()) {
+			SelectionKey key = selectedKeys.next();
+			selectedKeys.remove();
+			NioClientConnection connection = (NioClientConnection) key.attachment();
+			try {
+				if (key.isValid() && key.isReadable()) {
+					connection.onReadable();
+				}
+				if (key.isValid() && key.isWritable()) {
+					connection.onWritable();
+				}
+			} catch (EOFException | SocketException e) {
+				LOGGER.info("Remote client connection closed: {}: {}", connection.getRemoteAddress(), e.getMessage());
+				connection.close();
+			} catch (IOException e) {
+				LOGGER.error("IO Error: " + e.getMessage(), e);
+				connection.close();
+			} catch (CancelledKeyException e) {
+				LOGGER.info("Client connection key cancelled: {}", connection.getRemoteAddress());
+				connection.close();
+			} catch (JMemcachedException e) {
+				LOGGER.error(e.getMessage(), e);
+				connection.close();
+			} catch (RuntimeException e) {
+				// failure of single connection should not stop the loop serving others
+				LOGGER.error("Unexpected error while serving client connection: " + e.getMessage(), e);
+				connection.close();
+			}
+		}
+	}
+
+	private void closeAllConnections() {
+		try {
+			for (SelectionKey key : selector.keys()) {
+				((NioClientConnection) key.attachment()).close();
+			}
+		} catch (ClosedSelectorException e) {
+			// selector has been already closed along with all its channels
+		}
+		SocketChannel clientChannel;
+		while ((clientChannel = pendingChannels.poll()) != null) {
+			closeChannel(clientChannel);
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			LOGGER.error("Close selector failed: " + e.getMessage(), e);
+		}
+	}
+
+	private static void closeChannel(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOGGER.error("Close channel failed: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+
+/**
+ * This interface represents component which keeps track of the
+ * {@link EvictableItem}s of the bounded storage and chooses eviction victims
+ * among them according to some {@link EvictionPolicy}.
+ * <p>
+ * Implementations are safe for concurrent use. {@link #touch(EvictableItem)} is
+ * called on every read, so it should neither block nor allocate.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+interface EvictionQueue {
+
+	/**
+	 * Adds specified {@code item} which has just been put into the storage.
+	 */
+	void add(EvictableItem item);
+
+	/**
+	 * Removes specified {@code item} from the queue if it's present there.
+	 */
+	void remove(EvictableItem item);
+
+	/**
+	 * Marks specified {@code item} as just used.
+	 */
+	void touch(EvictableItem item);
+
+	/**
+	 * Removes from the queue and returns next eviction victim, or returns
+	 * {@code null} if queue is empty.
+	 */
+	EvictableItem evict();
+
+	/**
+	 * Removes all the items from the queue.
+	 */
+	void clear();
+}
@@ -0,0 +1,64 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import com.revenat.jmemcached.server.domain.ExpiredDataCleanerMXBean;
+
+/**
+ * Default implementation of the {@link ExpiredDataCleanerMXBean} interface,
+ * which reads the {@link CleanerStatistics} of the {@link CleanableStorage}.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ExpiredDataCleanerMonitor implements ExpiredDataCleanerMXBean {
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final CleanableStorage storage;
+
+	ExpiredDataCleanerMonitor(CleanableStorage storage) {
+		this.storage = requireNonNull(storage, "storage can not be null");
+	}
+
+	@Override
+	public long getRunCount() {
+		return storage.getCleanerStatistics().getRunCount();
+	}
+
+	@Override
+	public double getLastRunDurationMillis() {
+		return storage.getCleanerStatistics().getLastRunNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public long getLastScannedCount() {
+		return storage.getCleanerStatistics().getLastScannedCount();
+	}
+
+	@Override
+	public long getLastRemovedCount() {
+		return storage.getCleanerStatistics().getLastRemovedCount();
+	}
+
+	@Override
+	public double getTotalRunDurationMillis() {
+		return storage.getCleanerStatistics().getTotalRunNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public long getTotalScannedCount() {
+		return storage.getCleanerStatistics().getTotalScannedCount();
+	}
+
+	@Override
+	public long getTotalRemovedCount() {
+		return storage.getCleanerStatistics().getTotalRemovedCount();
+	}
+
+	@Override
+	public int clearExpiredData() {
+		return storage.clearExpiredData();
+	}
+}
@@ -0,0 +1,97 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.revenat.jmemcached.server.domain.impl.OffHeapServerStorage.OffHeapItem;
+
+/**
+ * This component keeps the {@link OffHeapItem}s which have time-to-live in the
+ * array, so random samples of them can be taken without looking at the rest
+ * of the items. Each item remembers its slot in the array, and the item
+ * removed from the middle is replaced by the last one, so adding and removing
+ * are constant time operations.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ExpiringItemSet {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private OffHeapItem[] items = new OffHeapItem[INITIAL_CAPACITY];
+	private int size;
+
+	/**
+	 * Adds specified {@code item} unless its chunk was already released.
+	 */
+	void add(OffHeapItem item) {
+		lock.lock();
+		try {
+			if (!item.live || item.expiringSlot >= 0) {
+				return;
+			}
+			if (size == items.length) {
+				OffHeapItem[] newItems = new OffHeapItem[items.length * 2];
+				System.arraycopy(items, 0, newItems, 0, size);
+				items = newItems;
+			}
+			item.expiringSlot = size;
+			items[size++] = item;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes specified {@code item} if it's present.
+	 */
+	void remove(OffHeapItem item) {
+		lock.lock();
+		try {
+			int slot = item.expiringSlot;
+			if (slot < 0) {
+				return;
+			}
+			OffHeapItem last = items[--size];
+			items[slot] = last;
+			last.expiringSlot = slot;
+			items[size] = null;
+			item.expiringSlot = -1;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds to the {@code sample} up to {@code sampleSize} random items. All the
+	 * items are taken if there are not more of them than needed.
+	 */
+	void sample(List<OffHeapItem> sample, int sampleSize) {
+		lock.lock();
+		try {
+			if (size <= sampleSize) {
+				for (int i = 0; i < size; i++) {
+					sample.add(items[i]);
+				}
+				return;
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < sampleSize; i++) {
+				sample.add(items[random.nextInt(size)]);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
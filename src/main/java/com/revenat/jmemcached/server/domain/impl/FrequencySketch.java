@@ -0,0 +1,147 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch which estimates how often each key has been used recently.
+ * Each key is counted by {@link #DEPTH} 4-bit counters chosen by independent
+ * hashes, sixteen counters packed into each {@code long}, and its frequency is
+ * the smallest of them, so collisions may only overestimate it. Once count of
+ * increments reaches ten times the count of table words, all the counters are
+ * halved, so frequencies reflect recent usage rather than the whole history.
+ * <p>
+ * Counters are updated by compare-and-set, so concurrent increments take no
+ * locks and are never lost. Table grows along with the count of tracked keys,
+ * dropping the collected frequencies each time.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class FrequencySketch {
+	static final int MAX_FREQUENCY = 15;
+
+	private static final int DEPTH = 4;
+	private static final int SAMPLE_FACTOR = 10;
+	private static final int MIN_TABLE_LENGTH = 16;
+	private static final int MAX_TABLE_LENGTH = 1 << 30;
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long[] SEEDS = {
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	private volatile AtomicLongArray table;
+	private volatile int sampleSize;
+	private final AtomicInteger incrementCount = new AtomicInteger();
+
+	FrequencySketch() {
+		this(MIN_TABLE_LENGTH);
+	}
+
+	/**
+	 * @param expectedKeyCount count of keys sketch is sized for initially
+	 */
+	FrequencySketch(int expectedKeyCount) {
+		resize(tableLengthFor(expectedKeyCount));
+	}
+
+	/**
+	 * Grows the table if it's smaller than specified count of keys to track.
+	 */
+	void ensureCapacity(int keyCount) {
+		int tableLength = tableLengthFor(keyCount);
+		if (tableLength > table.length()) {
+			resize(tableLength);
+		}
+	}
+
+	private static int tableLengthFor(int keyCount) {
+		int length = Integer.highestOneBit(Math.max(MIN_TABLE_LENGTH, Math.min(keyCount, MAX_TABLE_LENGTH)) - 1) << 1;
+		return Math.max(MIN_TABLE_LENGTH, length);
+	}
+
+	private void resize(int tableLength) {
+		table = new AtomicLongArray(tableLength);
+		sampleSize = SAMPLE_FACTOR * tableLength;
+		incrementCount.set(0);
+	}
+
+	/**
+	 * Returns estimated count of recent uses of the key with specified
+	 * {@code hash}, at most {@link #MAX_FREQUENCY}.
+	 */
+	int frequency(int hash) {
+		AtomicLongArray counters = table;
+		int frequency = MAX_FREQUENCY;
+		for (int depth = 0; depth < DEPTH; depth++) {
+			long position = position(hash, depth, counters.length());
+			int shift = counterShift(position);
+			frequency = Math.min(frequency, (int) ((counters.get(wordIndex(position)) >>> shift) & 0xFL));
+		}
+		return frequency;
+	}
+
+	/**
+	 * Counts single use of the key with specified {@code hash}.
+	 */
+	void increment(int hash) {
+		AtomicLongArray counters = table;
+		boolean incremented = false;
+		for (int depth = 0; depth < DEPTH; depth++) {
+			long position = position(hash, depth, counters.length());
+			incremented |= incrementCounter(counters, wordIndex(position), counterShift(position));
+		}
+		if (incremented && incrementCount.incrementAndGet() >= sampleSize) {
+			age(counters);
+		}
+	}
+
+	private static boolean incrementCounter(AtomicLongArray counters, int wordIndex, int shift) {
+		while (true) {
+			long word = counters.get(wordIndex);
+			if (((word >>> shift) & 0xFL) == MAX_FREQUENCY) {
+				return false;
+			}
+			if (counters.compareAndSet(wordIndex, word, word + (1L << shift))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Halves all the counters. Only the thread which has reached the sample size
+	 * first does it, the others keep counting meanwhile.
+	 */
+	private void age(AtomicLongArray counters) {
+		int count = incrementCount.get();
+		if (count < sampleSize || !incrementCount.compareAndSet(count, count / 2)) {
+			return;
+		}
+		for (int i = 0; i < counters.length(); i++) {
+			long word;
+			do {
+				word = counters.get(i);
+			} while (!counters.compareAndSet(i, word, (word >>> 1) & RESET_MASK));
+		}
+	}
+
+	/**
+	 * Returns position of the counter for the key with specified {@code hash}
+	 * in the row of specified {@code depth}: index of the word in the lower
+	 * bits, and index of the counter within the word in the upper ones.
+	 */
+	private static long position(int hash, int depth, int tableLength) {
+		long h = (hash + SEEDS[depth]) * SEEDS[depth];
+		h ^= h >>> 32;
+		h *= 0x9e3779b97f4a7c15L;
+		h ^= h >>> 29;
+		return ((h >>> 60) << 32) | (h & (tableLength - 1));
+	}
+
+	private static int wordIndex(long position) {
+		return (int) position;
+	}
+
+	private static int counterShift(long position) {
+		return (int) (position >>> 32) << 2;
+	}
+}
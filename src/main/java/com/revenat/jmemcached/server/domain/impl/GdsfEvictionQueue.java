@@ -0,0 +1,238 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+
+/**
+ * {@link EvictionQueue} implementing the {@link EvictionPolicy#GDSF}
+ * (Greedy-Dual-Size-Frequency) policy. Each item is ranked by the priority
+ * {@code L + frequency * cost / size}, where frequency is estimated by the
+ * {@link FrequencySketch}, cost of missing any item is the same
+ * {@link #MISS_COST}, and {@code L} is the inflation clock: priority of the
+ * last evicted item. Item with the lowest priority is evicted first, so one
+ * large item is evicted before many small ones used as often, and items which
+ * haven't been used for long lose to the newer ones as the clock advances.
+ * <p>
+ * Items are kept in the binary min-heap by their priorities, which are kept
+ * apart from the items in the array parallel to the heap, so items carry no
+ * state of this policy. Reading an item only marks it as recently used and
+ * counts the use in the sketch, both without locks, and the priority is
+ * refreshed when the item reaches the top of the heap. Only the top is ever
+ * refreshed, so the heap order holds whether its priority goes up or down.
+ * <p>
+ * Priorities kept in the heap may be stale, though. The sketch periodically
+ * halves its counters, so the item's current priority may be lower than the
+ * one it was queued with, and the item found on the top without being used
+ * since its last refresh is not always the one of the lowest current priority.
+ * It is evicted anyway: the error is limited to the frequency part of the
+ * priority, halving keeps frequencies of the items in the same order, and
+ * stale priority only delays eviction of the item until it reaches the top,
+ * while refreshing the whole heap on each halving would take time
+ * proportional to its size.
+ * <p>
+ * Item doesn't know its place in the heap, so removed item is only marked as
+ * not queued and left in the heap until it reaches the top. Once removed items
+ * take more than {@link #MAX_REMOVED_PERCENT} of the heap, they are dropped
+ * all at once and the heap is rebuilt, which takes constant time per removal
+ * on average.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class GdsfEvictionQueue implements EvictionQueue {
+	static final double MISS_COST = 1.0;
+	static final int MAX_REMOVED_PERCENT = 25;
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final byte QUEUED = 1;
+
+	private final FrequencySketch sketch = new FrequencySketch();
+	private final ReentrantLock lock = new ReentrantLock();
+	private EvictableItem[] heap = new EvictableItem[INITIAL_CAPACITY];
+	private double[] priorities = new double[INITIAL_CAPACITY];
+	private int size;
+	private int removedCount;
+	private double inflation;
+
+	@Override
+	public void add(EvictableItem item) {
+		sketch.increment(hash(item));
+		lock.lock();
+		try {
+			sketch.ensureCapacity(size - removedCount + 1);
+			item.referenced = false;
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+				priorities = Arrays.copyOf(priorities, size * 2);
+			}
+			item.queuedIn = QUEUED;
+			place(item, priorityOf(item), size++);
+			siftUp(size - 1);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void remove(EvictableItem item) {
+		lock.lock();
+		try {
+			if (item.queuedIn != EvictableItem.NOT_QUEUED) {
+				item.queuedIn = EvictableItem.NOT_QUEUED;
+				removedCount++;
+				if (removedCount * 100L > size * (long) MAX_REMOVED_PERCENT) {
+					dropRemoved();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void touch(EvictableItem item) {
+		item.referenced = true;
+		sketch.increment(hash(item));
+	}
+
+	@Override
+	public EvictableItem evict() {
+		lock.lock();
+		try {
+			while (size > 0) {
+				EvictableItem top = heap[0];
+				if (top.queuedIn == EvictableItem.NOT_QUEUED) {
+					removeTop();
+					removedCount--;
+				} else if (!top.referenced) {
+					inflation = priorities[0];
+					removeTop();
+					top.queuedIn = EvictableItem.NOT_QUEUED;
+					return top;
+				} else {
+					top.referenced = false;
+					priorities[0] = priorityOf(top);
+					siftDown(0);
+				}
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for (int i = 0; i < size; i++) {
+				heap[i].queuedIn = EvictableItem.NOT_QUEUED;
+				heap[i] = null;
+			}
+			size = 0;
+			removedCount = 0;
+			inflation = 0.0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns current value of the inflation clock.
+	 */
+	double getInflation() {
+		return inflation;
+	}
+
+	/**
+	 * Returns count of the slots of the heap taken by the queued items and by
+	 * the removed ones not dropped yet.
+	 */
+	int getHeapSize() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private double priorityOf(EvictableItem item) {
+		int frequency = Math.max(1, sketch.frequency(hash(item)));
+		return inflation + frequency * MISS_COST / item.size();
+	}
+
+	private void removeTop() {
+		size--;
+		EvictableItem last = heap[size];
+		double lastPriority = priorities[size];
+		heap[size] = null;
+		if (size > 0) {
+			place(last, lastPriority, 0);
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Drops all the removed items from the heap and restores the heap order.
+	 */
+	private void dropRemoved() {
+		int keptCount = 0;
+		for (int i = 0; i < size; i++) {
+			if (heap[i].queuedIn != EvictableItem.NOT_QUEUED) {
+				place(heap[i], priorities[i], keptCount++);
+			}
+		}
+		Arrays.fill(heap, keptCount, size, null);
+		size = keptCount;
+		removedCount = 0;
+		for (int i = (size >>> 1) - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	private void siftUp(int index) {
+		EvictableItem item = heap[index];
+		double priority = priorities[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (priorities[parent] <= priority) {
+				break;
+			}
+			place(heap[parent], priorities[parent], index);
+			index = parent;
+		}
+		place(item, priority, index);
+	}
+
+	private void siftDown(int index) {
+		EvictableItem item = heap[index];
+		double priority = priorities[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && priorities[right] < priorities[child]) {
+				child = right;
+			}
+			if (priority <= priorities[child]) {
+				break;
+			}
+			place(heap[child], priorities[child], index);
+			index = child;
+		}
+		place(item, priority, index);
+	}
+
+	private void place(EvictableItem item, double priority, int index) {
+		heap[index] = item;
+		priorities[index] = priority;
+	}
+
+	private static int hash(EvictableItem item) {
+		return item.key.hashCode();
+	}
+}
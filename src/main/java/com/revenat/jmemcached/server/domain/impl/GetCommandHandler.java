@@ -22,8 +22,8 @@ class GetCommandHandler extends AbstractCommandHandler {
 	@Override
 	public Response handle(Request request) {
 		if (request.getCommand() == Command.GET) {
-			byte[] data = getStorage().get(request.getKey());
-			if (data.length == 0) {
+			byte[] data = getStorage().find(request.getKey());
+			if (data == null) {
 				return Response.empty(Status.NOT_FOUND);
 			} else {
 				return Response.withData(Status.GOTTEN, data);
@@ -1,12 +1,16 @@
 package com.revenat.jmemcached.server.domain.impl;
 
+import java.lang.management.ManagementFactory;
 import java.time.Clock;
 import java.util.Properties;
 
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
 import com.revenat.jmemcached.server.domain.Server;
 import com.revenat.jmemcached.server.domain.ServerConfig;
 import com.revenat.jmemcached.server.domain.ServerFactory;
 import com.revenat.jmemcached.server.domain.ServerStorage;
+import com.revenat.jmemcached.server.domain.ServerTransport;
+import com.revenat.jmemcached.server.domain.StorageEngine;
 
 /**
  * Default implementation of the {@link ServerFactory}.
@@ -15,6 +19,7 @@ import com.revenat.jmemcached.server.domain.ServerStorage;
  *
  */
 public class JMemcachedServerFactory implements ServerFactory {
+	private static final long COARSE_CLOCK_TICK_MILLIS = 1L;
 
 	@Override
 	public Server buildNewServer(Properties overrideServerProperties) {
@@ -32,14 +37,89 @@ public class JMemcachedServerFactory implements ServerFactory {
 		ServerConfig config = new DefaultServerConfig(
 				overrideServerProperties,
 				new ClassPathResourceLoader());
-		ServerStorage storage = new DefaultServerStorage(new DefaultDateTimeProvider(Clock.systemDefaultZone()),
-				config.getClearDataInterval());
+		CleanableStorage storage = createServerStorage(config);
+		WriteLog writeLog = createWriteLog(config, storage);
+		ClientConnectionHandlerFactory handlerFactory = new ClientConnectionHandlerFactory(storage, writeLog,
+				CoarseClockHolder.COARSE_CLOCK);
 		ServerContext serverContext = new DefaultServerContext(config,
 															   new ServerSocketFactory(),
-															   new ServerConnectionManagerFactory(),
-															   new ClientConnectionHandlerFactory(storage));
-		ServerTask serverTask = new ServerTask(serverContext);
+															   new ServerConnectionManagerFactory(config.getWorkerThreadType()),
+															   handlerFactory);
+		ServerTask serverTask = createServerTask(config, serverContext);
+		StoragePersistence storagePersistence = createStoragePersistence(config, storage, writeLog);
 				
-		return new DefaultServer(serverTask, config);
+		return new DefaultServer(serverTask, config, storagePersistence,
+				createManagementBeans(config, storage, handlerFactory, serverContext, storagePersistence),
+				createMetricsEndpoint(config, storage, handlerFactory, serverContext));
+	}
+
+	private CleanableStorage createServerStorage(ServerConfig config) {
+		DateTimeProvider dateTimeProvider = CoarseClockHolder.COARSE_CLOCK;
+		if (config.getStorageEngine() == StorageEngine.OFF_HEAP) {
+			return new OffHeapServerStorage(dateTimeProvider, config.getClearDataInterval(),
+					config.getStorageMaxBytes());
+		}
+		return new DefaultServerStorage(dateTimeProvider, config.getClearDataInterval(),
+				config.getStorageMaxBytes(), config.getStorageShardCount(), config.getEvictionPolicy());
+	}
+
+	private WriteLog createWriteLog(ServerConfig config, ServerStorage storage) {
+		if (config.getWriteLogFile() == null) {
+			return null;
+		}
+		// configuration allows write log of the heap storage only
+		return new WriteLog(config.getWriteLogFile(), (DefaultServerStorage) storage, CoarseClockHolder.COARSE_CLOCK,
+				config.getWriteLogSyncPolicy(), config.getWriteLogSyncInterval());
+	}
+
+	private StoragePersistence createStoragePersistence(ServerConfig config, ServerStorage storage,
+			WriteLog writeLog) {
+		if (writeLog != null) {
+			return new WriteLogPersistence(writeLog);
+		}
+		if (config.getSnapshotFile() == null) {
+			return StoragePersistence.NONE;
+		}
+		// configuration allows snapshots of the heap storage only
+		StorageSnapshot snapshot = new StorageSnapshot(config.getSnapshotFile(), CoarseClockHolder.COARSE_CLOCK);
+		return new SnapshotPersistence((DefaultServerStorage) storage, snapshot, config.getSnapshotInterval(),
+				config.getSnapshotLoadMode());
+	}
+
+	private ManagementBeans createManagementBeans(ServerConfig config, CleanableStorage storage,
+			ClientConnectionHandlerFactory handlerFactory, ServerContext serverContext,
+			StoragePersistence storagePersistence) {
+		return new ManagementBeans(ManagementFactory.getPlatformMBeanServer(), config.getServerPort())
+				.add("Storage", new StorageMonitor(storage.getStatistics(), handlerFactory.getRequestRecorder(),
+						storagePersistence))
+				.add("ConnectionPool",
+						new ConnectionPoolMonitor(serverContext.getServerConnectionManager().getStatistics()))
+				.add("ExpiredDataCleaner", new ExpiredDataCleanerMonitor(storage));
+	}
+
+	private MetricsEndpoint createMetricsEndpoint(ServerConfig config, CleanableStorage storage,
+			ClientConnectionHandlerFactory handlerFactory, ServerContext serverContext) {
+		if (config.getMetricsPort() == 0) {
+			return MetricsEndpoint.NONE;
+		}
+		return new PrometheusMetricsEndpoint(config.getMetricsPort(),
+				new PrometheusMetrics(storage.getStatistics(), handlerFactory.getRequestRecorder(),
+						serverContext.getServerConnectionManager().getStatistics(), storage));
+	}
+
+	private ServerTask createServerTask(ServerConfig config, ServerContext serverContext) {
+		if (config.getTransport() == ServerTransport.NIO) {
+			return new NioServerTask(serverContext, config.getEventLoopCount());
+		}
+		return new ServerTask(serverContext);
+	}
+
+	/**
+	 * Lazily creates coarse clock shared by all the servers, so there is a single
+	 * ticker thread per JVM.
+	 */
+	private static class CoarseClockHolder {
+		private static final DateTimeProvider COARSE_CLOCK = new CoarseDateTimeProvider(
+				new DefaultDateTimeProvider(Clock.systemDefaultZone()), COARSE_CLOCK_TICK_MILLIS);
 	}
 }
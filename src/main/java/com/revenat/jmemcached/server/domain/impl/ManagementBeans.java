@@ -0,0 +1,93 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Management beans of the single server, which are registered in the
+ * {@link MBeanServer} while the server is running. Names of the beans are
+ * qualified by the server port, so several servers may run in the same JVM.
+ * Bean which can not be registered is skipped with the warning, since
+ * management should never prevent the server from serving clients.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ManagementBeans implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ManagementBeans.class);
+	static final String DOMAIN = "com.revenat.jmemcached";
+
+	private final MBeanServer mBeanServer;
+	private final int serverPort;
+	private final Map<ObjectName, Object> beans = new LinkedHashMap<>();
+	private final List<ObjectName> registeredNames = new ArrayList<>();
+
+	ManagementBeans(MBeanServer mBeanServer, int serverPort) {
+		this.mBeanServer = requireNonNull(mBeanServer, "mBeanServer can not be null");
+		this.serverPort = serverPort;
+	}
+
+	/**
+	 * Adds specified {@code bean} to be registered under the name of the
+	 * specified {@code type}.
+	 */
+	ManagementBeans add(String type, Object bean) {
+		beans.put(objectName(type, serverPort), requireNonNull(bean, "bean can not be null"));
+		return this;
+	}
+
+	static ObjectName objectName(String type, int serverPort) {
+		try {
+			return new ObjectName(DOMAIN + ":type=" + type + ",port=" + serverPort);
+		} catch (MalformedObjectNameException e) {
+			throw new IllegalArgumentException("Invalid management bean type: " + type, e);
+		}
+	}
+
+	/**
+	 * Registers all the added beans in the {@link MBeanServer}.
+	 */
+	void register() {
+		for (Map.Entry<ObjectName, Object> bean : beans.entrySet()) {
+			try {
+				mBeanServer.registerMBean(bean.getValue(), bean.getKey());
+				registeredNames.add(bean.getKey());
+			} catch (InstanceAlreadyExistsException e) {
+				LOGGER.warn("Management bean {} is already registered by another server", bean.getKey());
+			} catch (JMException e) {
+				LOGGER.warn("Can not register management bean " + bean.getKey() + ": " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Unregisters the beans registered by {@link #register()}.
+	 */
+	@Override
+	public void close() {
+		for (ObjectName name : registeredNames) {
+			try {
+				mBeanServer.unregisterMBean(name);
+			} catch (InstanceNotFoundException e) {
+				// has been already unregistered by someone else
+			} catch (JMException e) {
+				LOGGER.warn("Can not unregister management bean " + name + ": " + e.getMessage(), e);
+			}
+		}
+		registeredNames.clear();
+	}
+}
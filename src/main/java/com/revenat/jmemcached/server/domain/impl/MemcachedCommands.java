@@ -0,0 +1,289 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.ServerStorage;
+
+/**
+ * Commands of the memcached protocols mapped onto the storage, shared by the
+ * text and binary protocol processors.
+ * <p>
+ * Mutations pass through the same {@link CommandHandler} chain as the ones of
+ * the native protocol, so they are logged to the write log and recorded in the
+ * statistics. Retrievals take all their keys from the storage at once and are
+ * recorded as {@code GET} request per key. Commands which read the item before
+ * writing it, such as {@code add} or {@code incr}, are made atomic against the
+ * other memcached protocol mutations of the same key by the striped key locks,
+ * but not against the native protocol ones.
+ * <p>
+ * Storage keeps neither flags nor versions of the items, so protocols report
+ * both as zero.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class MemcachedCommands {
+	/**
+	 * Maximum length of the value, same as the default item size limit of
+	 * memcached.
+	 */
+	static final int MAX_DATA_LENGTH = 1024 * 1024;
+	/**
+	 * Greatest expiration time treated as the count of seconds to live, greater
+	 * ones are treated as Unix time.
+	 */
+	static final long MAX_RELATIVE_EXPIRATION_SECONDS = 60L * 60 * 24 * 30;
+
+	private static final int KEY_LOCK_COUNT = 1024;
+
+	private final CommandHandler commandHandler;
+	private final ServerStorage storage;
+	private final RequestRecorder requestRecorder;
+	private final ServerStats serverStats;
+	private final DateTimeProvider dateTimeProvider;
+	private final Lock[] keyLocks = new Lock[KEY_LOCK_COUNT];
+
+	/**
+	 * @param commandHandler   {@link CommandHandler} chain mutations are passed
+	 *                         through
+	 * @param storage          {@link ServerStorage} items are read from
+	 * @param requestRecorder  {@link RequestRecorder} retrievals are recorded to
+	 * @param serverStats      {@link ServerStats} reported by the {@code stats}
+	 *                         command
+	 * @param dateTimeProvider {@link DateTimeProvider} Unix expiration times are
+	 *                         converted to time-to-live by
+	 */
+	MemcachedCommands(CommandHandler commandHandler, ServerStorage storage, RequestRecorder requestRecorder,
+			ServerStats serverStats, DateTimeProvider dateTimeProvider) {
+		this.commandHandler = requireNonNull(commandHandler, "commandHandler can not be null");
+		this.storage = requireNonNull(storage, "storage can not be null");
+		this.requestRecorder = requireNonNull(requestRecorder, "requestRecorder can not be null");
+		this.serverStats = requireNonNull(serverStats, "serverStats can not be null");
+		this.dateTimeProvider = requireNonNull(dateTimeProvider, "dateTimeProvider can not be null");
+		for (int i = 0; i < KEY_LOCK_COUNT; i++) {
+			keyLocks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Returns data of the specified {@code keys} found in the storage.
+	 */
+	Map<String, byte[]> get(List<String> keys) {
+		long startedAt = System.nanoTime();
+		Map<String, byte[]> values = storage.getAll(keys);
+		long latencyNanos = (System.nanoTime() - startedAt) / Math.max(1, keys.size());
+		for (String key : keys) {
+			requestRecorder.record(Command.GET, values.containsKey(key) ? Status.GOTTEN : Status.NOT_FOUND,
+					latencyNanos);
+		}
+		return values;
+	}
+
+	/**
+	 * Stores the item regardless of whether the key is present.
+	 *
+	 * @param ttl time-to-live in milliseconds, or {@code null} if item never
+	 *            expires
+	 * @throws IllegalArgumentException if storage can't keep the {@code data}
+	 */
+	void set(String key, Long ttl, byte[] data) {
+		Lock keyLock = lockFor(key);
+		keyLock.lock();
+		try {
+			put(key, ttl, data);
+		} finally {
+			keyLock.unlock();
+		}
+	}
+
+	/**
+	 * Stores the item only if the key is absent.
+	 *
+	 * @return {@code true} if item has been stored
+	 * @see #set(String, Long, byte[])
+	 */
+	boolean add(String key, Long ttl, byte[] data) {
+		return putIf(false, key, ttl, data);
+	}
+
+	/**
+	 * Stores the item only if the key is present.
+	 *
+	 * @return {@code true} if item has been stored
+	 * @see #set(String, Long, byte[])
+	 */
+	boolean replace(String key, Long ttl, byte[] data) {
+		return putIf(true, key, ttl, data);
+	}
+
+	private boolean putIf(boolean present, String key, Long ttl, byte[] data) {
+		Lock keyLock = lockFor(key);
+		keyLock.lock();
+		try {
+			if (exists(key) != present) {
+				return false;
+			}
+			put(key, ttl, data);
+			return true;
+		} finally {
+			keyLock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the item.
+	 *
+	 * @return {@code true} if item has been removed, {@code false} if key is
+	 *         absent
+	 */
+	boolean delete(String key) {
+		Lock keyLock = lockFor(key);
+		keyLock.lock();
+		try {
+			return commandHandler.handle(Request.withKey(Command.REMOVE, key)).getStatus() == Status.REMOVED;
+		} finally {
+			keyLock.unlock();
+		}
+	}
+
+	/**
+	 * Changes time-to-live of the item keeping its data.
+	 *
+	 * @return {@code true} if item has been touched, {@code false} if key is
+	 *         absent
+	 */
+	boolean touch(String key, Long ttl) {
+		Lock keyLock = lockFor(key);
+		keyLock.lock();
+		try {
+			byte[] data = storage.find(key);
+			if (data == null) {
+				return false;
+			}
+			put(key, ttl, data);
+			return true;
+		} finally {
+			keyLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds or subtracts the {@code delta} to the value of the item, which is
+	 * unsigned 64-bit decimal number. Increment wraps around on overflow, while
+	 * decrement stops at zero, as memcached does. Item keeps its time-to-live.
+	 *
+	 * @param delta unsigned 64-bit number in the bits of {@code long}
+	 * @return new value in the bits of {@code long}, or {@code null} if key is
+	 *         absent
+	 * @throws NonNumericValueException if value of the item is not a number
+	 */
+	Long incrementOrDecrement(String key, long delta, boolean increment) {
+		Lock keyLock = lockFor(key);
+		keyLock.lock();
+		try {
+			byte[] data = storage.find(key);
+			if (data == null) {
+				return null;
+			}
+			long value = parseValue(data);
+			if (increment) {
+				value += delta;
+			} else {
+				value = Long.compareUnsigned(value, delta) > 0 ? value - delta : 0;
+			}
+			long ttl = storage.getTtl(key);
+			put(key, ttl >= 0 ? ttl : null, toBytes(value));
+			return value;
+		} finally {
+			keyLock.unlock();
+		}
+	}
+
+	private static long parseValue(byte[] data) {
+		try {
+			return TextRequestReader.parseUnsignedLong(0, data.length, data);
+		} catch (JMemcachedException e) {
+			throw new NonNumericValueException();
+		}
+	}
+
+	/**
+	 * Returns the decimal representation of the unsigned 64-bit {@code value},
+	 * which is how numeric values of the items are stored.
+	 */
+	static byte[] toBytes(long value) {
+		return Long.toUnsignedString(value).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Removes all the items.
+	 */
+	void flushAll() {
+		commandHandler.handle(Request.empty(Command.CLEAR));
+	}
+
+	/**
+	 * Returns current values of the server statistics by their names.
+	 */
+	Map<String, String> stats() {
+		return serverStats.collect();
+	}
+
+	/**
+	 * Converts expiration time of the memcached protocols to the time-to-live in
+	 * milliseconds: zero means item never expires, negative one means it's
+	 * expired right away, one up to {@link #MAX_RELATIVE_EXPIRATION_SECONDS} is
+	 * the count of seconds to live, and greater one is Unix time in seconds.
+	 *
+	 * @return time-to-live, or {@code null} if item never expires
+	 */
+	Long ttlOf(long expiration) {
+		if (expiration == 0) {
+			return null;
+		}
+		if (expiration < 0) {
+			return -1L;
+		}
+		if (expiration <= MAX_RELATIVE_EXPIRATION_SECONDS) {
+			return expiration * 1000;
+		}
+		long ttl = Math.min(expiration, Long.MAX_VALUE / 1000) * 1000 - dateTimeProvider.getCurrentTimeInMillis();
+		return ttl > 0 ? ttl : -1L;
+	}
+
+	private boolean exists(String key) {
+		return storage.find(key) != null;
+	}
+
+	private void put(String key, Long ttl, byte[] data) {
+		commandHandler.handle(Request.withKeyAndData(Command.PUT, key, data, ttl));
+	}
+
+	private Lock lockFor(String key) {
+		return keyLocks[Math.floorMod(key.hashCode(), KEY_LOCK_COUNT)];
+	}
+
+	/**
+	 * Exception thrown when the value to increment or decrement is not a
+	 * number.
+	 */
+	static class NonNumericValueException extends JMemcachedException {
+		private static final long serialVersionUID = -4402381745093018541L;
+
+		NonNumericValueException() {
+			super("cannot increment or decrement non-numeric value");
+		}
+	}
+}
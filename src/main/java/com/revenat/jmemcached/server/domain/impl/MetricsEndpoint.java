@@ -0,0 +1,42 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import com.revenat.jmemcached.server.domain.Server;
+
+/**
+ * This interface represents component which serves metrics of the
+ * {@link Server} to the monitoring systems on the separate port, while the
+ * server is running.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+interface MetricsEndpoint extends AutoCloseable {
+
+	/**
+	 * Endpoint which serves nothing.
+	 */
+	MetricsEndpoint NONE = new MetricsEndpoint() {
+
+		@Override
+		public void start() {
+			// nothing to serve
+		}
+
+		@Override
+		public void close() {
+			// nothing to serve
+		}
+	};
+
+	/**
+	 * Starts serving the metrics. Called before server starts accepting client
+	 * connections.
+	 */
+	void start();
+
+	/**
+	 * Stops serving the metrics. Called once server has stopped.
+	 */
+	@Override
+	void close();
+}
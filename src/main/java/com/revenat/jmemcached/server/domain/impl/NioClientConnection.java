@@ -0,0 +1,119 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This component represents state of the single client connection served by the
+ * {@link EventLoop}. It holds reusable read and write buffers of the connection
+ * and reacts on the readiness events of the connection's {@link SocketChannel}.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class NioClientConnection {
+	private static final Logger LOGGER = LoggerFactory.getLogger(NioClientConnection.class);
+	static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+	/**
+	 * Size of the largest request read buffer may hold: header, key length and
+	 * key of 127 bytes at most, time to live, data length and data of
+	 * {@link MemcachedCommands#MAX_DATA_LENGTH} bytes at most.
+	 */
+	static final int MAX_REQUEST_SIZE = 3 + 1 + Byte.MAX_VALUE + Long.BYTES + Integer.BYTES
+			+ MemcachedCommands.MAX_DATA_LENGTH;
+
+	private final SocketChannel channel;
+	private final SelectionKey selectionKey;
+	private final ChannelRequestProcessor requestProcessor;
+	private final ResponseBuffer responseBuffer;
+	private ByteBuffer readBuffer;
+	private ByteBuffer pendingWrite;
+
+	NioClientConnection(SocketChannel channel, SelectionKey selectionKey, ChannelRequestProcessor requestProcessor) {
+		this.channel = requireNonNull(channel, "channel can not be null");
+		this.selectionKey = requireNonNull(selectionKey, "selectionKey can not be null");
+		this.requestProcessor = requireNonNull(requestProcessor, "requestProcessor can not be null");
+		this.responseBuffer = new ResponseBuffer(INITIAL_BUFFER_SIZE);
+		this.readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+	}
+
+	/**
+	 * Reads available bytes from the channel, processes all complete requests
+	 * received so far and writes all their responses at once.
+	 *
+	 * @throws EOFException if client has closed the connection
+	 * @throws IOException  if client sends request greater than
+	 *                      {@link #MAX_REQUEST_SIZE} bytes
+	 */
+	void onReadable() throws IOException {
+		if (channel.read(readBuffer) < 0) {
+			throw new EOFException("End of stream has been reached");
+		}
+		readBuffer.flip();
+		while (requestProcessor.process(readBuffer, responseBuffer)) {
+			// process all the pipelined requests available in the buffer
+		}
+		readBuffer.compact();
+		adjustReadBufferCapacity();
+
+		if (responseBuffer.size() > 0) {
+			pendingWrite = responseBuffer.toByteBuffer();
+			writePendingResponses();
+		}
+	}
+
+	/**
+	 * Writes responses that could not be written to the channel at once.
+	 */
+	void onWritable() throws IOException {
+		writePendingResponses();
+	}
+
+	SocketAddress getRemoteAddress() {
+		return channel.socket().getRemoteSocketAddress();
+	}
+
+	void close() {
+		selectionKey.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOGGER.error("Close channel failed: " + e.getMessage(), e);
+		}
+	}
+
+	private void writePendingResponses() throws IOException {
+		channel.write(pendingWrite);
+		if (pendingWrite.hasRemaining()) {
+			// stop reading new requests until client consumes already sent responses
+			selectionKey.interestOps(SelectionKey.OP_WRITE);
+		} else {
+			pendingWrite = null;
+			responseBuffer.reset(INITIAL_BUFFER_SIZE);
+			selectionKey.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	private void adjustReadBufferCapacity() throws IOException {
+		if (!readBuffer.hasRemaining()) {
+			if (readBuffer.capacity() == MAX_REQUEST_SIZE) {
+				throw new IOException("Request exceeds " + MAX_REQUEST_SIZE + " bytes");
+			}
+			ByteBuffer newBuffer = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, MAX_REQUEST_SIZE));
+			readBuffer.flip();
+			newBuffer.put(readBuffer);
+			readBuffer = newBuffer;
+		} else if (readBuffer.position() == 0 && readBuffer.capacity() > INITIAL_BUFFER_SIZE) {
+			readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+
+/**
+ * This {@link ServerTask} implementation serves client connections using
+ * non-blocking channels. Accepted connections are distributed in round-robin
+ * manner among the fixed set of {@link EventLoop}s, each running in its own
+ * thread and multiplexing many connections at the same time.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class NioServerTask extends ServerTask {
+	private static final Logger LOGGER = LoggerFactory.getLogger(NioServerTask.class);
+
+	private final EventLoop[] eventLoops;
+
+	NioServerTask(ServerContext serverContext, int eventLoopCount) {
+		super(serverContext);
+		if (eventLoopCount < 1) {
+			throw new IllegalArgumentException("eventLoopCount should be >= 1: " + eventLoopCount);
+		}
+		this.eventLoops = createEventLoops(serverContext, eventLoopCount);
+	}
+
+	private static EventLoop[] createEventLoops(ServerContext serverContext, int eventLoopCount) {
+		EventLoop[] loops = new EventLoop[eventLoopCount];
+		for (int i = 0; i < eventLoopCount; i++) {
+			loops[i] = new EventLoop(serverContext.getChannelRequestProcessor());
+		}
+		return loops;
+	}
+
+	@Override
+	void handleServerTask() {
+		ServerSocketChannel serverChannel = getServerContext().getServerSocket().getChannel();
+		if (serverChannel == null) {
+			throw new JMemcachedException("Non-blocking transport requires server socket backed by channel");
+		}
+		startEventLoops();
+		int nextLoop = 0;
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				SocketChannel clientChannel = serverChannel.accept();
+				eventLoops[nextLoop].register(clientChannel);
+				nextLoop = (nextLoop + 1) % eventLoops.length;
+			} catch (IOException e) {
+				if (serverChannel.isOpen()) { // this means it's not a server called shutdown on this
+					LOGGER.error("Can't accept client connection: " + e.getMessage(), e);
+					getServer().stop();
+				}
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		for (EventLoop eventLoop : eventLoops) {
+			eventLoop.shutdown();
+		}
+		super.shutdown();
+	}
+
+	private void startEventLoops() {
+		for (int i = 0; i < eventLoops.length; i++) {
+			Thread t = new Thread(eventLoops[i], "EventLoop-" + i);
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+}
@@ -0,0 +1,681 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.ServerStorage;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
+
+/**
+ * Implementation of the {@link ServerStorage} interface which keeps stored
+ * values in the native memory managed by the {@link SlabAllocator}. Only a
+ * compact index of the values stays on the Java heap, so the amount of cached
+ * data barely affects garbage collection pauses.
+ * <p>
+ * Each size class of the allocator has its own lock, list of free chunks and
+ * CLOCK eviction queue. When a value doesn't fit into the free memory, the least
+ * recently used value of the same size class is evicted. If all the memory is
+ * already taken by the slabs of other size classes and there is nothing to
+ * evict in the needed one, the size class owning the most of the slabs gives
+ * one of them up: items of the slab are evicted and the slab is carved into the
+ * chunks of the needed size. Put fails with {@link IllegalArgumentException}
+ * only if no slab can be given up, since all of them have chunks just being
+ * written.
+ * <p>
+ * Clear replaces the index with the empty one and leaves releasing chunks of
+ * the replaced items to the separate sweeper thread, so it takes constant time
+ * whatever the count of items is.
+ * <p>
+ * Expired item is removed once it's read, the rest of them are found by the
+ * adaptive expiration cycle. Each cycle checks random samples of the items
+ * with time-to-live, and takes the next sample as long as enough of the
+ * sampled items were expired and cycle time budget is not spent. So the
+ * effort follows the count of the expiring items rather than the count of all
+ * the stored ones.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class OffHeapServerStorage implements CleanableStorage, StorageStatistics {
+	private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapServerStorage.class);
+	private static final String CLEAR_THREAD_NAME = "expiredDataCleanerThread";
+	private static final String SWEEPER_THREAD_NAME = "clearedDataSweeperThread";
+	private static final String KEY_CAN_NOT_BE_NULL = "key can not be null";
+	static final long NEVER_EXPIRES = Long.MAX_VALUE;
+	static final int EXPIRATION_SAMPLE_SIZE = 20;
+	/** Next sample is taken if more than this part of the previous one was expired */
+	static final double ACCEPTABLE_EXPIRED_FRACTION = 0.25;
+	private static final long MAX_EXPIRATION_CYCLE_INTERVAL_MILLIS = 100L;
+	/** Part of the interval between the cycles single cycle may take */
+	private static final double EXPIRATION_CYCLE_BUDGET_FRACTION = 0.25;
+
+	private volatile Map<String, OffHeapItem> index = new ConcurrentHashMap<>();
+	private final DateTimeProvider dateTimeProvider;
+	private final SlabAllocator allocator;
+	private final SizeClass[] sizeClasses;
+	/* Count of chunks of each slab taken but not yet linked, guarded by the lock of the slab's size class */
+	private final int[] pendingChunkCounts;
+	private final LongAdder usedBytes = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private final LongAdder expiredCount = new LongAdder();
+	private final CleanerStatistics cleanerStatistics = new CleanerStatistics();
+	private final ExpiringItemSet expiringItems = new ExpiringItemSet();
+	private final long expirationCycleIntervalMillis;
+	private final long expirationCycleBudgetNanos;
+	private final ExecutorService executorService;
+	private final ExecutorService sweeperService;
+
+	/**
+	 * @param clearDataInterval maximum interval in milliseconds between the
+	 *                          expiration cycles
+	 * @param capacity          count of bytes of native memory storage may use
+	 *                          for the values, should be at least
+	 *                          {@link SlabAllocator#SLAB_SIZE}
+	 */
+	OffHeapServerStorage(DateTimeProvider dateTimeProvider, int clearDataInterval, long capacity) {
+		this.dateTimeProvider = requireNonNull(dateTimeProvider, "dateTimeProvider can not be null");
+		this.allocator = new SlabAllocator(capacity);
+		this.pendingChunkCounts = new int[allocator.getSlabCount()];
+		this.sizeClasses = new SizeClass[allocator.getSizeClassCount()];
+		for (int i = 0; i < sizeClasses.length; i++) {
+			sizeClasses[i] = new SizeClass(i);
+		}
+		this.expirationCycleIntervalMillis = Math.min(clearDataInterval, MAX_EXPIRATION_CYCLE_INTERVAL_MILLIS);
+		this.expirationCycleBudgetNanos = (long) (TimeUnit.MILLISECONDS.toNanos(expirationCycleIntervalMillis)
+				* EXPIRATION_CYCLE_BUDGET_FRACTION);
+		this.executorService = Executors.newSingleThreadExecutor(createBackgroundThreadFactory(CLEAR_THREAD_NAME));
+		this.executorService.submit(this::runExpiredDataCleaner);
+		this.sweeperService = Executors.newSingleThreadExecutor(createBackgroundThreadFactory(SWEEPER_THREAD_NAME));
+	}
+
+	private ThreadFactory createBackgroundThreadFactory(String threadName) {
+		return job -> {
+			Thread backgroundThread = new Thread(job, threadName);
+			backgroundThread.setPriority(Thread.MIN_PRIORITY);
+			backgroundThread.setDaemon(true);
+			return backgroundThread;
+		};
+	}
+
+	@Override
+	public Status put(String key, long ttl, byte[] data) {
+		return putInStorage(key, ttl + dateTimeProvider.getCurrentTimeInMillis(), data);
+	}
+
+	@Override
+	public Status put(String key, byte[] data) {
+		return putInStorage(key, NEVER_EXPIRES, data);
+	}
+
+	private Status putInStorage(String key, long expiresAt, byte[] data) {
+		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
+		requireNonNull(data, "data can not be null");
+		int sizeClass = allocator.getSizeClassFor(data.length);
+		if (sizeClass < 0) {
+			throw new IllegalArgumentException("data is too large to fit into the storage: " + data.length
+					+ " bytes");
+		}
+
+		SizeClass itemClass = sizeClasses[sizeClass];
+		long address = itemClass.allocate();
+		allocator.write(address, data);
+		OffHeapItem item = new OffHeapItem(key, sizeClass, address, data.length, expiresAt);
+		OffHeapItem oldItem = index.put(key, item);
+		itemClass.link(item);
+		if (expiresAt != NEVER_EXPIRES) {
+			expiringItems.add(item);
+		}
+		if (oldItem != null) {
+			sizeClasses[oldItem.sizeClass].release(oldItem);
+		}
+
+		Status status = oldItem == null ? Status.ADDED : Status.REPLACED;
+		LOGGER.debug("Data with key '{}' was {} in the storage", key, status);
+		return status;
+	}
+
+	@Override
+	public byte[] get(String key) {
+		byte[] data = find(key);
+		return data != null ? data : new byte[0];
+	}
+
+	@Override
+	public byte[] find(String key) {
+		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
+
+		byte[] data = read(key);
+		if (data == null) {
+			LOGGER.debug("Data with key '{}' was not found in the storage", key);
+			return null;
+		}
+		LOGGER.debug("Data with key '{}' was retrieved from the storage", key);
+		return data;
+	}
+
+	@Override
+	public Map<String, byte[]> getAll(List<String> keys) {
+		requireNonNull(keys, "keys can not be null");
+
+		Map<String, byte[]> result = new LinkedHashMap<>();
+		for (String key : keys) {
+			byte[] data = read(requireNonNull(key, KEY_CAN_NOT_BE_NULL));
+			if (data != null) {
+				result.put(key, data);
+			}
+		}
+		LOGGER.debug("{} of {} keys were retrieved from the storage", result.size(), keys.size());
+		return result;
+	}
+
+	@Override
+	public long getTtl(String key) {
+		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
+
+		OffHeapItem item = index.get(key);
+		if (item == null || item.expiresAt == NEVER_EXPIRES) {
+			return -1;
+		}
+		long currentTimeMillis = dateTimeProvider.getCurrentTimeInMillis();
+		return item.expiresAt < currentTimeMillis ? -1 : item.expiresAt - currentTimeMillis;
+	}
+
+	/**
+	 * Returns data associated with the specified {@code key} or {@code null} if
+	 * there is no such data.
+	 */
+	private byte[] read(String key) {
+		OffHeapItem item = index.get(key);
+		if (item != null && isExpired(item)) {
+			if (removeIfSame(item)) {
+				expiredCount.increment();
+			}
+		} else if (item != null) {
+			byte[] data = allocator.read(item.address, item.length);
+			// chunk could have been released and reused while being read
+			VarHandle.acquireFence();
+			if (item.live) {
+				item.referenced = true;
+				return data;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Status remove(String key) {
+		requireNonNull(key, KEY_CAN_NOT_BE_NULL);
+
+		OffHeapItem item = index.remove(key);
+		if (item != null) {
+			sizeClasses[item.sizeClass].release(item);
+		}
+		Status status = item != null ? Status.REMOVED : Status.NOT_FOUND;
+		LOGGER.debug("Data with key '{}' was {} in/from the storage", key, status);
+		return status;
+	}
+
+	/**
+	 * Replaces the index with the empty one. Chunks of the replaced items are
+	 * released in the background, put which has started before the clear may
+	 * still finish on the replaced index, as if it was done before it.
+	 */
+	@Override
+	public Status clear() {
+		Map<String, OffHeapItem> clearedIndex = index;
+		index = new ConcurrentHashMap<>();
+		sweeperService.execute(() -> sweep(clearedIndex));
+		LOGGER.debug("Storage has been cleared");
+		return Status.CLEARED;
+	}
+
+	/**
+	 * Releases chunks of the items from the replaced index. Items put into it
+	 * after the sweep are not lost for good: their chunks are reused once they
+	 * reach the head of the eviction queue.
+	 */
+	private void sweep(Map<String, OffHeapItem> clearedIndex) {
+		long sweptCount = 0;
+		for (OffHeapItem item : clearedIndex.values()) {
+			sizeClasses[item.sizeClass].release(item);
+			sweptCount++;
+		}
+		LOGGER.debug("Released chunks of {} cleared items", sweptCount);
+	}
+
+	@Override
+	public StorageStatistics getStatistics() {
+		return this;
+	}
+
+	@Override
+	public long getItemCount() {
+		return index.size();
+	}
+
+	/**
+	 * Returns count of bytes occupied by the chunks holding stored values.
+	 */
+	@Override
+	public long getUsedBytes() {
+		return usedBytes.sum();
+	}
+
+	@Override
+	public long getMaxBytes() {
+		return allocator.getCapacity();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	@Override
+	public long getExpiredCount() {
+		return expiredCount.sum();
+	}
+
+	@Override
+	public int clearExpiredData() {
+		return clearExpiredItems();
+	}
+
+	@Override
+	public CleanerStatistics getCleanerStatistics() {
+		return cleanerStatistics;
+	}
+
+	@Override
+	public void close() throws Exception {
+		executorService.shutdownNow();
+		sweeperService.shutdownNow();
+	}
+
+	private boolean isExpired(OffHeapItem item) {
+		return item.expiresAt < dateTimeProvider.getCurrentTimeInMillis();
+	}
+
+	private boolean removeIfSame(OffHeapItem item) {
+		if (index.remove(item.key, item)) {
+			sizeClasses[item.sizeClass].release(item);
+			return true;
+		}
+		return false;
+	}
+
+	private void runExpiredDataCleaner() {
+		LOGGER.debug("{} started with interval {} millis", Thread.currentThread().getName(),
+				expirationCycleIntervalMillis);
+		while (!Thread.interrupted()) {
+			LOGGER.trace("Invoke cleaning job");
+			clearExpiredItems();
+			try {
+				TimeUnit.MILLISECONDS.sleep(expirationCycleIntervalMillis);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Runs single expiration cycle.
+	 * 
+	 * @return count of the removed expired items
+	 */
+	int clearExpiredItems() {
+		long startedAt = System.nanoTime();
+		long deadline = startedAt + expirationCycleBudgetNanos;
+		List<OffHeapItem> sample = new ArrayList<>(EXPIRATION_SAMPLE_SIZE);
+		int scannedCount = 0;
+		int removedCount = 0;
+		while (true) {
+			sample.clear();
+			expiringItems.sample(sample, EXPIRATION_SAMPLE_SIZE);
+			scannedCount += sample.size();
+			int sampledExpiredCount = 0;
+			for (OffHeapItem item : sample) {
+				if (isExpired(item)) {
+					sampledExpiredCount++;
+					if (removeIfSame(item)) {
+						removedCount++;
+						expiredCount.increment();
+						LOGGER.debug("Removed expired item with key '{}'", item.key);
+					}
+				}
+			}
+			long now = System.nanoTime();
+			if (sampledExpiredCount <= sample.size() * ACCEPTABLE_EXPIRED_FRACTION || now >= deadline) {
+				cleanerStatistics.recordRun(now - startedAt, scannedCount, removedCount);
+				return removedCount;
+			}
+		}
+	}
+
+	/**
+	 * Moves the slab of the size class owning the most of them to the
+	 * {@code receiver} one.
+	 *
+	 * @return addresses of the chunks of the moved slab, or {@code null} if
+	 *         there is no slab to move
+	 */
+	private long[] takeSlabOfOtherSizeClass(SizeClass receiver) {
+		SizeClass donor = null;
+		for (SizeClass candidate : sizeClasses) {
+			if (candidate != receiver && candidate.getSlabCount() > 0
+					&& (donor == null || candidate.getSlabCount() > donor.getSlabCount())) {
+				donor = candidate;
+			}
+		}
+		int slabIndex = donor != null ? donor.giveUpSlab() : -1;
+		if (slabIndex < 0) {
+			return null;
+		}
+		LOGGER.debug("Moved slab {} from size class {} to size class {}", slabIndex, donor.sizeClass,
+				receiver.sizeClass);
+		return allocator.reassignSlab(slabIndex, receiver.sizeClass);
+	}
+
+	/**
+	 * This inner class represents single size class of the {@link SlabAllocator}
+	 * together with the state needed to reuse its chunks: slabs it owns, stack of
+	 * free chunks and CLOCK queue of the items occupying the rest of them. All of
+	 * them are guarded by the size class own lock.
+	 */
+	private class SizeClass {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final int sizeClass;
+		private final int chunkSize;
+		private long[] freeChunks = new long[0];
+		private int freeChunkCount;
+		private int[] slabs = new int[0];
+		private volatile int slabCount;
+		private OffHeapItem head;
+		private OffHeapItem tail;
+		private int itemCount;
+
+		SizeClass(int sizeClass) {
+			this.sizeClass = sizeClass;
+			this.chunkSize = allocator.getChunkSize(sizeClass);
+		}
+
+		/**
+		 * Returns address of the chunk new item can be written to, evicting some
+		 * other item of this size class or taking the slab of the other size class
+		 * if needed. The chunk stays pending until the item is {@link #link(OffHeapItem) linked}.
+		 */
+		long allocate() {
+			while (true) {
+				lock.lock();
+				try {
+					if (freeChunkCount == 0) {
+						long[] chunks = allocator.allocateSlab(sizeClass);
+						if (chunks != null) {
+							addSlab(chunks);
+						}
+					}
+					if (freeChunkCount > 0) {
+						usedBytes.add(chunkSize);
+						return take(freeChunks[--freeChunkCount]);
+					}
+					// chunk of the victim stays used, now by the new item
+					OffHeapItem victim = evict();
+					if (victim != null) {
+						index.remove(victim.key, victim);
+						expiringItems.remove(victim);
+						evictionCount.increment();
+						LOGGER.debug("Evicted item with key '{}'", victim.key);
+						return take(victim.address);
+					}
+				} finally {
+					lock.unlock();
+				}
+				// the other size class is locked apart from this one, so two of them can't deadlock
+				long[] chunks = takeSlabOfOtherSizeClass(this);
+				if (chunks == null) {
+					throw new IllegalArgumentException("There is no memory left for the data of " + chunkSize + " bytes");
+				}
+				lock.lock();
+				try {
+					addSlab(chunks);
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		/**
+		 * Evicts all the items of the slab least recently used items belong to,
+		 * and gives the slab up.
+		 *
+		 * @return index of the given up slab, or {@code -1} if every slab of this
+		 *         size class has pending chunks
+		 */
+		int giveUpSlab() {
+			lock.lock();
+			try {
+				int slabIndex = chooseSlabToGiveUp();
+				if (slabIndex < 0) {
+					return -1;
+				}
+				int keptCount = 0;
+				for (int i = 0; i < freeChunkCount; i++) {
+					if (SlabAllocator.slabIndexOf(freeChunks[i]) != slabIndex) {
+						freeChunks[keptCount++] = freeChunks[i];
+					}
+				}
+				freeChunkCount = keptCount;
+				OffHeapItem item = head;
+				while (item != null) {
+					OffHeapItem next = item.next;
+					if (SlabAllocator.slabIndexOf(item.address) == slabIndex) {
+						unlink(item);
+						item.live = false;
+						index.remove(item.key, item);
+						expiringItems.remove(item);
+						usedBytes.add(-chunkSize);
+						evictionCount.increment();
+					}
+					item = next;
+				}
+				removeSlab(slabIndex);
+				return slabIndex;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		int getSlabCount() {
+			return slabCount;
+		}
+
+		private int chooseSlabToGiveUp() {
+			if (head != null && pendingChunkCounts[SlabAllocator.slabIndexOf(head.address)] == 0) {
+				return SlabAllocator.slabIndexOf(head.address);
+			}
+			for (int i = 0; i < slabCount; i++) {
+				if (pendingChunkCounts[slabs[i]] == 0) {
+					return slabs[i];
+				}
+			}
+			return -1;
+		}
+
+		private void addSlab(long[] chunks) {
+			if (slabCount == slabs.length) {
+				int[] newSlabs = new int[Math.max(4, slabs.length * 2)];
+				System.arraycopy(slabs, 0, newSlabs, 0, slabCount);
+				slabs = newSlabs;
+			}
+			slabs[slabCount] = SlabAllocator.slabIndexOf(chunks[0]);
+			slabCount++;
+			if (freeChunkCount == 0) {
+				freeChunks = chunks;
+				freeChunkCount = chunks.length;
+			} else {
+				long[] newFreeChunks = new long[freeChunkCount + chunks.length];
+				System.arraycopy(freeChunks, 0, newFreeChunks, 0, freeChunkCount);
+				System.arraycopy(chunks, 0, newFreeChunks, freeChunkCount, chunks.length);
+				freeChunks = newFreeChunks;
+				freeChunkCount = newFreeChunks.length;
+			}
+		}
+
+		private void removeSlab(int slabIndex) {
+			for (int i = 0; i < slabCount; i++) {
+				if (slabs[i] == slabIndex) {
+					slabs[i] = slabs[slabCount - 1];
+					slabCount--;
+					return;
+				}
+			}
+		}
+
+		private long take(long address) {
+			pendingChunkCounts[SlabAllocator.slabIndexOf(address)]++;
+			return address;
+		}
+
+		/**
+		 * Adds just stored {@code item} to the tail of the eviction queue unless it
+		 * was already released. Chunk of the item is not pending anymore.
+		 */
+		void link(OffHeapItem item) {
+			lock.lock();
+			try {
+				pendingChunkCounts[SlabAllocator.slabIndexOf(item.address)]--;
+				if (item.live) {
+					linkLast(item);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Returns chunk of the {@code item} removed from the index to the free
+		 * ones unless it was already released.
+		 */
+		void release(OffHeapItem item) {
+			lock.lock();
+			try {
+				if (!item.live) {
+					return;
+				}
+				item.live = false;
+				if (item.queued) {
+					unlink(item);
+				}
+				expiringItems.remove(item);
+				if (freeChunkCount == freeChunks.length) {
+					long[] newFreeChunks = new long[Math.max(16, freeChunks.length * 2)];
+					System.arraycopy(freeChunks, 0, newFreeChunks, 0, freeChunkCount);
+					freeChunks = newFreeChunks;
+				}
+				freeChunks[freeChunkCount++] = item.address;
+				usedBytes.add(-chunkSize);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private OffHeapItem evict() {
+			for (int i = itemCount; i > 0; i--) {
+				OffHeapItem candidate = head;
+				unlink(candidate);
+				if (candidate.referenced) {
+					// give recently used item second chance
+					candidate.referenced = false;
+					linkLast(candidate);
+				} else {
+					candidate.live = false;
+					return candidate;
+				}
+			}
+			if (head == null) {
+				return null;
+			}
+			// all the items were recently used
+			OffHeapItem victim = head;
+			unlink(victim);
+			victim.live = false;
+			return victim;
+		}
+
+		private void linkLast(OffHeapItem item) {
+			item.prev = tail;
+			item.next = null;
+			if (tail == null) {
+				head = item;
+			} else {
+				tail.next = item;
+			}
+			tail = item;
+			item.queued = true;
+			itemCount++;
+		}
+
+		private void unlink(OffHeapItem item) {
+			if (item.prev == null) {
+				head = item.next;
+			} else {
+				item.prev.next = item.next;
+			}
+			if (item.next == null) {
+				tail = item.prev;
+			} else {
+				item.next.prev = item.prev;
+			}
+			item.prev = null;
+			item.next = null;
+			item.queued = false;
+			itemCount--;
+		}
+	}
+
+	/**
+	 * This inner class represents index entry of the single value stored in the
+	 * native memory.
+	 */
+	static class OffHeapItem {
+		final String key;
+		final int sizeClass;
+		final long address;
+		final int length;
+		final long expiresAt;
+
+		/* Becomes false once the chunk is given back, see SizeClass */
+		volatile boolean live = true;
+		/* Slot in the ExpiringItemSet, or -1 if item is not there */
+		int expiringSlot = -1;
+		volatile boolean referenced;
+		boolean queued;
+		OffHeapItem prev;
+		OffHeapItem next;
+
+		OffHeapItem(String key, int sizeClass, long address, int length, long expiresAt) {
+			this.key = key;
+			this.sizeClass = sizeClass;
+			this.address = address;
+			this.length = length;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
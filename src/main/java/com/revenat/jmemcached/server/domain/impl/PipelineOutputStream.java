@@ -0,0 +1,88 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered {@link OutputStream} which ignores {@link #flush()} requests of the
+ * response writers, so responses to pipelined requests are accumulated and sent
+ * to the client together by {@link #flushPipeline()}. Buffer is still written
+ * out whenever it becomes full.
+ * <p>
+ * Unlike {@link java.io.BufferedOutputStream} subclasses, it takes no monitor
+ * while writing to the underlying stream, so blocked virtual threads don't pin
+ * their carriers.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class PipelineOutputStream extends OutputStream {
+	private final OutputStream out;
+	private final byte[] buffer;
+	private int count;
+
+	PipelineOutputStream(OutputStream out, int bufferSize) {
+		this.out = requireNonNull(out, "out can not be null");
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize should be >= 1: " + bufferSize);
+		}
+		this.buffer = new byte[bufferSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count == buffer.length) {
+			writeBuffer();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len >= buffer.length) {
+			// large chunk would be copied for nothing
+			writeBuffer();
+			out.write(b, off, len);
+			return;
+		}
+		if (len > buffer.length - count) {
+			writeBuffer();
+		}
+		System.arraycopy(b, off, buffer, count, len);
+		count += len;
+	}
+
+	/**
+	 * Does nothing, buffered bytes are sent by {@link #flushPipeline()}.
+	 */
+	@Override
+	public void flush() {
+		// deferred until the end of the pipeline
+	}
+
+	/**
+	 * Writes all the buffered bytes to the underlying stream and flushes it.
+	 */
+	void flushPipeline() throws IOException {
+		writeBuffer();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flushPipeline();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
+
+/**
+ * Renders statistics of the server in the Prometheus text exposition format.
+ * Every value is read from the counters which are maintained anyway while
+ * requests are handled, so scraping never walks the stored items and adds
+ * nothing to the request path.
+ * <p>
+ * Latencies are exported as histograms with fixed bounds, folded from the
+ * buckets of the {@link ConcurrentLatencyHistogram}: each bucket is counted
+ * under the first bound which is not below its upper bound, so counts near a
+ * bound may be reported under the next one.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class PrometheusMetrics {
+	static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final String PREFIX = "jmemcached_";
+	private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+	private static final double MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+	private static final long[] LATENCY_BOUNDS_NANOS = {
+			1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+			1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L,
+			250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L };
+	private static final int[] BOUND_INDEXES = foldBuckets();
+
+	private final StorageStatistics storageStatistics;
+	private final RequestRecorder requestRecorder;
+	private final ConnectionStatistics connectionStatistics;
+	private final CleanableStorage storage;
+
+	PrometheusMetrics(StorageStatistics storageStatistics, RequestRecorder requestRecorder,
+			ConnectionStatistics connectionStatistics, CleanableStorage storage) {
+		this.storageStatistics = requireNonNull(storageStatistics, "storageStatistics can not be null");
+		this.requestRecorder = requireNonNull(requestRecorder, "requestRecorder can not be null");
+		this.connectionStatistics = requireNonNull(connectionStatistics, "connectionStatistics can not be null");
+		this.storage = requireNonNull(storage, "storage can not be null");
+	}
+
+	/**
+	 * Returns current values of all the metrics in the text exposition format.
+	 */
+	String scrape() {
+		StringBuilder out = new StringBuilder(16 * 1024);
+		writeRequestMetrics(out);
+		writeStorageMetrics(out);
+		writeCleanerMetrics(out);
+		writeConnectionMetrics(out);
+		writeJvmMetrics(out);
+		return out.toString();
+	}
+
+	private void writeRequestMetrics(StringBuilder out) {
+		header(out, "commands_total", "counter", "Requests handled, by command.");
+		for (Command command : Command.values()) {
+			sample(out, "commands_total", commandLabel(command), requestRecorder.getCommandCount(command));
+		}
+		header(out, "get_hits_total", "counter", "GET requests which have found the key.");
+		sample(out, "get_hits_total", null, requestRecorder.getHitCount());
+		header(out, "get_misses_total", "counter", "GET requests which have not found the key.");
+		sample(out, "get_misses_total", null, requestRecorder.getMissCount());
+
+		header(out, "command_duration_seconds", "histogram", "Time taken to handle requests, by command.");
+		for (Command command : Command.values()) {
+			writeLatencyHistogram(out, command, requestRecorder.getLatencyHistogram(command));
+		}
+	}
+
+	private static void writeLatencyHistogram(StringBuilder out, Command command,
+			ConcurrentLatencyHistogram histogram) {
+		long[] counts = histogram.getCounts();
+		long[] boundCounts = new long[LATENCY_BOUNDS_NANOS.length + 1];
+		for (int i = 0; i < counts.length; i++) {
+			boundCounts[BOUND_INDEXES[i]] += counts[i];
+		}
+		String commandLabel = commandLabel(command);
+		long cumulativeCount = 0;
+		for (int i = 0; i < boundCounts.length; i++) {
+			cumulativeCount += boundCounts[i];
+			String bound = i < LATENCY_BOUNDS_NANOS.length
+					? Double.toString(LATENCY_BOUNDS_NANOS[i] / NANOS_PER_SECOND)
+					: "+Inf";
+			sample(out, "command_duration_seconds_bucket", commandLabel + ",le=\"" + bound + "\"", cumulativeCount);
+		}
+		sample(out, "command_duration_seconds_sum", commandLabel, histogram.getTotalNanos() / NANOS_PER_SECOND);
+		sample(out, "command_duration_seconds_count", commandLabel, cumulativeCount);
+	}
+
+	private void writeStorageMetrics(StringBuilder out) {
+		header(out, "storage_items", "gauge", "Items currently stored.");
+		sample(out, "storage_items", null, storageStatistics.getItemCount());
+		header(out, "storage_used_bytes", "gauge", "Bytes currently taken by the stored items.");
+		sample(out, "storage_used_bytes", null, storageStatistics.getUsedBytes());
+		header(out, "storage_max_bytes", "gauge", "Bytes the storage is limited to.");
+		sample(out, "storage_max_bytes", null, storageStatistics.getMaxBytes());
+		header(out, "storage_evictions_total", "counter", "Items evicted to free the space.");
+		sample(out, "storage_evictions_total", null, storageStatistics.getEvictionCount());
+		header(out, "storage_expired_total", "counter", "Expired items removed from the storage.");
+		sample(out, "storage_expired_total", null, storageStatistics.getExpiredCount());
+	}
+
+	private void writeCleanerMetrics(StringBuilder out) {
+		CleanerStatistics statistics = storage.getCleanerStatistics();
+		header(out, "cleaner_runs_total", "counter", "Runs of the expired data cleaner.");
+		sample(out, "cleaner_runs_total", null, statistics.getRunCount());
+		header(out, "cleaner_run_seconds_total", "counter", "Time taken by all the runs of the cleaner.");
+		sample(out, "cleaner_run_seconds_total", null, statistics.getTotalRunNanos() / NANOS_PER_SECOND);
+		header(out, "cleaner_last_run_seconds", "gauge", "Time taken by the last run of the cleaner.");
+		sample(out, "cleaner_last_run_seconds", null, statistics.getLastRunNanos() / NANOS_PER_SECOND);
+		header(out, "cleaner_scanned_items_total", "counter", "Items checked for expiration by the cleaner.");
+		sample(out, "cleaner_scanned_items_total", null, statistics.getTotalScannedCount());
+		header(out, "cleaner_removed_items_total", "counter", "Expired items removed by the cleaner.");
+		sample(out, "cleaner_removed_items_total", null, statistics.getTotalRemovedCount());
+	}
+
+	private void writeConnectionMetrics(StringBuilder out) {
+		header(out, "connections", "gauge", "Client connections currently served by the workers.");
+		sample(out, "connections", null, connectionStatistics.getCurrentConnectionCount());
+		header(out, "connections_queued", "gauge", "Client connections waiting for a free worker.");
+		sample(out, "connections_queued", null, connectionStatistics.getQueuedConnectionCount());
+		header(out, "connections_admitted_total", "counter", "Client connections handed to the workers.");
+		sample(out, "connections_admitted_total", null, connectionStatistics.getAdmittedConnectionCount());
+		header(out, "connections_rejected_total", "counter", "Client connections rejected with the full queue.");
+		sample(out, "connections_rejected_total", null, connectionStatistics.getRejectedConnectionCount());
+		header(out, "connections_timed_out_total", "counter",
+				"Client connections rejected after waiting in the queue for too long.");
+		sample(out, "connections_timed_out_total", null, connectionStatistics.getTimedOutConnectionCount());
+		header(out, "connection_queue_wait_seconds_total", "counter",
+				"Time spent by the connections waiting for a free worker.");
+		sample(out, "connection_queue_wait_seconds_total", null,
+				connectionStatistics.getTotalQueueWaitMillis() / MILLIS_PER_SECOND);
+
+		int activeWorkerCount = connectionStatistics.getActiveWorkerCount();
+		int maxWorkerCount = connectionStatistics.getMaxWorkerCount();
+		header(out, "workers_active", "gauge", "Workers currently serving client connections.");
+		sample(out, "workers_active", null, activeWorkerCount);
+		header(out, "workers", "gauge", "Workers currently started.");
+		sample(out, "workers", null, connectionStatistics.getWorkerCount());
+		header(out, "workers_max", "gauge", "Workers the pool is limited to.");
+		sample(out, "workers_max", null, maxWorkerCount);
+		header(out, "workers_saturation_ratio", "gauge", "Share of the workers limit currently busy.");
+		sample(out, "workers_saturation_ratio", null,
+				maxWorkerCount == 0 ? 0.0 : (double) activeWorkerCount / maxWorkerCount);
+	}
+
+	private static void writeJvmMetrics(StringBuilder out) {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+		header(out, "jvm_memory_used_bytes", "gauge", "Memory currently used, by area.");
+		sample(out, "jvm_memory_used_bytes", "area=\"heap\"", heap.getUsed());
+		sample(out, "jvm_memory_used_bytes", "area=\"nonheap\"", nonHeap.getUsed());
+		header(out, "jvm_memory_committed_bytes", "gauge", "Memory currently committed, by area.");
+		sample(out, "jvm_memory_committed_bytes", "area=\"heap\"", heap.getCommitted());
+		sample(out, "jvm_memory_committed_bytes", "area=\"nonheap\"", nonHeap.getCommitted());
+		header(out, "jvm_memory_max_bytes", "gauge", "Memory the area is limited to, or -1 if not limited.");
+		sample(out, "jvm_memory_max_bytes", "area=\"heap\"", heap.getMax());
+		sample(out, "jvm_memory_max_bytes", "area=\"nonheap\"", nonHeap.getMax());
+
+		header(out, "jvm_buffer_pool_used_bytes", "gauge", "Memory used by the buffer pool, by pool.");
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			sample(out, "jvm_buffer_pool_used_bytes", label("pool", pool.getName()), pool.getMemoryUsed());
+		}
+
+		header(out, "jvm_gc_collections_total", "counter", "Garbage collections, by collector.");
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			sample(out, "jvm_gc_collections_total", label("gc", collector.getName()),
+					Math.max(0L, collector.getCollectionCount()));
+		}
+		header(out, "jvm_gc_collection_seconds_total", "counter",
+				"Time taken by the garbage collections, by collector.");
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			sample(out, "jvm_gc_collection_seconds_total", label("gc", collector.getName()),
+					Math.max(0L, collector.getCollectionTime()) / MILLIS_PER_SECOND);
+		}
+
+		header(out, "jvm_threads", "gauge", "Live threads.");
+		sample(out, "jvm_threads", null, ManagementFactory.getThreadMXBean().getThreadCount());
+	}
+
+	private static String commandLabel(Command command) {
+		return label("command", command.name().toLowerCase(Locale.ROOT));
+	}
+
+	private static String label(String name, String value) {
+		return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+	}
+
+	private static void header(StringBuilder out, String name, String type, String help) {
+		out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, long value) {
+		sampleName(out, name, labels).append(value).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, double value) {
+		sampleName(out, name, labels).append(value).append('\n');
+	}
+
+	private static StringBuilder sampleName(StringBuilder out, String name, String labels) {
+		out.append(PREFIX).append(name);
+		if (labels != null) {
+			out.append('{').append(labels).append('}');
+		}
+		return out.append(' ');
+	}
+
+	/**
+	 * Maps every bucket of the {@link ConcurrentLatencyHistogram} to the index of
+	 * the first latency bound which is not below the bucket's upper bound, or to
+	 * the index past the last bound for the buckets above all of them.
+	 */
+	private static int[] foldBuckets() {
+		int[] boundIndexes = new int[ConcurrentLatencyHistogram.BUCKET_COUNT];
+		int boundIndex = 0;
+		for (int i = 0; i < boundIndexes.length; i++) {
+			long upperBound = ConcurrentLatencyHistogram.bucketUpperBound(i);
+			while (boundIndex < LATENCY_BOUNDS_NANOS.length && LATENCY_BOUNDS_NANOS[boundIndex] < upperBound) {
+				boundIndex++;
+			}
+			boundIndexes[i] = boundIndex;
+		}
+		return boundIndexes;
+	}
+}
@@ -0,0 +1,92 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedConfigException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link MetricsEndpoint} which serves {@link PrometheusMetrics} at the
+ * {@value #PATH} path with the HTTP server embedded into the JDK. Scrapes are
+ * handled one by one by the single daemon thread, so monitoring never competes
+ * with the clients for the worker threads.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class PrometheusMetricsEndpoint implements MetricsEndpoint {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PrometheusMetricsEndpoint.class);
+	static final String PATH = "/metrics";
+
+	private final int port;
+	private final PrometheusMetrics metrics;
+	private HttpServer httpServer;
+	private ExecutorService executor;
+
+	PrometheusMetricsEndpoint(int port, PrometheusMetrics metrics) {
+		this.port = port;
+		this.metrics = requireNonNull(metrics, "metrics can not be null");
+	}
+
+	@Override
+	public void start() {
+		try {
+			httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+		} catch (IOException e) {
+			throw new JMemcachedConfigException("Can not create metrics endpoint with port=" + port, e);
+		}
+		executor = Executors.newSingleThreadExecutor(job -> {
+			Thread thread = new Thread(job, "MetricsEndpointThread");
+			thread.setDaemon(true);
+			return thread;
+		});
+		httpServer.setExecutor(executor);
+		httpServer.createContext(PATH, this::handle);
+		httpServer.start();
+		LOGGER.info("Metrics are served at http://localhost:{}{}", port, PATH);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!PATH.equals(exchange.getRequestURI().getPath())) {
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			} else if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "GET");
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+			} else {
+				byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", PrometheusMetrics.CONTENT_TYPE);
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("Can not serve metrics: " + e.getMessage(), e);
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (httpServer != null) {
+			httpServer.stop(0);
+			executor.shutdownNow();
+			httpServer = null;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns monotonically growing counter into the rate per second, averaged over
+ * the time since the rate was read last. Rate is recalculated at most once a
+ * second, so frequent reads don't make it jump, and nothing is done between
+ * the reads.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class RateMeter {
+	private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final LongSupplier counter;
+	private final LongSupplier nanoClock;
+	private final ReentrantLock lock = new ReentrantLock();
+	private long lastCount;
+	private long lastNanos;
+	private double lastRate;
+
+	RateMeter(LongSupplier counter) {
+		this(counter, System::nanoTime);
+	}
+
+	RateMeter(LongSupplier counter, LongSupplier nanoClock) {
+		this.counter = requireNonNull(counter, "counter can not be null");
+		this.nanoClock = requireNonNull(nanoClock, "nanoClock can not be null");
+		this.lastCount = counter.getAsLong();
+		this.lastNanos = nanoClock.getAsLong();
+	}
+
+	double getRate() {
+		lock.lock();
+		try {
+			long now = nanoClock.getAsLong();
+			long elapsedNanos = now - lastNanos;
+			if (elapsedNanos >= MIN_INTERVAL_NANOS) {
+				long count = counter.getAsLong();
+				lastRate = (double) (count - lastCount) * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+				lastCount = count;
+				lastNanos = now;
+			}
+			return lastRate;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
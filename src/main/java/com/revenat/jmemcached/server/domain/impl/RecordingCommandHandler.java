@@ -0,0 +1,36 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+/**
+ * {@link CommandHandler} which records to the {@link RequestRecorder} each
+ * request handled by the handlers chain it precedes, along with the time it
+ * took. Time spent by the transport reading the request and writing the
+ * response is not accounted, so idle connections don't skew the latencies.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class RecordingCommandHandler implements CommandHandler {
+	private final CommandHandler next;
+	private final RequestRecorder recorder;
+
+	RecordingCommandHandler(CommandHandler next, RequestRecorder recorder) {
+		this.next = requireNonNull(next, "next can not be null");
+		this.recorder = requireNonNull(recorder, "recorder can not be null");
+	}
+
+	@Override
+	public Response handle(Request request) {
+		long startedAt = System.nanoTime();
+		Response response = next.handle(request);
+		if (request.getCommand() != null) {
+			recorder.record(request.getCommand(), response.getStatus(), System.nanoTime() - startedAt);
+		}
+		return response;
+	}
+}
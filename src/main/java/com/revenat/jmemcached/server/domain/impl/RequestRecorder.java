@@ -0,0 +1,77 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.RequestStatistics;
+
+/**
+ * Records counts and latencies of the handled requests per {@link Command}.
+ * All the counters are striped {@link LongAdder}s, so concurrent requests
+ * don't contend for the same memory and recording takes neither locks nor
+ * allocations.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class RequestRecorder implements RequestStatistics {
+	private static final Command[] COMMANDS = Command.values();
+
+	private final LongAdder[] commandCounts = new LongAdder[COMMANDS.length];
+	private final ConcurrentLatencyHistogram[] latencies = new ConcurrentLatencyHistogram[COMMANDS.length];
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+
+	RequestRecorder() {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			commandCounts[i] = new LongAdder();
+			latencies[i] = new ConcurrentLatencyHistogram();
+		}
+	}
+
+	/**
+	 * Records request with specified {@code command}, which has been handled with
+	 * specified {@code status} within specified time in nanoseconds.
+	 */
+	void record(Command command, Status status, long latencyNanos) {
+		int index = command.ordinal();
+		commandCounts[index].increment();
+		latencies[index].record(latencyNanos);
+		if (command == Command.GET) {
+			if (status == Status.GOTTEN) {
+				hitCount.increment();
+			} else {
+				missCount.increment();
+			}
+		}
+	}
+
+	@Override
+	public long getCommandCount(Command command) {
+		return commandCounts[command.ordinal()].sum();
+	}
+
+	@Override
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	@Override
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	@Override
+	public long getLatencyPercentileNanos(Command command, double percentile) {
+		return latencies[command.ordinal()].getPercentile(percentile);
+	}
+
+	/**
+	 * Returns {@link ConcurrentLatencyHistogram} of the requests with specified
+	 * {@code command}.
+	 */
+	ConcurrentLatencyHistogram getLatencyHistogram(Command command) {
+		return latencies[command.ordinal()];
+	}
+}
@@ -0,0 +1,38 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Growable in-memory buffer which accumulates encoded server responses before
+ * they are written to the client channel. Buffer is reused for the whole life of
+ * the client connection.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class ResponseBuffer extends ByteArrayOutputStream {
+
+	ResponseBuffer(int initialSize) {
+		super(initialSize);
+	}
+
+	/**
+	 * Returns {@link ByteBuffer} view of the accumulated bytes. Returned view
+	 * remains valid until this buffer is written to or {@link #reset()}.
+	 */
+	ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(buf, 0, count);
+	}
+
+	/**
+	 * Resets this buffer, releasing its internal array if it has grown larger than
+	 * {@code maxRetainedCapacity} while accumulating some big response.
+	 */
+	void reset(int maxRetainedCapacity) {
+		reset();
+		if (buf.length > maxRetainedCapacity) {
+			buf = new byte[maxRetainedCapacity];
+		}
+	}
+}
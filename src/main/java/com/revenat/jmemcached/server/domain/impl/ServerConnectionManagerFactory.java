@@ -1,40 +1,77 @@
 package com.revenat.jmemcached.server.domain.impl;
 
+import static java.util.Objects.requireNonNull;
+
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import com.revenat.jmemcached.server.domain.ServerConnectionManager;
+import com.revenat.jmemcached.server.domain.WorkerThreadType;
 
 /**
  * Factory class responsible for building new instances of the
  * {@link ServerConnectionManager} component.
- * 
+ *
  * @author Vitaly Dragun
  *
  */
 class ServerConnectionManagerFactory {
+	private final WorkerThreadType workerThreadType;
+
+	ServerConnectionManagerFactory() {
+		this(WorkerThreadType.PLATFORM);
+	}
+
+	ServerConnectionManagerFactory(WorkerThreadType workerThreadType) {
+		this.workerThreadType = requireNonNull(workerThreadType, "workerThreadType can not be null");
+	}
 
 	/**
 	 * Creates new instance of the {@link ServerConnectionManager} component
-	 * 
+	 *
 	 * @param initSynchronousConnection represents initial number of synchronous
 	 *                                  connection server can establish with its
 	 *                                  clients
 	 * @param maxSynchronousConnection  represents maximal number of synchronous
 	 *                                  connection server can establish with its
-	 *                                  clients
+	 *                                  clients. Ignored for
+	 *                                  {@link WorkerThreadType#VIRTUAL} worker
+	 *                                  threads.
 	 */
 	ServerConnectionManager createServerConnectionManager(int initSynchronousConnection, int maxSynchronousConnection) {
+		return createServerConnectionManager(initSynchronousConnection, maxSynchronousConnection, 0,
+				DefaultServerConnectionManager.UNLIMITED_QUEUE_WAIT);
+	}
+
+	/**
+	 * Creates new instance of the {@link ServerConnectionManager} component,
+	 * which queues connections while all the worker threads are busy.
+	 *
+	 * @param connectionQueueSize maximum count of connections waiting for the
+	 *                            worker thread, {@code 0} means connection is
+	 *                            rejected right away. Ignored for
+	 *                            {@link WorkerThreadType#VIRTUAL} worker
+	 *                            threads.
+	 * @param maxQueueWaitMillis  maximum time in milliseconds connection may wait
+	 *                            for the worker thread before it's rejected
+	 */
+	ServerConnectionManager createServerConnectionManager(int initSynchronousConnection, int maxSynchronousConnection,
+			int connectionQueueSize, long maxQueueWaitMillis) {
+		if (workerThreadType == WorkerThreadType.VIRTUAL) {
+			return new DefaultServerConnectionManager(createVirtualWorkerExecutor());
+		}
 		ThreadFactory threadFactory = createWorkerThreadFactory();
-		ExecutorService threadPool = createWorkerThreadPool(initSynchronousConnection,
-															maxSynchronousConnection,
-															threadFactory);
-		return new DefaultServerConnectionManager(threadPool);
+		ExecutorService threadPool = connectionQueueSize > 0
+				? createQueueingWorkerThreadPool(initSynchronousConnection, maxSynchronousConnection,
+						connectionQueueSize, threadFactory)
+				: createWorkerThreadPool(initSynchronousConnection, maxSynchronousConnection, threadFactory);
+		return new DefaultServerConnectionManager(threadPool, maxQueueWaitMillis);
 	}
-	
+
 	/**
 	 * Returns specific {@link ThreadFactory} instance responsible for building new
 	 * instances of the worker thread.
@@ -50,7 +87,7 @@ class ServerConnectionManagerFactory {
 			}
 		};
 	}
-	
+
 	/**
 	 * Creates {@link ExecutorService} instance which represents threads pool
 	 * with worker threads.
@@ -65,4 +102,32 @@ class ServerConnectionManagerFactory {
 				threadFactory,
 				new ThreadPoolExecutor.AbortPolicy());
 	}
+
+	/**
+	 * Creates {@link ExecutorService} instance which represents threads pool
+	 * with worker threads, whose connections wait in the {@link ConnectionQueue}
+	 * while all the threads are busy.
+	 */
+	private ExecutorService createQueueingWorkerThreadPool(int initThreadCount, int maxThreadCount, int queueSize,
+			ThreadFactory threadFactory) {
+		ConnectionQueue connectionQueue = new ConnectionQueue(queueSize);
+		ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+				initThreadCount,
+				maxThreadCount,
+				60L,
+				TimeUnit.SECONDS,
+				connectionQueue,
+				threadFactory,
+				connectionQueue.rejectionHandler());
+		connectionQueue.setThreadPool(threadPool);
+		return threadPool;
+	}
+
+	/**
+	 * Creates {@link ExecutorService} instance which starts new virtual worker
+	 * thread for each client connection.
+	 */
+	private ExecutorService createVirtualWorkerExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("VirtualWorker-", 0).factory());
+	}
 }
@@ -34,6 +34,28 @@ interface ServerContext extends AutoCloseable {
 	 */
 	ServerSocket getServerSocket();
 
+	/**
+	 * Provide access to a server socket, bound to the port with number received by
+	 * calling {@link ServerConfig#getTextPort()} method, for the clients speaking
+	 * memcached text protocol.
+	 * 
+	 * @return server socket, or {@code null} if text protocol is not served
+	 * @throws JMemcachedConfigException if socket can not be created for some
+	 *                                   reason.
+	 */
+	ServerSocket getTextServerSocket();
+
+	/**
+	 * Provide access to a server socket, bound to the port with number received by
+	 * calling {@link ServerConfig#getBinaryPort()} method, for the clients speaking
+	 * memcached binary protocol.
+	 * 
+	 * @return server socket, or {@code null} if binary protocol is not served
+	 * @throws JMemcachedConfigException if socket can not be created for some
+	 *                                   reason.
+	 */
+	ServerSocket getBinaryServerSocket();
+
 	/**
 	 * Provide access to {@link ServerConnectionManager} instance for managing
 	 * server's connections with its clients.
@@ -49,9 +71,39 @@ interface ServerContext extends AutoCloseable {
 	 */
 	ClientConnectionHandler buildNewClientConnectionHandler(Socket clientSocket);
 
+	/**
+	 * Builds new {@link ClientConnectionHandler} instance for handling
+	 * connection of the client accepted by the {@link #getTextServerSocket()}.
+	 * 
+	 * @param clientSocket {@link Socket} representing client's connection with the
+	 *                     server.
+	 */
+	ClientConnectionHandler buildNewTextConnectionHandler(Socket clientSocket);
+
+	/**
+	 * Builds new {@link ClientConnectionHandler} instance for handling
+	 * connection of the client accepted by the {@link #getBinaryServerSocket()}.
+	 * 
+	 * @param clientSocket {@link Socket} representing client's connection with the
+	 *                     server.
+	 */
+	ClientConnectionHandler buildNewBinaryConnectionHandler(Socket clientSocket);
+
+	/**
+	 * Provide access to {@link ChannelRequestProcessor} instance for processing
+	 * client's requests received by non-blocking channels.
+	 */
+	ChannelRequestProcessor getChannelRequestProcessor();
+
+	/**
+	 * Returns {@link ServerStats} report of the storage, requests and
+	 * connections of the server.
+	 */
+	ServerStats getServerStats();
+
 	/**
 	 * Closes {@link ServerContext}, appropriately releasing resources it holds,
-	 * altogether closing {@link ServerSocket} and {@link ServerConnectionManager}
+	 * altogether closing {@link ServerSocket}s and {@link ServerConnectionManager}
 	 * instances {@link ServerContext} provide access to.
 	 */
 	@Override
@@ -1,7 +1,9 @@
 package com.revenat.jmemcached.server.domain.impl;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 
 import com.revenat.jmemcached.exception.JMemcachedConfigException;
 
@@ -15,15 +17,31 @@ class ServerSocketFactory {
 
 	/**
 	 * Builds new instance of the {@link ServerSocket}, bound to the {@code serverPort} port number.
+	 * Created socket is backed by the {@link ServerSocketChannel}, so it can be used both
+	 * in blocking and non-blocking manner.
 	 * @param serverPort number of the port to bound server socket to
 	 */
 	ServerSocket createServerSocket(int serverPort) {
+		ServerSocketChannel channel = null;
 		try {
-			ServerSocket socket = new ServerSocket(serverPort);
+			channel = ServerSocketChannel.open();
+			ServerSocket socket = channel.socket();
 			socket.setReuseAddress(true);
+			socket.bind(new InetSocketAddress(serverPort));
 			return socket;
 		} catch (IOException e) {
+			closeQuietly(channel);
 			throw new JMemcachedConfigException("Can not create server socket with port=" + serverPort, e);
 		}
 	}
+
+	private static void closeQuietly(ServerSocketChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// nothing to do: socket has not been created anyway
+			}
+		}
+	}
 }
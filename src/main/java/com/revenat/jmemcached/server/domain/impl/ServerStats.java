@@ -0,0 +1,83 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+import com.revenat.jmemcached.server.domain.RequestStatistics;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
+
+/**
+ * Report of the server statistics returned by the {@code STATS} command. Names
+ * of the statistics follow the ones used by memcached where there is a match,
+ * so existing tools can read them.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class ServerStats {
+	private static final double[] LATENCY_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+	private static final String[] LATENCY_PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+	private final StorageStatistics storageStatistics;
+	private final RequestStatistics requestStatistics;
+	private final ConnectionStatistics connectionStatistics;
+
+	ServerStats(StorageStatistics storageStatistics, RequestStatistics requestStatistics,
+			ConnectionStatistics connectionStatistics) {
+		this.storageStatistics = requireNonNull(storageStatistics, "storageStatistics can not be null");
+		this.requestStatistics = requireNonNull(requestStatistics, "requestStatistics can not be null");
+		this.connectionStatistics = requireNonNull(connectionStatistics, "connectionStatistics can not be null");
+	}
+
+	/**
+	 * Collects current values of the statistics, ordered by their names within
+	 * the group: requests, storage, connections and latencies.
+	 */
+	Map<String, String> collect() {
+		Map<String, String> stats = new LinkedHashMap<>();
+		for (Command command : Command.values()) {
+			stats.put("cmd_" + name(command), Long.toString(requestStatistics.getCommandCount(command)));
+		}
+		long hitCount = requestStatistics.getHitCount();
+		long missCount = requestStatistics.getMissCount();
+		stats.put("get_hits", Long.toString(hitCount));
+		stats.put("get_misses", Long.toString(missCount));
+		stats.put("get_hit_ratio", ratio(hitCount, hitCount + missCount));
+		stats.put("get_miss_ratio", ratio(missCount, hitCount + missCount));
+
+		stats.put("curr_items", Long.toString(storageStatistics.getItemCount()));
+		stats.put("bytes", Long.toString(storageStatistics.getUsedBytes()));
+		stats.put("limit_maxbytes", Long.toString(storageStatistics.getMaxBytes()));
+		stats.put("evictions", Long.toString(storageStatistics.getEvictionCount()));
+		stats.put("reclaimed", Long.toString(storageStatistics.getExpiredCount()));
+
+		stats.put("curr_connections", Long.toString(connectionStatistics.getCurrentConnectionCount()));
+		stats.put("total_connections", Long.toString(connectionStatistics.getAdmittedConnectionCount()));
+		stats.put("queued_connections", Long.toString(connectionStatistics.getQueuedConnectionCount()));
+		stats.put("rejected_connections", Long.toString(connectionStatistics.getRejectedConnectionCount()
+				+ connectionStatistics.getTimedOutConnectionCount()));
+
+		for (Command command : Command.values()) {
+			for (int i = 0; i < LATENCY_PERCENTILES.length; i++) {
+				long latencyNanos = requestStatistics.getLatencyPercentileNanos(command, LATENCY_PERCENTILES[i]);
+				stats.put(name(command) + "_latency_" + LATENCY_PERCENTILE_NAMES[i] + "_us",
+						Long.toString(TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+			}
+		}
+		return stats;
+	}
+
+	private static String name(Command command) {
+		return command.name().toLowerCase(Locale.ROOT);
+	}
+
+	private static String ratio(long count, long totalCount) {
+		return String.format(Locale.ROOT, "%.4f", totalCount == 0 ? 0.0 : (double) count / totalCount);
+	}
+}
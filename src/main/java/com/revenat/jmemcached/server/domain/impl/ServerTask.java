@@ -5,17 +5,23 @@ import static java.util.Objects.requireNonNull;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
 import com.revenat.jmemcached.server.domain.Server;
 import com.revenat.jmemcached.server.domain.ServerConnectionManager;
 
 /**
  * This special {@link Runnable} implementation represents main server task of
  * receiving client's connections and appropriately handling them.
+ * Connections of the clients speaking memcached text or binary protocol, if
+ * it's served, are accepted by the separate listener thread of the protocol and
+ * handed to the same {@link ServerConnectionManager}, whichever transport serves
+ * the native ones.
  * 
  * @author Vitaly Dragun
  *
@@ -37,6 +43,10 @@ class ServerTask implements Runnable {
 	@Override
 	public void run() {
 		if (server != null) {
+			startListener(serverContext.getTextServerSocket(), serverContext::buildNewTextConnectionHandler,
+					"TextProtocolListenerThread");
+			startListener(serverContext.getBinaryServerSocket(), serverContext::buildNewBinaryConnectionHandler,
+					"BinaryProtocolListenerThread");
 			handleServerTask();
 		} else {
 			throw new JMemcachedException("Can not start server task without server refrerence.");
@@ -51,12 +61,30 @@ class ServerTask implements Runnable {
 		serverContext.close();
 	}
 
-	private void handleServerTask() {
-		ServerSocket serverSocket = serverContext.getServerSocket();
+	/**
+	 * Accepts client connections until the task is interrupted or server socket is
+	 * closed. Subclasses can override this method to serve client connections in a
+	 * different manner.
+	 */
+	void handleServerTask() {
+		acceptConnections(serverContext.getServerSocket(), serverContext::buildNewClientConnectionHandler);
+	}
+
+	private void startListener(ServerSocket serverSocket,
+			Function<Socket, ClientConnectionHandler> connectionHandlerFactory, String threadName) {
+		if (serverSocket != null) {
+			Thread thread = new Thread(() -> acceptConnections(serverSocket, connectionHandlerFactory), threadName);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void acceptConnections(ServerSocket serverSocket,
+			Function<Socket, ClientConnectionHandler> connectionHandlerFactory) {
 		while (!Thread.currentThread().isInterrupted()) {
 			try {
 				Socket clientSocket = serverSocket.accept();
-				handleClientSocket(clientSocket);
+				handleClientSocket(clientSocket, connectionHandlerFactory);
 			} catch (IOException e) {
 				if (!serverSocket.isClosed()) { // this means it's not a server called shutdown on this
 					LOGGER.error("Can't accept client connection: " + e.getMessage(), e);
@@ -67,14 +95,23 @@ class ServerTask implements Runnable {
 		}
 	}
 
-	private void handleClientSocket(Socket clientSocket) throws IOException {
+	final Server getServer() {
+		return server;
+	}
+
+	final ServerContext getServerContext() {
+		return serverContext;
+	}
+
+	private void handleClientSocket(Socket clientSocket,
+			Function<Socket, ClientConnectionHandler> connectionHandlerFactory) throws IOException {
 		ServerConnectionManager connectionManager = serverContext.getServerConnectionManager();
 		try {
-			connectionManager.establishConnection(serverContext.buildNewClientConnectionHandler(clientSocket));
+			connectionManager.establishConnection(connectionHandlerFactory.apply(clientSocket));
 			LOGGER.info("A new client connection has been established: {}", clientSocket.getRemoteSocketAddress());
 		} catch (JMemcachedException e) {
 			LOGGER.error(e.getMessage());
 			clientSocket.close();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,181 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This component manages native memory of the fixed capacity, which is lazily
+ * allocated by slabs of {@link #SLAB_SIZE} bytes each. Every slab is dedicated
+ * to a single size class and carved into chunks of the same size. Chunk sizes
+ * of consecutive classes grow by {@link #GROWTH_FACTOR}, so any value wastes at
+ * most a quarter of its chunk.
+ * <p>
+ * Chunk is addressed by a {@code long} number, which holds index of its slab in
+ * the high-order 32 bits and offset inside the slab in the low-order ones.
+ * Allocator doesn't track which chunks are in use, it's a responsibility of its
+ * client. Chunks can be read and written concurrently as long as different
+ * threads access different chunks.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class SlabAllocator {
+	static final int SLAB_SIZE = 1024 * 1024;
+	static final int MIN_CHUNK_SIZE = 64;
+	static final double GROWTH_FACTOR = 1.25;
+
+	private final ByteBuffer[] slabs;
+	private final AtomicInteger allocatedSlabCount;
+	private final int[] chunkSizes;
+
+	/**
+	 * @param capacity maximum count of bytes of native memory allocator may use,
+	 *                 rounded down to the whole count of slabs
+	 */
+	SlabAllocator(long capacity) {
+		if (capacity < SLAB_SIZE) {
+			throw new IllegalArgumentException("capacity should be >= " + SLAB_SIZE + ": " + capacity);
+		}
+		this.slabs = new ByteBuffer[(int) Math.min(Integer.MAX_VALUE, capacity / SLAB_SIZE)];
+		this.allocatedSlabCount = new AtomicInteger();
+		this.chunkSizes = createChunkSizes();
+	}
+
+	private static int[] createChunkSizes() {
+		List<Integer> sizes = new ArrayList<>();
+		int size = MIN_CHUNK_SIZE;
+		while (size < SLAB_SIZE) {
+			sizes.add(size);
+			// keep chunks 8-byte aligned
+			size = (int) Math.min(SLAB_SIZE, ((long) (size * GROWTH_FACTOR) + 7) & ~7L);
+		}
+		sizes.add(SLAB_SIZE);
+		return sizes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Returns count of the size classes.
+	 */
+	int getSizeClassCount() {
+		return chunkSizes.length;
+	}
+
+	/**
+	 * Returns size of the chunks of the specified size class.
+	 */
+	int getChunkSize(int sizeClass) {
+		return chunkSizes[sizeClass];
+	}
+
+	/**
+	 * Returns smallest size class whose chunks can hold {@code length} bytes, or
+	 * {@code -1} if {@code length} exceeds {@link #SLAB_SIZE}.
+	 */
+	int getSizeClassFor(int length) {
+		if (length > SLAB_SIZE) {
+			return -1;
+		}
+		int low = 0;
+		int high = chunkSizes.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (chunkSizes[middle] < length) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns count of bytes allocator may use.
+	 */
+	long getCapacity() {
+		return (long) slabs.length * SLAB_SIZE;
+	}
+
+	/**
+	 * Returns count of bytes allocator has already taken from the operating
+	 * system.
+	 */
+	long getAllocatedBytes() {
+		return (long) allocatedSlabCount.get() * SLAB_SIZE;
+	}
+
+	/**
+	 * Allocates new slab for the specified size class and returns addresses of
+	 * all its chunks, or {@code null} if allocator's capacity is exhausted.
+	 */
+	long[] allocateSlab(int sizeClass) {
+		int slabIndex;
+		do {
+			slabIndex = allocatedSlabCount.get();
+			if (slabIndex == slabs.length) {
+				return null;
+			}
+		} while (!allocatedSlabCount.compareAndSet(slabIndex, slabIndex + 1));
+
+		slabs[slabIndex] = ByteBuffer.allocateDirect(SLAB_SIZE);
+		return chunksOf(slabIndex, sizeClass);
+	}
+
+	/**
+	 * Carves already allocated slab given up by its size class into chunks of
+	 * the specified size class and returns their addresses. None of the chunks
+	 * of the slab should be in use.
+	 */
+	long[] reassignSlab(int slabIndex, int sizeClass) {
+		return chunksOf(slabIndex, sizeClass);
+	}
+
+	private long[] chunksOf(int slabIndex, int sizeClass) {
+		int chunkSize = chunkSizes[sizeClass];
+		long[] chunks = new long[SLAB_SIZE / chunkSize];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = ((long) slabIndex << 32) | ((long) i * chunkSize);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns maximum count of slabs allocator may allocate.
+	 */
+	int getSlabCount() {
+		return slabs.length;
+	}
+
+	/**
+	 * Returns index of the slab the chunk with specified {@code address} belongs
+	 * to.
+	 */
+	static int slabIndexOf(long address) {
+		return (int) (address >>> 32);
+	}
+
+	/**
+	 * Writes {@code data} into the chunk with specified {@code address}.
+	 */
+	void write(long address, byte[] data) {
+		slabOf(address).put(offsetOf(address), data);
+	}
+
+	/**
+	 * Reads {@code length} bytes from the chunk with specified {@code address}.
+	 */
+	byte[] read(long address, int length) {
+		byte[] data = new byte[length];
+		slabOf(address).get(offsetOf(address), data);
+		return data;
+	}
+
+	private ByteBuffer slabOf(long address) {
+		return slabs[slabIndexOf(address)];
+	}
+
+	private static int offsetOf(long address) {
+		return (int) address;
+	}
+}
@@ -0,0 +1,118 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.server.domain.SnapshotLoadMode;
+
+/**
+ * {@link StoragePersistence} which loads {@link StorageSnapshot} when server
+ * starts, saves it periodically while server runs and once more when it stops.
+ * Snapshot is never saved before the previous one has been fully loaded, so
+ * server stopped while loading doesn't replace the snapshot with the part of
+ * it.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class SnapshotPersistence implements StoragePersistence {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotPersistence.class);
+	private static final String SNAPSHOT_THREAD_NAME = "storageSnapshotThread";
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+	private final DefaultServerStorage storage;
+	private final StorageSnapshot snapshot;
+	private final int snapshotIntervalMillis;
+	private final SnapshotLoadMode loadMode;
+	private final int loaderThreadCount;
+	private final ScheduledExecutorService executorService;
+	private volatile boolean loaded;
+
+	/**
+	 * @param snapshotIntervalMillis interval between the periodic snapshots, or
+	 *                               {@code 0} if snapshot is saved only when
+	 *                               server stops
+	 */
+	SnapshotPersistence(DefaultServerStorage storage, StorageSnapshot snapshot, int snapshotIntervalMillis,
+			SnapshotLoadMode loadMode) {
+		this.storage = requireNonNull(storage, "storage can not be null");
+		this.snapshot = requireNonNull(snapshot, "snapshot can not be null");
+		this.snapshotIntervalMillis = snapshotIntervalMillis;
+		this.loadMode = requireNonNull(loadMode, "loadMode can not be null");
+		this.loaderThreadCount = Runtime.getRuntime().availableProcessors();
+		this.executorService = Executors.newSingleThreadScheduledExecutor(job -> {
+			Thread snapshotThread = new Thread(job, SNAPSHOT_THREAD_NAME);
+			snapshotThread.setPriority(Thread.MIN_PRIORITY);
+			snapshotThread.setDaemon(true);
+			return snapshotThread;
+		});
+	}
+
+	@Override
+	public void restore() {
+		if (loadMode == SnapshotLoadMode.BLOCKING) {
+			load();
+		} else {
+			executorService.execute(this::load);
+		}
+		if (snapshotIntervalMillis > 0) {
+			// runs after the load, since executor has single thread
+			executorService.scheduleWithFixedDelay(this::save, snapshotIntervalMillis, snapshotIntervalMillis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Saves the snapshot in the snapshot thread, after the load and the periodic
+	 * snapshot which may be in progress.
+	 */
+	@Override
+	public void persistNow() {
+		executorService.execute(this::save);
+	}
+
+	private void load() {
+		try {
+			snapshot.load(storage, loaderThreadCount);
+			loaded = true;
+		} catch (IOException e) {
+			LOGGER.error("Load snapshot " + snapshot.getFile() + " failed: " + e.getMessage(), e);
+			loaded = true;
+		} catch (InterruptedException e) {
+			LOGGER.warn("Load snapshot {} interrupted", snapshot.getFile());
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void save() {
+		if (!loaded) {
+			LOGGER.warn("Snapshot {} has not been loaded yet, so it's not saved", snapshot.getFile());
+			return;
+		}
+		try {
+			snapshot.save(storage);
+		} catch (IOException e) {
+			LOGGER.error("Save snapshot " + snapshot.getFile() + " failed: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void close() {
+		executorService.shutdownNow();
+		try {
+			if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				LOGGER.warn("Snapshot thread hasn't stopped in {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		save();
+	}
+}
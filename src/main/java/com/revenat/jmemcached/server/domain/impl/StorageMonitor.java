@@ -0,0 +1,101 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.server.domain.RequestStatistics;
+import com.revenat.jmemcached.server.domain.StorageMXBean;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
+
+/**
+ * Default implementation of the {@link StorageMXBean} interface, which reads
+ * the statistics of the storage and of the requests served from it.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class StorageMonitor implements StorageMXBean {
+	private final StorageStatistics storageStatistics;
+	private final RequestStatistics requestStatistics;
+	private final StoragePersistence storagePersistence;
+	private final RateMeter getRate;
+	private final RateMeter putRate;
+	private final RateMeter removeRate;
+
+	StorageMonitor(StorageStatistics storageStatistics, RequestStatistics requestStatistics,
+			StoragePersistence storagePersistence) {
+		this.storageStatistics = requireNonNull(storageStatistics, "storageStatistics can not be null");
+		this.requestStatistics = requireNonNull(requestStatistics, "requestStatistics can not be null");
+		this.storagePersistence = requireNonNull(storagePersistence, "storagePersistence can not be null");
+		this.getRate = new RateMeter(this::getGetCount);
+		this.putRate = new RateMeter(this::getPutCount);
+		this.removeRate = new RateMeter(this::getRemoveCount);
+	}
+
+	@Override
+	public long getItemCount() {
+		return storageStatistics.getItemCount();
+	}
+
+	@Override
+	public long getUsedBytes() {
+		return storageStatistics.getUsedBytes();
+	}
+
+	@Override
+	public long getMaxBytes() {
+		return storageStatistics.getMaxBytes();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return storageStatistics.getEvictionCount();
+	}
+
+	@Override
+	public long getExpiredCount() {
+		return storageStatistics.getExpiredCount();
+	}
+
+	@Override
+	public long getGetCount() {
+		return requestStatistics.getCommandCount(Command.GET);
+	}
+
+	@Override
+	public long getPutCount() {
+		return requestStatistics.getCommandCount(Command.PUT);
+	}
+
+	@Override
+	public long getRemoveCount() {
+		return requestStatistics.getCommandCount(Command.REMOVE);
+	}
+
+	@Override
+	public double getGetRate() {
+		return getRate.getRate();
+	}
+
+	@Override
+	public double getPutRate() {
+		return putRate.getRate();
+	}
+
+	@Override
+	public double getRemoveRate() {
+		return removeRate.getRate();
+	}
+
+	@Override
+	public double getHitRatio() {
+		long hitCount = requestStatistics.getHitCount();
+		long getCount = hitCount + requestStatistics.getMissCount();
+		return getCount == 0 ? 0.0 : (double) hitCount / getCount;
+	}
+
+	@Override
+	public void saveSnapshot() {
+		storagePersistence.persistNow();
+	}
+}
@@ -0,0 +1,55 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import com.revenat.jmemcached.server.domain.Server;
+
+/**
+ * This interface represents component responsible for keeping data of the
+ * server's storage across restarts of the {@link Server}.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+interface StoragePersistence extends AutoCloseable {
+
+	/**
+	 * Persistence which keeps nothing, so server always starts with empty
+	 * storage.
+	 */
+	StoragePersistence NONE = new StoragePersistence() {
+
+		@Override
+		public void restore() {
+			// nothing to restore
+		}
+
+		@Override
+		public void persistNow() {
+			// nothing to persist
+		}
+
+		@Override
+		public void close() {
+			// nothing to persist
+		}
+	};
+
+	/**
+	 * Restores the data persisted by the previous server instance. Called before
+	 * server starts accepting client connections.
+	 */
+	void restore();
+
+	/**
+	 * Requests the data of the storage to be persisted right away, without
+	 * waiting for the server to stop. Does nothing if data is persisted as it
+	 * changes.
+	 */
+	void persistNow();
+
+	/**
+	 * Persists the data of the storage, after server has stopped serving client
+	 * connections.
+	 */
+	@Override
+	void close();
+}
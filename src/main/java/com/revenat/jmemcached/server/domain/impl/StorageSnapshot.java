@@ -0,0 +1,309 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.InnerStorage;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.StorageItem;
+
+/**
+ * This component writes items of the {@link DefaultServerStorage} to the binary
+ * snapshot file and loads them back. Item is written with the absolute time it
+ * expires at, so its remaining time-to-live keeps counting while server is
+ * down, and items expired by the time of loading are skipped.
+ * <p>
+ * File starts with the {@link #MAGIC} number and format {@link #VERSION},
+ * followed by the chunks of about {@link #CHUNK_SIZE} bytes and the
+ * {@link #END_OF_CHUNKS} marker. Each chunk holds count of its items, length
+ * of its payload, the payload itself and its CRC32C checksum. Chunks are
+ * verified and decoded in parallel on loading, and a corrupted one is skipped
+ * without losing the others. Chunk whose header is corrupted beyond the end of
+ * the file stops the loading, since the next chunks can't be found then.
+ * Snapshot is written to the temporary file first and then atomically replaces
+ * the previous one, so a crash while writing never leaves a partial snapshot.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class StorageSnapshot {
+	private static final Logger LOGGER = LoggerFactory.getLogger(StorageSnapshot.class);
+	static final int MAGIC = 0x4A4D534E;
+	static final int VERSION = 1;
+	static final int CHUNK_SIZE = 1024 * 1024;
+	static final int END_OF_CHUNKS = -1;
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+	/* Count of items and length of payload before it, checksum after it */
+	private static final int CHUNK_FRAME_BYTES = 3 * Integer.BYTES;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String LOADER_THREAD_NAME = "snapshotLoaderThread-";
+
+	private final Path file;
+	private final DateTimeProvider dateTimeProvider;
+
+	StorageSnapshot(Path file, DateTimeProvider dateTimeProvider) {
+		this.file = requireNonNull(file, "file can not be null");
+		this.dateTimeProvider = requireNonNull(dateTimeProvider, "dateTimeProvider can not be null");
+	}
+
+	Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Writes all not expired items of the {@code storage} to the snapshot file.
+	 * Storage may be modified meanwhile, in which case some of the concurrent
+	 * modifications make it to the snapshot, and some don't.
+	 * 
+	 * @return count of written items
+	 */
+	long save(DefaultServerStorage storage) throws IOException {
+		long started = System.nanoTime();
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		long itemCount = 0;
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			ChunkWriter chunkWriter = new ChunkWriter(out);
+			long now = dateTimeProvider.getCurrentTimeInMillis();
+			for (InnerStorage shard : storage.getShards()) {
+				for (Map.Entry<String, StorageItem> entry : shard) {
+					if (!entry.getValue().isExpired(now)) {
+						chunkWriter.write(entry.getKey(), entry.getValue());
+						itemCount++;
+					}
+				}
+			}
+			chunkWriter.flush();
+			out.writeInt(END_OF_CHUNKS);
+			out.flush();
+			channel.force(true);
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		LOGGER.info("Saved {} items to the snapshot {} ({} bytes) in {} ms", itemCount, file, Files.size(file),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		return itemCount;
+	}
+
+	/**
+	 * Loads items from the snapshot file to the {@code storage} by
+	 * {@code threadCount} threads. Items whose keys are already in the storage are
+	 * left as they are, and the ones whose keys are removed or cleared from the
+	 * storage while loading are skipped.
+	 * 
+	 * @return count of loaded items, or {@code 0} if there is no snapshot file
+	 * @throws IOException if file is not a snapshot or can't be read
+	 */
+	long load(DefaultServerStorage storage, int threadCount) throws IOException, InterruptedException {
+		if (!Files.exists(file)) {
+			LOGGER.info("Snapshot {} does not exist, storage starts empty", file);
+			return 0;
+		}
+		long started = System.nanoTime();
+		LoadResult result = new LoadResult();
+		ExecutorService executorService = Executors.newFixedThreadPool(threadCount, createLoaderThreadFactory());
+		// limits count of the chunks read ahead of the loaders
+		Semaphore pendingChunks = new Semaphore(threadCount * 2);
+		List<Future<?>> loadedChunks = new ArrayList<>();
+		long fileSize = Files.size(file);
+		storage.startRestore();
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unsupported snapshot file format: " + file);
+			}
+			long position = HEADER_BYTES;
+			int itemCount;
+			while ((itemCount = in.readInt()) != END_OF_CHUNKS) {
+				byte[] payload = readChunkPayload(in, itemCount, fileSize - position - CHUNK_FRAME_BYTES);
+				int checksum = in.readInt();
+				position += CHUNK_FRAME_BYTES + payload.length;
+				pendingChunks.acquire();
+				int chunkItemCount = itemCount;
+				loadedChunks.add(executorService.submit(() -> {
+					try {
+						loadChunk(storage, payload, chunkItemCount, checksum, result);
+					} finally {
+						pendingChunks.release();
+					}
+				}));
+			}
+		} catch (EOFException e) {
+			LOGGER.warn("Snapshot {} is truncated, loading items read so far", file);
+		} finally {
+			try {
+				awaitLoaded(loadedChunks);
+			} finally {
+				executorService.shutdown();
+				storage.finishRestore();
+			}
+		}
+
+		long elapsedNanos = Math.max(1, System.nanoTime() - started);
+		double elapsedSeconds = elapsedNanos / 1e9;
+		LOGGER.info("Loaded {} items from the snapshot {} in {} ms ({} items/s, {} MB/s), skipped {} expired items"
+				+ " and {} corrupted chunks", result.loadedItems.sum(), file,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), (long) (result.loadedItems.sum() / elapsedSeconds),
+				String.format("%.1f", result.loadedBytes.sum() / elapsedSeconds / (1024 * 1024)),
+				result.expiredItems.sum(), result.corruptedChunks.sum());
+		return result.loadedItems.sum();
+	}
+
+	/**
+	 * Reads payload of the chunk, whose length is checked against the bytes left
+	 * in the file before anything is allocated, since header of the chunk is not
+	 * covered by its checksum.
+	 */
+	private byte[] readChunkPayload(DataInputStream in, int itemCount, long maxLength) throws IOException {
+		int length = in.readInt();
+		if (itemCount < 0 || length < 0 || length > maxLength) {
+			throw new IOException("Snapshot " + file + " has corrupted chunk header: items=" + itemCount
+					+ ", length=" + length);
+		}
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+		return payload;
+	}
+
+	private void loadChunk(DefaultServerStorage storage, byte[] payload, int itemCount, int checksum,
+			LoadResult result) {
+		if (checksum(payload, payload.length) != checksum) {
+			LOGGER.warn("Skipped snapshot chunk of {} items with wrong checksum", itemCount);
+			result.corruptedChunks.increment();
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		long now = dateTimeProvider.getCurrentTimeInMillis();
+		for (int i = 0; i < itemCount; i++) {
+			byte[] key = new byte[buffer.getInt()];
+			buffer.get(key);
+			long expiresAt = buffer.getLong();
+			byte[] data = new byte[buffer.getInt()];
+			buffer.get(data);
+			if (expiresAt < now) {
+				result.expiredItems.increment();
+			} else {
+				storage.restore(new String(key, StandardCharsets.UTF_8), expiresAt, data);
+				result.loadedItems.increment();
+			}
+		}
+		result.loadedBytes.add(payload.length);
+	}
+
+	private static void awaitLoaded(List<Future<?>> loadedChunks) throws InterruptedException {
+		for (Future<?> loadedChunk : loadedChunks) {
+			try {
+				loadedChunk.get();
+			} catch (ExecutionException e) {
+				LOGGER.error("Load snapshot chunk failed: " + e.getCause().getMessage(), e.getCause());
+			}
+		}
+	}
+
+	private static int checksum(byte[] bytes, int length) {
+		CRC32C crc = new CRC32C();
+		crc.update(bytes, 0, length);
+		return (int) crc.getValue();
+	}
+
+	private static ThreadFactory createLoaderThreadFactory() {
+		AtomicInteger threadCount = new AtomicInteger();
+		return job -> {
+			Thread loaderThread = new Thread(job, LOADER_THREAD_NAME + threadCount.getAndIncrement());
+			loaderThread.setDaemon(true);
+			return loaderThread;
+		};
+	}
+
+	/**
+	 * Accumulates items to the chunk payload and writes the chunk once it grows to
+	 * {@link StorageSnapshot#CHUNK_SIZE} bytes.
+	 */
+	private static class ChunkWriter {
+		private final DataOutputStream out;
+		private final ExposedByteArrayOutputStream payload = new ExposedByteArrayOutputStream();
+		private final DataOutputStream payloadOut = new DataOutputStream(payload);
+		private int itemCount;
+
+		ChunkWriter(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void write(String key, StorageItem item) throws IOException {
+			byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+			payloadOut.writeInt(keyBytes.length);
+			payloadOut.write(keyBytes);
+			payloadOut.writeLong(item.expiresAt);
+			payloadOut.writeInt(item.data.length);
+			payloadOut.write(item.data);
+			itemCount++;
+			if (payload.size() >= CHUNK_SIZE) {
+				flush();
+			}
+		}
+
+		void flush() throws IOException {
+			if (itemCount == 0) {
+				return;
+			}
+			out.writeInt(itemCount);
+			out.writeInt(payload.size());
+			out.write(payload.buffer(), 0, payload.size());
+			out.writeInt(checksum(payload.buffer(), payload.size()));
+			payload.reset();
+			itemCount = 0;
+		}
+	}
+
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+		ExposedByteArrayOutputStream() {
+			super(CHUNK_SIZE + BUFFER_SIZE);
+		}
+
+		byte[] buffer() {
+			return buf;
+		}
+	}
+
+	private static class LoadResult {
+		final LongAdder loadedItems = new LongAdder();
+		final LongAdder loadedBytes = new LongAdder();
+		final LongAdder expiredItems = new LongAdder();
+		final LongAdder corruptedChunks = new LongAdder();
+	}
+}
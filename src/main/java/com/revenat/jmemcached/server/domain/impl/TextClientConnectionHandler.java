@@ -0,0 +1,108 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
+
+/**
+ * {@link ClientConnectionHandler} serving the client which speaks memcached
+ * text protocol. Like the {@link DefaultClientConnectionHandler}, it sends
+ * responses only when there are no more bytes of the next request received,
+ * so pipelined requests are answered in a few large writes.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class TextClientConnectionHandler implements ClientConnectionHandler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TextClientConnectionHandler.class);
+	private static final byte[] BUSY = "SERVER_ERROR Too many open connections\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	private final Socket clientSocket;
+	private final TextCommandProcessor commandProcessor;
+
+	TextClientConnectionHandler(Socket clientSocket, TextCommandProcessor commandProcessor) {
+		this.clientSocket = requireNonNull(clientSocket, "clientSocket can not be null");
+		this.commandProcessor = requireNonNull(commandProcessor, "commandProcessor can not be null");
+	}
+
+	@Override
+	public void run() {
+		PipelineOutputStream clientOutput = null;
+		try {
+			InputStream clientInput = clientSocket.getInputStream();
+			TextRequestReader requestReader = new TextRequestReader(clientInput,
+					DefaultClientConnectionHandler.BUFFER_SIZE);
+			clientOutput = new PipelineOutputStream(clientSocket.getOutputStream(),
+					DefaultClientConnectionHandler.BUFFER_SIZE);
+
+			while (shouldContinue() && commandProcessor.process(requestReader, clientOutput)) {
+				if (!requestReader.hasBufferedInput() && clientInput.available() == 0) {
+					clientOutput.flushPipeline();
+				}
+			}
+		} catch (EOFException | SocketException e) {
+			LOGGER.info("Remote client connection closed: {}: {}", clientSocket.getRemoteSocketAddress(), e.getMessage());
+		} catch (IOException e) {
+			if (!clientSocket.isClosed()) {
+				LOGGER.error("IO Error: " + e.getMessage(), e);
+			}
+		} catch (JMemcachedException e) {
+			LOGGER.error(e.getMessage(), e);
+		} finally {
+			flushPendingResponses(clientOutput);
+			closeClientSocket();
+		}
+	}
+
+	/**
+	 * Tells the client that server is busy with the error memcached sends when
+	 * it runs out of connections, and closes the connection.
+	 */
+	@Override
+	public void reject() {
+		LOGGER.info("Rejecting client connection: {}", clientSocket.getRemoteSocketAddress());
+		try {
+			OutputStream clientOutput = clientSocket.getOutputStream();
+			clientOutput.write(BUSY);
+			clientOutput.flush();
+		} catch (IOException e) {
+			LOGGER.debug("Reject client connection failed: {}", e.getMessage());
+		} finally {
+			closeClientSocket();
+		}
+	}
+
+	private void flushPendingResponses(PipelineOutputStream clientOutput) {
+		if (clientOutput != null && !clientSocket.isClosed()) {
+			try {
+				clientOutput.flushPipeline();
+			} catch (IOException e) {
+				LOGGER.debug("Flush pending responses failed: {}", e.getMessage());
+			}
+		}
+	}
+
+	private boolean shouldContinue() {
+		return !Thread.interrupted();
+	}
+
+	private void closeClientSocket() {
+		try {
+			clientSocket.close();
+		} catch (IOException e) {
+			LOGGER.error("Close socket failed: " + e.getMessage(), e);
+		}
+	}
+}
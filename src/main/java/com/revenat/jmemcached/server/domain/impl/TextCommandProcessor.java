@@ -0,0 +1,281 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.server.domain.impl.MemcachedCommands.NonNumericValueException;
+import com.revenat.jmemcached.server.domain.impl.TextRequestReader.MalformedRequestException;
+
+/**
+ * Processes requests of the memcached text protocol, read by the
+ * {@link TextRequestReader}, by executing them with the
+ * {@link MemcachedCommands}. Supported commands are {@code get}/{@code gets}
+ * with multiple keys, {@code set}, {@code add}, {@code replace},
+ * {@code delete}, {@code touch}, {@code incr}/{@code decr}, {@code flush_all},
+ * {@code stats} and {@code quit}.
+ * <p>
+ * Storage commands, {@code delete}, {@code touch}, {@code incr}/{@code decr}
+ * and {@code flush_all} take the trailing {@code noreply} option, which
+ * suppresses any response to the command, errors included, as memcached does.
+ * So the client may stream such writes without reading anything back.
+ * <p>
+ * Flags are returned as {@code 0}, same as the unique value of {@code gets}.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class TextCommandProcessor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TextCommandProcessor.class);
+
+	private static final long MAX_FLAGS = 0xFFFFFFFFL;
+
+	private static final byte[] GET = ascii("get");
+	private static final byte[] GETS = ascii("gets");
+	private static final byte[] SET = ascii("set");
+	private static final byte[] ADD = ascii("add");
+	private static final byte[] REPLACE = ascii("replace");
+	private static final byte[] DELETE = ascii("delete");
+	private static final byte[] TOUCH = ascii("touch");
+	private static final byte[] INCR = ascii("incr");
+	private static final byte[] DECR = ascii("decr");
+	private static final byte[] FLUSH_ALL = ascii("flush_all");
+	private static final byte[] STATS = ascii("stats");
+	private static final byte[] QUIT = ascii("quit");
+	private static final byte[] NOREPLY = ascii("noreply");
+
+	private static final byte[] VALUE = ascii("VALUE ");
+	private static final byte[] ZERO_FLAGS = ascii(" 0 ");
+	private static final byte[] ZERO_CAS = ascii(" 0");
+	private static final byte[] CRLF = ascii("\r\n");
+	private static final byte[] END = ascii("END\r\n");
+	private static final byte[] STORED = ascii("STORED\r\n");
+	private static final byte[] NOT_STORED = ascii("NOT_STORED\r\n");
+	private static final byte[] DELETED = ascii("DELETED\r\n");
+	private static final byte[] TOUCHED = ascii("TOUCHED\r\n");
+	private static final byte[] NOT_FOUND = ascii("NOT_FOUND\r\n");
+	private static final byte[] OK = ascii("OK\r\n");
+	private static final byte[] ERROR = ascii("ERROR\r\n");
+	private static final OutputStream NO_REPLY = OutputStream.nullOutputStream();
+
+	private final MemcachedCommands commands;
+
+	/**
+	 * @param commands {@link MemcachedCommands} requests are executed with
+	 */
+	TextCommandProcessor(MemcachedCommands commands) {
+		this.commands = requireNonNull(commands, "commands can not be null");
+	}
+
+	/**
+	 * Reads next request from the {@code reader} and writes response to it into
+	 * the {@code out} stream, unless it's the {@code noreply} one. Malformed
+	 * requests and the ones storage can't serve are answered with the error, and
+	 * connection can be used further.
+	 *
+	 * @return {@code false} if the client has closed the connection or asked to
+	 *         close it
+	 */
+	boolean process(TextRequestReader reader, OutputStream out) throws IOException {
+		if (!reader.readLine()) {
+			return false;
+		}
+		OutputStream replyOut = acceptsNoReply(reader) && reader.removeLastToken(NOREPLY) ? NO_REPLY : out;
+		try {
+			return processLine(reader, replyOut);
+		} catch (MalformedRequestException | NonNumericValueException e) {
+			writeError(replyOut, "CLIENT_ERROR ", e.getMessage());
+		} catch (IllegalArgumentException e) {
+			writeError(replyOut, "SERVER_ERROR ", e.getMessage());
+		}
+		return true;
+	}
+
+	private static boolean acceptsNoReply(TextRequestReader reader) {
+		return reader.getTokenCount() > 1 && (reader.isToken(0, SET) || reader.isToken(0, ADD)
+				|| reader.isToken(0, REPLACE) || reader.isToken(0, DELETE) || reader.isToken(0, TOUCH)
+				|| reader.isToken(0, INCR) || reader.isToken(0, DECR) || reader.isToken(0, FLUSH_ALL));
+	}
+
+	private boolean processLine(TextRequestReader reader, OutputStream out) throws IOException {
+		if (reader.getTokenCount() == 0) {
+			out.write(ERROR);
+		} else if (reader.isToken(0, GET)) {
+			retrieve(reader, out, false);
+		} else if (reader.isToken(0, GETS)) {
+			retrieve(reader, out, true);
+		} else if (reader.isToken(0, SET) || reader.isToken(0, ADD) || reader.isToken(0, REPLACE)) {
+			store(reader, out);
+		} else if (reader.isToken(0, DELETE)) {
+			delete(reader, out);
+		} else if (reader.isToken(0, TOUCH)) {
+			touch(reader, out);
+		} else if (reader.isToken(0, INCR) || reader.isToken(0, DECR)) {
+			incrementOrDecrement(reader, out);
+		} else if (reader.isToken(0, FLUSH_ALL)) {
+			flushAll(reader, out);
+		} else if (reader.isToken(0, STATS)) {
+			stats(reader, out);
+		} else if (reader.isToken(0, QUIT)) {
+			return false;
+		} else {
+			out.write(ERROR);
+		}
+		return true;
+	}
+
+	private void retrieve(TextRequestReader reader, OutputStream out, boolean withCas) throws IOException {
+		int keyCount = reader.getTokenCount() - 1;
+		if (keyCount == 0) {
+			out.write(ERROR);
+			return;
+		}
+		List<String> keys = new ArrayList<>(keyCount);
+		for (int i = 1; i <= keyCount; i++) {
+			keys.add(reader.getKey(i));
+		}
+		Map<String, byte[]> values = commands.get(keys);
+		for (int i = 0; i < keyCount; i++) {
+			byte[] data = values.get(keys.get(i));
+			if (data != null) {
+				out.write(VALUE);
+				reader.writeToken(i + 1, out);
+				out.write(ZERO_FLAGS);
+				out.write(ascii(Integer.toString(data.length)));
+				if (withCas) {
+					out.write(ZERO_CAS);
+				}
+				out.write(CRLF);
+				out.write(data);
+				out.write(CRLF);
+			}
+		}
+		out.write(END);
+	}
+
+	/**
+	 * Stores the item of {@code set}, {@code add} or {@code replace} command.
+	 * Data block is skipped when the command line is malformed, unless its
+	 * length is unknown.
+	 */
+	private void store(TextRequestReader reader, OutputStream out) throws IOException {
+		if (reader.getTokenCount() != 5) {
+			throw new MalformedRequestException("bad command line format");
+		}
+		long length = reader.getLong(4);
+		if (length < 0) {
+			throw new MalformedRequestException("bad data chunk");
+		}
+		if (length > MemcachedCommands.MAX_DATA_LENGTH) {
+			reader.skipData(length);
+			writeError(out, "SERVER_ERROR ", "object too large for cache");
+			return;
+		}
+		String key;
+		Long ttl;
+		try {
+			key = reader.getKey(1);
+			requireFlags(reader.getUnsignedLong(2));
+			ttl = commands.ttlOf(reader.getLong(3));
+		} catch (MalformedRequestException e) {
+			reader.skipData(length);
+			throw e;
+		}
+		byte[] data = reader.readData((int) length);
+		if (data == null) {
+			throw new MalformedRequestException("bad data chunk");
+		}
+
+		boolean stored;
+		if (reader.isToken(0, ADD)) {
+			stored = commands.add(key, ttl, data);
+		} else if (reader.isToken(0, REPLACE)) {
+			stored = commands.replace(key, ttl, data);
+		} else {
+			commands.set(key, ttl, data);
+			stored = true;
+		}
+		out.write(stored ? STORED : NOT_STORED);
+	}
+
+	private static void requireFlags(long flags) {
+		if (Long.compareUnsigned(flags, MAX_FLAGS) > 0) {
+			throw new MalformedRequestException("bad command line format");
+		}
+	}
+
+	private void delete(TextRequestReader reader, OutputStream out) throws IOException {
+		// legacy form may have zero hold time after the key
+		if (reader.getTokenCount() != 2 && (reader.getTokenCount() != 3 || reader.getLong(2) != 0)) {
+			throw new MalformedRequestException("bad command line format.  Usage: delete <key>");
+		}
+		out.write(commands.delete(reader.getKey(1)) ? DELETED : NOT_FOUND);
+	}
+
+	private void touch(TextRequestReader reader, OutputStream out) throws IOException {
+		if (reader.getTokenCount() != 3) {
+			throw new MalformedRequestException("bad command line format");
+		}
+		String key = reader.getKey(1);
+		Long ttl = commands.ttlOf(reader.getLong(2));
+		out.write(commands.touch(key, ttl) ? TOUCHED : NOT_FOUND);
+	}
+
+	private void incrementOrDecrement(TextRequestReader reader, OutputStream out) throws IOException {
+		if (reader.getTokenCount() != 3) {
+			throw new MalformedRequestException("bad command line format");
+		}
+		String key = reader.getKey(1);
+		long delta;
+		try {
+			delta = reader.getUnsignedLong(2);
+		} catch (MalformedRequestException e) {
+			throw new MalformedRequestException("invalid numeric delta argument");
+		}
+		Long value = commands.incrementOrDecrement(key, delta, reader.isToken(0, INCR));
+		if (value == null) {
+			out.write(NOT_FOUND);
+			return;
+		}
+		out.write(MemcachedCommands.toBytes(value));
+		out.write(CRLF);
+	}
+
+	private void flushAll(TextRequestReader reader, OutputStream out) throws IOException {
+		if (reader.getTokenCount() > 2 || reader.getTokenCount() == 2 && reader.getLong(1) != 0) {
+			throw new MalformedRequestException("delayed flush_all is not supported");
+		}
+		commands.flushAll();
+		out.write(OK);
+	}
+
+	private void stats(TextRequestReader reader, OutputStream out) throws IOException {
+		if (reader.getTokenCount() > 1) {
+			out.write(ERROR);
+			return;
+		}
+		StringBuilder response = new StringBuilder();
+		for (Map.Entry<String, String> stat : commands.stats().entrySet()) {
+			response.append("STAT ").append(stat.getKey()).append(' ').append(stat.getValue()).append("\r\n");
+		}
+		out.write(ascii(response.toString()));
+		out.write(END);
+	}
+
+	private static void writeError(OutputStream out, String type, String message) throws IOException {
+		LOGGER.debug("Text protocol request failed: {}{}", type, message);
+		out.write(ascii(type + message + "\r\n"));
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,307 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+
+/**
+ * Streaming reader of the requests of the memcached text protocol. Command line
+ * is parsed in place, within the buffer of the reader: its tokens are kept as
+ * the bounds within the buffer, numbers are parsed right from the bytes and
+ * only the keys are decoded into strings. Data block is read into the array of
+ * its exact size, which is then stored as it is, so large values don't pass
+ * through the buffer of the reader. Single reader serves single connection.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class TextRequestReader {
+	static final int MAX_LINE_LENGTH = 64 * 1024;
+	static final int MAX_KEY_LENGTH = 250;
+
+	private static final int INITIAL_TOKEN_COUNT = 8;
+	private static final long MAX_UNSIGNED_DIV_10 = Long.divideUnsigned(-1L, 10);
+
+	private final InputStream in;
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private int[] tokenStarts = new int[INITIAL_TOKEN_COUNT];
+	private int[] tokenEnds = new int[INITIAL_TOKEN_COUNT];
+	private int tokenCount;
+
+	TextRequestReader(InputStream in, int bufferSize) {
+		this.in = requireNonNull(in, "in can not be null");
+		if (bufferSize < 2 || bufferSize > MAX_LINE_LENGTH) {
+			throw new IllegalArgumentException(
+					"bufferSize should be between 2 and " + MAX_LINE_LENGTH + ": " + bufferSize);
+		}
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Reads next command line and splits it into tokens separated by spaces.
+	 * Tokens stay available until the next line is read.
+	 *
+	 * @return {@code false} if the stream has ended before the next line
+	 * @throws EOFException        if the stream has ended in the middle of the
+	 *                             line
+	 * @throws JMemcachedException if the line is longer than
+	 *                             {@link #MAX_LINE_LENGTH} bytes
+	 */
+	boolean readLine() throws IOException {
+		tokenCount = 0;
+		int scanned = 0;
+		int lineEnd;
+		while ((lineEnd = indexOfLineFeed(position + scanned)) < 0) {
+			scanned = limit - position;
+			if (!fill()) {
+				if (scanned == 0) {
+					return false;
+				}
+				throw new EOFException("Stream has ended in the middle of the command line");
+			}
+		}
+		int end = lineEnd > position && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+		tokenize(position, end);
+		position = lineEnd + 1;
+		return true;
+	}
+
+	private int indexOfLineFeed(int from) {
+		for (int i = from; i < limit; i++) {
+			if (buffer[i] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void tokenize(int start, int end) {
+		int tokenStart = -1;
+		for (int i = start; i <= end; i++) {
+			if (i == end || buffer[i] == ' ') {
+				if (tokenStart >= 0) {
+					addToken(tokenStart, i);
+					tokenStart = -1;
+				}
+			} else if (tokenStart < 0) {
+				tokenStart = i;
+			}
+		}
+	}
+
+	private void addToken(int start, int end) {
+		if (tokenCount == tokenStarts.length) {
+			tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+			tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+		}
+		tokenStarts[tokenCount] = start;
+		tokenEnds[tokenCount] = end;
+		tokenCount++;
+	}
+
+	/**
+	 * Moves unread bytes to the start of the buffer, growing it if it's full,
+	 * and reads more bytes after them.
+	 *
+	 * @return {@code false} if the stream has ended
+	 */
+	private boolean fill() throws IOException {
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+		if (limit == buffer.length) {
+			if (buffer.length == MAX_LINE_LENGTH) {
+				throw new JMemcachedException("Command line is longer than " + MAX_LINE_LENGTH + " bytes");
+			}
+			buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_LENGTH));
+		}
+		int count = in.read(buffer, limit, buffer.length - limit);
+		if (count < 0) {
+			return false;
+		}
+		limit += count;
+		return true;
+	}
+
+	int getTokenCount() {
+		return tokenCount;
+	}
+
+	/**
+	 * Checks whether token with specified {@code index} consists of specified
+	 * ASCII {@code bytes}.
+	 */
+	boolean isToken(int index, byte[] bytes) {
+		int start = tokenStarts[index];
+		return Arrays.equals(buffer, start, tokenEnds[index], bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Removes the last token if it consists of specified ASCII {@code bytes} and
+	 * it's not the first one, so the rest of the command line is parsed as if
+	 * the token was never there.
+	 *
+	 * @return {@code true} if the token has been removed
+	 */
+	boolean removeLastToken(byte[] bytes) {
+		if (tokenCount > 1 && isToken(tokenCount - 1, bytes)) {
+			tokenCount--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns token with specified {@code index} as the key.
+	 *
+	 * @throws MalformedRequestException if token is longer than
+	 *                                   {@link #MAX_KEY_LENGTH} bytes
+	 */
+	String getKey(int index) {
+		int length = tokenEnds[index] - tokenStarts[index];
+		if (length > MAX_KEY_LENGTH) {
+			throw new MalformedRequestException("bad command line format");
+		}
+		return new String(buffer, tokenStarts[index], length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes bytes of the token with specified {@code index} to the specified
+	 * {@code out} stream as they were received.
+	 */
+	void writeToken(int index, OutputStream out) throws IOException {
+		out.write(buffer, tokenStarts[index], tokenEnds[index] - tokenStarts[index]);
+	}
+
+	/**
+	 * Parses token with specified {@code index} as the decimal number, which may
+	 * be negative.
+	 *
+	 * @throws MalformedRequestException if token is not a number or doesn't fit
+	 *                                   into {@code long}
+	 */
+	long getLong(int index) {
+		int start = tokenStarts[index];
+		boolean negative = buffer[start] == '-';
+		long value = parseUnsignedLong(negative ? start + 1 : start, tokenEnds[index], buffer);
+		if (value < 0) {
+			throw new MalformedRequestException("bad command line format");
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses token with specified {@code index} as the unsigned 64-bit decimal
+	 * number, which is returned in the bits of {@code long}.
+	 *
+	 * @throws MalformedRequestException if token is not a number or is greater
+	 *                                   than 2<sup>64</sup>-1
+	 */
+	long getUnsignedLong(int index) {
+		return parseUnsignedLong(tokenStarts[index], tokenEnds[index], buffer);
+	}
+
+	/**
+	 * Parses specified range of the {@code bytes} as the unsigned 64-bit decimal
+	 * number, which is returned in the bits of {@code long}.
+	 *
+	 * @throws MalformedRequestException if bytes are not a number or it's greater
+	 *                                   than 2<sup>64</sup>-1
+	 */
+	static long parseUnsignedLong(int start, int end, byte[] bytes) {
+		if (start == end) {
+			throw new MalformedRequestException("bad command line format");
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9 || Long.compareUnsigned(value, MAX_UNSIGNED_DIV_10) > 0) {
+				throw new MalformedRequestException("bad command line format");
+			}
+			long shifted = value * 10;
+			value = shifted + digit;
+			if (Long.compareUnsigned(value, shifted) < 0) {
+				throw new MalformedRequestException("bad command line format");
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Reads data block of specified {@code length}, which follows the command
+	 * line, along with the line end after it.
+	 *
+	 * @return data of the block, or {@code null} if it's not followed by the line
+	 *         end
+	 * @throws EOFException if the stream has ended before the end of the block
+	 */
+	byte[] readData(int length) throws IOException {
+		byte[] data = new byte[length];
+		int offset = Math.min(length, limit - position);
+		System.arraycopy(buffer, position, data, 0, offset);
+		position += offset;
+		while (offset < length) {
+			int count = in.read(data, offset, length - offset);
+			if (count < 0) {
+				throw new EOFException("Stream has ended in the middle of the data block");
+			}
+			offset += count;
+		}
+		while (limit - position < 2) {
+			if (!fill()) {
+				throw new EOFException("Stream has ended in the middle of the data block");
+			}
+		}
+		boolean terminated = buffer[position] == '\r' && buffer[position + 1] == '\n';
+		position += 2;
+		return terminated ? data : null;
+	}
+
+	/**
+	 * Skips data block of specified {@code length}, which follows the command
+	 * line, along with the line end after it.
+	 *
+	 * @throws EOFException if the stream has ended before the end of the block
+	 */
+	void skipData(long length) throws IOException {
+		long remaining = length + 2;
+		while (remaining > 0) {
+			if (position == limit && !fill()) {
+				throw new EOFException("Stream has ended in the middle of the data block");
+			}
+			int skipped = (int) Math.min(remaining, limit - position);
+			position += skipped;
+			remaining -= skipped;
+		}
+	}
+
+	/**
+	 * Checks whether there are bytes of the next request read already.
+	 */
+	boolean hasBufferedInput() {
+		return position < limit;
+	}
+
+	/**
+	 * Exception thrown when the request does not follow the protocol. Its message
+	 * is the description of the error sent back to the client.
+	 */
+	static class MalformedRequestException extends JMemcachedException {
+		private static final long serialVersionUID = 2890142719354726731L;
+
+		MalformedRequestException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.ExpiringItem;
+
+/**
+ * This component keeps track of the {@link ExpiringItem}s and finds the
+ * ones which are due without looking at the rest of them.
+ * <p>
+ * Time is divided into ticks of the fixed duration. Items are kept in the
+ * hierarchy of {@link #LEVEL_COUNT} wheels of {@link #SLOT_COUNT} slots each,
+ * where slot of the lowest wheel spans single tick and slot of each next wheel
+ * spans the whole previous wheel. When time reaches the slot of the upper wheel,
+ * its items are redistributed among the lower ones, so each item is touched
+ * only a few times before it's due. Items expiring beyond the span of the
+ * highest wheel are parked in its farthest slot and rescheduled when reached.
+ * <p>
+ * Every slot is an intrusive doubly linked list, so cancelling an item is a
+ * constant time operation.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class TimingWheel {
+	static final int LEVEL_COUNT = 4;
+	static final int SLOT_BITS = 6;
+	static final int SLOT_COUNT = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOT_COUNT - 1;
+	private static final long MAX_DELAY_TICKS = 1L << (LEVEL_COUNT * SLOT_BITS);
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final long tickMillis;
+	private final ExpiringItem[] slots = new ExpiringItem[LEVEL_COUNT * SLOT_COUNT];
+	private long currentTick;
+	private int size;
+
+	/**
+	 * @param tickMillis      duration of the single tick in milliseconds
+	 * @param startTimeMillis current time in milliseconds
+	 */
+	TimingWheel(long tickMillis, long startTimeMillis) {
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException("tickMillis should be >= 1: " + tickMillis);
+		}
+		this.tickMillis = tickMillis;
+		this.currentTick = startTimeMillis / tickMillis;
+	}
+
+	/**
+	 * Schedules specified {@code item} to be returned by {@link #advance(long)}
+	 * once the time passes its expiration time.
+	 */
+	void schedule(ExpiringItem item) {
+		lock.lock();
+		try {
+			link(item);
+			size++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels expiration of the specified {@code item} if it was scheduled.
+	 */
+	void cancel(ExpiringItem item) {
+		lock.lock();
+		try {
+			if (item.wheelSlot >= 0) {
+				unlink(item);
+				size--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves the wheel to the specified time and returns all the items which
+	 * became due meanwhile. Returned items are no longer scheduled.
+	 */
+	List<ExpiringItem> advance(long nowMillis) {
+		List<ExpiringItem> dueItems = new ArrayList<>();
+		long nowTick = nowMillis / tickMillis;
+		lock.lock();
+		try {
+			while (currentTick < nowTick) {
+				currentTick++;
+				cascade();
+				collectDueItems(dueItems);
+			}
+			size -= dueItems.size();
+		} finally {
+			lock.unlock();
+		}
+		return dueItems;
+	}
+
+	/**
+	 * Returns count of the scheduled items.
+	 */
+	int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels all the scheduled items.
+	 */
+	void clear() {
+		lock.lock();
+		try {
+			for (int i = 0; i < slots.length; i++) {
+				while (slots[i] != null) {
+					unlink(slots[i]);
+				}
+			}
+			size = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void cascade() {
+		// upper levels go first, so their items may cascade further down at once
+		for (int level = LEVEL_COUNT - 1; level > 0; level--) {
+			if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+				int slot = slotIndex(level, currentTick);
+				while (slots[slot] != null) {
+					ExpiringItem item = slots[slot];
+					unlink(item);
+					link(item);
+				}
+			}
+		}
+	}
+
+	private void collectDueItems(List<ExpiringItem> dueItems) {
+		int slot = slotIndex(0, currentTick);
+		ExpiringItem item = slots[slot];
+		while (item != null) {
+			ExpiringItem next = item.wheelNext;
+			if (expirationTickOf(item) <= currentTick) {
+				unlink(item);
+				dueItems.add(item);
+			}
+			item = next;
+		}
+	}
+
+	private void link(ExpiringItem item) {
+		long delay = Math.max(1, expirationTickOf(item) - currentTick);
+		int level = 0;
+		while (level < LEVEL_COUNT - 1 && delay >= 1L << ((level + 1) * SLOT_BITS)) {
+			level++;
+		}
+		long tick = currentTick + Math.min(delay, MAX_DELAY_TICKS - 1);
+		int slot = slotIndex(level, tick);
+
+		item.wheelSlot = slot;
+		item.wheelPrev = null;
+		item.wheelNext = slots[slot];
+		if (slots[slot] != null) {
+			slots[slot].wheelPrev = item;
+		}
+		slots[slot] = item;
+	}
+
+	private void unlink(ExpiringItem item) {
+		if (item.wheelPrev == null) {
+			slots[item.wheelSlot] = item.wheelNext;
+		} else {
+			item.wheelPrev.wheelNext = item.wheelNext;
+		}
+		if (item.wheelNext != null) {
+			item.wheelNext.wheelPrev = item.wheelPrev;
+		}
+		item.wheelPrev = null;
+		item.wheelNext = null;
+		item.wheelSlot = -1;
+	}
+
+	/**
+	 * Returns the first tick that starts after expiration time of the item.
+	 */
+	private long expirationTickOf(ExpiringItem item) {
+		return item.expiresAt / tickMillis + 1;
+	}
+
+	private static int slotIndex(int level, long tick) {
+		return level * SLOT_COUNT + (int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+	}
+}
@@ -0,0 +1,267 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+
+/**
+ * {@link EvictionQueue} implementing the {@link EvictionPolicy#W_TINY_LFU}
+ * policy. New items enter the small window region, which takes
+ * {@link #WINDOW_PERCENT} of the bytes. Items leaving the window enter the main
+ * region freely while it has room, otherwise they compete with the main
+ * region's victim: the one whose key has been used less often according to
+ * the {@link FrequencySketch} is evicted, and the victim wins ties, so keys used
+ * once can't flush the frequently used ones.
+ * <p>
+ * Main region is segmented: items enter its probation segment, and those read
+ * while there are promoted to the protected segment, which takes
+ * {@link #PROTECTED_PERCENT} of the main region. Items overflowing the
+ * protected segment are moved back to the probation one, where victims are
+ * taken from.
+ * <p>
+ * Order of items in each region is kept by CLOCK, like in the
+ * {@link ClockEvictionQueue}: reading an item only marks it as recently used
+ * and counts the use in the sketch, both without locks, while the regions are
+ * reordered by eviction.
+ *
+ * @author Vitaly Dragun
+ *
+ */
+class TinyLfuEvictionQueue implements EvictionQueue {
+	static final int WINDOW_PERCENT = 1;
+	static final int PROTECTED_PERCENT = 80;
+
+	/* Regions are told apart by the part of the queue items are in, see EvictableItem */
+	private static final byte WINDOW = 1;
+	private static final byte PROBATION = 2;
+	private static final byte PROTECTED = 3;
+
+	private final long windowMaxBytes;
+	private final long mainMaxBytes;
+	private final long protectedMaxBytes;
+	private final FrequencySketch sketch = new FrequencySketch();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Region window = new Region(WINDOW);
+	private final Region probation = new Region(PROBATION);
+	private final Region protectedRegion = new Region(PROTECTED);
+	private final Region[] regions = { window, probation, protectedRegion };
+
+	/**
+	 * @param maxBytes maximum count of bytes items of the queue may occupy
+	 */
+	TinyLfuEvictionQueue(long maxBytes) {
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("maxBytes should be >= 1: " + maxBytes);
+		}
+		this.windowMaxBytes = Math.max(1, maxBytes * WINDOW_PERCENT / 100);
+		this.mainMaxBytes = maxBytes - windowMaxBytes;
+		this.protectedMaxBytes = mainMaxBytes * PROTECTED_PERCENT / 100;
+	}
+
+	/**
+	 * Adds specified {@code item} to the window. Items overflowing the window
+	 * are moved to the main region right away while it has room for them.
+	 */
+	@Override
+	public void add(EvictableItem item) {
+		lock.lock();
+		try {
+			window.linkLast(item);
+			sketch.ensureCapacity(itemCount());
+			while (window.bytes > windowMaxBytes && mainBytes() + window.head.size() <= mainMaxBytes) {
+				EvictableItem candidate = window.head;
+				window.unlink(candidate);
+				probation.linkLast(candidate);
+			}
+		} finally {
+			lock.unlock();
+		}
+		sketch.increment(hash(item));
+	}
+
+	@Override
+	public void remove(EvictableItem item) {
+		lock.lock();
+		try {
+			if (item.queuedIn != EvictableItem.NOT_QUEUED) {
+				regions[item.queuedIn - WINDOW].unlink(item);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void touch(EvictableItem item) {
+		item.referenced = true;
+		sketch.increment(hash(item));
+	}
+
+	@Override
+	public EvictableItem evict() {
+		lock.lock();
+		try {
+			while (window.bytes > windowMaxBytes) {
+				EvictableItem candidate = takeWindowCandidate();
+				EvictableItem victim = findMainVictim();
+				if (victim == null || mainBytes() + candidate.size() <= mainMaxBytes) {
+					probation.linkLast(candidate);
+				} else if (sketch.frequency(hash(candidate)) > sketch.frequency(hash(victim))) {
+					probation.unlink(victim);
+					probation.linkLast(candidate);
+					return victim;
+				} else {
+					return candidate;
+				}
+			}
+			EvictableItem victim = findMainVictim();
+			if (victim != null) {
+				probation.unlink(victim);
+				return victim;
+			}
+			return window.head != null ? takeWindowCandidate() : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes from the window and returns the item which was not used recently,
+	 * giving recently used ones second chance.
+	 */
+	private EvictableItem takeWindowCandidate() {
+		while (true) {
+			EvictableItem candidate = window.head;
+			window.unlink(candidate);
+			if (!candidate.referenced) {
+				return candidate;
+			}
+			candidate.referenced = false;
+			window.linkLast(candidate);
+		}
+	}
+
+	/**
+	 * Returns the item of the probation segment to evict, without removing it.
+	 * Items which were used while on probation are promoted to the protected
+	 * segment on the way, and if probation segment runs out of items, the
+	 * protected segment's victim is moved there.
+	 */
+	private EvictableItem findMainVictim() {
+		for (int i = probation.size; i > 0; i--) {
+			EvictableItem candidate = probation.head;
+			if (!candidate.referenced) {
+				return candidate;
+			}
+			candidate.referenced = false;
+			probation.unlink(candidate);
+			protect(candidate);
+		}
+		if (probation.head == null && protectedRegion.head != null) {
+			demote(takeProtectedVictim());
+		}
+		return probation.head;
+	}
+
+	private void protect(EvictableItem item) {
+		protectedRegion.linkLast(item);
+		while (protectedRegion.bytes > protectedMaxBytes) {
+			demote(takeProtectedVictim());
+		}
+	}
+
+	private void demote(EvictableItem item) {
+		probation.linkLast(item);
+	}
+
+	private EvictableItem takeProtectedVictim() {
+		while (true) {
+			EvictableItem candidate = protectedRegion.head;
+			protectedRegion.unlink(candidate);
+			if (!candidate.referenced) {
+				return candidate;
+			}
+			candidate.referenced = false;
+			protectedRegion.linkLast(candidate);
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for (Region region : regions) {
+				region.clear();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private long mainBytes() {
+		return probation.bytes + protectedRegion.bytes;
+	}
+
+	private int itemCount() {
+		return window.size + probation.size + protectedRegion.size;
+	}
+
+	private static int hash(EvictableItem item) {
+		return item.key.hashCode();
+	}
+
+	/**
+	 * Single region of the {@link TinyLfuEvictionQueue}, which represents doubly
+	 * linked list of the {@link EvictableItem}s, guarded by the lock of the queue.
+	 */
+	private static class Region {
+		private final byte id;
+		private EvictableItem head;
+		private EvictableItem tail;
+		private int size;
+		private long bytes;
+
+		Region(byte id) {
+			this.id = id;
+		}
+
+		void linkLast(EvictableItem item) {
+			item.prev = tail;
+			item.next = null;
+			if (tail == null) {
+				head = item;
+			} else {
+				tail.next = item;
+			}
+			tail = item;
+			item.queuedIn = id;
+			size++;
+			bytes += item.size();
+		}
+
+		void unlink(EvictableItem item) {
+			if (item.prev == null) {
+				head = item.next;
+			} else {
+				item.prev.next = item.next;
+			}
+			if (item.next == null) {
+				tail = item.prev;
+			} else {
+				item.next.prev = item.prev;
+			}
+			item.prev = null;
+			item.next = null;
+			item.queuedIn = EvictableItem.NOT_QUEUED;
+			size--;
+			bytes -= item.size();
+		}
+
+		void clear() {
+			while (head != null) {
+				unlink(head);
+			}
+		}
+	}
+}
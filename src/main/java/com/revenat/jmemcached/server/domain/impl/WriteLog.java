@@ -0,0 +1,577 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.WriteLogSyncPolicy;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.InnerStorage;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.StorageItem;
+
+/**
+ * This component keeps append-only log of the mutations of the
+ * {@link DefaultServerStorage} and replays it to rebuild the storage when
+ * server starts. Mutations are queued by the request threads and written by the
+ * single writer thread, which takes all the queued ones at once and writes them
+ * with one sequential write. Log is forced to the disk according to the
+ * {@link WriteLogSyncPolicy}, request threads wait for it only with
+ * {@link WriteLogSyncPolicy#ALWAYS} policy, in which case every force commits
+ * the whole batch.
+ * <p>
+ * Once log has grown {@link #COMPACTION_GROWTH_FACTOR} times since the last
+ * compaction, live items of the storage are rewritten to the new log by the
+ * separate thread, while the mutations written meanwhile are collected and
+ * appended to it after. New log then atomically replaces the old one. Since
+ * the mutations are replayed in order on top of the live items, the ones
+ * which made it to both of them are harmless.
+ * <p>
+ * File starts with the {@link #MAGIC} number and format {@link #VERSION}.
+ * Each record holds length of its payload, CRC32C checksum of it and the
+ * payload itself. Replay stops at the first torn or corrupted record, which
+ * is truncated with everything after it. Items are logged with the absolute
+ * time they expire at, and replayed only if not expired yet.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class WriteLog implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteLog.class);
+	static final int MAGIC = 0x4A4D574C;
+	static final int VERSION = 1;
+	static final byte PUT = 1;
+	static final byte REMOVE = 2;
+	static final byte CLEAR = 3;
+	static final long DEFAULT_MIN_COMPACTION_BYTES = 64L * 1024 * 1024;
+	static final int COMPACTION_GROWTH_FACTOR = 2;
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+	private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+	private static final int MAX_BATCH_SIZE = 4096;
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+	private static final String WRITER_THREAD_NAME = "writeLogWriterThread";
+	private static final String COMPACTION_THREAD_NAME = "writeLogCompactionThread";
+
+	private final Path file;
+	private final DefaultServerStorage storage;
+	private final DateTimeProvider dateTimeProvider;
+	private final WriteLogSyncPolicy syncPolicy;
+	private final long syncIntervalNanos;
+	private final long minCompactionBytes;
+	private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+	private final Thread writerThread;
+	private final ExecutorService compactionExecutor;
+	private volatile boolean closed;
+	private volatile boolean failed;
+	private final LongAdder droppedCount = new LongAdder();
+	private final AtomicBoolean droppedWarned = new AtomicBoolean();
+
+	/* State owned by the writer thread once it has started */
+	private FileChannel channel;
+	private final RecordEncoder encoder = new RecordEncoder();
+	private long lastSyncNanos;
+	private boolean unsynced;
+	private long compactedSize;
+	private Compaction compaction;
+
+	WriteLog(Path file, DefaultServerStorage storage, DateTimeProvider dateTimeProvider,
+			WriteLogSyncPolicy syncPolicy, int syncIntervalMillis) {
+		this(file, storage, dateTimeProvider, syncPolicy, syncIntervalMillis, DEFAULT_MIN_COMPACTION_BYTES);
+	}
+
+	/**
+	 * @param syncIntervalMillis interval between forces of the log to the disk
+	 *                           for {@link WriteLogSyncPolicy#INTERVAL} policy
+	 * @param minCompactionBytes size of the log below which it's never compacted
+	 */
+	WriteLog(Path file, DefaultServerStorage storage, DateTimeProvider dateTimeProvider,
+			WriteLogSyncPolicy syncPolicy, int syncIntervalMillis, long minCompactionBytes) {
+		this.file = requireNonNull(file, "file can not be null");
+		this.storage = requireNonNull(storage, "storage can not be null");
+		this.dateTimeProvider = requireNonNull(dateTimeProvider, "dateTimeProvider can not be null");
+		this.syncPolicy = requireNonNull(syncPolicy, "syncPolicy can not be null");
+		this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+		this.minCompactionBytes = minCompactionBytes;
+		this.writerThread = new Thread(this::writeRecords, WRITER_THREAD_NAME);
+		this.compactionExecutor = Executors.newSingleThreadExecutor(job -> {
+			Thread compactionThread = new Thread(job, COMPACTION_THREAD_NAME);
+			compactionThread.setPriority(Thread.MIN_PRIORITY);
+			compactionThread.setDaemon(true);
+			return compactionThread;
+		});
+	}
+
+	Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Replays the log to the storage and starts appending new mutations to it.
+	 * 
+	 * @return count of the replayed mutations
+	 */
+	long open() throws IOException {
+		long replayedCount = 0;
+		long validLength = 0;
+		if (Files.exists(file) && Files.size(file) > 0) {
+			long started = System.nanoTime();
+			ReplayResult result = replay();
+			replayedCount = result.recordCount;
+			validLength = result.validLength;
+			LOGGER.info("Replayed {} mutations from the write log {} in {} ms", replayedCount, file,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		}
+
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(validLength);
+		channel.position(validLength);
+		if (validLength == 0) {
+			encoder.writeHeader();
+			encoder.writeTo(channel);
+			channel.force(true);
+		}
+		compactedSize = channel.size();
+		lastSyncNanos = System.nanoTime();
+		writerThread.start();
+		return replayedCount;
+	}
+
+	private ReplayResult replay() throws IOException {
+		ReplayResult result = new ReplayResult();
+		long fileSize = Files.size(file);
+		long now = dateTimeProvider.getCurrentTimeInMillis();
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unsupported write log file format: " + file);
+			}
+			result.validLength = HEADER_BYTES;
+			while (true) {
+				int length = in.readInt();
+				int checksum = in.readInt();
+				if (length < 1 || length > fileSize - result.validLength - RECORD_HEADER_BYTES) {
+					break;
+				}
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				if (checksum(payload, 0, length) != checksum || !apply(ByteBuffer.wrap(payload), now)) {
+					break;
+				}
+				result.validLength += RECORD_HEADER_BYTES + length;
+				result.recordCount++;
+			}
+		} catch (EOFException e) {
+			// torn record at the end of the log
+		}
+		if (result.validLength < fileSize) {
+			LOGGER.warn("Write log {} has {} bytes of torn or corrupted records at the end, they are discarded",
+					file, fileSize - result.validLength);
+		}
+		return result;
+	}
+
+	private boolean apply(ByteBuffer payload, long now) {
+		byte type = payload.get();
+		switch (type) {
+		case PUT:
+			String key = readKey(payload);
+			long expiresAt = payload.getLong();
+			byte[] data = new byte[payload.getInt()];
+			payload.get(data);
+			if (expiresAt < now) {
+				storage.remove(key);
+			} else {
+				storage.putExpiringAt(key, expiresAt, data);
+			}
+			return true;
+		case REMOVE:
+			storage.remove(readKey(payload));
+			return true;
+		case CLEAR:
+			storage.clear();
+			return true;
+		default:
+			LOGGER.warn("Unknown write log record type: {}", type);
+			return false;
+		}
+	}
+
+	private static String readKey(ByteBuffer payload) {
+		byte[] key = new byte[payload.getInt()];
+		payload.get(key);
+		return new String(key, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Logs put of the item with specified time-to-live in milliseconds, or
+	 * {@code null} if it never expires.
+	 */
+	Record put(String key, Long ttl, byte[] data) {
+		long expiresAt = ttl != null ? dateTimeProvider.getCurrentTimeInMillis() + ttl : StorageItem.NEVER_EXPIRES;
+		return append(new Record(PUT, key, expiresAt, data, syncPolicy));
+	}
+
+	Record remove(String key) {
+		return append(new Record(REMOVE, key, 0, null, syncPolicy));
+	}
+
+	Record clear() {
+		return append(new Record(CLEAR, null, 0, null, syncPolicy));
+	}
+
+	private Record append(Record record) {
+		if (closed || failed) {
+			droppedCount.increment();
+			if (droppedWarned.compareAndSet(false, true)) {
+				LOGGER.warn("Write log {} is {}, mutations are not logged anymore", file, failed ? "failed" : "closed");
+			}
+			record.complete(null);
+			return record;
+		}
+		queue.add(record);
+		return record;
+	}
+
+	/**
+	 * Returns count of the mutations which were not logged because the log had
+	 * been already closed or failed.
+	 */
+	long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	/**
+	 * Waits until the {@code record} has been forced to the disk, if log has
+	 * {@link WriteLogSyncPolicy#ALWAYS} policy.
+	 * 
+	 * @throws JMemcachedException if record couldn't be written
+	 */
+	void awaitDurable(Record record) {
+		if (record == null || record.durable == null) {
+			return;
+		}
+		try {
+			record.durable.join();
+		} catch (CompletionException e) {
+			throw new JMemcachedException("Write log failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private void writeRecords() {
+		List<Record> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		try {
+			while (!closed || !queue.isEmpty()) {
+				Record first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+					writeBatch(batch);
+				}
+				if (syncPolicy == WriteLogSyncPolicy.ALWAYS && !batch.isEmpty()
+						|| syncPolicy == WriteLogSyncPolicy.INTERVAL
+								&& System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+					sync();
+				}
+				for (Record record : batch) {
+					record.complete(null);
+				}
+				batch.clear();
+				maintainCompaction();
+			}
+			sync();
+		} catch (IOException e) {
+			LOGGER.error("Write log " + file + " failed, mutations are not logged anymore: " + e.getMessage(), e);
+			failed = true;
+			batch.addAll(queue);
+			for (Record record : batch) {
+				record.complete(e);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeBatch(List<Record> batch) throws IOException {
+		for (Record record : batch) {
+			encoder.encode(record.type, record.key, record.expiresAt, record.data);
+		}
+		if (compaction != null) {
+			compaction.collect(encoder);
+		}
+		encoder.writeTo(channel);
+		unsynced = true;
+	}
+
+	private void sync() throws IOException {
+		if (unsynced) {
+			channel.force(false);
+			unsynced = false;
+		}
+		lastSyncNanos = System.nanoTime();
+	}
+
+	private void maintainCompaction() throws IOException {
+		if (compaction == null) {
+			if (channel.size() >= Math.max(minCompactionBytes, compactedSize * COMPACTION_GROWTH_FACTOR)) {
+				compaction = new Compaction(file.resolveSibling(file.getFileName() + ".compact"));
+				compaction.start();
+			}
+		} else if (compaction.isLiveSetWritten()) {
+			Compaction finished = compaction;
+			compaction = null;
+			finished.replaceLog();
+		}
+	}
+
+	/**
+	 * Writes all the queued mutations and stops logging new ones. Compaction in
+	 * progress is abandoned.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		try {
+			if (writerThread.isAlive()) {
+				writerThread.join();
+			}
+			compactionExecutor.shutdownNow();
+			compactionExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (compaction != null) {
+			compaction.abandon();
+			compaction = null;
+		}
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	private static int checksum(byte[] bytes, int offset, int length) {
+		CRC32C crc = new CRC32C();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Logged mutation of the storage.
+	 */
+	static class Record {
+		final byte type;
+		final String key;
+		final long expiresAt;
+		final byte[] data;
+		/** Completed once record is on the disk, for {@link WriteLogSyncPolicy#ALWAYS} only */
+		final CompletableFuture<Void> durable;
+
+		Record(byte type, String key, long expiresAt, byte[] data, WriteLogSyncPolicy syncPolicy) {
+			this.type = type;
+			this.key = key;
+			this.expiresAt = expiresAt;
+			this.data = data;
+			this.durable = syncPolicy == WriteLogSyncPolicy.ALWAYS ? new CompletableFuture<>() : null;
+		}
+
+		void complete(Exception failure) {
+			if (durable == null) {
+				return;
+			}
+			if (failure == null) {
+				durable.complete(null);
+			} else {
+				durable.completeExceptionally(failure);
+			}
+		}
+	}
+
+	/**
+	 * Encodes records to the growing buffer.
+	 */
+	private static class RecordEncoder {
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		void writeHeader() {
+			ensureCapacity(HEADER_BYTES);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+		}
+
+		void encode(byte type, String key, long expiresAt, byte[] data) {
+			byte[] keyBytes = key != null ? key.getBytes(StandardCharsets.UTF_8) : null;
+			int length = 1 + (keyBytes != null ? Integer.BYTES + keyBytes.length : 0)
+					+ (type == PUT ? Long.BYTES + Integer.BYTES + data.length : 0);
+			ensureCapacity(RECORD_HEADER_BYTES + length);
+			buffer.putInt(length);
+			int checksumPosition = buffer.position();
+			buffer.putInt(0);
+			int payloadPosition = buffer.position();
+			buffer.put(type);
+			if (keyBytes != null) {
+				buffer.putInt(keyBytes.length);
+				buffer.put(keyBytes);
+			}
+			if (type == PUT) {
+				buffer.putLong(expiresAt);
+				buffer.putInt(data.length);
+				buffer.put(data);
+			}
+			buffer.putInt(checksumPosition, checksum(buffer.array(), payloadPosition, length));
+		}
+
+		int size() {
+			return buffer.position();
+		}
+
+		byte[] array() {
+			return buffer.array();
+		}
+
+		/**
+		 * Writes all the encoded records to the {@code channel} and empties the
+		 * buffer.
+		 */
+		void writeTo(FileChannel channel) throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		private void ensureCapacity(int length) {
+			if (buffer.remaining() < length) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+	}
+
+	/**
+	 * Rewrite of the log to the live items of the storage.
+	 */
+	private class Compaction {
+		private final Path compactedFile;
+		private final ByteArrayOutputStream collectedRecords = new ByteArrayOutputStream();
+		private FileChannel compactedChannel;
+		private Future<Long> liveSetWritten;
+
+		Compaction(Path compactedFile) {
+			this.compactedFile = compactedFile;
+		}
+
+		void start() {
+			LOGGER.info("Compacting write log {} of {} bytes", file, compactedSize);
+			liveSetWritten = compactionExecutor.submit(this::writeLiveSet);
+		}
+
+		private long writeLiveSet() throws IOException {
+			compactedChannel = FileChannel.open(compactedFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			RecordEncoder liveSetEncoder = new RecordEncoder();
+			liveSetEncoder.writeHeader();
+			long itemCount = 0;
+			long now = dateTimeProvider.getCurrentTimeInMillis();
+			for (InnerStorage shard : storage.getShards()) {
+				for (Map.Entry<String, StorageItem> entry : shard) {
+					StorageItem item = entry.getValue();
+					if (!item.isExpired(now)) {
+						liveSetEncoder.encode(PUT, entry.getKey(), item.expiresAt, item.data);
+						itemCount++;
+					}
+					if (liveSetEncoder.size() >= BUFFER_SIZE) {
+						liveSetEncoder.writeTo(compactedChannel);
+					}
+				}
+			}
+			liveSetEncoder.writeTo(compactedChannel);
+			return itemCount;
+		}
+
+		/**
+		 * Keeps the records just encoded for the log, to append them to the
+		 * compacted one.
+		 */
+		void collect(RecordEncoder encoder) {
+			collectedRecords.write(encoder.array(), 0, encoder.size());
+		}
+
+		boolean isLiveSetWritten() {
+			return liveSetWritten.isDone();
+		}
+
+		/**
+		 * Appends collected records to the compacted log and replaces the current log
+		 * with it.
+		 */
+		void replaceLog() throws IOException {
+			long itemCount;
+			try {
+				itemCount = liveSetWritten.get();
+			} catch (ExecutionException | InterruptedException e) {
+				LOGGER.error("Compact write log " + file + " failed: " + e.getMessage(), e);
+				abandon();
+				compactedSize = channel.size();
+				return;
+			}
+			ByteBuffer collected = ByteBuffer.wrap(collectedRecords.toByteArray());
+			while (collected.hasRemaining()) {
+				compactedChannel.write(collected);
+			}
+			compactedChannel.force(true);
+			compactedChannel.close();
+			channel.close();
+			Files.move(compactedFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			channel = FileChannel.open(file, StandardOpenOption.WRITE);
+			channel.position(channel.size());
+			compactedSize = channel.size();
+			unsynced = false;
+			LOGGER.info("Compacted write log {} to {} live items and {} bytes", file, itemCount, compactedSize);
+		}
+
+		void abandon() throws IOException {
+			if (compactedChannel != null) {
+				compactedChannel.close();
+			}
+			Files.deleteIfExists(compactedFile);
+		}
+	}
+
+	private static class ReplayResult {
+		long validLength;
+		long recordCount;
+	}
+}
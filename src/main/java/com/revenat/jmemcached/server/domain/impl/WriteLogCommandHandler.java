@@ -0,0 +1,94 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+/**
+ * {@link CommandHandler} which logs to the {@link WriteLog} mutations made by
+ * the handlers chain it precedes. Mutation is applied to the storage and
+ * logged under the lock of its key, so mutations of the same key are logged in
+ * the order they were applied, and {@code CLEAR} excludes all of them. Request
+ * waits for its mutation to reach the disk after the locks are released.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class WriteLogCommandHandler implements CommandHandler {
+	private static final int KEY_LOCK_COUNT = 1024;
+
+	private final CommandHandler next;
+	private final WriteLog writeLog;
+	private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+	private final Lock[] keyLocks = new Lock[KEY_LOCK_COUNT];
+
+	WriteLogCommandHandler(CommandHandler next, WriteLog writeLog) {
+		this.next = requireNonNull(next, "next can not be null");
+		this.writeLog = requireNonNull(writeLog, "writeLog can not be null");
+		for (int i = 0; i < KEY_LOCK_COUNT; i++) {
+			keyLocks[i] = new ReentrantLock();
+		}
+	}
+
+	@Override
+	public Response handle(Request request) {
+		switch (request.getCommand()) {
+		case PUT:
+		case REMOVE:
+			return handleKeyMutation(request);
+		case CLEAR:
+			return handleClear(request);
+		default:
+			return next.handle(request);
+		}
+	}
+
+	private Response handleKeyMutation(Request request) {
+		Response response;
+		WriteLog.Record record;
+		Lock keyLock = keyLocks[Math.floorMod(Objects.hashCode(request.getKey()), KEY_LOCK_COUNT)];
+		clearLock.readLock().lock();
+		keyLock.lock();
+		try {
+			response = next.handle(request);
+			record = log(request, response.getStatus());
+		} finally {
+			keyLock.unlock();
+			clearLock.readLock().unlock();
+		}
+		writeLog.awaitDurable(record);
+		return response;
+	}
+
+	private WriteLog.Record log(Request request, Status status) {
+		if (status == Status.ADDED || status == Status.REPLACED) {
+			return writeLog.put(request.getKey(), request.hasTtl() ? request.getTtl() : null, request.getData());
+		} else if (status == Status.REMOVED) {
+			return writeLog.remove(request.getKey());
+		}
+		return null;
+	}
+
+	private Response handleClear(Request request) {
+		Response response;
+		WriteLog.Record record;
+		clearLock.writeLock().lock();
+		try {
+			response = next.handle(request);
+			record = writeLog.clear();
+		} finally {
+			clearLock.writeLock().unlock();
+		}
+		writeLog.awaitDurable(record);
+		return response;
+	}
+}
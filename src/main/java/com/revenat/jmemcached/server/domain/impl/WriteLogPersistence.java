@@ -0,0 +1,54 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+
+/**
+ * {@link StoragePersistence} which replays {@link WriteLog} when server starts
+ * and closes it when server stops. Log is always replayed before server starts
+ * accepting connections, since mutations of the clients are appended to it.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class WriteLogPersistence implements StoragePersistence {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteLogPersistence.class);
+
+	private final WriteLog writeLog;
+
+	WriteLogPersistence(WriteLog writeLog) {
+		this.writeLog = requireNonNull(writeLog, "writeLog can not be null");
+	}
+
+	@Override
+	public void restore() {
+		try {
+			writeLog.open();
+		} catch (IOException e) {
+			throw new JMemcachedException("Can not open write log " + writeLog.getFile() + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Does nothing, since each mutation of the storage is already in the log.
+	 */
+	@Override
+	public void persistNow() {
+		// mutations are logged as they are made
+	}
+
+	@Override
+	public void close() {
+		try {
+			writeLog.close();
+		} catch (IOException e) {
+			LOGGER.error("Close write log " + writeLog.getFile() + " failed: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.protocol.model.Status;
+
+/**
+ * Sends requests over single {@link ServerConnection} by the fixed schedule,
+ * whatever the latency of the responses is. Response time of each request is
+ * measured from the moment it was scheduled to be sent rather than from the
+ * moment it was actually sent, so stalls of the server are accounted for all
+ * the requests delayed by them and don't hide behind the coordinated omission.
+ * Time from the actual send is recorded separately as the service time.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class ConnectionWorker {
+	private final ServerConnection connection;
+	private final Workload workload;
+	private final LoadResult result = new LoadResult();
+
+	ConnectionWorker(ServerConnection connection, Workload workload) {
+		this.connection = connection;
+		this.workload = workload;
+	}
+
+	/**
+	 * Puts every key whose index modulo {@code workerCount} equals
+	 * {@code workerIndex}, each after the previous one is done.
+	 */
+	void prefill(int workerIndex, int workerCount) throws IOException {
+		Random random = ThreadLocalRandom.current();
+		for (int i = workerIndex; i < workload.getKeyCount(); i += workerCount) {
+			connection.execute(workload.prefillRequest(i, random));
+		}
+	}
+
+	/**
+	 * Sends requests every {@code intervalNanos} starting at
+	 * {@code startNanos} and until {@code endNanos}. Only the requests scheduled
+	 * after {@code measureStartNanos} are measured.
+	 */
+	LoadResult run(long startNanos, long intervalNanos, long measureStartNanos, long endNanos) {
+		Random random = ThreadLocalRandom.current();
+		for (long intended = startNanos; intended < endNanos; intended += intervalNanos) {
+			waitUntil(intended);
+			Request request = workload.nextRequest(random);
+			long sent = System.nanoTime();
+			Response response;
+			try {
+				response = connection.execute(request);
+			} catch (IOException e) {
+				result.recordFailure(e);
+				break;
+			}
+			long done = System.nanoTime();
+			if (intended >= measureStartNanos) {
+				result.record(done - intended, done - sent, response.getStatus() == Status.NOT_FOUND);
+			}
+		}
+		return result;
+	}
+
+	private static void waitUntil(long nanoTime) {
+		long delay;
+		while ((delay = nanoTime - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(delay);
+		}
+	}
+}
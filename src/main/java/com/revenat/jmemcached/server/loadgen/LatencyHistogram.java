@@ -0,0 +1,97 @@
+package com.revenat.jmemcached.server.loadgen;
+
+/**
+ * Histogram of latencies in nanoseconds with the log-linear buckets, like the
+ * HdrHistogram has: values below {@link #SUB_BUCKET_COUNT} are counted
+ * exactly, larger ones with at least three significant decimal digits.
+ * Histogram isn't thread-safe, each thread should record its own one and
+ * {@link #add(LatencyHistogram)} them after.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+public class LatencyHistogram {
+	static final int SUB_BUCKET_COUNT = 2048;
+	private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+	private static final int SUB_BUCKET_MAGNITUDE = Integer.numberOfTrailingZeros(SUB_BUCKET_COUNT);
+	private static final int MAX_SHIFT = Long.SIZE - SUB_BUCKET_MAGNITUDE;
+
+	private final long[] counts = new long[SUB_BUCKET_COUNT + MAX_SHIFT * SUB_BUCKET_HALF_COUNT];
+	private long totalCount;
+	private long maxValue;
+
+	/**
+	 * Records single latency.
+	 * 
+	 * @param value latency in nanoseconds, negative ones are recorded as
+	 *              {@code 0}
+	 */
+	public void recordValue(long value) {
+		long nonNegative = Math.max(0, value);
+		counts[indexOf(nonNegative)]++;
+		totalCount++;
+		maxValue = Math.max(maxValue, nonNegative);
+	}
+
+	/**
+	 * Adds all the values recorded by the {@code other} histogram to this one.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		maxValue = Math.max(maxValue, other.maxValue);
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+	/**
+	 * Returns the largest value which is equivalent to the one below which the
+	 * {@code percentile} of the recorded values fall, or {@code 0} if histogram is
+	 * empty.
+	 * 
+	 * @param percentile percentile in the range {@code [0, 100]}
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile should be between 0 and 100: " + percentile);
+		}
+		if (totalCount == 0) {
+			return 0;
+		}
+		long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+		long count = 0;
+		for (int i = 0; i < counts.length; i++) {
+			count += counts[i];
+			if (count >= countAtPercentile) {
+				return Math.min(highestEquivalentValue(i), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_MAGNITUDE;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+		return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket;
+	}
+
+	static long highestEquivalentValue(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,212 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the load generator, parsed from the {@code --name=value}
+ * command line arguments. Every setting has a default, see {@link #USAGE}.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+public class LoadGeneratorConfig {
+	public static final String USAGE = String.join(System.lineSeparator(),
+			"Options (--name=value):",
+			"  host          server host, default: localhost",
+			"  port          server port, default: 9010",
+			"  connections   count of connections, default: 16",
+			"  rate          target count of requests per second over all connections, default: 10000",
+			"  duration      measurement time in seconds, default: 60",
+			"  warmup        time in seconds before the measurement, default: 10",
+			"  read-percent  percent of gets, other requests are puts, default: 90",
+			"  ttl-fraction  fraction of puts with time-to-live, default: 0",
+			"  ttl           time-to-live of such puts in milliseconds, default: 60000",
+			"  keys          count of distinct keys, default: 100000",
+			"  zipf          skew of the Zipfian key popularity in (0, 1), 0 means uniform, default: 0.99",
+			"  value-sizes   value sizes in bytes with their weights, default: 16:70,1024:25,16384:5",
+			"  prefill       put every key before the warmup, default: true");
+
+	private static final List<String> NAMES = Collections.unmodifiableList(Arrays.asList("host", "port",
+			"connections", "rate", "duration", "warmup", "read-percent", "ttl-fraction", "ttl", "keys", "zipf",
+			"value-sizes", "prefill"));
+
+	private final String host;
+	private final int port;
+	private final int connectionCount;
+	private final int targetRate;
+	private final int durationSeconds;
+	private final int warmupSeconds;
+	private final int readPercent;
+	private final double ttlFraction;
+	private final long ttlMillis;
+	private final int keyCount;
+	private final double zipfSkew;
+	private final int[] valueSizes;
+	private final int[] valueSizeWeights;
+	private final boolean prefill;
+
+	private LoadGeneratorConfig(Map<String, String> options) {
+		this.host = options.getOrDefault("host", "localhost");
+		this.port = getInt(options, "port", 9010, 1, 65535);
+		this.connectionCount = getInt(options, "connections", 16, 1, 100_000);
+		this.targetRate = getInt(options, "rate", 10_000, 1, Integer.MAX_VALUE);
+		this.durationSeconds = getInt(options, "duration", 60, 1, Integer.MAX_VALUE);
+		this.warmupSeconds = getInt(options, "warmup", 10, 0, Integer.MAX_VALUE);
+		this.readPercent = getInt(options, "read-percent", 90, 0, 100);
+		this.ttlFraction = getDouble(options, "ttl-fraction", 0, 0, 1);
+		this.ttlMillis = getInt(options, "ttl", 60_000, 1, Integer.MAX_VALUE);
+		this.keyCount = getInt(options, "keys", 100_000, 1, Integer.MAX_VALUE);
+		this.zipfSkew = getDouble(options, "zipf", 0.99, 0, 0.9999);
+		this.prefill = Boolean.parseBoolean(options.getOrDefault("prefill", "true"));
+
+		String[] sizes = options.getOrDefault("value-sizes", "16:70,1024:25,16384:5").split(",");
+		this.valueSizes = new int[sizes.length];
+		this.valueSizeWeights = new int[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			String[] sizeAndWeight = sizes[i].trim().split(":");
+			valueSizes[i] = parseInt("value-sizes", sizeAndWeight[0], 1, Integer.MAX_VALUE);
+			valueSizeWeights[i] = sizeAndWeight.length > 1
+					? parseInt("value-sizes", sizeAndWeight[1], 1, Integer.MAX_VALUE)
+					: 1;
+		}
+	}
+
+	/**
+	 * Parses settings from the command line arguments.
+	 * 
+	 * @throws IllegalArgumentException if any argument is unknown or has invalid
+	 *                                  value
+	 */
+	public static LoadGeneratorConfig parse(String... args) {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Argument should look like --name=value: " + arg);
+			}
+			String name = arg.substring(2, separator);
+			if (!NAMES.contains(name)) {
+				throw new IllegalArgumentException("Unknown option: " + name);
+			}
+			options.put(name, arg.substring(separator + 1));
+		}
+		return new LoadGeneratorConfig(options);
+	}
+
+	private static int getInt(Map<String, String> options, String name, int defaultValue, int min, int max) {
+		String value = options.get(name);
+		return value == null ? defaultValue : parseInt(name, value, min, max);
+	}
+
+	private static int parseInt(String name, String value, int min, int max) {
+		try {
+			int result = Integer.parseInt(value.trim());
+			if (result < min || result > max) {
+				throw new IllegalArgumentException(name + " should be between " + min + " and " + max + ": "
+						+ value);
+			}
+			return result;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " should be a number: " + value, e);
+		}
+	}
+
+	private static double getDouble(Map<String, String> options, String name, double defaultValue, double min,
+			double max) {
+		String value = options.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			double result = Double.parseDouble(value.trim());
+			if (result < min || result > max) {
+				throw new IllegalArgumentException(name + " should be between " + min + " and " + max + ": "
+						+ value);
+			}
+			return result;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " should be a number: " + value, e);
+		}
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public int getConnectionCount() {
+		return connectionCount;
+	}
+
+	/**
+	 * Returns count of requests per second all the connections together should
+	 * send, whatever the latency of the responses is.
+	 */
+	public int getTargetRate() {
+		return targetRate;
+	}
+
+	public int getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	public int getWarmupSeconds() {
+		return warmupSeconds;
+	}
+
+	public int getReadPercent() {
+		return readPercent;
+	}
+
+	public double getTtlFraction() {
+		return ttlFraction;
+	}
+
+	public long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * Returns skew of the Zipfian key popularity, {@code 0} means all the keys
+	 * are equally popular.
+	 */
+	public double getZipfSkew() {
+		return zipfSkew;
+	}
+
+	int[] valueSizes() {
+		return valueSizes.clone();
+	}
+
+	int[] valueSizeWeights() {
+		return valueSizeWeights.clone();
+	}
+
+	public boolean isPrefill() {
+		return prefill;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sizes = new StringBuilder();
+		for (int i = 0; i < valueSizes.length; i++) {
+			sizes.append(i > 0 ? "," : "").append(valueSizes[i]).append(':').append(valueSizeWeights[i]);
+		}
+		return "LoadGeneratorConfig [host=" + host + ", port=" + port + ", connectionCount=" + connectionCount
+				+ ", targetRate=" + targetRate + ", durationSeconds=" + durationSeconds + ", warmupSeconds="
+				+ warmupSeconds + ", readPercent=" + readPercent + ", ttlFraction=" + ttlFraction + ", ttlMillis="
+				+ ttlMillis + ", keyCount=" + keyCount + ", zipfSkew=" + zipfSkew + ", valueSizes=" + sizes
+				+ ", prefill=" + prefill + "]";
+	}
+}
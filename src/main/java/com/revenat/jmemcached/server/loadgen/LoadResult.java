@@ -0,0 +1,76 @@
+package com.revenat.jmemcached.server.loadgen;
+
+/**
+ * Latencies and counts of the requests measured by the load generator.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+public class LoadResult {
+	private final LatencyHistogram responseTime = new LatencyHistogram();
+	private final LatencyHistogram serviceTime = new LatencyHistogram();
+	private long missCount;
+	private long failureCount;
+	private String lastFailure;
+
+	void record(long responseTimeNanos, long serviceTimeNanos, boolean miss) {
+		responseTime.recordValue(responseTimeNanos);
+		serviceTime.recordValue(serviceTimeNanos);
+		if (miss) {
+			missCount++;
+		}
+	}
+
+	void recordFailure(Exception e) {
+		failureCount++;
+		lastFailure = e.toString();
+	}
+
+	void add(LoadResult other) {
+		responseTime.add(other.responseTime);
+		serviceTime.add(other.serviceTime);
+		missCount += other.missCount;
+		failureCount += other.failureCount;
+		if (other.lastFailure != null) {
+			lastFailure = other.lastFailure;
+		}
+	}
+
+	/**
+	 * Returns latencies measured from the moments requests were scheduled to be
+	 * sent, corrected for coordinated omission.
+	 */
+	public LatencyHistogram getResponseTime() {
+		return responseTime;
+	}
+
+	/**
+	 * Returns latencies measured from the moments requests were actually sent,
+	 * which hide the time requests waited for the previous ones.
+	 */
+	public LatencyHistogram getServiceTime() {
+		return serviceTime;
+	}
+
+	public long getRequestCount() {
+		return responseTime.getTotalCount();
+	}
+
+	/**
+	 * Returns count of the requests whose key wasn't found.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns count of the connections which failed before the end of the run.
+	 */
+	public long getFailureCount() {
+		return failureCount;
+	}
+
+	public String getLastFailure() {
+		return lastFailure;
+	}
+}
@@ -0,0 +1,121 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives running server with the open-loop load described by the
+ * {@link LoadGeneratorConfig}: each connection has its own thread and sends its
+ * share of the target rate, with the start times of the connections spread
+ * evenly over the interval between the requests.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+public class LoadRunner {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadRunner.class);
+	private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final LoadGeneratorConfig config;
+
+	public LoadRunner(LoadGeneratorConfig config) {
+		this.config = requireNonNull(config, "config can not be null");
+	}
+
+	public LoadResult run() throws IOException, InterruptedException {
+		Workload workload = new Workload(config);
+		int connectionCount = config.getConnectionCount();
+		List<ServerConnection> connections = new ArrayList<>();
+		ExecutorService executorService = Executors.newFixedThreadPool(connectionCount, createThreadFactory());
+		try {
+			List<ConnectionWorker> workers = new ArrayList<>();
+			for (int i = 0; i < connectionCount; i++) {
+				ServerConnection connection = new ServerConnection(config.getHost(), config.getPort());
+				connections.add(connection);
+				workers.add(new ConnectionWorker(connection, workload));
+			}
+			if (config.isPrefill()) {
+				LOGGER.info("Putting {} keys", workload.getKeyCount());
+				invokeAll(executorService, prefillTasks(workers));
+			}
+			LOGGER.info("Warming up for {} s, measuring for {} s", config.getWarmupSeconds(),
+					config.getDurationSeconds());
+			LoadResult result = new LoadResult();
+			for (LoadResult workerResult : invokeAll(executorService, runTasks(workers))) {
+				result.add(workerResult);
+			}
+			return result;
+		} finally {
+			executorService.shutdownNow();
+			for (ServerConnection connection : connections) {
+				connection.close();
+			}
+		}
+	}
+
+	private static List<Callable<Void>> prefillTasks(List<ConnectionWorker> workers) {
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i = 0; i < workers.size(); i++) {
+			int workerIndex = i;
+			tasks.add(() -> {
+				workers.get(workerIndex).prefill(workerIndex, workers.size());
+				return null;
+			});
+		}
+		return tasks;
+	}
+
+	private List<Callable<LoadResult>> runTasks(List<ConnectionWorker> workers) {
+		long intervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) * workers.size() / config.getTargetRate());
+		long startNanos = System.nanoTime() + START_DELAY_NANOS;
+		long measureStartNanos = startNanos + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+		long endNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+		List<Callable<LoadResult>> tasks = new ArrayList<>();
+		for (int i = 0; i < workers.size(); i++) {
+			ConnectionWorker worker = workers.get(i);
+			long workerStartNanos = startNanos + intervalNanos * i / workers.size();
+			tasks.add(() -> worker.run(workerStartNanos, intervalNanos, measureStartNanos, endNanos));
+		}
+		return tasks;
+	}
+
+	private static <T> List<T> invokeAll(ExecutorService executorService, List<Callable<T>> tasks)
+			throws IOException, InterruptedException {
+		List<T> results = new ArrayList<>();
+		for (Future<T> future : executorService.invokeAll(tasks)) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IllegalStateException("Load generation failed: " + e.getCause().getMessage(), e.getCause());
+			}
+		}
+		return results;
+	}
+
+	private static ThreadFactory createThreadFactory() {
+		AtomicInteger threadCount = new AtomicInteger();
+		return job -> {
+			Thread thread = new Thread(job, "loadGeneratorThread-" + threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,50 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import com.revenat.jmemcached.protocol.RequestWriter;
+import com.revenat.jmemcached.protocol.ResponseReader;
+import com.revenat.jmemcached.protocol.impl.RequestConverter;
+import com.revenat.jmemcached.protocol.impl.ResponseConverter;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+
+/**
+ * Client connection to the server, which sends request and waits for its
+ * response using the same protocol converters as the server does.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class ServerConnection implements AutoCloseable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Socket socket;
+	private final InputStream input;
+	private final OutputStream output;
+	private final RequestWriter requestWriter = new RequestConverter();
+	private final ResponseReader responseReader = new ResponseConverter();
+
+	ServerConnection(String host, int port) throws IOException {
+		this.socket = new Socket(host, port);
+		this.socket.setTcpNoDelay(true);
+		this.input = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+		this.output = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+	}
+
+	Response execute(Request request) throws IOException {
+		requestWriter.writeTo(output, request);
+		output.flush();
+		return responseReader.readFrom(input);
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
@@ -0,0 +1,84 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import java.util.Random;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+
+/**
+ * Chooses requests the load generator sends: command by the read percent, key
+ * by the key popularity, value size by the weights of the sizes and whether put
+ * has time-to-live by the fraction of such puts. Values of every size are
+ * created once and shared by all the requests.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+class Workload {
+	private static final String KEY_PREFIX = "key-";
+
+	private final int keyCount;
+	private final ZipfianGenerator keyPopularity;
+	private final int readPercent;
+	private final double ttlFraction;
+	private final long ttlMillis;
+	private final byte[][] values;
+	private final int[] cumulativeWeights;
+
+	Workload(LoadGeneratorConfig config) {
+		this.keyCount = config.getKeyCount();
+		this.keyPopularity = config.getZipfSkew() > 0 ? new ZipfianGenerator(keyCount, config.getZipfSkew())
+				: null;
+		this.readPercent = config.getReadPercent();
+		this.ttlFraction = config.getTtlFraction();
+		this.ttlMillis = config.getTtlMillis();
+
+		int[] sizes = config.valueSizes();
+		int[] weights = config.valueSizeWeights();
+		Random random = new Random();
+		this.values = new byte[sizes.length][];
+		this.cumulativeWeights = new int[sizes.length];
+		int totalWeight = 0;
+		for (int i = 0; i < sizes.length; i++) {
+			values[i] = new byte[sizes[i]];
+			random.nextBytes(values[i]);
+			totalWeight += weights[i];
+			cumulativeWeights[i] = totalWeight;
+		}
+	}
+
+	int getKeyCount() {
+		return keyCount;
+	}
+
+	Request nextRequest(Random random) {
+		String key = KEY_PREFIX + nextKeyIndex(random);
+		if (random.nextInt(100) < readPercent) {
+			return Request.withKey(Command.GET, key);
+		}
+		Long ttl = random.nextDouble() < ttlFraction ? ttlMillis : null;
+		return Request.withKeyAndData(Command.PUT, key, nextValue(random), ttl);
+	}
+
+	/**
+	 * Returns request which puts the key with the specified index, without
+	 * time-to-live.
+	 */
+	Request prefillRequest(int keyIndex, Random random) {
+		return Request.withKeyAndData(Command.PUT, KEY_PREFIX + keyIndex, nextValue(random), null);
+	}
+
+	private int nextKeyIndex(Random random) {
+		return keyPopularity == null ? random.nextInt(keyCount) : keyPopularity.nextIndex(random);
+	}
+
+	private byte[] nextValue(Random random) {
+		int weight = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (weight < cumulativeWeights[i]) {
+				return values[i];
+			}
+		}
+		return values[values.length - 1];
+	}
+}
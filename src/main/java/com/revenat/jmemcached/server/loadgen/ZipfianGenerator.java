@@ -0,0 +1,85 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import java.util.Random;
+
+/**
+ * Generates indexes in the range {@code [0, itemCount)} whose popularity
+ * follows Zipf's law, by the Gray et al. "Quickly Generating Billion-Record
+ * Synthetic Databases" algorithm, as YCSB does. Ranks are scattered over the
+ * range by multiplying them by a prime, so the most popular indexes aren't
+ * neighbours.
+ * 
+ * @author Vitaly Dragun
+ *
+ */
+public class ZipfianGenerator {
+	private static final long SCATTER_PRIME = 2_654_435_761L;
+
+	private final int itemCount;
+	private final double skew;
+	private final double alpha;
+	private final double zetaN;
+	private final double eta;
+	private final double halfPowSkew;
+
+	/**
+	 * @param itemCount count of the items to choose from
+	 * @param skew      exponent of the distribution, should be in the range
+	 *                  {@code (0, 1)}, larger values make popular items hotter
+	 */
+	public ZipfianGenerator(int itemCount, double skew) {
+		if (itemCount < 1) {
+			throw new IllegalArgumentException("itemCount should be >= 1: " + itemCount);
+		}
+		if (skew <= 0 || skew >= 1) {
+			throw new IllegalArgumentException("skew should be between 0 and 1 exclusive: " + skew);
+		}
+		this.itemCount = itemCount;
+		this.skew = skew;
+		this.zetaN = zeta(itemCount, skew);
+		this.alpha = 1.0 / (1.0 - skew);
+		this.eta = (1 - Math.pow(2.0 / itemCount, 1 - skew)) / (1 - zeta(2, skew) / zetaN);
+		this.halfPowSkew = 1 + Math.pow(0.5, skew);
+	}
+
+	private static double zeta(int n, double skew) {
+		double sum = 0;
+		for (int i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, skew);
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns popularity rank of the next chosen item, {@code 0} is the most
+	 * popular one.
+	 */
+	public int nextRank(Random random) {
+		double u = random.nextDouble();
+		double uz = u * zetaN;
+		if (uz < 1.0) {
+			return 0;
+		}
+		if (uz < halfPowSkew) {
+			return Math.min(1, itemCount - 1);
+		}
+		int rank = (int) (itemCount * Math.pow(eta * u - eta + 1, alpha));
+		return Math.min(rank, itemCount - 1);
+	}
+
+	/**
+	 * Returns index of the next chosen item.
+	 */
+	public int nextIndex(Random random) {
+		return (int) (nextRank(random) * SCATTER_PRIME % itemCount);
+	}
+
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ZipfianGenerator [itemCount=" + itemCount + ", skew=" + skew + "]";
+	}
+}
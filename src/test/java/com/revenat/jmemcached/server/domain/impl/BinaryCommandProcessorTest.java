@@ -0,0 +1,361 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.ADD;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.DECREMENT;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.DELETEQ;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.FLUSH;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.GET;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.GETK;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.GETKQ;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.GETQ;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.INCREMENT;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.INCREMENTQ;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.NOOP;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.QUIT;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.REPLACEQ;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.SET;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.SETQ;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.STAT;
+import static com.revenat.jmemcached.server.domain.impl.BinaryCommandProcessor.TOUCH;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BinaryCommandProcessorTest {
+	private static final int CLEAR_DATA_INTERVAL_MILLIS = 1000;
+	private static final int BUFFER_SIZE = 64;
+	private static final byte[] NO_EXTRAS = new byte[0];
+
+	@Mock
+	private DateTimeProvider dateTimeProvider;
+	@Mock
+	private ConnectionStatistics connectionStatistics;
+
+	private DefaultServerStorage storage;
+	private ClientConnectionHandlerFactory handlerFactory;
+	private BinaryCommandProcessor processor;
+	private ByteArrayOutputStream requests;
+
+	@Before
+	public void setUp() {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS);
+		handlerFactory = new ClientConnectionHandlerFactory(storage, null, dateTimeProvider);
+		processor = new BinaryCommandProcessor(handlerFactory.createMemcachedCommands(new ServerStats(
+				storage.getStatistics(), handlerFactory.getRequestRecorder(), connectionStatistics)));
+		requests = new ByteArrayOutputStream();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		handlerFactory.close();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullCommands() throws Exception {
+		new BinaryCommandProcessor(null);
+	}
+
+	@Test
+	public void shouldStoreAndRetrieveData() throws Exception {
+		request(SET, 1, storageExtras(0), "one", "abc");
+		request(GET, 2, NO_EXTRAS, "one", "");
+		request(GETK, 3, NO_EXTRAS, "one", "");
+
+		List<Response> responses = process();
+
+		assertThat(responses, hasSize(3));
+		assertResponse(responses.get(0), SET, 1, BinaryCommandProcessor.NO_ERROR, "");
+		assertResponse(responses.get(1), GET, 2, BinaryCommandProcessor.NO_ERROR, "abc");
+		assertThat(responses.get(1).extras, equalTo(new byte[4]));
+		assertResponse(responses.get(2), GETK, 3, BinaryCommandProcessor.NO_ERROR, "abc");
+		assertThat(responses.get(2).key, equalTo("one"));
+	}
+
+	@Test
+	public void shouldEchoKeyAsReceivedEvenIfItIsNotValidUtf8() throws Exception {
+		request(SET, 1, storageExtras(0), "\u00FF", "abc");
+		request(GETK, 2, NO_EXTRAS, "\u00FF", "");
+
+		Response response = process().get(1);
+
+		assertResponse(response, GETK, 2, BinaryCommandProcessor.NO_ERROR, "abc");
+		assertThat(response.key, equalTo("\u00FF"));
+	}
+
+	@Test
+	public void shouldAnswerQuietCommandsOnlyOnMissesAndErrors() throws Exception {
+		storage.put("one", ascii("abc"));
+		request(SETQ, 1, storageExtras(0), "two", "de");
+		request(GETQ, 2, NO_EXTRAS, "one", "");
+		request(GETKQ, 3, NO_EXTRAS, "three", "");
+		request(REPLACEQ, 4, storageExtras(0), "three", "x");
+		request(DELETEQ, 5, NO_EXTRAS, "two", "");
+		request(DELETEQ, 6, NO_EXTRAS, "two", "");
+		request(NOOP, 7, NO_EXTRAS, "", "");
+
+		List<Response> responses = process();
+
+		assertThat(responses, hasSize(4));
+		assertResponse(responses.get(0), GETQ, 2, BinaryCommandProcessor.NO_ERROR, "abc");
+		assertResponse(responses.get(1), REPLACEQ, 4, BinaryCommandProcessor.KEY_NOT_FOUND, "Not found");
+		assertResponse(responses.get(2), DELETEQ, 6, BinaryCommandProcessor.KEY_NOT_FOUND, "Not found");
+		assertResponse(responses.get(3), NOOP, 7, BinaryCommandProcessor.NO_ERROR, "");
+	}
+
+	@Test
+	public void shouldRecordRetrievals() throws Exception {
+		storage.put("one", ascii("abc"));
+		request(GET, 1, NO_EXTRAS, "one", "");
+		request(GETQ, 2, NO_EXTRAS, "two", "");
+
+		process();
+
+		RequestRecorder recorder = handlerFactory.getRequestRecorder();
+		assertThat(recorder.getCommandCount(Command.GET), equalTo(2L));
+		assertThat(recorder.getMissCount(), equalTo(1L));
+	}
+
+	@Test
+	public void shouldAddOnlyAbsentKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+		request(ADD, 1, storageExtras(0), "one", "x");
+
+		assertResponse(process().get(0), ADD, 1, BinaryCommandProcessor.KEY_EXISTS, "Data exists for key.");
+		assertThat(storage.get("one"), equalTo(ascii("abc")));
+	}
+
+	@Test
+	public void shouldConvertExpirationToTtl() throws Exception {
+		request(SET, 1, storageExtras(100), "one", "x");
+
+		process();
+
+		assertThat(storage.getTtl("one"), equalTo(100_000L));
+	}
+
+	@Test
+	public void shouldNotSupportCompareAndSwap() throws Exception {
+		request(SET, 1, 5L, storageExtras(0), "one", "x");
+
+		assertThat(process().get(0).status, equalTo(BinaryCommandProcessor.NOT_SUPPORTED));
+		assertThat(storage.get("one").length, equalTo(0));
+	}
+
+	@Test
+	public void shouldSkipValueOfTooLargeData() throws Exception {
+		request(SET, 1, storageExtras(0), "one", new String(new byte[MemcachedCommands.MAX_DATA_LENGTH + 1],
+				StandardCharsets.US_ASCII));
+		request(GET, 2, NO_EXTRAS, "one", "");
+
+		List<Response> responses = process();
+
+		assertThat(responses.get(0).status, equalTo(BinaryCommandProcessor.VALUE_TOO_LARGE));
+		assertResponse(responses.get(1), GET, 2, BinaryCommandProcessor.KEY_NOT_FOUND, "Not found");
+	}
+
+	@Test
+	public void shouldIncrementAndDecrementNumericValues() throws Exception {
+		storage.put("one", ascii("10"));
+		request(INCREMENT, 1, counterExtras(5, 0, 0), "one", "");
+		request(DECREMENT, 2, counterExtras(100, 0, 0), "one", "");
+
+		List<Response> responses = process();
+
+		assertThat(counterOf(responses.get(0)), equalTo(15L));
+		assertThat(counterOf(responses.get(1)), equalTo(0L));
+		assertThat(storage.get("one"), equalTo(ascii("0")));
+	}
+
+	@Test
+	public void shouldCreateAbsentCounterWithInitialValueUnlessExpirationTellsNotTo() throws Exception {
+		request(INCREMENT, 1, counterExtras(5, 42, 0), "one", "");
+		request(INCREMENTQ, 2, counterExtras(1, 0, 0), "one", "");
+		request(INCREMENT, 3, counterExtras(5, 42, 0xFFFFFFFF), "two", "");
+
+		List<Response> responses = process();
+
+		assertThat(responses, hasSize(2));
+		assertThat(counterOf(responses.get(0)), equalTo(42L));
+		assertResponse(responses.get(1), INCREMENT, 3, BinaryCommandProcessor.KEY_NOT_FOUND, "Not found");
+		assertThat(storage.get("one"), equalTo(ascii("43")));
+	}
+
+	@Test
+	public void shouldNotIncrementNonNumericValues() throws Exception {
+		storage.put("one", ascii("abc"));
+		request(INCREMENT, 1, counterExtras(1, 0, 0), "one", "");
+
+		assertThat(process().get(0).status, equalTo(BinaryCommandProcessor.NON_NUMERIC_VALUE));
+	}
+
+	@Test
+	public void shouldTouchPresentKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+		request(TOUCH, 1, ByteBuffer.allocate(4).putInt(10).array(), "one", "");
+
+		assertThat(process().get(0).status, equalTo(BinaryCommandProcessor.NO_ERROR));
+		assertThat(storage.getTtl("one"), equalTo(10_000L));
+	}
+
+	@Test
+	public void shouldFlushAllKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+		request(FLUSH, 1, NO_EXTRAS, "", "");
+
+		assertThat(process().get(0).status, equalTo(BinaryCommandProcessor.NO_ERROR));
+		assertThat(storage.get("one").length, equalTo(0));
+	}
+
+	@Test
+	public void shouldReportEachStatInResponseOfItsOwnTerminatedByEmptyOne() throws Exception {
+		storage.put("one", ascii("abc"));
+		request(STAT, 1, NO_EXTRAS, "", "");
+
+		List<Response> responses = process();
+
+		assertThat(responses.size(), greaterThan(1));
+		assertTrue("Should report count of items", responses.stream()
+				.anyMatch(response -> response.key.equals("curr_items") && response.value.equals("1")));
+		Response terminator = responses.get(responses.size() - 1);
+		assertThat(terminator.key, equalTo(""));
+		assertThat(terminator.value, equalTo(""));
+	}
+
+	@Test
+	public void shouldAnswerInvalidArgumentsAndUnknownCommandsWithError() throws Exception {
+		request(GET, 1, NO_EXTRAS, "", "");
+		request(0x50, 2, NO_EXTRAS, "", "");
+
+		List<Response> responses = process();
+
+		assertThat(responses.get(0).status, equalTo(BinaryCommandProcessor.INVALID_ARGUMENTS));
+		assertThat(responses.get(1).status, equalTo(BinaryCommandProcessor.UNKNOWN_COMMAND));
+	}
+
+	@Test
+	public void shouldStopProcessingOnQuit() throws Exception {
+		request(QUIT, 1, NO_EXTRAS, "", "");
+		request(NOOP, 2, NO_EXTRAS, "", "");
+
+		List<Response> responses = process();
+
+		assertThat(responses, hasSize(1));
+		assertResponse(responses.get(0), QUIT, 1, BinaryCommandProcessor.NO_ERROR, "");
+	}
+
+	private void request(int opcode, int opaque, byte[] extras, String key, String value) throws IOException {
+		request(opcode, opaque, 0, extras, key, value);
+	}
+
+	private void request(int opcode, int opaque, long cas, byte[] extras, String key, String value)
+			throws IOException {
+		byte[] keyBytes = key.getBytes(StandardCharsets.ISO_8859_1);
+		byte[] valueBytes = ascii(value);
+		DataOutputStream out = new DataOutputStream(requests);
+		out.writeByte(BinaryRequestReader.REQUEST_MAGIC);
+		out.writeByte(opcode);
+		out.writeShort(keyBytes.length);
+		out.writeByte(extras.length);
+		out.writeByte(0);
+		out.writeShort(0);
+		out.writeInt(extras.length + keyBytes.length + valueBytes.length);
+		out.writeInt(opaque);
+		out.writeLong(cas);
+		out.write(extras);
+		out.write(keyBytes);
+		out.write(valueBytes);
+	}
+
+	private List<Response> process() throws IOException {
+		BinaryRequestReader reader = new BinaryRequestReader(new ByteArrayInputStream(requests.toByteArray()),
+				BUFFER_SIZE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		while (processor.process(reader, out)) {
+			// until the end of requests
+		}
+
+		List<Response> responses = new ArrayList<>();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+		while (in.available() > 0) {
+			responses.add(new Response(in));
+		}
+		return responses;
+	}
+
+	private static byte[] storageExtras(int expiration) {
+		return ByteBuffer.allocate(8).putInt(0).putInt(expiration).array();
+	}
+
+	private static byte[] counterExtras(long delta, long initial, int expiration) {
+		return ByteBuffer.allocate(20).putLong(delta).putLong(initial).putInt(expiration).array();
+	}
+
+	private static long counterOf(Response response) {
+		assertThat(response.status, equalTo(BinaryCommandProcessor.NO_ERROR));
+		return ByteBuffer.wrap(response.value.getBytes(StandardCharsets.ISO_8859_1)).getLong();
+	}
+
+	private static void assertResponse(Response response, int opcode, int opaque, int status, String value) {
+		assertThat(response.opcode, equalTo(opcode));
+		assertThat(response.opaque, equalTo(opaque));
+		assertThat(response.status, equalTo(status));
+		assertThat(response.value, equalTo(value));
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static class Response {
+		private final int opcode;
+		private final int status;
+		private final int opaque;
+		private final byte[] extras;
+		private final String key;
+		private final String value;
+
+		Response(DataInputStream in) throws IOException {
+			assertThat(in.readUnsignedByte(), equalTo(BinaryCommandProcessor.RESPONSE_MAGIC));
+			opcode = in.readUnsignedByte();
+			int keyLength = in.readUnsignedShort();
+			int extrasLength = in.readUnsignedByte();
+			in.readUnsignedByte();
+			status = in.readUnsignedShort();
+			int bodyLength = in.readInt();
+			opaque = in.readInt();
+			in.readLong();
+			extras = new byte[extrasLength];
+			in.readFully(extras);
+			byte[] keyBytes = new byte[keyLength];
+			in.readFully(keyBytes);
+			byte[] valueBytes = new byte[bodyLength - extrasLength - keyLength];
+			in.readFully(valueBytes);
+			key = new String(keyBytes, StandardCharsets.ISO_8859_1);
+			value = new String(valueBytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+
+public class BinaryRequestReaderTest {
+	private static final int BUFFER_SIZE = 32;
+
+	private BinaryRequestReader reader;
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullStream() throws Exception {
+		new BinaryRequestReader(null, BUFFER_SIZE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowBufferSmallerThanHeader() throws Exception {
+		new BinaryRequestReader(new ByteArrayInputStream(new byte[0]), BinaryRequestReader.HEADER_LENGTH - 1);
+	}
+
+	@Test
+	public void shouldReadHeaderExtrasKeyAndValue() throws Exception {
+		reader = readerOf(request(0x01, 42, 7L, new byte[] { 0, 0, 0, 1, 0, 0, 0, 100 }, "key", "value"));
+
+		assertTrue("Should read the request", reader.readRequest());
+		assertThat(reader.getOpcode(), equalTo(0x01));
+		assertThat(reader.getOpaque(), equalTo(42));
+		assertThat(reader.getCas(), equalTo(7L));
+		assertThat(reader.getExtrasLength(), equalTo(8));
+		assertThat(reader.getExtrasInt(4), equalTo(100));
+		assertThat(reader.getExtrasLong(0), equalTo(0x1_0000_0064L));
+		assertThat(reader.getKey(), equalTo("key"));
+		assertThat(reader.getValueLength(), equalTo(5L));
+		assertThat(reader.readValue(), equalTo(ascii("value")));
+		assertThat(reader.getValueLength(), equalTo(0L));
+	}
+
+	@Test
+	public void shouldSkipValueWhichIsNotReadBeforeNextRequest() throws Exception {
+		reader = readerOf(request(0x01, 1, 0, new byte[8], "one", "a value longer than the buffer"),
+				request(0x0A, 2, 0, new byte[0], "", ""));
+
+		reader.readRequest();
+		reader.readRequest();
+
+		assertThat(reader.getOpcode(), equalTo(0x0A));
+		assertThat(reader.getOpaque(), equalTo(2));
+	}
+
+	@Test
+	public void shouldReportEndOfStreamBeforeNextRequest() throws Exception {
+		reader = readerOf(request(0x0A, 0, 0, new byte[0], "", ""));
+
+		reader.readRequest();
+
+		assertFalse("Should not read the request after end of stream", reader.readRequest());
+	}
+
+	@Test(expected = EOFException.class)
+	public void shouldNotAllowStreamToEndInTheMiddleOfRequest() throws Exception {
+		byte[] request = request(0x00, 0, 0, new byte[0], "key", "");
+		byte[] truncated = new byte[request.length - 1];
+		System.arraycopy(request, 0, truncated, 0, truncated.length);
+		reader = readerOf(truncated);
+
+		reader.readRequest();
+	}
+
+	@Test(expected = JMemcachedException.class)
+	public void shouldNotAllowRequestWithInvalidMagic() throws Exception {
+		byte[] request = request(0x0A, 0, 0, new byte[0], "", "");
+		request[0] = (byte) 0x81;
+		reader = readerOf(request);
+
+		reader.readRequest();
+	}
+
+	@Test
+	public void shouldReportBufferedInputOfNextRequest() throws Exception {
+		reader = readerOf(request(0x0A, 1, 0, new byte[0], "", ""), request(0x0A, 2, 0, new byte[0], "", ""));
+
+		reader.readRequest();
+		assertTrue("Next request should be buffered", reader.hasBufferedInput());
+		reader.readRequest();
+		assertFalse("No more requests should be buffered", reader.hasBufferedInput());
+	}
+
+	private static BinaryRequestReader readerOf(byte[]... requests) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (byte[] request : requests) {
+			bytes.write(request);
+		}
+		return new BinaryRequestReader(new ByteArrayInputStream(bytes.toByteArray()), BUFFER_SIZE);
+	}
+
+	private static byte[] request(int opcode, int opaque, long cas, byte[] extras, String key, String value)
+			throws IOException {
+		byte[] keyBytes = ascii(key);
+		byte[] valueBytes = ascii(value);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(BinaryRequestReader.REQUEST_MAGIC);
+		out.writeByte(opcode);
+		out.writeShort(keyBytes.length);
+		out.writeByte(extras.length);
+		out.writeByte(0);
+		out.writeShort(0);
+		out.writeInt(extras.length + keyBytes.length + valueBytes.length);
+		out.writeInt(opaque);
+		out.writeLong(cas);
+		out.write(extras);
+		out.write(keyBytes);
+		out.write(valueBytes);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+}
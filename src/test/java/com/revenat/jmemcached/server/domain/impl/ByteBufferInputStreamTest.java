@@ -0,0 +1,62 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class ByteBufferInputStreamTest {
+	private static final byte[] ANY_BYTES = new byte[] {1, 2, (byte) 255};
+
+	private ByteBufferInputStream input = new ByteBufferInputStream(ByteBuffer.wrap(ANY_BYTES));
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullBuffer() throws Exception {
+		input = new ByteBufferInputStream(null);
+	}
+
+	@Test
+	public void shouldReadBytesFromBuffer() throws Exception {
+		assertThat(input.read(), equalTo(1));
+		assertThat(input.read(), equalTo(2));
+		assertThat(input.read(), equalTo(255));
+		assertFalse("Should not be underflow if all bytes were available", input.isUnderflow());
+	}
+
+	@Test
+	public void shouldReportAvailableBytes() throws Exception {
+		input.read();
+
+		assertThat(input.available(), equalTo(2));
+	}
+
+	@Test
+	public void shouldReturnEndOfStreamAndReportUnderflowIfBufferIsExhausted() throws Exception {
+		input.read(new byte[ANY_BYTES.length]);
+
+		assertThat(input.read(), equalTo(-1));
+		assertTrue("Should be underflow after reading from exhausted buffer", input.isUnderflow());
+	}
+
+	@Test
+	public void shouldReportUnderflowIfRequestedMoreBytesThanAvailable() throws Exception {
+		byte[] result = new byte[ANY_BYTES.length + 1];
+
+		int count = input.read(result, 0, result.length);
+
+		assertThat(count, equalTo(ANY_BYTES.length));
+		assertTrue("Should be underflow if requested more bytes than available", input.isUnderflow());
+	}
+
+	@Test
+	public void shouldNotReportUnderflowIfZeroBytesRequested() throws Exception {
+		input.read(new byte[ANY_BYTES.length]);
+
+		assertThat(input.read(new byte[1], 0, 0), equalTo(0));
+		assertFalse("Should not be underflow if zero bytes requested", input.isUnderflow());
+	}
+}
@@ -0,0 +1,136 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.protocol.RequestReader;
+import com.revenat.jmemcached.protocol.ResponseWriter;
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ChannelRequestProcessorTest {
+	private static final int REQUEST_SIZE = 4;
+	private static final Request ANY_REQUEST = Request.empty(Command.CLEAR);
+	private static final Response ANY_RESPONSE = Response.empty(Status.CLEARED);
+
+	private ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	@Mock
+	private RequestReader reader;
+	@Mock
+	private ResponseWriter writer;
+	@Mock
+	private CommandHandler handler;
+
+	private ChannelRequestProcessor processor;
+
+	@Before
+	public void setUp() throws IOException {
+		processor = new ChannelRequestProcessor(reader, writer, handler);
+		readerConsumesFixedSizeRequests();
+		when(handler.handle(any(Request.class))).thenReturn(ANY_RESPONSE);
+		doAnswer(invocation -> {
+			OutputStream out = invocation.getArgument(0);
+			out.write(1);
+			return null;
+		}).when(writer).writeTo(any(OutputStream.class), any(Response.class));
+	}
+
+	private void readerConsumesFixedSizeRequests() throws IOException {
+		when(reader.readFrom(any(InputStream.class))).thenAnswer(invocation -> {
+			InputStream in = invocation.getArgument(0);
+			new DataInputStream(in).readFully(new byte[REQUEST_SIZE]);
+			return ANY_REQUEST;
+		});
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullRequestReader() throws Exception {
+		processor = new ChannelRequestProcessor(null, writer, handler);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullResponseWriter() throws Exception {
+		processor = new ChannelRequestProcessor(reader, null, handler);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullCommandHandler() throws Exception {
+		processor = new ChannelRequestProcessor(reader, writer, null);
+	}
+
+	@Test
+	public void shouldProcessCompleteRequest() throws Exception {
+		ByteBuffer input = ByteBuffer.wrap(new byte[REQUEST_SIZE]);
+
+		boolean processed = processor.process(input, output);
+
+		assertTrue("Complete request should be processed", processed);
+		assertFalse("Whole request should be consumed", input.hasRemaining());
+		assertThat(output.size(), equalTo(1));
+		verify(handler, times(1)).handle(ANY_REQUEST);
+	}
+
+	@Test
+	public void shouldLeaveIncompleteRequestInBufferUntouched() throws Exception {
+		ByteBuffer input = ByteBuffer.wrap(new byte[REQUEST_SIZE - 1]);
+
+		boolean processed = processor.process(input, output);
+
+		assertFalse("Incomplete request should not be processed", processed);
+		assertThat(input.position(), equalTo(0));
+		assertThat(output.size(), equalTo(0));
+		verify(handler, never()).handle(any(Request.class));
+	}
+
+	@Test
+	public void shouldProcessPipelinedRequestsOneByOne() throws Exception {
+		ByteBuffer input = ByteBuffer.wrap(new byte[REQUEST_SIZE * 2 + 1]);
+		int count = 0;
+
+		while (processor.process(input, output)) {
+			count++;
+		}
+
+		assertThat(count, equalTo(2));
+		assertThat(input.remaining(), equalTo(1));
+	}
+
+	@Test
+	public void shouldNotProcessEmptyBuffer() throws Exception {
+		assertFalse("Empty buffer should not be processed", processor.process(ByteBuffer.allocate(0), output));
+	}
+
+	@Test(expected = JMemcachedException.class)
+	public void shouldThrowJMemcachedExceptionIfRequestProcessingFailed() throws Exception {
+		when(handler.handle(any(Request.class))).thenThrow(RuntimeException.class);
+
+		processor.process(ByteBuffer.wrap(new byte[REQUEST_SIZE]), output);
+	}
+}
@@ -50,6 +50,11 @@ public class ClientConnectionHandlerFactoryTest {
 		assertThat(handlerA, not(sameInstance(handlerB)));
 	}
 	
+	@Test
+	public void shouldProvideChannelRequestProcessor() throws Exception {
+		assertThat(factory.getChannelRequestProcessor(), notNullValue());
+	}
+	
 	@Test
 	public void shouldCloseStorageWhenClosing() throws Exception {
 		factory.close();
@@ -0,0 +1,93 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+import org.junit.Test;
+
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+
+public class ClockEvictionQueueTest {
+	private static final byte[] ANY_DATA = new byte[] {1, 2, 3};
+
+	private ClockEvictionQueue queue = new ClockEvictionQueue(1);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowToCreateWithoutSegments() throws Exception {
+		queue = new ClockEvictionQueue(0);
+	}
+
+	@Test
+	public void shouldReturnNullIfNothingToEvict() throws Exception {
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldEvictItemsInInsertionOrder() throws Exception {
+		EvictableItem first = createItem("first");
+		EvictableItem second = createItem("second");
+		queue.add(first);
+		queue.add(second);
+
+		assertThat(queue.evict(), sameInstance(first));
+		assertThat(queue.evict(), sameInstance(second));
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldGiveRecentlyUsedItemSecondChance() throws Exception {
+		EvictableItem first = createItem("first");
+		EvictableItem second = createItem("second");
+		queue.add(first);
+		queue.add(second);
+
+		queue.touch(first);
+
+		assertThat(queue.evict(), sameInstance(second));
+		assertThat(queue.evict(), sameInstance(first));
+	}
+
+	@Test
+	public void shouldNotEvictRemovedItem() throws Exception {
+		EvictableItem first = createItem("first");
+		EvictableItem second = createItem("second");
+		queue.add(first);
+		queue.add(second);
+
+		queue.remove(first);
+		queue.remove(first);
+
+		assertThat(queue.evict(), sameInstance(second));
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldEvictFromAllSegments() throws Exception {
+		queue = new ClockEvictionQueue(4);
+		for (int i = 0; i < 10; i++) {
+			queue.add(createItem("key-" + i));
+		}
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(queue.evict().key.startsWith("key-"), is(true));
+		}
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldAllowToClearQueue() throws Exception {
+		queue.add(createItem("first"));
+		queue.add(createItem("second"));
+
+		queue.clear();
+
+		assertThat(queue.evict(), nullValue());
+	}
+
+	private static EvictableItem createItem(String key) {
+		return new EvictableItem(key, EvictableItem.NEVER_EXPIRES, ANY_DATA);
+	}
+}
@@ -0,0 +1,67 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class CoarseDateTimeProviderTest {
+	private static final long TICK_MILLIS = 1L;
+
+	@Mock
+	private DateTimeProvider dateTimeProvider;
+
+	private CoarseDateTimeProvider coarseDateTimeProvider;
+
+	@After
+	public void tearDown() {
+		if (coarseDateTimeProvider != null) {
+			coarseDateTimeProvider.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowNonPositiveTick() throws Exception {
+		coarseDateTimeProvider = new CoarseDateTimeProvider(dateTimeProvider, 0);
+	}
+
+	@Test
+	public void shouldProvideCurrentTimeRightAfterCreation() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(1000L);
+
+		coarseDateTimeProvider = new CoarseDateTimeProvider(dateTimeProvider, TICK_MILLIS);
+
+		assertThat(coarseDateTimeProvider.getCurrentTimeInMillis(), equalTo(1000L));
+	}
+
+	@Test
+	public void shouldRefreshCurrentTimeEachTick() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(1000L);
+		coarseDateTimeProvider = new CoarseDateTimeProvider(dateTimeProvider, TICK_MILLIS);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(2000L);
+		TimeUnit.MILLISECONDS.sleep(100);
+
+		assertThat(coarseDateTimeProvider.getCurrentTimeInMillis(), equalTo(2000L));
+	}
+
+	@Test
+	public void shouldDelegateDateTimeConversion() throws Exception {
+		LocalDateTime dateTime = LocalDateTime.now();
+		when(dateTimeProvider.getDateTimeFrom(1000L)).thenReturn(dateTime);
+		coarseDateTimeProvider = new CoarseDateTimeProvider(dateTimeProvider, TICK_MILLIS);
+
+		assertThat(coarseDateTimeProvider.getDateTimeFrom(1000L), equalTo(dateTime));
+	}
+}
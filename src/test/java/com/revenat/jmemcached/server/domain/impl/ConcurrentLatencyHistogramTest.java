@@ -0,0 +1,82 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ConcurrentLatencyHistogramTest {
+
+	private ConcurrentLatencyHistogram histogram = new ConcurrentLatencyHistogram();
+
+	@Test
+	public void shouldKeepEachSmallValueInItsOwnBucket() throws Exception {
+		for (int value = 0; value < 16; value++) {
+			assertThat(ConcurrentLatencyHistogram.bucketLowerBound(ConcurrentLatencyHistogram.bucketIndex(value)), equalTo((long) value));
+			assertThat(ConcurrentLatencyHistogram.bucketUpperBound(ConcurrentLatencyHistogram.bucketIndex(value)), equalTo((long) value));
+		}
+	}
+
+	@Test
+	public void shouldPutValuesIntoAdjacentBucketsWithoutGaps() throws Exception {
+		for (int index = 0; index < ConcurrentLatencyHistogram.BUCKET_COUNT - 1; index++) {
+			long lowerBound = ConcurrentLatencyHistogram.bucketLowerBound(index);
+			long upperBound = ConcurrentLatencyHistogram.bucketUpperBound(index);
+
+			assertThat(ConcurrentLatencyHistogram.bucketIndex(lowerBound), equalTo(index));
+			assertThat(ConcurrentLatencyHistogram.bucketIndex(upperBound), equalTo(index));
+			assertThat(ConcurrentLatencyHistogram.bucketLowerBound(index + 1), equalTo(upperBound + 1));
+		}
+	}
+
+	@Test
+	public void shouldKeepRelativeErrorOfBucketBelowOneSixteenth() throws Exception {
+		for (int index = 16; index < ConcurrentLatencyHistogram.BUCKET_COUNT - 1; index++) {
+			long lowerBound = ConcurrentLatencyHistogram.bucketLowerBound(index);
+			long upperBound = ConcurrentLatencyHistogram.bucketUpperBound(index);
+
+			assertThat((double) (upperBound - lowerBound) / lowerBound, lessThanOrEqualTo(1.0 / 16));
+		}
+	}
+
+	@Test
+	public void shouldPutHugeAndNegativeValuesIntoEdgeBuckets() throws Exception {
+		assertThat(ConcurrentLatencyHistogram.bucketIndex(Long.MAX_VALUE), equalTo(ConcurrentLatencyHistogram.BUCKET_COUNT - 1));
+		assertThat(ConcurrentLatencyHistogram.bucketIndex(-1L), equalTo(0));
+	}
+
+	@Test
+	public void shouldReturnZeroPercentileIfNothingRecorded() throws Exception {
+		assertThat(histogram.getPercentile(99.0), equalTo(0L));
+	}
+
+	@Test
+	public void shouldReturnPercentileOfRecordedValues() throws Exception {
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+
+		assertWithinBucketError(histogram.getPercentile(50.0), 500_000L);
+		assertWithinBucketError(histogram.getPercentile(99.0), 990_000L);
+		assertWithinBucketError(histogram.getPercentile(100.0), 1_000_000L);
+	}
+
+	@Test
+	public void shouldCountRecordedValuesByBuckets() throws Exception {
+		histogram.record(5L);
+		histogram.record(5L);
+		histogram.record(1000L);
+
+		long[] counts = histogram.getCounts();
+
+		assertThat(counts[ConcurrentLatencyHistogram.bucketIndex(5L)], equalTo(2L));
+		assertThat(counts[ConcurrentLatencyHistogram.bucketIndex(1000L)], equalTo(1L));
+	}
+
+	private static void assertWithinBucketError(long actual, long expected) {
+		assertThat(actual, greaterThanOrEqualTo(expected));
+		assertThat(actual, lessThanOrEqualTo(expected + expected / 16));
+	}
+}
@@ -1,5 +1,7 @@
 package com.revenat.jmemcached.server.domain.impl;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeast;
@@ -24,6 +26,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import com.revenat.jmemcached.exception.JMemcachedException;
 import com.revenat.jmemcached.server.domain.RequestProcessor;
 
 @RunWith(MockitoJUnitRunner.Silent.class)
@@ -89,6 +92,14 @@ public class DefaultClientConnectionHandlerTest {
 		assertTrue("Client socket should be closed", clientSocket.isClosed());
 	}
 	
+	@Test
+	public void shouldCloseClientSocketWithoutHandlingRequestsIfRejected() throws Exception {
+		socketHandler.reject();
+		
+		assertTrue("Client socket should be closed", clientSocket.isClosed());
+		verifyZeroInteractions(requestProcessor);
+	}
+	
 	@Test
 	public void shouldNotHandleClientRequestIfWorkingThreadWasInterrupted() throws Exception {
 		Thread t = createInterruptedThread(socketHandler);
@@ -99,6 +110,51 @@ public class DefaultClientConnectionHandlerTest {
 		verifyZeroInteractions(requestProcessor);
 	}
 
+	@Test
+	public void shouldSendResponsesToPipelinedRequestsInSingleWrite() throws Exception {
+		WriteCountingOutputStream output = new WriteCountingOutputStream();
+		socketHandler = new DefaultClientConnectionHandler(
+				new SocketStub(new ByteArrayInputStream(new byte[] {1, 2, 3}), output), requestProcessor);
+		respondWithRequestByteFlushingEachResponse();
+		
+		socketHandler.run();
+		
+		assertThat(output.toByteArray(), equalTo(new byte[] {1, 2, 3}));
+		assertThat(output.writeCount, equalTo(1));
+	}
+	
+	@Test
+	public void shouldSendPendingResponsesIfProcessingFails() throws Exception {
+		WriteCountingOutputStream output = new WriteCountingOutputStream();
+		socketHandler = new DefaultClientConnectionHandler(
+				new SocketStub(new ByteArrayInputStream(new byte[] {1, 2}), output), requestProcessor);
+		doAnswer(invocation -> {
+			OutputStream out = invocation.getArgument(1);
+			out.write(1);
+			out.flush();
+			return null;
+		}).doThrow(new JMemcachedException("Process request failed"))
+		.when(requestProcessor).process(any(InputStream.class), any(OutputStream.class));
+		
+		socketHandler.run();
+		
+		assertThat(output.toByteArray(), equalTo(new byte[] {1}));
+	}
+	
+	private void respondWithRequestByteFlushingEachResponse() throws IOException {
+		doAnswer(invocation -> {
+			InputStream in = invocation.getArgument(0);
+			OutputStream out = invocation.getArgument(1);
+			int request = in.read();
+			if (request < 0) {
+				throw new EOFException();
+			}
+			out.write(request);
+			out.flush();
+			return null;
+		}).when(requestProcessor).process(any(InputStream.class), any(OutputStream.class));
+	}
+	
 	private static Thread createSeparateThread(DefaultClientConnectionHandler socketHandler) {
 		Thread t = new Thread(socketHandler);
 		t.setDaemon(true);
@@ -117,6 +173,22 @@ public class DefaultClientConnectionHandlerTest {
 		return t;
 	}
 
+	private static class WriteCountingOutputStream extends ByteArrayOutputStream {
+		private int writeCount;
+		
+		@Override
+		public synchronized void write(int b) {
+			writeCount++;
+			super.write(b);
+		}
+		
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			writeCount++;
+			super.write(b, off, len);
+		}
+	}
+	
 	private static class SocketStub extends Socket {
 		private InputStream input;
 		private OutputStream output;
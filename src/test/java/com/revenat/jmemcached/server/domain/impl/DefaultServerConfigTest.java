@@ -2,10 +2,12 @@ package com.revenat.jmemcached.server.domain.impl;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Paths;
 import java.util.Properties;
 
 import org.junit.Before;
@@ -17,7 +19,13 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import com.revenat.jmemcached.exception.JMemcachedConfigException;
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
 import com.revenat.jmemcached.server.domain.ResourceLoader;
+import com.revenat.jmemcached.server.domain.ServerTransport;
+import com.revenat.jmemcached.server.domain.SnapshotLoadMode;
+import com.revenat.jmemcached.server.domain.WriteLogSyncPolicy;
+import com.revenat.jmemcached.server.domain.StorageEngine;
+import com.revenat.jmemcached.server.domain.WorkerThreadType;
 
 @RunWith(MockitoJUnitRunner.Silent.class)
 public class DefaultServerConfigTest {
@@ -222,6 +230,391 @@ public class DefaultServerConfigTest {
 		serverConfig.getMaxThreadCount();
 	}
 	
+	@Test
+	public void shouldUseBlockingTransportByDefault() throws Exception {
+		assertThat(serverConfig.getTransport(), equalTo(ServerTransport.BLOCKING));
+	}
+	
+	@Test
+	public void shouldAllowToGetTransportValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.server.transport", "nio");
+		
+		assertThat(serverConfig.getTransport(), equalTo(ServerTransport.NIO));
+	}
+	
+	@Test
+	public void shouldThrowExceptionIfTransportValueIsUnknown() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be one of"));
+		
+		createServerConfigWithOverride("jmemcached.server.transport", "carrier-pigeon");
+	}
+	
+	@Test
+	public void shouldUseCountOfAvailableProcessorsAsDefaultEventLoopCount() throws Exception {
+		assertThat(serverConfig.getEventLoopCount(), equalTo(Runtime.getRuntime().availableProcessors()));
+	}
+	
+	@Test
+	public void shouldAllowToGetEventLoopCountValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.server.event.loop.count", "3");
+		
+		assertThat(serverConfig.getEventLoopCount(), equalTo(3));
+	}
+	
+	@Test
+	public void shouldNotAllowToGetEventLoopCountValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be >= 1"));
+		
+		createServerConfigWithOverride("jmemcached.server.event.loop.count", "0");
+	}
+	
+	@Test
+	public void shouldUsePlatformWorkerThreadsByDefault() throws Exception {
+		assertThat(serverConfig.getWorkerThreadType(), equalTo(WorkerThreadType.PLATFORM));
+	}
+	
+	@Test
+	public void shouldAllowToGetWorkerThreadTypeValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.server.worker.thread.type", "virtual");
+		
+		assertThat(serverConfig.getWorkerThreadType(), equalTo(WorkerThreadType.VIRTUAL));
+	}
+	
+	@Test
+	public void shouldThrowExceptionIfWorkerThreadTypeValueIsUnknown() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be one of"));
+		
+		createServerConfigWithOverride("jmemcached.server.worker.thread.type", "green");
+	}
+	
+	@Test
+	public void shouldUseUnboundedStorageByDefault() throws Exception {
+		assertThat(serverConfig.getStorageMaxBytes(), equalTo(0L));
+	}
+	
+	@Test
+	public void shouldAllowToGetStorageMaxBytesValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.max.bytes", "8589934592");
+		
+		assertThat(serverConfig.getStorageMaxBytes(), equalTo(8589934592L));
+	}
+	
+	@Test
+	public void shouldThrowExceptionIfStorageMaxBytesValueCanNotBeObtain() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be a number"));
+		
+		createServerConfigWithOverride("jmemcached.storage.max.bytes", "lots");
+	}
+	
+	@Test
+	public void shouldNotAllowToGetStorageMaxBytesValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be >= 0"));
+		
+		createServerConfigWithOverride("jmemcached.storage.max.bytes", "-1");
+	}
+	
+	@Test
+	public void shouldUseHeapStorageEngineByDefault() throws Exception {
+		assertThat(serverConfig.getStorageEngine(), equalTo(StorageEngine.HEAP));
+	}
+	
+	@Test
+	public void shouldAllowToGetStorageEngineValue() throws Exception {
+		Properties overrides = new Properties();
+		overrides.setProperty("jmemcached.storage.engine", "off_heap");
+		overrides.setProperty("jmemcached.storage.max.bytes", "1073741824");
+		serverConfig = new DefaultServerConfig(overrides, resourceLoader);
+		
+		assertThat(serverConfig.getStorageEngine(), equalTo(StorageEngine.OFF_HEAP));
+	}
+	
+	@Test
+	public void shouldThrowExceptionIfStorageEngineValueIsUnknown() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be one of"));
+		
+		createServerConfigWithOverride("jmemcached.storage.engine", "disk");
+	}
+	
+	@Test
+	public void shouldNotAllowOffHeapStorageEngineWithoutStorageMaxBytes() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be > 0"));
+		
+		createServerConfigWithOverride("jmemcached.storage.engine", "off_heap");
+	}
+	
+	@Test
+	public void shouldUseClockEvictionPolicyByDefault() throws Exception {
+		assertThat(serverConfig.getEvictionPolicy(), equalTo(EvictionPolicy.CLOCK));
+	}
+	
+	@Test
+	public void shouldAllowToGetEvictionPolicyValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.eviction.policy", "w_tiny_lfu");
+		
+		assertThat(serverConfig.getEvictionPolicy(), equalTo(EvictionPolicy.W_TINY_LFU));
+	}
+	
+	@Test
+	public void shouldAllowToGetGdsfEvictionPolicyValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.eviction.policy", "gdsf");
+		
+		assertThat(serverConfig.getEvictionPolicy(), equalTo(EvictionPolicy.GDSF));
+	}
+	
+	@Test
+	public void shouldNotAllowEvictionPolicyOtherThanClockForOffHeapStorage() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("is supported only by HEAP"));
+		
+		createServerConfigWith(createProperties("jmemcached.server.port=5555",
+				"jmemcached.server.init.thread.count=1", "jmemcached.server.max.thread.count=10",
+				"jmemcached.storage.clear.data.interval=10000", "jmemcached.storage.engine=off_heap",
+				"jmemcached.storage.max.bytes=1073741824", "jmemcached.storage.eviction.policy=w_tiny_lfu"));
+	}
+	
+	@Test
+	public void shouldUseFourShardsPerProcessorByDefault() throws Exception {
+		assertThat(serverConfig.getStorageShardCount(), equalTo(Runtime.getRuntime().availableProcessors() * 4));
+	}
+	
+	@Test
+	public void shouldAllowToGetStorageShardCountValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.shard.count", "16");
+		
+		assertThat(serverConfig.getStorageShardCount(), equalTo(16));
+	}
+	
+	@Test
+	public void shouldNotAllowToGetStorageShardCountValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be >= 1"));
+		
+		createServerConfigWithOverride("jmemcached.storage.shard.count", "0");
+	}
+	
+	@Test
+	public void shouldNotPersistStorageByDefault() throws Exception {
+		assertThat(serverConfig.getSnapshotFile(), nullValue());
+		assertThat(serverConfig.getSnapshotInterval(), equalTo(0));
+		assertThat(serverConfig.getSnapshotLoadMode(), equalTo(SnapshotLoadMode.BLOCKING));
+	}
+	
+	@Test
+	public void shouldAllowToGetSnapshotFileValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.snapshot.file", "data/storage.snapshot");
+		
+		assertThat(serverConfig.getSnapshotFile(), equalTo(Paths.get("data/storage.snapshot")));
+	}
+	
+	@Test
+	public void shouldNotAllowSnapshotFileForOffHeapStorageEngine() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("is supported only by HEAP"));
+		
+		createServerConfigWith(createProperties("jmemcached.server.port=5555",
+				"jmemcached.server.init.thread.count=1", "jmemcached.server.max.thread.count=10",
+				"jmemcached.storage.clear.data.interval=10000", "jmemcached.storage.engine=off_heap",
+				"jmemcached.storage.max.bytes=1073741824", "jmemcached.storage.snapshot.file=storage.snapshot"));
+	}
+	
+	@Test
+	public void shouldAllowToGetSnapshotIntervalValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.snapshot.interval", "60000");
+		
+		assertThat(serverConfig.getSnapshotInterval(), equalTo(60000));
+	}
+	
+	@Test
+	public void shouldNotAllowToGetSnapshotIntervalValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be 0 or >= 1000 millis"));
+		
+		createServerConfigWithOverride("jmemcached.storage.snapshot.interval", "10");
+	}
+	
+	@Test
+	public void shouldAllowToGetSnapshotLoadModeValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.snapshot.load.mode", "background");
+		
+		assertThat(serverConfig.getSnapshotLoadMode(), equalTo(SnapshotLoadMode.BACKGROUND));
+	}
+	
+	@Test
+	public void shouldNotLogStorageMutationsByDefault() throws Exception {
+		assertThat(serverConfig.getWriteLogFile(), nullValue());
+		assertThat(serverConfig.getWriteLogSyncPolicy(), equalTo(WriteLogSyncPolicy.INTERVAL));
+		assertThat(serverConfig.getWriteLogSyncInterval(), equalTo(1000));
+	}
+	
+	@Test
+	public void shouldAllowToGetWriteLogFileValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.write.log.file", "data/storage.log");
+		
+		assertThat(serverConfig.getWriteLogFile(), equalTo(Paths.get("data/storage.log")));
+	}
+	
+	@Test
+	public void shouldNotAllowWriteLogFileForOffHeapStorageEngine() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("is supported only by HEAP"));
+		
+		createServerConfigWith(createProperties("jmemcached.server.port=5555",
+				"jmemcached.server.init.thread.count=1", "jmemcached.server.max.thread.count=10",
+				"jmemcached.storage.clear.data.interval=10000", "jmemcached.storage.engine=off_heap",
+				"jmemcached.storage.max.bytes=1073741824", "jmemcached.storage.write.log.file=storage.log"));
+	}
+	
+	@Test
+	public void shouldNotAllowWriteLogFileAlongWithSnapshotFile() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("can not be used along with"));
+		
+		createServerConfigWith(createProperties("jmemcached.server.port=5555",
+				"jmemcached.server.init.thread.count=1", "jmemcached.server.max.thread.count=10",
+				"jmemcached.storage.clear.data.interval=10000", "jmemcached.storage.snapshot.file=storage.snapshot",
+				"jmemcached.storage.write.log.file=storage.log"));
+	}
+	
+	@Test
+	public void shouldAllowToGetWriteLogSyncPolicyValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.storage.write.log.sync", "always");
+		
+		assertThat(serverConfig.getWriteLogSyncPolicy(), equalTo(WriteLogSyncPolicy.ALWAYS));
+	}
+	
+	@Test
+	public void shouldNotAllowToSyncWriteLogBeforeAnsweringForNioTransport() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("is not supported by NIO"));
+		
+		createServerConfigWith(createProperties("jmemcached.server.port=5555",
+				"jmemcached.server.init.thread.count=1", "jmemcached.server.max.thread.count=10",
+				"jmemcached.storage.clear.data.interval=10000", "jmemcached.server.transport=nio",
+				"jmemcached.storage.write.log.file=storage.log", "jmemcached.storage.write.log.sync=always"));
+	}
+	
+	@Test
+	public void shouldNotAllowToGetWriteLogSyncIntervalValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be >= 1 millis"));
+		
+		createServerConfigWithOverride("jmemcached.storage.write.log.sync.interval", "0");
+	}
+	
+	@Test
+	public void shouldQueueConnectionsForOneSecondByDefault() throws Exception {
+		assertThat(serverConfig.getConnectionQueueSize(), equalTo(128));
+		assertThat(serverConfig.getConnectionQueueMaxWait(), equalTo(1000));
+	}
+	
+	@Test
+	public void shouldAllowToDisableConnectionQueue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.server.connection.queue.size", "0");
+		
+		assertThat(serverConfig.getConnectionQueueSize(), equalTo(0));
+	}
+	
+	@Test
+	public void shouldNotAllowToGetConnectionQueueSizeValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be >= 0"));
+		
+		createServerConfigWithOverride("jmemcached.server.connection.queue.size", "-1");
+	}
+	
+	@Test
+	public void shouldNotAllowToGetConnectionQueueMaxWaitValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be >= 1 millis"));
+		
+		createServerConfigWithOverride("jmemcached.server.connection.queue.max.wait", "0");
+	}
+	
+	@Test
+	public void shouldNotServeMetricsByDefault() throws Exception {
+		assertThat(serverConfig.getMetricsPort(), equalTo(0));
+	}
+	
+	@Test
+	public void shouldNotAllowToGetMetricsPortValueIfItOutOfBound() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should be between 0 and 65535"));
+		
+		createServerConfigWithOverride("jmemcached.server.metrics.port", "70000");
+	}
+	
+	@Test
+	public void shouldNotAllowToServeMetricsOnServerPort() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should differ from jmemcached.server.port"));
+		
+		createServerConfigWithOverride("jmemcached.server.metrics.port",
+				String.valueOf(serverConfig.getServerPort()));
+	}
+	
+	@Test
+	public void shouldNotServeTextProtocolByDefault() throws Exception {
+		assertThat(serverConfig.getTextPort(), equalTo(0));
+	}
+	
+	@Test
+	public void shouldAllowToGetTextPortValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.server.text.port", "11211");
+		
+		assertThat(serverConfig.getTextPort(), equalTo(11211));
+	}
+	
+	@Test
+	public void shouldNotAllowToServeTextProtocolOnServerPort() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should differ from jmemcached.server.port"));
+		
+		createServerConfigWithOverride("jmemcached.server.text.port",
+				String.valueOf(serverConfig.getServerPort()));
+	}
+	
+	@Test
+	public void shouldNotServeBinaryProtocolByDefault() throws Exception {
+		assertThat(serverConfig.getBinaryPort(), equalTo(0));
+	}
+	
+	@Test
+	public void shouldAllowToGetBinaryPortValue() throws Exception {
+		serverConfig = createServerConfigWithOverride("jmemcached.server.binary.port", "11212");
+		
+		assertThat(serverConfig.getBinaryPort(), equalTo(11212));
+	}
+	
+	@Test
+	public void shouldNotAllowBinaryPortValueGreaterThan65535() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("jmemcached.server.binary.port should be between 0 and 65535"));
+		
+		createServerConfigWithOverride("jmemcached.server.binary.port", "65536");
+	}
+	
+	@Test
+	public void shouldNotAllowToServeBinaryProtocolOnServerPort() throws Exception {
+		expected.expect(JMemcachedConfigException.class);
+		expected.expectMessage(containsString("should differ from jmemcached.server.port"));
+		
+		createServerConfigWithOverride("jmemcached.server.binary.port",
+				String.valueOf(serverConfig.getServerPort()));
+	}
+	
+	private DefaultServerConfig createServerConfigWithOverride(String propertyName, String propertyValue) {
+		Properties overrideProperties = new Properties();
+		overrideProperties.setProperty(propertyName, propertyValue);
+		return new DefaultServerConfig(overrideProperties, resourceLoader);
+	}
+	
 	private DefaultServerConfig createServerConfigWith(Properties properties) {
 		when(resourceLoader.loadProperties(anyString())).thenReturn(properties);
 		return new DefaultServerConfig(null, resourceLoader);
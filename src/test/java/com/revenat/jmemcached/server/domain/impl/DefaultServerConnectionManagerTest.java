@@ -1,9 +1,14 @@
 package com.revenat.jmemcached.server.domain.impl;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -14,6 +19,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
 import com.revenat.jmemcached.server.domain.exception.ConnectionRejectedException;
 
 public class DefaultServerConnectionManagerTest {
@@ -75,6 +81,95 @@ public class DefaultServerConnectionManagerTest {
 		assertTrue("Thread pool should be shut down", threadPool.isShutdown());
 	}
 
+	@Test
+	public void shouldTellClientItIsRejectedIfNoFreeWorkerThreadAvailable() throws Exception {
+		ClientConnectionHandlerStub connectionHandler = new ClientConnectionHandlerStub();
+		submitNewConnection(connectionHandler, 2);
+
+		try {
+			manager.establishConnection(connectionHandler);
+			fail("Connection should be rejected");
+		} catch (ConnectionRejectedException e) {
+			assertTrue("Client should be told it's rejected", connectionHandler.isRejected());
+			assertThat(manager.getStatistics().getRejectedConnectionCount(), equalTo(1L));
+		}
+	}
+
+	@Test
+	public void shouldRejectConnectionWhichHasWaitedForWorkerThreadForTooLong() throws Exception {
+		ThreadPoolExecutor singleThreadPool = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), createThreadFactory());
+		manager.shutdown();
+		manager = new DefaultServerConnectionManager(singleThreadPool, 100L);
+		ClientConnectionHandlerStub busyConnection = new ClientConnectionHandlerStub();
+		ClientConnectionHandlerStub queuedConnection = new ClientConnectionHandlerStub();
+
+		manager.establishConnection(busyConnection);
+		manager.establishConnection(queuedConnection);
+		TimeUnit.MILLISECONDS.sleep(600);
+
+		assertTrue("Busy connection should be handled", busyConnection.isHandled());
+		assertFalse("Timed out connection should not be handled", queuedConnection.isHandled());
+		assertTrue("Timed out connection should be rejected", queuedConnection.isRejected());
+		ConnectionStatistics statistics = manager.getStatistics();
+		assertThat(statistics.getAdmittedConnectionCount(), equalTo(1L));
+		assertThat(statistics.getTimedOutConnectionCount(), equalTo(1L));
+		assertThat(statistics.getQueuedConnectionCount(), equalTo(0L));
+		assertThat(statistics.getCurrentConnectionCount(), equalTo(0L));
+		assertThat(statistics.getMaxQueueWaitMillis(), greaterThanOrEqualTo(100L));
+	}
+
+	@Test
+	public void shouldRejectQueuedConnectionOnceItsWaitIsUpWhileWorkerThreadIsStillBusy() throws Exception {
+		ThreadPoolExecutor singleThreadPool = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), createThreadFactory());
+		manager.shutdown();
+		manager = new DefaultServerConnectionManager(singleThreadPool, 100L);
+		ClientConnectionHandlerStub busyConnection = new ClientConnectionHandlerStub(2_000L);
+		ClientConnectionHandlerStub queuedConnection = new ClientConnectionHandlerStub();
+
+		manager.establishConnection(busyConnection);
+		manager.establishConnection(queuedConnection);
+		TimeUnit.MILLISECONDS.sleep(500);
+
+		assertFalse("Busy connection should still hold the worker thread", busyConnection.isHandled());
+		assertTrue("Queued connection should be rejected within max wait", queuedConnection.isRejected());
+		assertThat(singleThreadPool.getQueue().size(), equalTo(0));
+		ConnectionStatistics statistics = manager.getStatistics();
+		assertThat(statistics.getTimedOutConnectionCount(), equalTo(1L));
+		assertThat(statistics.getQueuedConnectionCount(), equalTo(0L));
+	}
+
+	@Test
+	public void shouldServeConnectionWhichHasWaitedForWorkerThreadWithinLimit() throws Exception {
+		ThreadPoolExecutor singleThreadPool = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), createThreadFactory());
+		manager.shutdown();
+		manager = new DefaultServerConnectionManager(singleThreadPool, 10_000L);
+		ClientConnectionHandlerStub queuedConnection = new ClientConnectionHandlerStub();
+
+		manager.establishConnection(new ClientConnectionHandlerStub());
+		manager.establishConnection(queuedConnection);
+		TimeUnit.MILLISECONDS.sleep(900);
+
+		assertTrue("Queued connection should be handled", queuedConnection.isHandled());
+		assertFalse("Queued connection should not be rejected", queuedConnection.isRejected());
+		assertThat(manager.getStatistics().getAdmittedConnectionCount(), equalTo(2L));
+	}
+
+	@Test
+	public void shouldReportWorkerThreadsOfThreadPool() throws Exception {
+		submitNewConnection(new ClientConnectionHandlerStub(), 2);
+		TimeUnit.MILLISECONDS.sleep(100);
+
+		ConnectionStatistics statistics = manager.getStatistics();
+		assertThat(statistics.getActiveWorkerCount(), equalTo(2));
+		assertThat(statistics.getWorkerCount(), equalTo(2));
+		assertThat(statistics.getLargestWorkerCount(), equalTo(2));
+		assertThat(statistics.getMaxWorkerCount(), equalTo(MAX_NUMBER_OF_WORKER_THREADS));
+		assertThat(statistics.getCurrentConnectionCount(), equalTo(2L));
+	}
+
 	private void submitNewConnection(ClientConnectionHandler connectionHandler, int times) {
 		for (int i = 0; i < times; i++) {
 			manager.establishConnection(connectionHandler);
@@ -82,19 +177,38 @@ public class DefaultServerConnectionManagerTest {
 	}
 
 	private static class ClientConnectionHandlerStub implements ClientConnectionHandler {
-		private boolean isHandled = false;
+		private final long handlingMillis;
+		private volatile boolean isHandled = false;
+		private volatile boolean isRejected = false;
+
+		ClientConnectionHandlerStub() {
+			this(300L);
+		}
+
+		ClientConnectionHandlerStub(long handlingMillis) {
+			this.handlingMillis = handlingMillis;
+		}
 
 		@Override
 		public void run() {
 			try {
-				TimeUnit.MILLISECONDS.sleep(300);
+				TimeUnit.MILLISECONDS.sleep(handlingMillis);
 			} catch (InterruptedException e) {
 			}
 			isHandled = true;
 		}
 
+		@Override
+		public void reject() {
+			isRejected = true;
+		}
+
 		public boolean isHandled() {
 			return isHandled;
 		}
+
+		public boolean isRejected() {
+			return isRejected;
+		}
 	}
 }
@@ -1,11 +1,15 @@
 package com.revenat.jmemcached.server.domain.impl;
 
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,9 +24,12 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import com.revenat.jmemcached.exception.JMemcachedConfigException;
 import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
 import com.revenat.jmemcached.server.domain.ServerConfig;
 import com.revenat.jmemcached.server.domain.ServerConnectionManager;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
 
 @RunWith(MockitoJUnitRunner.Silent.class)
 public class DefaultServerContextTest {
@@ -49,7 +56,7 @@ public class DefaultServerContextTest {
 		connectionManagerStub = new ServerConnectionManagerStub();
 		connectionHandlerStub = () -> {};
 		serverSocketFactory = new ServerSocketFactoryStub(serverSocketStub);
-		when(connectionManagerFactory.createServerConnectionManager(anyInt(), anyInt())).thenReturn(connectionManagerStub);
+		when(connectionManagerFactory.createServerConnectionManager(anyInt(), anyInt(), anyInt(), anyLong())).thenReturn(connectionManagerStub);
 		when(handlerFactory.createClientConnectionHandler(any(Socket.class))).thenReturn(connectionHandlerStub);
 		
 		context = new DefaultServerContext(serverConfig, serverSocketFactory, connectionManagerFactory, handlerFactory);
@@ -87,7 +94,7 @@ public class DefaultServerContextTest {
 		ServerConnectionManager connectionManager = context.getServerConnectionManager();
 		
 		assertThat(connectionManager, sameInstance(connectionManagerStub));
-		verify(connectionManagerFactory, times(1)).createServerConnectionManager(anyInt(), anyInt());
+		verify(connectionManagerFactory, times(1)).createServerConnectionManager(anyInt(), anyInt(), anyInt(), anyLong());
 	}
 	
 	@Test
@@ -98,6 +105,93 @@ public class DefaultServerContextTest {
 		verify(handlerFactory, times(1)).createClientConnectionHandler(any(Socket.class));
 	}
 	
+	@Test
+	public void shouldReturnChannelRequestProcessorProvidedByClientConnectionHandlerFactory() throws Exception {
+		ChannelRequestProcessor channelRequestProcessor = mock(ChannelRequestProcessor.class);
+		when(handlerFactory.getChannelRequestProcessor()).thenReturn(channelRequestProcessor);
+		
+		assertThat(context.getChannelRequestProcessor(), sameInstance(channelRequestProcessor));
+	}
+	
+	@Test
+	public void shouldNotCreateTextServerSocketIfTextPortIsNotConfigured() throws Exception {
+		assertThat(context.getTextServerSocket(), nullValue());
+	}
+	
+	@Test
+	public void shouldCreateAndCloseTextServerSocketIfTextPortIsConfigured() throws Exception {
+		ServerSocket textServerSocketStub = new ServerSocketStub(ANY_CLIENT_SOCKET);
+		when(serverConfig.getServerPort()).thenReturn(9010);
+		when(serverConfig.getTextPort()).thenReturn(11211);
+		when(handlerFactory.getStorageStatistics()).thenReturn(mock(StorageStatistics.class));
+		when(handlerFactory.getRequestRecorder()).thenReturn(new RequestRecorder());
+		ServerSocketFactory socketFactory = new ServerSocketFactory() {
+			@Override
+			ServerSocket createServerSocket(int serverPort) {
+				return serverPort == 11211 ? textServerSocketStub : serverSocketStub;
+			}
+		};
+		
+		context = new DefaultServerContext(serverConfig, socketFactory, connectionManagerFactory, handlerFactory);
+		context.close();
+		
+		assertThat(context.getTextServerSocket(), sameInstance(textServerSocketStub));
+		assertTrue("Text protocol ServerSocket should be closed", textServerSocketStub.isClosed());
+	}
+	
+	@Test
+	public void shouldNotCreateBinaryServerSocketIfBinaryPortIsNotConfigured() throws Exception {
+		assertThat(context.getBinaryServerSocket(), nullValue());
+	}
+	
+	@Test
+	public void shouldCreateAndCloseBinaryServerSocketIfBinaryPortIsConfigured() throws Exception {
+		ServerSocket binaryServerSocketStub = new ServerSocketStub(ANY_CLIENT_SOCKET);
+		when(serverConfig.getServerPort()).thenReturn(9010);
+		when(serverConfig.getBinaryPort()).thenReturn(11212);
+		when(handlerFactory.getStorageStatistics()).thenReturn(mock(StorageStatistics.class));
+		when(handlerFactory.getRequestRecorder()).thenReturn(new RequestRecorder());
+		ServerSocketFactory socketFactory = new ServerSocketFactory() {
+			@Override
+			ServerSocket createServerSocket(int serverPort) {
+				return serverPort == 11212 ? binaryServerSocketStub : serverSocketStub;
+			}
+		};
+		
+		context = new DefaultServerContext(serverConfig, socketFactory, connectionManagerFactory, handlerFactory);
+		context.close();
+		
+		assertThat(context.getBinaryServerSocket(), sameInstance(binaryServerSocketStub));
+		assertTrue("Binary protocol ServerSocket should be closed", binaryServerSocketStub.isClosed());
+	}
+	
+	@Test
+	public void shouldCloseOtherServerSocketsIfBinaryServerSocketCanNotBeCreated() throws Exception {
+		ServerSocket textServerSocketStub = new ServerSocketStub(ANY_CLIENT_SOCKET);
+		when(serverConfig.getServerPort()).thenReturn(9010);
+		when(serverConfig.getTextPort()).thenReturn(11211);
+		when(serverConfig.getBinaryPort()).thenReturn(11212);
+		ServerSocketFactory socketFactory = new ServerSocketFactory() {
+			@Override
+			ServerSocket createServerSocket(int serverPort) {
+				if (serverPort == 11212) {
+					throw new JMemcachedConfigException("Port is in use");
+				}
+				return serverPort == 11211 ? textServerSocketStub : serverSocketStub;
+			}
+		};
+		
+		try {
+			new DefaultServerContext(serverConfig, socketFactory, connectionManagerFactory, handlerFactory);
+			fail("Should not create context if binary protocol ServerSocket can not be created");
+		} catch (JMemcachedConfigException e) {
+			// expected
+		}
+		
+		assertTrue("ServerSocket should be closed", serverSocketStub.isClosed());
+		assertTrue("Text protocol ServerSocket should be closed", textServerSocketStub.isClosed());
+	}
+	
 	@Test
 	public void shouldCloseServerSocketWhenClosed() throws Exception {
 		assertFalse("ServerSocket should be opened", serverSocketStub.isClosed());
@@ -143,6 +237,11 @@ public class DefaultServerContextTest {
 		public void establishConnection(ClientConnectionHandler connectionHandler) {
 		}
 
+		@Override
+		public ConnectionStatistics getStatistics() {
+			return mock(ConnectionStatistics.class);
+		}
+
 		@Override
 		public void shutdown() {
 			isClosed = true;
@@ -4,6 +4,10 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
@@ -14,6 +18,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import com.revenat.jmemcached.protocol.model.Status;
 import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.StorageItem;
 
 @RunWith(MockitoJUnitRunner.Silent.class)
 public class DefaultServerStorageTest {
@@ -40,9 +46,12 @@ public class DefaultServerStorageTest {
 		storage.put("one", null);
 	}
 
-	@Test(expected = IllegalArgumentException.class)
-	public void shouldNotAllowToPutWithEmptyData() throws Exception {
-		storage.put("one", new byte[0]);
+	@Test
+	public void shouldStoreEmptyData() throws Exception {
+		Status status = storage.put("one", new byte[0]);
+
+		assertThat(status, equalTo(Status.ADDED));
+		assertThat(storage.getAll(Arrays.asList("one", "two")).get("one"), equalTo(new byte[0]));
 	}
 	
 	@Test
@@ -81,6 +90,14 @@ public class DefaultServerStorageTest {
 		assertThat(result.length, equalTo(0));
 	}
 	
+	@Test
+	public void shouldFindNoDataForUnknownKey() throws Exception {
+		storage.put("one", new byte[0]);
+		
+		assertThat(storage.find("one"), equalTo(new byte[0]));
+		assertThat(storage.find("two"), nullValue());
+	}
+	
 	@Test(expected = NullPointerException.class)
 	public void shouldNotAllowToRemoveWithEmptyKey() throws Exception {
 		storage.remove(null);
@@ -145,6 +162,178 @@ public class DefaultServerStorageTest {
 		assertEmptyData(storage.get("one"));
 	}
 
+	@Test
+	public void shouldReturnRemainingTtlOfData() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(0L);
+		storage.put("one", 500L, ANY_DATA);
+		storage.put("two", ANY_DATA);
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(200L);
+		
+		assertThat(storage.getTtl("one"), equalTo(300L));
+		assertThat(storage.getTtl("two"), equalTo(-1L));
+		assertThat(storage.getTtl("three"), equalTo(-1L));
+	}
+	
+	@Test
+	public void shouldExposeStatistics() throws Exception {
+		storage.put("one", ANY_DATA);
+		storage.put("two", ANY_DATA);
+		
+		StorageStatistics statistics = storage.getStatistics();
+		
+		assertThat(statistics.getItemCount(), equalTo(2L));
+		assertThat(statistics.getUsedBytes(), greaterThan(2L * ANY_DATA.length));
+		assertThat(statistics.getMaxBytes(), equalTo(0L));
+		assertThat(statistics.getEvictionCount(), equalTo(0L));
+	}
+	
+	@Test
+	public void shouldCountEvictionsIfBounded() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 200L, 1);
+		storage.put("one", ANY_DATA);
+		storage.put("two", ANY_DATA);
+		
+		assertThat(storage.getStatistics().getEvictionCount(), equalTo(1L));
+		assertEmptyData(storage.get("one"));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToGetAllWithNullKey() throws Exception {
+		storage.getAll(Arrays.asList("one", null));
+	}
+	
+	@Test
+	public void shouldReturnFoundDataForAllKeysInRequestedOrder() throws Exception {
+		storage.put("one", new byte[] {1});
+		storage.put("three", new byte[] {3});
+		storage.put("four", new byte[] {4});
+		
+		Map<String, byte[]> result = storage.getAll(Arrays.asList("four", "one", "two", "three"));
+		
+		assertThat(result.keySet(), contains("four", "one", "three"));
+		assertThat(result.get("one"), equalTo(new byte[] {1}));
+		assertThat(result.get("three"), equalTo(new byte[] {3}));
+		assertThat(result.get("four"), equalTo(new byte[] {4}));
+	}
+	
+	@Test
+	public void shouldGetAllKeysFromDifferentShards() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0L, 8);
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			keys.add("key-" + i);
+			storage.put("key-" + i, ANY_DATA);
+		}
+		
+		Map<String, byte[]> result = storage.getAll(keys);
+		
+		assertThat(new ArrayList<>(result.keySet()), equalTo(keys));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowToCreateWithoutShards() throws Exception {
+		new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0L, 0);
+	}
+	
+	@Test
+	public void shouldSpreadItemsOverShards() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0L, 8);
+		for (int i = 0; i < 100; i++) {
+			storage.put("key-" + i, ANY_DATA);
+		}
+		
+		assertThat(storage.getStatistics().getItemCount(), equalTo(100L));
+		for (int i = 0; i < 100; i++) {
+			assertThat(storage.get("key-" + i), equalTo(ANY_DATA));
+		}
+		storage.clear();
+		assertThat(storage.getStatistics().getItemCount(), equalTo(0L));
+	}
+	
+	@Test
+	public void shouldSplitMaxBytesBetweenShards() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 8000L, 8);
+		for (int i = 0; i < 1000; i++) {
+			storage.put("key-" + i, ANY_DATA);
+		}
+		
+		assertThat(storage.getStatistics().getMaxBytes(), equalTo(8000L));
+		assertThat(storage.getStatistics().getUsedBytes(), lessThanOrEqualTo(8000L));
+		assertThat(storage.getStatistics().getEvictionCount(), greaterThan(0L));
+	}
+	
+	@Test
+	public void shouldStoreItemLargerThanShareOfShardIfItFitsMaxBytes() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 8000L, 8);
+		for (int i = 0; i < 1000; i++) {
+			storage.put("key-" + i, ANY_DATA);
+		}
+		byte[] largeData = new byte[3000];
+		
+		storage.put("large", largeData);
+		
+		assertThat(storage.get("large"), equalTo(largeData));
+		assertThat(storage.getStatistics().getUsedBytes(), lessThanOrEqualTo(8000L));
+	}
+	
+	@Test
+	public void shouldGiveBackShareOfShardsOnceLargeItemIsRemoved() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 8000L, 8);
+		storage.put("large", new byte[3000]);
+		storage.remove("large");
+		
+		for (int i = 0; i < 1000; i++) {
+			storage.put("key-" + i, ANY_DATA);
+		}
+		
+		assertThat(storage.getStatistics().getUsedBytes(), greaterThan(8000L - 3000L));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowItemLargerThanMaxBytes() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 8000L, 8);
+		
+		storage.put("large", new byte[8000]);
+	}
+	
+	@Test
+	public void shouldNotRestoreItemRemovedWhileRestoring() throws Exception {
+		storage.startRestore();
+		storage.remove("one");
+		storage.restore("one", StorageItem.NEVER_EXPIRES, ANY_DATA);
+		storage.restore("two", StorageItem.NEVER_EXPIRES, ANY_DATA);
+		storage.finishRestore();
+
+		assertThat(storage.getAll(Arrays.asList("one", "two")).keySet(), contains("two"));
+	}
+
+	@Test
+	public void shouldNotRestoreItemsOnceClearedWhileRestoring() throws Exception {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0L, 8);
+		storage.startRestore();
+		storage.restore("one", StorageItem.NEVER_EXPIRES, ANY_DATA);
+		storage.clear();
+		storage.restore("two", StorageItem.NEVER_EXPIRES, ANY_DATA);
+		storage.put("three", ANY_DATA);
+		storage.finishRestore();
+
+		assertThat(storage.getItemCount(), equalTo(1L));
+		assertThat(storage.get("three"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldMapKeyHashesToAllShardsEvenly() throws Exception {
+		int shardCount = 16;
+		int[] counts = new int[shardCount];
+		for (int i = 0; i < 16_000; i++) {
+			counts[DefaultServerStorage.shardIndex(("key-" + i).hashCode(), shardCount)]++;
+		}
+		
+		for (int count : counts) {
+			assertThat(count, greaterThan(800));
+		}
+	}
+	
 	private void makeTimePass(long elapsedTime) throws InterruptedException {
 		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(elapsedTime);
 		TimeUnit.MILLISECONDS.sleep(elapsedTime);
@@ -1,21 +1,32 @@
 package com.revenat.jmemcached.server.domain.impl;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.nio.file.Path;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.MBeanServerFactory;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
 import com.revenat.jmemcached.server.domain.ServerConfig;
+import com.revenat.jmemcached.server.domain.ServerTransport;
+import com.revenat.jmemcached.server.domain.SnapshotLoadMode;
+import com.revenat.jmemcached.server.domain.WriteLogSyncPolicy;
+import com.revenat.jmemcached.server.domain.StorageEngine;
+import com.revenat.jmemcached.server.domain.WorkerThreadType;
 
 @RunWith(MockitoJUnitRunner.Silent.class)
 public class DefaultServerTest {
@@ -25,6 +36,10 @@ public class DefaultServerTest {
 	
 	@Mock
 	private ServerTask serverTask;
+	@Mock
+	private StoragePersistence storagePersistence;
+	@Mock
+	private MetricsEndpoint metricsEndpoint;
 	private ServerConfig serverConfigStub = new ServerConfigStub();
 	
 	private DefaultServer server;
@@ -74,6 +89,51 @@ public class DefaultServerTest {
 		verify(serverTask, times(1)).shutdown();
 	}
 	
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullStoragePersistence() throws Exception {
+		server = new DefaultServer(serverTask, serverConfigStub, null);
+	}
+	
+	@Test
+	public void shouldRestoreStorageBeforeServerTaskStarts() throws Exception {
+		server = new DefaultServer(serverTask, serverConfigStub, storagePersistence);
+		
+		server.start();
+		TimeUnit.MILLISECONDS.sleep(200);
+		
+		InOrder inOrder = inOrder(storagePersistence, serverTask);
+		inOrder.verify(storagePersistence).restore();
+		inOrder.verify(serverTask).run();
+	}
+	
+	@Test
+	public void shouldPersistStorageAfterServerTaskShutdown() throws Exception {
+		server = new DefaultServer(serverTask, serverConfigStub, storagePersistence);
+		
+		server.start();
+		server.stop();
+		
+		InOrder inOrder = inOrder(serverTask, storagePersistence);
+		inOrder.verify(serverTask).shutdown();
+		inOrder.verify(storagePersistence).close();
+	}
+	
+	@Test
+	public void shouldServeMetricsWhileServerIsRunning() throws Exception {
+		server = new DefaultServer(serverTask, serverConfigStub, storagePersistence,
+				new ManagementBeans(MBeanServerFactory.newMBeanServer(), 0), metricsEndpoint);
+		
+		server.start();
+		TimeUnit.MILLISECONDS.sleep(200);
+		server.stop();
+		
+		InOrder inOrder = inOrder(metricsEndpoint, serverTask);
+		inOrder.verify(metricsEndpoint).start();
+		inOrder.verify(serverTask).run();
+		inOrder.verify(serverTask).shutdown();
+		inOrder.verify(metricsEndpoint).close();
+	}
+	
 	private static class ServerConfigStub implements ServerConfig {
 		@Override
 		public int getClearDataInterval() {
@@ -85,6 +145,21 @@ public class DefaultServerTest {
 			return 0;
 		}
 
+		@Override
+		public int getMetricsPort() {
+			return 0;
+		}
+
+		@Override
+		public int getTextPort() {
+			return 0;
+		}
+
+		@Override
+		public int getBinaryPort() {
+			return 0;
+		}
+
 		@Override
 		public int getInitThreadCount() {
 			return 0;
@@ -94,5 +169,80 @@ public class DefaultServerTest {
 		public int getMaxThreadCount() {
 			return 0;
 		}
+
+		@Override
+		public int getConnectionQueueSize() {
+			return 0;
+		}
+
+		@Override
+		public int getConnectionQueueMaxWait() {
+			return 0;
+		}
+
+		@Override
+		public ServerTransport getTransport() {
+			return ServerTransport.BLOCKING;
+		}
+
+		@Override
+		public int getEventLoopCount() {
+			return 0;
+		}
+
+		@Override
+		public WorkerThreadType getWorkerThreadType() {
+			return WorkerThreadType.PLATFORM;
+		}
+
+		@Override
+		public long getStorageMaxBytes() {
+			return 0;
+		}
+
+		@Override
+		public EvictionPolicy getEvictionPolicy() {
+			return EvictionPolicy.CLOCK;
+		}
+
+		@Override
+		public StorageEngine getStorageEngine() {
+			return StorageEngine.HEAP;
+		}
+
+		@Override
+		public int getStorageShardCount() {
+			return 1;
+		}
+
+		@Override
+		public Path getSnapshotFile() {
+			return null;
+		}
+
+		@Override
+		public int getSnapshotInterval() {
+			return 0;
+		}
+
+		@Override
+		public SnapshotLoadMode getSnapshotLoadMode() {
+			return SnapshotLoadMode.BLOCKING;
+		}
+
+		@Override
+		public Path getWriteLogFile() {
+			return null;
+		}
+
+		@Override
+		public WriteLogSyncPolicy getWriteLogSyncPolicy() {
+			return WriteLogSyncPolicy.INTERVAL;
+		}
+
+		@Override
+		public int getWriteLogSyncInterval() {
+			return 1000;
+		}
 	}
 }
@@ -4,6 +4,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
@@ -45,6 +47,7 @@ public class ExpiredDataCleanerTest {
 		cleaner.clearExpiredItems();
 		
 		assertStorageSize(storage, 0);
+		assertThat(storage.getExpiredCount(), equalTo(1L));
 	}
 	
 	@Test
@@ -94,10 +97,41 @@ public class ExpiredDataCleanerTest {
 		assertStorageSize(storage, 2);
 	}
 	
+	@Test
+	public void shouldNotClearItemReplacedWithoutTtl() throws Exception {
+		InnerStorage storage = createStorage();
+		storage.put("one", 500L, ANY_DATA);
+		storage.put("one", null, ANY_DATA);
+		cleaner = createNewCleaner(storage);
+		
+		makeTimePass(1000);
+		cleaner.clearExpiredItems();
+		
+		assertStorageSize(storage, 1);
+		assertThat(storage.getExpiredCount(), equalTo(0L));
+	}
+	
+	@Test
+	public void shouldClearExpiredItemsOfAllShards() throws Exception {
+		InnerStorage first = createStorage();
+		InnerStorage second = createStorage();
+		first.put("one", 500L, ANY_DATA);
+		second.put("two", 500L, ANY_DATA);
+		second.put("three", null, ANY_DATA);
+		cleaner = new ExpiredDataCleaner(Arrays.asList(first, second), CLEAR_DATA_INTERVAL_MILLIS,
+				new CleanerStatistics());
+		
+		makeTimePass(1000);
+		cleaner.clearExpiredItems();
+		
+		assertStorageSize(first, 0);
+		assertStorageSize(second, 1);
+	}
+	
 	@SuppressWarnings("unused")
 	private static void assertStorageSize(InnerStorage storage, int expectedSize) {
 		int size = 0;
-		for (StorageItem item : storage) {
+		for (Map.Entry<String, StorageItem> entry : storage) {
 			size++;
 		}
 		assertThat(size, equalTo(expectedSize));
@@ -107,6 +141,27 @@ public class ExpiredDataCleanerTest {
 		return new ExpiredDataCleaner(storage, CLEAR_DATA_INTERVAL_MILLIS);
 	}
 	
+	@Test
+	public void shouldRecordStatisticsOfEachRun() throws Exception {
+		InnerStorage storage = createStorage();
+		storage.put("one", 500L, ANY_DATA);
+		storage.put("two", 500L, ANY_DATA);
+		storage.put("three", null, ANY_DATA);
+		cleaner = createNewCleaner(storage);
+		
+		makeTimePass(1000);
+		int removedCount = cleaner.clearExpiredItems();
+		cleaner.clearExpiredItems();
+		
+		CleanerStatistics statistics = cleaner.getStatistics();
+		assertThat(removedCount, equalTo(2));
+		assertThat(statistics.getRunCount(), equalTo(2L));
+		assertThat(statistics.getLastScannedCount(), equalTo(0L));
+		assertThat(statistics.getLastRemovedCount(), equalTo(0L));
+		assertThat(statistics.getTotalScannedCount(), equalTo(2L));
+		assertThat(statistics.getTotalRemovedCount(), equalTo(2L));
+	}
+	
 	private void makeTimePass(int timeInMillis) {
 		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(CURRENT_TIME_MILLIS + timeInMillis);
 	}
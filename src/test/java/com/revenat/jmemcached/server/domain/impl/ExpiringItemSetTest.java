@@ -0,0 +1,91 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.revenat.jmemcached.server.domain.impl.OffHeapServerStorage.OffHeapItem;
+
+public class ExpiringItemSetTest {
+	private static final long ANY_EXPIRATION_TIME = 1000L;
+
+	private ExpiringItemSet expiringItems = new ExpiringItemSet();
+
+	@Test
+	public void shouldSampleAllItemsIfThereAreNotMoreOfThemThanNeeded() throws Exception {
+		OffHeapItem itemA = createItem("a");
+		OffHeapItem itemB = createItem("b");
+		expiringItems.add(itemA);
+		expiringItems.add(itemB);
+
+		assertThat(sample(10), containsInAnyOrder(itemA, itemB));
+	}
+
+	@Test
+	public void shouldSampleRequestedCountOfItems() throws Exception {
+		List<OffHeapItem> items = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			items.add(createItem("key-" + i));
+			expiringItems.add(items.get(i));
+		}
+
+		List<OffHeapItem> sample = sample(10);
+
+		assertThat(sample.size(), equalTo(10));
+		for (OffHeapItem item : sample) {
+			assertTrue(items.contains(item));
+		}
+	}
+
+	@Test
+	public void shouldNotSampleRemovedItems() throws Exception {
+		OffHeapItem itemA = createItem("a");
+		OffHeapItem itemB = createItem("b");
+		OffHeapItem itemC = createItem("c");
+		expiringItems.add(itemA);
+		expiringItems.add(itemB);
+		expiringItems.add(itemC);
+
+		expiringItems.remove(itemA);
+		expiringItems.remove(itemA);
+
+		assertThat(expiringItems.size(), equalTo(2));
+		assertThat(sample(10), containsInAnyOrder(itemB, itemC));
+	}
+
+	@Test
+	public void shouldNotAddReleasedItem() throws Exception {
+		OffHeapItem item = createItem("a");
+		item.live = false;
+
+		expiringItems.add(item);
+
+		assertThat(expiringItems.size(), equalTo(0));
+	}
+
+	@Test
+	public void shouldNotAddSameItemTwice() throws Exception {
+		OffHeapItem item = createItem("a");
+
+		expiringItems.add(item);
+		expiringItems.add(item);
+
+		assertThat(expiringItems.size(), equalTo(1));
+	}
+
+	private List<OffHeapItem> sample(int sampleSize) {
+		List<OffHeapItem> sample = new ArrayList<>();
+		expiringItems.sample(sample, sampleSize);
+		return sample;
+	}
+
+	private static OffHeapItem createItem(String key) {
+		return new OffHeapItem(key, 0, 0L, 1, ANY_EXPIRATION_TIME);
+	}
+}
@@ -0,0 +1,67 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+	private static final int KEY_HASH = "key".hashCode();
+
+	private FrequencySketch sketch = new FrequencySketch();
+
+	@Test
+	public void shouldEstimateZeroFrequencyOfUnusedKey() throws Exception {
+		assertThat(sketch.frequency(KEY_HASH), equalTo(0));
+	}
+
+	@Test
+	public void shouldCountEachUseOfKey() throws Exception {
+		incrementTimes(KEY_HASH, 5);
+
+		assertThat(sketch.frequency(KEY_HASH), equalTo(5));
+	}
+
+	@Test
+	public void shouldNotCountAboveMaxFrequency() throws Exception {
+		incrementTimes(KEY_HASH, 20);
+
+		assertThat(sketch.frequency(KEY_HASH), equalTo(FrequencySketch.MAX_FREQUENCY));
+	}
+
+	@Test
+	public void shouldHalveFrequenciesOnceSampleIsCounted() throws Exception {
+		incrementTimes(KEY_HASH, 10);
+
+		for (int i = 0; i < 200; i++) {
+			sketch.increment(("other-" + i).hashCode());
+		}
+
+		assertThat(sketch.frequency(KEY_HASH), lessThan(10));
+	}
+
+	@Test
+	public void shouldDropFrequenciesWhenGrown() throws Exception {
+		incrementTimes(KEY_HASH, 5);
+
+		sketch.ensureCapacity(1000);
+
+		assertThat(sketch.frequency(KEY_HASH), equalTo(0));
+	}
+
+	@Test
+	public void shouldKeepFrequenciesIfAlreadyLargeEnough() throws Exception {
+		incrementTimes(KEY_HASH, 5);
+
+		sketch.ensureCapacity(10);
+
+		assertThat(sketch.frequency(KEY_HASH), equalTo(5));
+	}
+
+	private void incrementTimes(int hash, int times) {
+		for (int i = 0; i < times; i++) {
+			sketch.increment(hash);
+		}
+	}
+}
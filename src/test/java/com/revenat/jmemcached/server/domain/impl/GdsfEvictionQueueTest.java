@@ -0,0 +1,162 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+
+public class GdsfEvictionQueueTest {
+
+	private GdsfEvictionQueue queue = new GdsfEvictionQueue();
+
+	@Test
+	public void shouldReturnNullIfNothingToEvict() throws Exception {
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldEvictLargerItemFirstIfUsedAsOften() throws Exception {
+		EvictableItem small = createItem("key-0", 10);
+		EvictableItem large = createItem("key-1", 10_000);
+		queue.add(small);
+		queue.add(large);
+
+		assertThat(queue.evict(), sameInstance(large));
+		assertThat(queue.evict(), sameInstance(small));
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldEvictLessOftenUsedItemFirstIfOfSameSize() throws Exception {
+		EvictableItem rare = createItem("key-0", 10);
+		EvictableItem frequent = createItem("key-1", 10);
+		queue.add(frequent);
+		queue.add(rare);
+
+		touchTimes(frequent, 3);
+
+		assertThat(queue.evict(), sameInstance(rare));
+	}
+
+	@Test
+	public void shouldKeepLargeItemUsedMuchMoreOftenThanSmallOne() throws Exception {
+		EvictableItem small = createItem("key-0", 10);
+		EvictableItem large = createItem("key-1", 100);
+		queue.add(small);
+		queue.add(large);
+
+		touchTimes(large, 10);
+
+		assertThat(queue.evict(), sameInstance(small));
+	}
+
+	@Test
+	public void shouldAdvanceInflationClockToPriorityOfEvictedItem() throws Exception {
+		EvictableItem item = createItem("key-0", 10);
+		queue.add(item);
+
+		queue.evict();
+
+		assertThat(queue.getInflation(), closeTo(GdsfEvictionQueue.MISS_COST / item.size(), 1e-12));
+	}
+
+	@Test
+	public void shouldEvictItemsNotUsedSinceClockAdvancedBeforeNewOnes() throws Exception {
+		EvictableItem first = createItem("key-0", 10);
+		EvictableItem second = createItem("key-1", 10);
+		queue.add(first);
+		queue.add(second);
+		assertThat(queue.evict(), sameInstance(first));
+
+		EvictableItem newItem = createItem("key-2", 10);
+		queue.add(newItem);
+
+		assertThat(queue.evict(), sameInstance(second));
+		assertThat(queue.evict(), sameInstance(newItem));
+	}
+
+	@Test
+	public void shouldNotEvictRemovedItem() throws Exception {
+		EvictableItem first = createItem("key-0", 10);
+		EvictableItem second = createItem("key-1", 20);
+		queue.add(first);
+		queue.add(second);
+
+		queue.remove(second);
+		queue.remove(second);
+
+		assertThat(queue.evict(), sameInstance(first));
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldDropRemovedItemsFromHeapOnceTheyTakeTooMuchOfIt() throws Exception {
+		int itemCount = 100;
+		int removedCount = itemCount * GdsfEvictionQueue.MAX_REMOVED_PERCENT / 100 + 1;
+		List<EvictableItem> items = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++) {
+			items.add(createItem("key-" + i, 10));
+			queue.add(items.get(i));
+		}
+
+		for (int i = 0; i < removedCount - 1; i++) {
+			queue.remove(items.get(i));
+		}
+		assertThat(queue.getHeapSize(), equalTo(itemCount));
+		queue.remove(items.get(removedCount - 1));
+
+		assertThat(queue.getHeapSize(), equalTo(itemCount - removedCount));
+		Set<EvictableItem> evictedItems = new HashSet<>();
+		for (EvictableItem victim = queue.evict(); victim != null; victim = queue.evict()) {
+			evictedItems.add(victim);
+		}
+		assertThat(evictedItems, equalTo(new HashSet<>(items.subList(removedCount, itemCount))));
+	}
+
+	@Test
+	public void shouldEvictItemsInOrderOfTheirPriorities() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			queue.add(createItem("key-" + i, 1000 - 7 * i));
+		}
+
+		double previousPriority = 0.0;
+		for (int i = 0; i < 100; i++) {
+			queue.evict();
+			// inflation clock is set to the priority of the evicted item
+			assertThat(queue.getInflation(), greaterThanOrEqualTo(previousPriority));
+			previousPriority = queue.getInflation();
+		}
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldAllowToClearQueue() throws Exception {
+		queue.add(createItem("key-0", 10));
+		queue.add(createItem("key-1", 10));
+
+		queue.clear();
+
+		assertThat(queue.evict(), nullValue());
+	}
+
+	private void touchTimes(EvictableItem item, int times) {
+		for (int i = 0; i < times; i++) {
+			queue.touch(item);
+		}
+	}
+
+	private static EvictableItem createItem(String key, int dataLength) {
+		return new EvictableItem(key, EvictableItem.NEVER_EXPIRES, new byte[dataLength]);
+	}
+}
@@ -25,6 +25,7 @@ public class GetCommandHandlerTest {
 
 	private static final String UNKNOWN_KEY = "unknown key";
 	private static final String STORED_KEY = "stored key";
+	private static final String EMPTY_KEY = "empty key";
 	private static final byte[] NOT_EMPTY_DATA = new byte[] { 1, 2, 3 };
 	private static final byte[] EMPTY_DATA = new byte[0];
 	@Mock
@@ -38,8 +39,9 @@ public class GetCommandHandlerTest {
 	public void setUp() {
 		handler = new GetCommandHandler(storage);
 		handler.add(nextInChain);
-		when(storage.get(STORED_KEY)).thenReturn(NOT_EMPTY_DATA);
-		when(storage.get(UNKNOWN_KEY)).thenReturn(EMPTY_DATA);
+		when(storage.find(STORED_KEY)).thenReturn(NOT_EMPTY_DATA);
+		when(storage.find(EMPTY_KEY)).thenReturn(EMPTY_DATA);
+		when(storage.find(UNKNOWN_KEY)).thenReturn(null);
 	}
 
 	@Test
@@ -49,10 +51,20 @@ public class GetCommandHandlerTest {
 		Response response = handler.handle(getRequest);
 
 		assertThat(response.getStatus(), equalTo(Status.GOTTEN));
-		verify(storage, times(1)).get(anyString());
+		verify(storage, times(1)).find(anyString());
 		verifyZeroInteractions(nextInChain);
 	}
 
+	@Test
+	public void shouldAllowToHandleGetRequestOfEmptyDataWithSuccessResult() throws Exception {
+		Request getRequest = Request.withKey(Command.GET, EMPTY_KEY);
+
+		Response response = handler.handle(getRequest);
+
+		assertThat(response.getStatus(), equalTo(Status.GOTTEN));
+		assertThat(response.getData(), equalTo(EMPTY_DATA));
+	}
+
 	@Test
 	public void shouldAllowToHandleGetRequestWithNotFoundResult() throws Exception {
 		Request getRequest = Request.withKey(Command.GET, UNKNOWN_KEY);
@@ -60,7 +72,7 @@ public class GetCommandHandlerTest {
 		Response response = handler.handle(getRequest);
 
 		assertThat(response.getStatus(), equalTo(Status.NOT_FOUND));
-		verify(storage, times(1)).get(anyString());
+		verify(storage, times(1)).find(anyString());
 		verifyZeroInteractions(nextInChain);
 	}
 
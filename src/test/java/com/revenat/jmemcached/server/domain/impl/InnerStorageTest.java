@@ -7,10 +7,12 @@ import static org.junit.Assert.fail;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Map;
 
 import org.junit.Test;
 
 import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.EvictionPolicy;
 import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.InnerStorage;
 import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.StorageItem;
 
@@ -133,6 +135,18 @@ public class InnerStorageTest {
 		assertThat(innerStorage.get(key), nullValue());
 	}
 	
+	@Test
+	public void shouldRemoveExpiredItemWhenGettingIt() throws Exception {
+		innerStorage.put("key", 1000L, new byte[10]);
+		
+		makeTimePass(1001L);
+		innerStorage.get("key");
+		
+		assertEmpty(innerStorage);
+		assertThat(innerStorage.getUsedBytes(), equalTo(0L));
+		assertThat(innerStorage.getExpiredCount(), equalTo(1L));
+	}
+	
 	@Test
 	public void shouldAllowToRemoveWhileIterating() throws Exception {
 		String keyA = "any key";
@@ -142,8 +156,8 @@ public class InnerStorageTest {
 		innerStorage.put(keyA, null, dataA);
 		innerStorage.put(keyB, null, dataB);
 		
-		for (StorageItem item : innerStorage) {
-			if (item.key.equals(keyA)) {
+		for (Map.Entry<String, StorageItem> entry : innerStorage) {
+			if (entry.getKey().equals(keyA)) {
 				innerStorage.remove(keyA);
 			}
 		}
@@ -153,6 +167,102 @@ public class InnerStorageTest {
 		
 	}
 
+	@Test
+	public void shouldTrackUsedBytesOfStoredItems() throws Exception {
+		innerStorage.put("key", null, new byte[10]);
+		long itemSize = StorageItem.ENTRY_OVERHEAD_BYTES + 2 * "key".length() + 10;
+		
+		assertThat(innerStorage.getUsedBytes(), equalTo(itemSize));
+		
+		innerStorage.remove("key");
+		
+		assertThat(innerStorage.getUsedBytes(), equalTo(0L));
+	}
+	
+	@Test
+	public void shouldEvictItemsBeforeExceedingMaxBytes() throws Exception {
+		long itemSize = StorageItem.ENTRY_OVERHEAD_BYTES + 2 * "key-0".length() + 10;
+		innerStorage = new InnerStorage(dateTimeProvider, itemSize * 3);
+		
+		for (int i = 0; i < 5; i++) {
+			innerStorage.put("key-" + i, null, new byte[10]);
+		}
+		
+		assertThat(innerStorage.getItemCount(), equalTo(3L));
+		assertThat(innerStorage.getEvictionCount(), equalTo(2L));
+		assertThat(innerStorage.getUsedBytes(), equalTo(itemSize * 3));
+	}
+	
+	@Test
+	public void shouldEvictLeastRecentlyUsedItemFirst() throws Exception {
+		long itemSize = StorageItem.ENTRY_OVERHEAD_BYTES + 2 * "key-0".length() + 10;
+		innerStorage = new InnerStorage(dateTimeProvider, itemSize * 2);
+		innerStorage.put("key-0", null, new byte[10]);
+		innerStorage.put("key-1", null, new byte[10]);
+		innerStorage.get("key-0");
+		
+		innerStorage.put("key-2", null, new byte[10]);
+		
+		assertThat(innerStorage.get("key-0"), equalTo(new byte[10]));
+		assertThat(innerStorage.get("key-1"), nullValue());
+	}
+	
+	@Test
+	public void shouldKeepFrequentlyUsedItemsWhenScannedByNewKeysWithTinyLfuPolicy() throws Exception {
+		long itemSize = StorageItem.ENTRY_OVERHEAD_BYTES + 2 * "hot-0".length() + 10;
+		innerStorage = new InnerStorage(dateTimeProvider, itemSize * 10, InnerStorage.DEFAULT_EXPIRATION_TICK_MILLIS,
+				EvictionPolicy.W_TINY_LFU);
+		for (int i = 0; i < 5; i++) {
+			innerStorage.put("hot-" + i, null, new byte[10]);
+			for (int j = 0; j < 5; j++) {
+				innerStorage.get("hot-" + i);
+			}
+		}
+		
+		for (int i = 0; i < 100; i++) {
+			innerStorage.put(String.format("s-%03d", i), null, new byte[10]);
+		}
+		
+		for (int i = 0; i < 5; i++) {
+			assertThat(innerStorage.get("hot-" + i), equalTo(new byte[10]));
+		}
+		assertThat(innerStorage.getUsedBytes(), equalTo(itemSize * 10));
+	}
+	
+	@Test
+	public void shouldStartFromEmptyBudgetAfterClear() throws Exception {
+		long itemSize = StorageItem.ENTRY_OVERHEAD_BYTES + 2 * "key-0".length() + 10;
+		innerStorage = new InnerStorage(dateTimeProvider, itemSize * 2);
+		innerStorage.put("key-0", null, new byte[10]);
+		innerStorage.put("key-1", null, new byte[10]);
+		
+		innerStorage.clear();
+		innerStorage.put("key-2", null, new byte[10]);
+		innerStorage.put("key-3", null, new byte[10]);
+		
+		assertThat(innerStorage.getItemCount(), equalTo(2L));
+		assertThat(innerStorage.getUsedBytes(), equalTo(itemSize * 2));
+		assertThat(innerStorage.getEvictionCount(), equalTo(0L));
+		assertThat(innerStorage.get("key-0"), nullValue());
+	}
+	
+	@Test
+	public void shouldNotExpireItemsClearedBeforeTheyWereDue() throws Exception {
+		innerStorage.put("key", 1000L, new byte[10]);
+		innerStorage.clear();
+		
+		dateTimeProvider.setCurrentTimeInMillis(5000L);
+		
+		assertThat(innerStorage.takeExpiredItems().size(), equalTo(0));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowToStoreItemLargerThanMaxBytes() throws Exception {
+		innerStorage = new InnerStorage(dateTimeProvider, 100L);
+		
+		innerStorage.put("key", null, new byte[100]);
+	}
+	
 	private void makeTimePass(long timeinMillis) {
 		dateTimeProvider.setCurrentTimeInMillis(timeinMillis);
 	}
@@ -165,8 +275,8 @@ public class InnerStorageTest {
 
 	private static void assertContains(InnerStorage storage, String key, byte[] data) {
 		boolean isContained = false;
-		for (StorageItem item : storage) {
-			if (item.key.equals(key) && Arrays.equals(item.data, data)) {
+		for (Map.Entry<String, StorageItem> entry : storage) {
+			if (entry.getKey().equals(key) && Arrays.equals(entry.getValue().data, data)) {
 				isContained = true;
 			}
 		}
@@ -0,0 +1,83 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ManagementBeansTest {
+	private static final int SERVER_PORT = 9010;
+
+	@Mock
+	private ConnectionStatistics connectionStatistics;
+
+	private MBeanServer mBeanServer;
+	private ManagementBeans managementBeans;
+
+	@Before
+	public void setUp() {
+		mBeanServer = MBeanServerFactory.newMBeanServer();
+		managementBeans = new ManagementBeans(mBeanServer, SERVER_PORT)
+				.add("ConnectionPool", new ConnectionPoolMonitor(connectionStatistics));
+	}
+
+	@After
+	public void tearDown() {
+		managementBeans.close();
+	}
+
+	@Test
+	public void shouldNameBeansByTypeAndServerPort() throws Exception {
+		assertThat(ManagementBeans.objectName("Storage", SERVER_PORT),
+				equalTo(new ObjectName("com.revenat.jmemcached:type=Storage,port=9010")));
+	}
+
+	@Test
+	public void shouldExposeAttributesOfRegisteredBeans() throws Exception {
+		when(connectionStatistics.getRejectedConnectionCount()).thenReturn(3L);
+
+		managementBeans.register();
+
+		assertThat(mBeanServer.getAttribute(connectionPoolName(), "RejectedConnectionCount"), equalTo(3L));
+	}
+
+	@Test
+	public void shouldUnregisterBeansWhenClosing() throws Exception {
+		managementBeans.register();
+
+		managementBeans.close();
+
+		assertFalse("Bean should be unregistered", mBeanServer.isRegistered(connectionPoolName()));
+	}
+
+	@Test
+	public void shouldSkipBeanRegisteredByAnotherServer() throws Exception {
+		managementBeans.register();
+		ManagementBeans anotherServerBeans = new ManagementBeans(mBeanServer, SERVER_PORT)
+				.add("ConnectionPool", new ConnectionPoolMonitor(connectionStatistics));
+
+		anotherServerBeans.register();
+		anotherServerBeans.close();
+
+		assertTrue("Bean of the first server should stay registered", mBeanServer.isRegistered(connectionPoolName()));
+	}
+
+	private static ObjectName connectionPoolName() {
+		return ManagementBeans.objectName("ConnectionPool", SERVER_PORT);
+	}
+}
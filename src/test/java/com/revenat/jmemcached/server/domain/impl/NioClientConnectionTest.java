@@ -0,0 +1,92 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.RequestReader;
+import com.revenat.jmemcached.protocol.ResponseWriter;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class NioClientConnectionTest {
+	@Mock
+	private RequestReader reader;
+	@Mock
+	private ResponseWriter writer;
+	@Mock
+	private CommandHandler handler;
+
+	private ServerSocketChannel serverChannel;
+	private SocketChannel clientChannel;
+	private SocketChannel channel;
+	private Selector selector;
+	private NioClientConnection connection;
+
+	@Before
+	public void setUp() throws IOException {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		clientChannel = SocketChannel.open(serverChannel.getLocalAddress());
+		clientChannel.configureBlocking(false);
+		channel = serverChannel.accept();
+		channel.configureBlocking(false);
+		selector = Selector.open();
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		// reader never finds complete request, so all the bytes sent stay in the buffer
+		connection = new NioClientConnection(channel, key, new ChannelRequestProcessor(reader, writer, handler));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		connection.close();
+		clientChannel.close();
+		selector.close();
+		serverChannel.close();
+	}
+
+	@Test
+	public void shouldReadRequestUpToMaximumSize() throws Exception {
+		IOException e = sendAndReadUntilFailure(NioClientConnection.MAX_REQUEST_SIZE - 1);
+
+		assertThat(e, instanceOf(EOFException.class));
+	}
+
+	@Test
+	public void shouldFailToReadRequestGreaterThanMaximumSize() throws Exception {
+		IOException e = sendAndReadUntilFailure(NioClientConnection.MAX_REQUEST_SIZE + 1);
+
+		assertThat(e.getMessage(), containsString("Request exceeds " + NioClientConnection.MAX_REQUEST_SIZE));
+	}
+
+	private IOException sendAndReadUntilFailure(int requestSize) throws IOException {
+		ByteBuffer request = ByteBuffer.allocate(requestSize);
+		try {
+			while (true) {
+				if (request.hasRemaining() && clientChannel.write(request) > 0 && !request.hasRemaining()) {
+					clientChannel.shutdownOutput();
+				}
+				connection.onReadable();
+			}
+		} catch (IOException e) {
+			return e;
+		}
+	}
+}
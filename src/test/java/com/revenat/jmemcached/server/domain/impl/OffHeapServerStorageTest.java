@@ -0,0 +1,319 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class OffHeapServerStorageTest {
+	private static final byte[] ANY_DATA = new byte[] {1, 2, 3};
+	private static final int CLEAR_DATA_INTERVAL_MILLIS = 1000;
+	private static final long CAPACITY = SlabAllocator.SLAB_SIZE;
+
+	@Mock
+	private DateTimeProvider dateTimeProvider;
+
+	private OffHeapServerStorage storage;
+
+	@Before
+	public void setUp() {
+		storage = new OffHeapServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, CAPACITY);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		storage.close();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToPutWithNullKey() throws Exception {
+		storage.put(null, ANY_DATA);
+	}
+
+	@Test
+	public void shouldStoreEmptyData() throws Exception {
+		Status status = storage.put("one", new byte[0]);
+
+		assertThat(status, equalTo(Status.ADDED));
+		assertThat(storage.getAll(Arrays.asList("one", "two")).get("one"), equalTo(new byte[0]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowToPutDataLargerThanSlab() throws Exception {
+		storage.put("one", new byte[SlabAllocator.SLAB_SIZE + 1]);
+	}
+
+	@Test
+	public void shouldReturnStatusAddedIfPutWithUniqueKey() throws Exception {
+		assertThat(storage.put("one", ANY_DATA), equalTo(Status.ADDED));
+	}
+
+	@Test
+	public void shouldReturnStatusReplacedIfPutWithAlreadyStoredKey() throws Exception {
+		storage.put("one", ANY_DATA);
+
+		assertThat(storage.put("one", new byte[] {4, 5}), equalTo(Status.REPLACED));
+		assertThat(storage.get("one"), equalTo(new byte[] {4, 5}));
+		assertThat(storage.getStatistics().getItemCount(), equalTo(1L));
+	}
+
+	@Test
+	public void shouldAllowToReturnDataByKey() throws Exception {
+		storage.put("one", ANY_DATA);
+
+		assertThat(storage.get("one"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldReturnEmptyArrayForUnknownKey() throws Exception {
+		assertThat(storage.get("one").length, equalTo(0));
+	}
+
+	@Test
+	public void shouldFindNoDataForUnknownKey() throws Exception {
+		storage.put("one", new byte[0]);
+
+		assertThat(storage.find("one"), equalTo(new byte[0]));
+		assertThat(storage.find("two"), nullValue());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToGetAllWithNullKey() throws Exception {
+		storage.getAll(Arrays.asList("one", null));
+	}
+
+	@Test
+	public void shouldReturnFoundDataForAllKeysInRequestedOrder() throws Exception {
+		storage.put("one", new byte[] {1});
+		storage.put("three", new byte[] {3});
+		storage.put("four", new byte[] {4});
+
+		Map<String, byte[]> result = storage.getAll(Arrays.asList("four", "one", "two", "three"));
+
+		assertThat(result.keySet(), contains("four", "one", "three"));
+		assertThat(result.get("one"), equalTo(new byte[] {1}));
+		assertThat(result.get("three"), equalTo(new byte[] {3}));
+		assertThat(result.get("four"), equalTo(new byte[] {4}));
+	}
+
+	@Test
+	public void shouldNotReturnExpiredData() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(0L);
+		storage.put("one", 100, ANY_DATA);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(101L);
+
+		assertThat(storage.get("one").length, equalTo(0));
+	}
+
+	@Test
+	public void shouldReturnRemainingTtlOfData() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(0L);
+		storage.put("one", 100, ANY_DATA);
+		storage.put("two", ANY_DATA);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(40L);
+
+		assertThat(storage.getTtl("one"), equalTo(60L));
+		assertThat(storage.getTtl("two"), equalTo(-1L));
+		assertThat(storage.getTtl("three"), equalTo(-1L));
+	}
+
+	@Test
+	public void shouldRemoveExpiredData() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(0L);
+		storage.put("one", 100, ANY_DATA);
+		storage.put("two", ANY_DATA);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(101L);
+		storage.clearExpiredItems();
+
+		assertThat(storage.getStatistics().getItemCount(), equalTo(1L));
+		assertThat(storage.getStatistics().getExpiredCount(), equalTo(1L));
+		assertThat(storage.get("two"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldRemoveExpiredDataWhenGettingIt() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(0L);
+		storage.put("one", 100, ANY_DATA);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(101L);
+		storage.get("one");
+
+		assertThat(storage.getStatistics().getItemCount(), equalTo(0L));
+		assertThat(storage.getStatistics().getUsedBytes(), equalTo(0L));
+		assertThat(storage.getStatistics().getExpiredCount(), equalTo(1L));
+	}
+
+	@Test
+	public void shouldKeepSamplingWhileMostOfSampledDataIsExpired() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(0L);
+		int expiringCount = 10 * OffHeapServerStorage.EXPIRATION_SAMPLE_SIZE;
+		for (int i = 0; i < expiringCount; i++) {
+			storage.put("key-" + i, 100, ANY_DATA);
+		}
+		storage.put("lasting", ANY_DATA);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(101L);
+		int removedCount = storage.clearExpiredItems();
+
+		assertThat(removedCount, equalTo(expiringCount));
+		assertThat(storage.getStatistics().getItemCount(), equalTo(1L));
+	}
+
+	@Test
+	public void shouldStopSamplingWhenFewOfSampledDataIsExpired() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(0L);
+		int expiringCount = 10 * OffHeapServerStorage.EXPIRATION_SAMPLE_SIZE;
+		for (int i = 0; i < expiringCount; i++) {
+			storage.put("key-" + i, i == 0 ? 100 : 10_000, ANY_DATA);
+		}
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(101L);
+		int removedCount = storage.clearExpiredItems();
+
+		assertThat(removedCount, lessThanOrEqualTo(1));
+		assertThat(storage.getStatistics().getItemCount(), greaterThanOrEqualTo((long) expiringCount - 1));
+	}
+
+	@Test
+	public void shouldAllowToRemoveData() throws Exception {
+		storage.put("one", ANY_DATA);
+
+		assertThat(storage.remove("one"), equalTo(Status.REMOVED));
+		assertThat(storage.remove("one"), equalTo(Status.NOT_FOUND));
+		assertThat(storage.getStatistics().getUsedBytes(), equalTo(0L));
+	}
+
+	@Test
+	public void shouldAllowToClearStorage() throws Exception {
+		storage.put("one", ANY_DATA);
+		storage.put("two", ANY_DATA);
+
+		assertThat(storage.clear(), equalTo(Status.CLEARED));
+		assertThat(storage.getStatistics().getItemCount(), equalTo(0L));
+		assertThat(storage.get("one").length, equalTo(0));
+		awaitUsedBytes(0L);
+	}
+
+	@Test
+	public void shouldKeepDataPutAfterClear() throws Exception {
+		storage.put("one", ANY_DATA);
+		storage.clear();
+
+		storage.put("two", ANY_DATA);
+
+		assertThat(storage.get("one").length, equalTo(0));
+		assertThat(storage.get("two"), equalTo(ANY_DATA));
+		assertThat(storage.getStatistics().getItemCount(), equalTo(1L));
+	}
+
+	@Test
+	public void shouldReuseChunksOfClearedData() throws Exception {
+		int chunkCount = SlabAllocator.SLAB_SIZE / SlabAllocator.MIN_CHUNK_SIZE;
+		for (int i = 0; i < chunkCount; i++) {
+			storage.put("key-" + i, ANY_DATA);
+		}
+
+		storage.clear();
+		for (int i = 0; i < chunkCount; i++) {
+			storage.put("other-key-" + i, ANY_DATA);
+		}
+
+		assertThat(storage.getStatistics().getItemCount(), equalTo((long) chunkCount));
+	}
+
+	@Test
+	public void shouldReuseChunksOfRemovedData() throws Exception {
+		int chunkCount = SlabAllocator.SLAB_SIZE / SlabAllocator.MIN_CHUNK_SIZE;
+		for (int i = 0; i < chunkCount; i++) {
+			storage.put("key-" + i, ANY_DATA);
+		}
+		storage.remove("key-0");
+
+		storage.put("new-key", ANY_DATA);
+
+		assertThat(storage.getStatistics().getEvictionCount(), equalTo(0L));
+		assertThat(storage.get("key-1"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedDataIfMemoryIsExhausted() throws Exception {
+		int chunkCount = SlabAllocator.SLAB_SIZE / SlabAllocator.MIN_CHUNK_SIZE;
+		for (int i = 0; i < chunkCount; i++) {
+			storage.put("key-" + i, ANY_DATA);
+		}
+		storage.get("key-0");
+
+		storage.put("new-key", new byte[] {4, 5, 6});
+
+		assertThat(storage.getStatistics().getEvictionCount(), equalTo(1L));
+		assertThat(storage.get("key-0"), equalTo(ANY_DATA));
+		assertThat(storage.get("key-1").length, equalTo(0));
+		assertThat(storage.get("new-key"), equalTo(new byte[] {4, 5, 6}));
+		assertThat(storage.getStatistics().getUsedBytes(), equalTo((long) SlabAllocator.SLAB_SIZE));
+	}
+
+	@Test
+	public void shouldMoveSlabOfOtherSizeClassIfMemoryIsTakenByIt() throws Exception {
+		byte[] largeData = new byte[100_000];
+		largeData[0] = 7;
+		storage.put("small", ANY_DATA);
+
+		storage.put("large", largeData);
+
+		assertThat(storage.get("large"), equalTo(largeData));
+		assertThat(storage.get("small").length, equalTo(0));
+		assertThat(storage.getStatistics().getItemCount(), equalTo(1L));
+		assertThat(storage.getStatistics().getEvictionCount(), equalTo(1L));
+		assertThat(storage.getStatistics().getUsedBytes(), equalTo(
+				(long) new SlabAllocator(CAPACITY).getChunkSize(new SlabAllocator(CAPACITY).getSizeClassFor(100_000))));
+	}
+
+	@Test
+	public void shouldMoveSlabBackOnceItsSizeClassNeedsItAgain() throws Exception {
+		storage.put("small", ANY_DATA);
+		storage.put("large", new byte[100_000]);
+
+		storage.put("small", ANY_DATA);
+
+		assertThat(storage.get("small"), equalTo(ANY_DATA));
+		assertThat(storage.get("large").length, equalTo(0));
+		assertThat(storage.getStatistics().getUsedBytes(), equalTo((long) SlabAllocator.MIN_CHUNK_SIZE));
+	}
+
+	@Test
+	public void shouldExposeStatistics() throws Exception {
+		storage.put("one", ANY_DATA);
+
+		assertThat(storage.getStatistics().getItemCount(), equalTo(1L));
+		assertThat(storage.getStatistics().getUsedBytes(), equalTo((long) SlabAllocator.MIN_CHUNK_SIZE));
+		assertThat(storage.getStatistics().getMaxBytes(), equalTo(CAPACITY));
+	}
+
+	private void awaitUsedBytes(long expectedUsedBytes) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (storage.getStatistics().getUsedBytes() != expectedUsedBytes && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		assertThat(storage.getStatistics().getUsedBytes(), equalTo(expectedUsedBytes));
+	}
+}
@@ -0,0 +1,68 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+public class PipelineOutputStreamTest {
+	private static final int BUFFER_SIZE = 4;
+
+	private ByteArrayOutputStream out = new ByteArrayOutputStream();
+	private PipelineOutputStream pipelineOutput = new PipelineOutputStream(out, BUFFER_SIZE);
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithoutUnderlyingStream() throws Exception {
+		new PipelineOutputStream(null, BUFFER_SIZE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowToCreateWithoutBuffer() throws Exception {
+		new PipelineOutputStream(out, 0);
+	}
+
+	@Test
+	public void shouldIgnoreFlush() throws Exception {
+		pipelineOutput.write(new byte[] {1, 2});
+		pipelineOutput.flush();
+
+		assertThat(out.size(), equalTo(0));
+	}
+
+	@Test
+	public void shouldWriteBufferedBytesOnPipelineFlush() throws Exception {
+		pipelineOutput.write(1);
+		pipelineOutput.write(new byte[] {2, 3});
+
+		pipelineOutput.flushPipeline();
+
+		assertThat(out.toByteArray(), equalTo(new byte[] {1, 2, 3}));
+	}
+
+	@Test
+	public void shouldWriteBufferOutWhenItIsFull() throws Exception {
+		pipelineOutput.write(new byte[] {1, 2, 3});
+		pipelineOutput.write(new byte[] {4, 5});
+
+		assertThat(out.toByteArray(), equalTo(new byte[] {1, 2, 3}));
+	}
+
+	@Test
+	public void shouldWriteLargeChunksDirectlyKeepingOrder() throws Exception {
+		pipelineOutput.write(1);
+		pipelineOutput.write(new byte[] {2, 3, 4, 5, 6});
+
+		assertThat(out.toByteArray(), equalTo(new byte[] {1, 2, 3, 4, 5, 6}));
+	}
+
+	@Test
+	public void shouldFlushBufferedBytesOnClose() throws Exception {
+		pipelineOutput.write(1);
+
+		pipelineOutput.close();
+
+		assertThat(out.toByteArray(), equalTo(new byte[] {1}));
+	}
+}
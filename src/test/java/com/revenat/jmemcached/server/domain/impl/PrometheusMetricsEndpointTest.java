@@ -0,0 +1,99 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.exception.JMemcachedConfigException;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class PrometheusMetricsEndpointTest {
+	private static final int PORT = 9598;
+
+	@Mock
+	private PrometheusMetrics metrics;
+
+	private PrometheusMetricsEndpoint endpoint;
+
+	@After
+	public void tearDown() {
+		if (endpoint != null) {
+			endpoint.close();
+		}
+	}
+
+	@Test
+	public void shouldServeMetricsInPrometheusTextFormat() throws Exception {
+		when(metrics.scrape()).thenReturn("jmemcached_storage_items 7\n");
+		startEndpoint();
+
+		HttpURLConnection connection = openConnection("/metrics");
+
+		assertThat(connection.getResponseCode(), equalTo(200));
+		assertThat(connection.getContentType(), equalTo("text/plain; version=0.0.4; charset=utf-8"));
+		assertThat(readBody(connection), equalTo("jmemcached_storage_items 7\n"));
+	}
+
+	@Test
+	public void shouldNotServeOtherPaths() throws Exception {
+		startEndpoint();
+
+		assertThat(openConnection("/metrics/all").getResponseCode(), equalTo(404));
+		assertThat(openConnection("/").getResponseCode(), equalTo(404));
+	}
+
+	@Test
+	public void shouldAllowOnlyGetRequests() throws Exception {
+		startEndpoint();
+		HttpURLConnection connection = openConnection("/metrics");
+		connection.setRequestMethod("DELETE");
+
+		assertThat(connection.getResponseCode(), equalTo(405));
+		assertThat(connection.getHeaderField("Allow"), containsString("GET"));
+	}
+
+	@Test(expected = JMemcachedConfigException.class)
+	public void shouldThrowExceptionIfCanNotListenOnSpecifiedPort() throws Exception {
+		startEndpoint();
+
+		new PrometheusMetricsEndpoint(PORT, metrics).start();
+	}
+
+	@Test
+	public void shouldAllowToCloseEndpointWhichHasNotBeenStarted() throws Exception {
+		new PrometheusMetricsEndpoint(PORT, metrics).close();
+	}
+
+	private void startEndpoint() {
+		endpoint = new PrometheusMetricsEndpoint(PORT, metrics);
+		endpoint.start();
+	}
+
+	private static HttpURLConnection openConnection(String path) throws Exception {
+		return (HttpURLConnection) new URL("http://localhost:" + PORT + path).openConnection();
+	}
+
+	private static String readBody(HttpURLConnection connection) throws Exception {
+		try (InputStream in = connection.getInputStream()) {
+			byte[] body = new byte[1024];
+			int length = 0;
+			int read;
+			while ((read = in.read(body, length, body.length - length)) > 0) {
+				length += read;
+			}
+			return new String(body, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+}
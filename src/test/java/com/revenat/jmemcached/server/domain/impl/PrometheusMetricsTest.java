@@ -0,0 +1,142 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class PrometheusMetricsTest {
+
+	@Mock
+	private StorageStatistics storageStatistics;
+	@Mock
+	private ConnectionStatistics connectionStatistics;
+	@Mock
+	private CleanableStorage storage;
+
+	private RequestRecorder requestRecorder;
+	private CleanerStatistics cleanerStatistics;
+	private PrometheusMetrics metrics;
+
+	@Before
+	public void setUp() {
+		requestRecorder = new RequestRecorder();
+		cleanerStatistics = new CleanerStatistics();
+		when(storage.getCleanerStatistics()).thenReturn(cleanerStatistics);
+		metrics = new PrometheusMetrics(storageStatistics, requestRecorder, connectionStatistics, storage);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullRequestRecorder() throws Exception {
+		new PrometheusMetrics(storageStatistics, null, connectionStatistics, storage);
+	}
+
+	@Test
+	public void shouldDescribeEachMetric() throws Exception {
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("# HELP jmemcached_commands_total "));
+		assertThat(text, containsString("# TYPE jmemcached_commands_total counter\n"));
+		assertThat(text, containsString("# TYPE jmemcached_command_duration_seconds histogram\n"));
+		assertThat(text, containsString("# TYPE jmemcached_storage_items gauge\n"));
+	}
+
+	@Test
+	public void shouldReportCountOfEachCommandAndGetHits() throws Exception {
+		requestRecorder.record(Command.GET, Status.GOTTEN, 1_000L);
+		requestRecorder.record(Command.GET, Status.NOT_FOUND, 1_000L);
+		requestRecorder.record(Command.PUT, Status.ADDED, 1_000L);
+
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("jmemcached_commands_total{command=\"get\"} 2\n"));
+		assertThat(text, containsString("jmemcached_commands_total{command=\"put\"} 1\n"));
+		assertThat(text, containsString("jmemcached_commands_total{command=\"remove\"} 0\n"));
+		assertThat(text, containsString("jmemcached_get_hits_total 1\n"));
+		assertThat(text, containsString("jmemcached_get_misses_total 1\n"));
+	}
+
+	@Test
+	public void shouldReportCumulativeLatencyBucketsInSeconds() throws Exception {
+		requestRecorder.record(Command.GET, Status.GOTTEN, 800L);
+		requestRecorder.record(Command.GET, Status.GOTTEN, 40_000L);
+		requestRecorder.record(Command.GET, Status.GOTTEN, 20_000_000_000L);
+
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("jmemcached_command_duration_seconds_bucket{command=\"get\",le=\"1.0E-6\"} 1\n"));
+		assertThat(text, containsString("jmemcached_command_duration_seconds_bucket{command=\"get\",le=\"2.5E-5\"} 1\n"));
+		assertThat(text, containsString("jmemcached_command_duration_seconds_bucket{command=\"get\",le=\"5.0E-5\"} 2\n"));
+		assertThat(text, containsString("jmemcached_command_duration_seconds_bucket{command=\"get\",le=\"10.0\"} 2\n"));
+		assertThat(text, containsString("jmemcached_command_duration_seconds_bucket{command=\"get\",le=\"+Inf\"} 3\n"));
+		assertThat(text, containsString("jmemcached_command_duration_seconds_count{command=\"get\"} 3\n"));
+		assertThat(text, containsString("jmemcached_command_duration_seconds_sum{command=\"get\"} 20.0000408\n"));
+	}
+
+	@Test
+	public void shouldReportStorageStatistics() throws Exception {
+		when(storageStatistics.getItemCount()).thenReturn(7L);
+		when(storageStatistics.getUsedBytes()).thenReturn(1024L);
+		when(storageStatistics.getEvictionCount()).thenReturn(2L);
+
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("jmemcached_storage_items 7\n"));
+		assertThat(text, containsString("jmemcached_storage_used_bytes 1024\n"));
+		assertThat(text, containsString("jmemcached_storage_evictions_total 2\n"));
+	}
+
+	@Test
+	public void shouldReportCleanerTimings() throws Exception {
+		cleanerStatistics.recordRun(2_000_000L, 10L, 3L);
+		cleanerStatistics.recordRun(500_000L, 4L, 1L);
+
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("jmemcached_cleaner_runs_total 2\n"));
+		assertThat(text, containsString("jmemcached_cleaner_run_seconds_total 0.0025\n"));
+		assertThat(text, containsString("jmemcached_cleaner_last_run_seconds 5.0E-4\n"));
+		assertThat(text, containsString("jmemcached_cleaner_removed_items_total 4\n"));
+	}
+
+	@Test
+	public void shouldReportSaturationOfConnectionPool() throws Exception {
+		when(connectionStatistics.getActiveWorkerCount()).thenReturn(3);
+		when(connectionStatistics.getMaxWorkerCount()).thenReturn(4);
+		when(connectionStatistics.getRejectedConnectionCount()).thenReturn(5L);
+
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("jmemcached_workers_active 3\n"));
+		assertThat(text, containsString("jmemcached_workers_saturation_ratio 0.75\n"));
+		assertThat(text, containsString("jmemcached_connections_rejected_total 5\n"));
+	}
+
+	@Test
+	public void shouldReportZeroSaturationIfPoolIsNotLimited() throws Exception {
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("jmemcached_workers_saturation_ratio 0.0\n"));
+		assertThat(text, not(containsString("NaN")));
+	}
+
+	@Test
+	public void shouldReportJvmMemoryAndGarbageCollections() throws Exception {
+		String text = metrics.scrape();
+
+		assertThat(text, containsString("jmemcached_jvm_memory_used_bytes{area=\"heap\"} "));
+		assertThat(text, containsString("# TYPE jmemcached_jvm_gc_collections_total counter\n"));
+	}
+}
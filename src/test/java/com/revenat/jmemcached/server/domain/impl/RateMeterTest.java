@@ -0,0 +1,48 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class RateMeterTest {
+	private static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private AtomicLong counter = new AtomicLong();
+	private AtomicLong nanoClock = new AtomicLong();
+	private RateMeter rateMeter = new RateMeter(counter::get, nanoClock::get);
+
+	@Test
+	public void shouldReturnZeroRateBeforeSecondHasPassed() throws Exception {
+		counter.addAndGet(100);
+		nanoClock.addAndGet(ONE_SECOND_NANOS / 2);
+
+		assertThat(rateMeter.getRate(), closeTo(0.0, 0.001));
+	}
+
+	@Test
+	public void shouldReturnCountPerSecondSincePreviousRead() throws Exception {
+		counter.addAndGet(100);
+		nanoClock.addAndGet(2 * ONE_SECOND_NANOS);
+		assertThat(rateMeter.getRate(), closeTo(50.0, 0.001));
+
+		counter.addAndGet(30);
+		nanoClock.addAndGet(ONE_SECOND_NANOS);
+		assertThat(rateMeter.getRate(), closeTo(30.0, 0.001));
+	}
+
+	@Test
+	public void shouldKeepPreviousRateIfReadAgainWithinSecond() throws Exception {
+		counter.addAndGet(100);
+		nanoClock.addAndGet(ONE_SECOND_NANOS);
+		rateMeter.getRate();
+
+		counter.addAndGet(1000);
+		nanoClock.addAndGet(ONE_SECOND_NANOS / 10);
+
+		assertThat(rateMeter.getRate(), closeTo(100.0, 0.001));
+	}
+}
@@ -0,0 +1,88 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class RecordingCommandHandlerTest {
+	private static final Request GET_REQUEST = Request.withKey(Command.GET, "key");
+
+	@Mock
+	private CommandHandler next;
+
+	private RequestRecorder recorder;
+	private RecordingCommandHandler handler;
+
+	@Before
+	public void setUp() {
+		recorder = new RequestRecorder();
+		handler = new RecordingCommandHandler(next, recorder);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullNextHandler() throws Exception {
+		new RecordingCommandHandler(null, recorder);
+	}
+
+	@Test
+	public void shouldReturnResponseOfNextHandler() throws Exception {
+		Response response = Response.empty(Status.CLEARED);
+		when(next.handle(any(Request.class))).thenReturn(response);
+
+		assertThat(handler.handle(Request.empty(Command.CLEAR)), equalTo(response));
+	}
+
+	@Test
+	public void shouldCountRequestsPerCommand() throws Exception {
+		when(next.handle(any(Request.class))).thenReturn(Response.empty(Status.ADDED));
+
+		handler.handle(Request.withKeyAndData(Command.PUT, "key", new byte[] {1}, null));
+		handler.handle(Request.withKeyAndData(Command.PUT, "key", new byte[] {1}, null));
+		handler.handle(Request.empty(Command.CLEAR));
+
+		assertThat(recorder.getCommandCount(Command.PUT), equalTo(2L));
+		assertThat(recorder.getCommandCount(Command.CLEAR), equalTo(1L));
+		assertThat(recorder.getCommandCount(Command.GET), equalTo(0L));
+	}
+
+	@Test
+	public void shouldCountGetHitsAndMisses() throws Exception {
+		when(next.handle(any(Request.class))).thenReturn(Response.withData(Status.GOTTEN, new byte[] {1}),
+				Response.empty(Status.NOT_FOUND), Response.empty(Status.NOT_FOUND));
+
+		handler.handle(GET_REQUEST);
+		handler.handle(GET_REQUEST);
+		handler.handle(GET_REQUEST);
+
+		assertThat(recorder.getHitCount(), equalTo(1L));
+		assertThat(recorder.getMissCount(), equalTo(2L));
+	}
+
+	@Test
+	public void shouldRecordLatencyOfRequests() throws Exception {
+		when(next.handle(any(Request.class))).thenAnswer(invocation -> {
+			Thread.sleep(5);
+			return Response.empty(Status.NOT_FOUND);
+		});
+
+		handler.handle(GET_REQUEST);
+
+		assertThat(recorder.getLatencyPercentileNanos(Command.GET, 50.0), greaterThan(5_000_000L));
+		assertThat(recorder.getLatencyPercentileNanos(Command.REMOVE, 50.0), equalTo(0L));
+	}
+}
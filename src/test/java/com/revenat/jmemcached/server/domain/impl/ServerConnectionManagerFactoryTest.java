@@ -3,9 +3,16 @@ package com.revenat.jmemcached.server.domain.impl;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.Test;
 
+import com.revenat.jmemcached.server.domain.ClientConnectionHandler;
 import com.revenat.jmemcached.server.domain.ServerConnectionManager;
+import com.revenat.jmemcached.server.domain.WorkerThreadType;
+import com.revenat.jmemcached.server.domain.exception.ConnectionRejectedException;
 
 public class ServerConnectionManagerFactoryTest {
 
@@ -28,4 +35,101 @@ public class ServerConnectionManagerFactoryTest {
 		assertThat(managerA, not(sameInstance(managerB)));
 	}
 
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullWorkerThreadType() throws Exception {
+		new ServerConnectionManagerFactory(null);
+	}
+
+	@Test
+	public void shouldServeConnectionsByVirtualThreadsIfConfigured() throws Exception {
+		ServerConnectionManagerFactory factory = new ServerConnectionManagerFactory(WorkerThreadType.VIRTUAL);
+		ServerConnectionManager manager = factory.createServerConnectionManager(1, 1);
+		AtomicBoolean servedByVirtualThread = new AtomicBoolean();
+		CountDownLatch served = new CountDownLatch(1);
+
+		manager.establishConnection(() -> {
+			servedByVirtualThread.set(Thread.currentThread().isVirtual());
+			served.countDown();
+		});
+
+		assertTrue("Connection should be served", served.await(1, TimeUnit.SECONDS));
+		assertTrue("Connection should be served by virtual thread", servedByVirtualThread.get());
+		manager.shutdown();
+	}
+
+	@Test
+	public void shouldNotRejectConnectionsBeyondMaxThreadCountForVirtualThreads() throws Exception {
+		ServerConnectionManagerFactory factory = new ServerConnectionManagerFactory(WorkerThreadType.VIRTUAL);
+		ServerConnectionManager manager = factory.createServerConnectionManager(1, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(10);
+
+		for (int i = 0; i < 10; i++) {
+			manager.establishConnection(() -> {
+				started.countDown();
+				awaitQuietly(release);
+			});
+		}
+
+		assertTrue("All connections should be served at the same time", started.await(1, TimeUnit.SECONDS));
+		release.countDown();
+		manager.shutdown();
+	}
+
+	@Test
+	public void shouldQueueConnectionsWhileAllWorkerThreadsAreBusy() throws Exception {
+		ServerConnectionManagerFactory factory = new ServerConnectionManagerFactory();
+		ServerConnectionManager manager = factory.createServerConnectionManager(1, 2, 2, 10_000L);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch served = new CountDownLatch(4);
+
+		for (int i = 0; i < 4; i++) {
+			manager.establishConnection(() -> {
+				awaitQuietly(release);
+				served.countDown();
+			});
+		}
+		release.countDown();
+
+		assertTrue("Queued connections should be served", served.await(1, TimeUnit.SECONDS));
+		assertThat(manager.getStatistics().getAdmittedConnectionCount(), equalTo(4L));
+		manager.shutdown();
+	}
+
+	@Test
+	public void shouldRejectConnectionIfConnectionQueueIsFull() throws Exception {
+		ServerConnectionManagerFactory factory = new ServerConnectionManagerFactory();
+		ServerConnectionManager manager = factory.createServerConnectionManager(1, 1, 1, 10_000L);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean rejected = new AtomicBoolean();
+		manager.establishConnection(() -> awaitQuietly(release));
+		manager.establishConnection(() -> awaitQuietly(release));
+
+		try {
+			manager.establishConnection(new ClientConnectionHandler() {
+				@Override
+				public void run() {
+				}
+
+				@Override
+				public void reject() {
+					rejected.set(true);
+				}
+			});
+			fail("Connection should be rejected");
+		} catch (ConnectionRejectedException e) {
+			assertTrue("Client should be told it's rejected", rejected.get());
+		} finally {
+			release.countDown();
+			manager.shutdown();
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 }
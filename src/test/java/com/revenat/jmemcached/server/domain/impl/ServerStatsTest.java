@@ -0,0 +1,117 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+import com.revenat.jmemcached.server.domain.RequestStatistics;
+import com.revenat.jmemcached.server.domain.StorageStatistics;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ServerStatsTest {
+
+	@Mock
+	private StorageStatistics storageStatistics;
+	@Mock
+	private RequestStatistics requestStatistics;
+	@Mock
+	private ConnectionStatistics connectionStatistics;
+
+	private ServerStats serverStats;
+
+	@Before
+	public void setUp() {
+		serverStats = new ServerStats(storageStatistics, requestStatistics, connectionStatistics);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullConnectionStatistics() throws Exception {
+		new ServerStats(storageStatistics, requestStatistics, null);
+	}
+
+	@Test
+	public void shouldReportCountOfEachCommand() throws Exception {
+		when(requestStatistics.getCommandCount(Command.GET)).thenReturn(10L);
+		when(requestStatistics.getCommandCount(Command.PUT)).thenReturn(5L);
+
+		Map<String, String> stats = serverStats.collect();
+
+		assertThat(stats, hasEntry("cmd_get", "10"));
+		assertThat(stats, hasEntry("cmd_put", "5"));
+		assertThat(stats, hasEntry("cmd_remove", "0"));
+		assertThat(stats, hasEntry("cmd_clear", "0"));
+	}
+
+	@Test
+	public void shouldReportHitAndMissRatios() throws Exception {
+		when(requestStatistics.getHitCount()).thenReturn(3L);
+		when(requestStatistics.getMissCount()).thenReturn(1L);
+
+		Map<String, String> stats = serverStats.collect();
+
+		assertThat(stats, hasEntry("get_hits", "3"));
+		assertThat(stats, hasEntry("get_misses", "1"));
+		assertThat(stats, hasEntry("get_hit_ratio", "0.7500"));
+		assertThat(stats, hasEntry("get_miss_ratio", "0.2500"));
+	}
+
+	@Test
+	public void shouldReportZeroRatiosIfThereWereNoGets() throws Exception {
+		Map<String, String> stats = serverStats.collect();
+
+		assertThat(stats, hasEntry("get_hit_ratio", "0.0000"));
+	}
+
+	@Test
+	public void shouldReportStorageStatistics() throws Exception {
+		when(storageStatistics.getItemCount()).thenReturn(7L);
+		when(storageStatistics.getUsedBytes()).thenReturn(1024L);
+		when(storageStatistics.getEvictionCount()).thenReturn(2L);
+		when(storageStatistics.getExpiredCount()).thenReturn(4L);
+
+		Map<String, String> stats = serverStats.collect();
+
+		assertThat(stats, hasEntry("curr_items", "7"));
+		assertThat(stats, hasEntry("bytes", "1024"));
+		assertThat(stats, hasEntry("evictions", "2"));
+		assertThat(stats, hasEntry("reclaimed", "4"));
+	}
+
+	@Test
+	public void shouldReportConnectionStatistics() throws Exception {
+		when(connectionStatistics.getCurrentConnectionCount()).thenReturn(3L);
+		when(connectionStatistics.getAdmittedConnectionCount()).thenReturn(12L);
+		when(connectionStatistics.getRejectedConnectionCount()).thenReturn(2L);
+		when(connectionStatistics.getTimedOutConnectionCount()).thenReturn(1L);
+
+		Map<String, String> stats = serverStats.collect();
+
+		assertThat(stats, hasEntry("curr_connections", "3"));
+		assertThat(stats, hasEntry("total_connections", "12"));
+		assertThat(stats, hasEntry("rejected_connections", "3"));
+	}
+
+	@Test
+	public void shouldReportLatencyPercentilesInMicroseconds() throws Exception {
+		when(requestStatistics.getLatencyPercentileNanos(eq(Command.GET), anyDouble())).thenReturn(2_500_000L);
+
+		Map<String, String> stats = serverStats.collect();
+
+		assertThat(stats, hasEntry("get_latency_p50_us", "2500"));
+		assertThat(stats, hasEntry("get_latency_p999_us", "2500"));
+		assertThat(stats.get("put_latency_p99_us"), equalTo("0"));
+	}
+}
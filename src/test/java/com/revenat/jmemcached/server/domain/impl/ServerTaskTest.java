@@ -127,6 +127,16 @@ public class ServerTaskTest {
 			return serverSocket;
 		}
 
+		@Override
+		public ServerSocket getTextServerSocket() {
+			return null;
+		}
+
+		@Override
+		public ServerSocket getBinaryServerSocket() {
+			return null;
+		}
+
 		@Override
 		public ServerConnectionManager getServerConnectionManager() {
 			return connectionManager;
@@ -137,6 +147,26 @@ public class ServerTaskTest {
 			return connectionHandler;
 		}
 
+		@Override
+		public ClientConnectionHandler buildNewTextConnectionHandler(Socket clientSocket) {
+			return connectionHandler;
+		}
+
+		@Override
+		public ClientConnectionHandler buildNewBinaryConnectionHandler(Socket clientSocket) {
+			return connectionHandler;
+		}
+
+		@Override
+		public ChannelRequestProcessor getChannelRequestProcessor() {
+			return null;
+		}
+
+		@Override
+		public ServerStats getServerStats() {
+			return null;
+		}
+
 		@Override
 		public void close() {
 			this.isClosed = true;
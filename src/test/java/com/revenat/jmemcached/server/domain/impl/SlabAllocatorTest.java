@@ -0,0 +1,87 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class SlabAllocatorTest {
+	private static final int SLAB_SIZE = SlabAllocator.SLAB_SIZE;
+
+	private SlabAllocator allocator = new SlabAllocator(2L * SLAB_SIZE);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowCapacityLessThanSingleSlab() throws Exception {
+		new SlabAllocator(SLAB_SIZE - 1);
+	}
+
+	@Test
+	public void shouldRoundCapacityDownToWholeSlabs() throws Exception {
+		allocator = new SlabAllocator(2L * SLAB_SIZE + 100);
+
+		assertThat(allocator.getCapacity(), equalTo(2L * SLAB_SIZE));
+	}
+
+	@Test
+	public void shouldChooseSmallestSizeClassFittingLength() throws Exception {
+		for (int length : new int[] {1, 64, 65, 1000, 100_000, SLAB_SIZE}) {
+			int sizeClass = allocator.getSizeClassFor(length);
+
+			assertThat(allocator.getChunkSize(sizeClass), greaterThanOrEqualTo(length));
+			if (sizeClass > 0) {
+				assertThat(allocator.getChunkSize(sizeClass - 1) < length, equalTo(true));
+			}
+		}
+	}
+
+	@Test
+	public void shouldNotFindSizeClassForLengthLargerThanSlab() throws Exception {
+		assertThat(allocator.getSizeClassFor(SLAB_SIZE + 1), equalTo(-1));
+	}
+
+	@Test
+	public void shouldCarveSlabIntoChunksOfSizeClass() throws Exception {
+		int sizeClass = allocator.getSizeClassFor(1000);
+
+		long[] chunks = allocator.allocateSlab(sizeClass);
+
+		assertThat(chunks.length, equalTo(SLAB_SIZE / allocator.getChunkSize(sizeClass)));
+		assertThat(allocator.getAllocatedBytes(), equalTo((long) SLAB_SIZE));
+	}
+
+	@Test
+	public void shouldNotAllocateSlabsBeyondCapacity() throws Exception {
+		allocator.allocateSlab(0);
+		allocator.allocateSlab(0);
+
+		assertThat(allocator.allocateSlab(0), nullValue());
+	}
+
+	@Test
+	public void shouldCarveReassignedSlabIntoChunksOfNewSizeClass() throws Exception {
+		long[] chunks = allocator.allocateSlab(0);
+		int sizeClass = allocator.getSizeClassFor(1000);
+
+		long[] reassignedChunks = allocator.reassignSlab(SlabAllocator.slabIndexOf(chunks[0]), sizeClass);
+
+		assertThat(reassignedChunks.length, equalTo(SLAB_SIZE / allocator.getChunkSize(sizeClass)));
+		assertThat(SlabAllocator.slabIndexOf(reassignedChunks[1]), equalTo(SlabAllocator.slabIndexOf(chunks[0])));
+		assertThat(allocator.getAllocatedBytes(), equalTo((long) SLAB_SIZE));
+	}
+
+	@Test
+	public void shouldReadDataWrittenIntoChunk() throws Exception {
+		allocator.allocateSlab(0);
+		long[] chunks = allocator.allocateSlab(0);
+		byte[] first = new byte[] {1, 2, 3};
+		byte[] second = new byte[] {4, 5};
+
+		allocator.write(chunks[0], first);
+		allocator.write(chunks[1], second);
+
+		assertThat(allocator.read(chunks[0], first.length), equalTo(first));
+		assertThat(allocator.read(chunks[1], second.length), equalTo(second));
+	}
+}
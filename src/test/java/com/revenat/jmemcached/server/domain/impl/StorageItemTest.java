@@ -1,78 +1,76 @@
 package com.revenat.jmemcached.server.domain.impl;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
-import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.Mockito.when;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 
-import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.Mock;
-import org.mockito.junit.MockitoJUnitRunner;
 
-import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.ExpiringItem;
 import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.StorageItem;
 
-@RunWith(MockitoJUnitRunner.Silent.class)
 public class StorageItemTest {
-	private static final LocalDateTime DATE_TIME = LocalDateTime.now();
 	private static final long CURRENT_TIME_IN_MILLIS = 1000L;
 	private static final String ANY_KEY = "key";
 	private static final byte[] ANY_DATA = new byte[] { 1, 2, 3 };
 
-	@Mock
-	private DateTimeProvider dateTimeProvider;
-
 	private StorageItem storageItem;
 
-	@Before
-	public void setUp() {
-		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(CURRENT_TIME_IN_MILLIS);
-		when(dateTimeProvider.getDateTimeFrom(anyLong())).thenReturn(DATE_TIME);
+	@Test
+	public void shouldBeExpiredIfExpirationTimeHasPassed() throws Exception {
+		storageItem = new StorageItem(CURRENT_TIME_IN_MILLIS - 1, ANY_DATA);
+
+		assertTrue("Should be expired after expiration time", storageItem.isExpired(CURRENT_TIME_IN_MILLIS));
+	}
+
+	@Test
+	public void shouldNotBeExpiredUntilExpirationTimeHasPassed() throws Exception {
+		storageItem = new StorageItem(CURRENT_TIME_IN_MILLIS, ANY_DATA);
+
+		assertFalse("Should not be expired at expiration time", storageItem.isExpired(CURRENT_TIME_IN_MILLIS));
+		assertTrue("Should be expired after expiration time", storageItem.isExpired(CURRENT_TIME_IN_MILLIS + 1));
 	}
 
 	@Test
-	public void shouldBeExpiredFromTheBeginingIfCreatedWithNegativeTtl() throws Exception {
-		long negativeTtl = -1L;
-		storageItem = new StorageItem(ANY_KEY, negativeTtl, ANY_DATA, dateTimeProvider);
+	public void shouldNeverExpireIfCreatedWithoutExpirationTime() throws Exception {
+		storageItem = new StorageItem(StorageItem.NEVER_EXPIRES, ANY_DATA);
 
-		assertTrue("Should be expired with negative ttl", storageItem.isExpired());
+		assertFalse("Should not expire", storageItem.expires());
+		assertFalse("Should not expire", storageItem.isExpired(Long.MAX_VALUE));
 	}
 
 	@Test
-	public void shouldBeExpiredIfTtlTimeElapsed() throws Exception {
-		long positiveTtl = 100L;
-		storageItem = new StorageItem(ANY_KEY, positiveTtl, ANY_DATA, dateTimeProvider);
-		assertFalse("Should not be expired from the beginning with positive ttl", storageItem.isExpired());
+	public void shouldEstimateItsSizeInStorage() throws Exception {
+		storageItem = new StorageItem(StorageItem.NEVER_EXPIRES, ANY_DATA);
 
-		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(CURRENT_TIME_IN_MILLIS + positiveTtl + 1);
-		assertTrue("Should be expired after elapsed time > ttl", storageItem.isExpired());
+		assertThat(storageItem.size(ANY_KEY),
+				equalTo(StorageItem.ENTRY_OVERHEAD_BYTES + 2L * ANY_KEY.length() + ANY_DATA.length));
 	}
 
 	@Test
-	public void shouldNeverExpiresIfCreatedWithNullTtl() throws Exception {
-		storageItem = new StorageItem(ANY_KEY, null, ANY_DATA, dateTimeProvider);
-		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(Long.MAX_VALUE);
+	public void shouldContainExpirationTimeInStringIfExpires() throws Exception {
+		storageItem = new StorageItem(CURRENT_TIME_IN_MILLIS, ANY_DATA);
+		String s = storageItem.toString();
 
-		assertFalse("Should not expire with null ttl", storageItem.isExpired());
+		assertThat(s, containsString(String.format("(%s)", Instant.ofEpochMilli(CURRENT_TIME_IN_MILLIS))));
 	}
 
 	@Test
-	public void shouldContainTimeToLiveDateInStringIfCreatedWithTtl() throws Exception {
-		storageItem = new StorageItem(ANY_KEY, 100L, ANY_DATA, dateTimeProvider);
+	public void shouldNotContainExpirationTimeInStringIfNeverExpires() throws Exception {
+		storageItem = new StorageItem(StorageItem.NEVER_EXPIRES, ANY_DATA);
 		String s = storageItem.toString();
 
-		assertThat(s, containsString(String.format("(%s)",DATE_TIME)));
+		assertThat(s, not(containsString("(")));
 	}
 
 	@Test
-	public void shouldContainKeyInStringRepresentation() throws Exception {
-		storageItem = new StorageItem(ANY_KEY, null, ANY_DATA, dateTimeProvider);
+	public void shouldContainKeyInStringRepresentationIfKnowsIt() throws Exception {
+		storageItem = new ExpiringItem(ANY_KEY, StorageItem.NEVER_EXPIRES, ANY_DATA);
 		String s = storageItem.toString();
 
 		assertThat(s, containsString(String.format("[%s]", ANY_KEY)));
@@ -80,7 +78,7 @@ public class StorageItemTest {
 	
 	@Test
 	public void shouldContainDataLengthInStringRepresentation() throws Exception {
-		storageItem = new StorageItem(ANY_KEY, null, ANY_DATA, dateTimeProvider);
+		storageItem = new StorageItem(StorageItem.NEVER_EXPIRES, ANY_DATA);
 		String s = storageItem.toString();
 
 		assertThat(s, containsString(String.format("%d bytes", ANY_DATA.length)));
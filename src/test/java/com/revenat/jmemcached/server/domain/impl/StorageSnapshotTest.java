@@ -0,0 +1,185 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class StorageSnapshotTest {
+	private static final byte[] ANY_DATA = new byte[] {1, 2, 3};
+	private static final int CLEAR_DATA_INTERVAL_MILLIS = 1000;
+	private static final int LOADER_THREAD_COUNT = 4;
+	private static final long NOW = 1_000_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private DateTimeProvider dateTimeProvider;
+
+	private Path file;
+	private StorageSnapshot snapshot;
+	private DefaultServerStorage storage;
+	private DefaultServerStorage restoredStorage;
+
+	@Before
+	public void setUp() throws IOException {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(NOW);
+		file = folder.getRoot().toPath().resolve("storage.snapshot");
+		snapshot = new StorageSnapshot(file, dateTimeProvider);
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0, 4);
+		restoredStorage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0, 4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		storage.close();
+		restoredStorage.close();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullFile() throws Exception {
+		new StorageSnapshot(null, dateTimeProvider);
+	}
+
+	@Test
+	public void shouldLoadNothingIfSnapshotDoesNotExist() throws Exception {
+		long loadedCount = snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+
+		assertThat(loadedCount, equalTo(0L));
+		assertThat(restoredStorage.getItemCount(), equalTo(0L));
+	}
+
+	@Test
+	public void shouldRestoreSavedItems() throws Exception {
+		storage.put("one", ANY_DATA);
+		storage.put("two", 5000L, new byte[] {4, 5});
+		storage.put("ключ", new byte[] {6});
+
+		snapshot.save(storage);
+		long loadedCount = snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+
+		assertThat(loadedCount, equalTo(3L));
+		assertThat(restoredStorage.get("one"), equalTo(ANY_DATA));
+		assertThat(restoredStorage.get("two"), equalTo(new byte[] {4, 5}));
+		assertThat(restoredStorage.get("ключ"), equalTo(new byte[] {6}));
+	}
+
+	@Test
+	public void shouldRestoreItemsFromManyChunks() throws Exception {
+		byte[] data = new byte[64 * 1024];
+		int itemCount = 3 * StorageSnapshot.CHUNK_SIZE / data.length;
+		for (int i = 0; i < itemCount; i++) {
+			storage.put("key-" + i, data);
+		}
+
+		snapshot.save(storage);
+		long loadedCount = snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+
+		assertThat(loadedCount, equalTo((long) itemCount));
+		assertThat(restoredStorage.getItemCount(), equalTo((long) itemCount));
+	}
+
+	@Test
+	public void shouldKeepRemainingTimeToLiveOfRestoredItems() throws Exception {
+		storage.put("one", 5000L, ANY_DATA);
+		snapshot.save(storage);
+		snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(NOW + 5001L);
+
+		assertThat(restoredStorage.get("one").length, equalTo(0));
+	}
+
+	@Test
+	public void shouldSkipItemsExpiredBeforeLoading() throws Exception {
+		storage.put("one", 5000L, ANY_DATA);
+		storage.put("two", ANY_DATA);
+		snapshot.save(storage);
+
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(NOW + 5001L);
+		long loadedCount = snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+
+		assertThat(loadedCount, equalTo(1L));
+		assertThat(restoredStorage.get("two"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldNotReplaceItemsAlreadyInStorage() throws Exception {
+		storage.put("one", ANY_DATA);
+		snapshot.save(storage);
+		restoredStorage.put("one", new byte[] {9});
+
+		snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+
+		assertThat(restoredStorage.get("one"), equalTo(new byte[] {9}));
+	}
+
+	@Test
+	public void shouldSkipChunkWithWrongChecksum() throws Exception {
+		storage.put("one", ANY_DATA);
+		snapshot.save(storage);
+		corruptLastPayloadByte();
+
+		long loadedCount = snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+
+		assertThat(loadedCount, equalTo(0L));
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldNotLoadChunkLongerThanRestOfFile() throws Exception {
+		storage.put("one", ANY_DATA);
+		snapshot.save(storage);
+		try (RandomAccessFile snapshotFile = new RandomAccessFile(file.toFile(), "rw")) {
+			// length of the first chunk follows the file header and count of its items
+			snapshotFile.seek(3 * Integer.BYTES);
+			snapshotFile.writeInt(Integer.MAX_VALUE);
+		}
+
+		snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldNotLoadFileOfUnknownFormat() throws Exception {
+		Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+		snapshot.load(restoredStorage, LOADER_THREAD_COUNT);
+	}
+
+	@Test
+	public void shouldNotLeaveTemporaryFileAfterSaving() throws Exception {
+		storage.put("one", ANY_DATA);
+
+		snapshot.save(storage);
+
+		assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+	}
+
+	private void corruptLastPayloadByte() throws IOException {
+		try (RandomAccessFile snapshotFile = new RandomAccessFile(file.toFile(), "rw")) {
+			// payload is followed by the checksum and end of chunks marker
+			long position = snapshotFile.length() - 2 * Integer.BYTES - 1;
+			snapshotFile.seek(position);
+			int value = snapshotFile.read();
+			snapshotFile.seek(position);
+			snapshotFile.write(value ^ 0xFF);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.server.domain.ConnectionStatistics;
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TextCommandProcessorTest {
+	private static final int CLEAR_DATA_INTERVAL_MILLIS = 1000;
+	private static final int BUFFER_SIZE = 64;
+
+	@Mock
+	private DateTimeProvider dateTimeProvider;
+	@Mock
+	private ConnectionStatistics connectionStatistics;
+
+	private DefaultServerStorage storage;
+	private ClientConnectionHandlerFactory handlerFactory;
+	private TextCommandProcessor processor;
+
+	@Before
+	public void setUp() {
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS);
+		handlerFactory = new ClientConnectionHandlerFactory(storage, null, dateTimeProvider);
+		processor = new TextCommandProcessor(handlerFactory.createMemcachedCommands(new ServerStats(
+				storage.getStatistics(), handlerFactory.getRequestRecorder(), connectionStatistics)));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		handlerFactory.close();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullCommands() throws Exception {
+		new TextCommandProcessor(null);
+	}
+
+	@Test
+	public void shouldStoreAndRetrieveMultipleKeys() throws Exception {
+		String response = process("set one 0 0 3\r\nabc\r\nset two 7 0 2\r\nde\r\nget one three two\r\n");
+
+		assertThat(response, equalTo("STORED\r\nSTORED\r\n"
+				+ "VALUE one 0 3\r\nabc\r\nVALUE two 0 2\r\nde\r\nEND\r\n"));
+	}
+
+	@Test
+	public void shouldRetrieveWithUniqueValueForGets() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("gets one\r\n"), equalTo("VALUE one 0 3 0\r\nabc\r\nEND\r\n"));
+	}
+
+	@Test
+	public void shouldRecordRetrievalOfEachKey() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		process("get one two\r\n");
+
+		RequestRecorder recorder = handlerFactory.getRequestRecorder();
+		assertThat(recorder.getCommandCount(Command.GET), equalTo(2L));
+		assertThat(recorder.getHitCount(), equalTo(1L));
+		assertThat(recorder.getMissCount(), equalTo(1L));
+	}
+
+	@Test
+	public void shouldAddOnlyAbsentKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("add one 0 0 1\r\nx\r\nadd two 0 0 1\r\ny\r\n"), equalTo("NOT_STORED\r\nSTORED\r\n"));
+		assertThat(storage.get("one"), equalTo(ascii("abc")));
+	}
+
+	@Test
+	public void shouldReplaceOnlyPresentKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("replace one 0 0 1\r\nx\r\nreplace two 0 0 1\r\ny\r\n"),
+				equalTo("STORED\r\nNOT_STORED\r\n"));
+		assertThat(storage.get("one"), equalTo(ascii("x")));
+	}
+
+	@Test
+	public void shouldConvertRelativeAndUnixExpirationTimesToTtl() throws Exception {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(1_600_000_000_000L);
+
+		process("set one 0 100 1\r\nx\r\nset two 0 1600000200 1\r\ny\r\n");
+
+		assertThat(storage.getTtl("one"), equalTo(100_000L));
+		assertThat(storage.getTtl("two"), equalTo(200_000L));
+	}
+
+	@Test
+	public void shouldDeleteKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("delete one\r\ndelete one\r\n"), equalTo("DELETED\r\nNOT_FOUND\r\n"));
+	}
+
+	@Test
+	public void shouldTouchPresentKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("touch one 10\r\ntouch two 10\r\n"), equalTo("TOUCHED\r\nNOT_FOUND\r\n"));
+		assertThat(storage.getTtl("one"), equalTo(10_000L));
+	}
+
+	@Test
+	public void shouldTreatKeyWithEmptyValueAsPresent() throws Exception {
+		String response = process("set one 0 0 0\r\n\r\nadd one 0 0 1\r\nx\r\ntouch one 10\r\nget one\r\n");
+
+		assertThat(response, equalTo("STORED\r\nNOT_STORED\r\nTOUCHED\r\nVALUE one 0 0\r\n\r\nEND\r\n"));
+		assertThat(storage.getTtl("one"), equalTo(10_000L));
+	}
+
+	@Test
+	public void shouldIncrementAndDecrementNumericValuesKeepingTheirTtl() throws Exception {
+		storage.put("one", 5000L, ascii("10"));
+
+		assertThat(process("incr one 5\r\ndecr one 100\r\nincr two 1\r\n"), equalTo("15\r\n0\r\nNOT_FOUND\r\n"));
+		assertThat(storage.get("one"), equalTo(ascii("0")));
+		assertThat(storage.getTtl("one"), equalTo(5000L));
+	}
+
+	@Test
+	public void shouldWrapAroundOnIncrementOverflow() throws Exception {
+		storage.put("one", ascii("18446744073709551615"));
+
+		assertThat(process("incr one 2\r\n"), equalTo("1\r\n"));
+	}
+
+	@Test
+	public void shouldNotIncrementNonNumericValues() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("incr one 1\r\n"),
+				equalTo("CLIENT_ERROR cannot increment or decrement non-numeric value\r\n"));
+	}
+
+	@Test
+	public void shouldFlushAllKeys() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("flush_all\r\nget one\r\n"), equalTo("OK\r\nEND\r\n"));
+	}
+
+	@Test
+	public void shouldReportStats() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		String response = process("stats\r\n");
+
+		assertThat(response, startsWith("STAT cmd_"));
+		assertThat(response, containsString("STAT curr_items 1\r\n"));
+		assertThat(response, containsString("\r\nEND\r\n"));
+	}
+
+	@Test
+	public void shouldAnswerUnknownCommandsWithError() throws Exception {
+		assertThat(process("cas one 0 0 1 1\r\n"), equalTo("ERROR\r\n"));
+	}
+
+	@Test
+	public void shouldSkipDataOfTooLargeValues() throws Exception {
+		int length = MemcachedCommands.MAX_DATA_LENGTH + 1;
+
+		String response = process("set one 0 0 " + length + "\r\n" + new String(new byte[length],
+				StandardCharsets.US_ASCII) + "\r\nget one\r\n");
+
+		assertThat(response, equalTo("SERVER_ERROR object too large for cache\r\nEND\r\n"));
+	}
+
+	@Test
+	public void shouldAnswerMalformedDataBlockWithError() throws Exception {
+		assertThat(process("set one 0 0 1\r\nabc\r\n"), startsWith("CLIENT_ERROR bad data chunk\r\n"));
+	}
+
+	@Test
+	public void shouldNotReplyToCommandsWithNoreplyOption() throws Exception {
+		storage.put("counter", ascii("1"));
+
+		String response = process("set one 0 0 3 noreply\r\nabc\r\nadd one 0 0 1 noreply\r\nx\r\n"
+				+ "incr counter 5 noreply\r\ntouch one 10 noreply\r\ndelete two 0 noreply\r\nget one counter\r\n");
+
+		assertThat(response, equalTo("VALUE one 0 3\r\nabc\r\nVALUE counter 0 1\r\n6\r\nEND\r\n"));
+		assertThat(storage.getTtl("one"), equalTo(10_000L));
+	}
+
+	@Test
+	public void shouldNotReplyWithErrorsToCommandsWithNoreplyOption() throws Exception {
+		storage.put("one", ascii("abc"));
+
+		assertThat(process("incr one 1 noreply\r\nset two abc 0 1 noreply\r\nx\r\nflush_all 10 noreply\r\n"),
+				equalTo(""));
+	}
+
+	@Test
+	public void shouldTreatNoreplyOfRetrievalAsKey() throws Exception {
+		storage.put("noreply", ascii("abc"));
+
+		assertThat(process("get noreply\r\n"), equalTo("VALUE noreply 0 3\r\nabc\r\nEND\r\n"));
+	}
+
+	@Test
+	public void shouldStopProcessingOnQuit() throws Exception {
+		assertThat(process("quit\r\nget one\r\n"), equalTo(""));
+	}
+
+	private String process(String requests) throws Exception {
+		TextRequestReader reader = new TextRequestReader(
+				new ByteArrayInputStream(requests.getBytes(StandardCharsets.US_ASCII)), BUFFER_SIZE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		while (processor.process(reader, out)) {
+			// until the end of requests
+		}
+		return out.toString(StandardCharsets.US_ASCII.name());
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+}
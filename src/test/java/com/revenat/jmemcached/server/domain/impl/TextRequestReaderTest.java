@@ -0,0 +1,191 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.revenat.jmemcached.exception.JMemcachedException;
+import com.revenat.jmemcached.server.domain.impl.TextRequestReader.MalformedRequestException;
+
+public class TextRequestReaderTest {
+	private static final int BUFFER_SIZE = 16;
+
+	private TextRequestReader reader;
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullStream() throws Exception {
+		new TextRequestReader(null, BUFFER_SIZE);
+	}
+
+	@Test
+	public void shouldSplitCommandLineIntoTokens() throws Exception {
+		reader = readerOf("get  one two\r\n");
+
+		assertTrue("Should read the line", reader.readLine());
+		assertThat(reader.getTokenCount(), equalTo(3));
+		assertTrue("First token should be the command", reader.isToken(0, ascii("get")));
+		assertThat(reader.getKey(1), equalTo("one"));
+		assertThat(reader.getKey(2), equalTo("two"));
+	}
+
+	@Test
+	public void shouldReadLinesLongerThanBuffer() throws Exception {
+		reader = readerOf("get first-long-key second-long-key\nget three\r\n");
+
+		reader.readLine();
+		assertThat(reader.getKey(2), equalTo("second-long-key"));
+		reader.readLine();
+		assertThat(reader.getKey(1), equalTo("three"));
+	}
+
+	@Test
+	public void shouldReportEndOfStreamBeforeNextLine() throws Exception {
+		reader = readerOf("quit\r\n");
+
+		reader.readLine();
+
+		assertFalse("Should not read the line after end of stream", reader.readLine());
+	}
+
+	@Test(expected = EOFException.class)
+	public void shouldNotAllowStreamToEndInTheMiddleOfLine() throws Exception {
+		reader = readerOf("get one");
+
+		reader.readLine();
+	}
+
+	@Test(expected = JMemcachedException.class)
+	public void shouldNotAllowLinesLongerThanMaxLength() throws Exception {
+		reader = readerOf("get " + repeat('k', TextRequestReader.MAX_LINE_LENGTH) + "\r\n");
+
+		reader.readLine();
+	}
+
+	@Test(expected = MalformedRequestException.class)
+	public void shouldNotAllowKeysLongerThanMaxLength() throws Exception {
+		reader = readerOf("get " + repeat('k', TextRequestReader.MAX_KEY_LENGTH + 1) + "\r\n");
+		reader.readLine();
+
+		reader.getKey(1);
+	}
+
+	@Test
+	public void shouldParseNumbers() throws Exception {
+		reader = readerOf("incr -30 18446744073709551615\r\n");
+		reader.readLine();
+
+		assertThat(reader.getLong(1), equalTo(-30L));
+		assertThat(reader.getUnsignedLong(2), equalTo(-1L));
+	}
+
+	@Test(expected = MalformedRequestException.class)
+	public void shouldNotAllowNumbersGreaterThanUnsignedLong() throws Exception {
+		reader = readerOf("incr 18446744073709551616\r\n");
+		reader.readLine();
+
+		reader.getUnsignedLong(1);
+	}
+
+	@Test(expected = MalformedRequestException.class)
+	public void shouldNotAllowNonNumericNumbers() throws Exception {
+		reader = readerOf("incr 12a\r\n");
+		reader.readLine();
+
+		reader.getLong(1);
+	}
+
+	@Test
+	public void shouldReadDataBlockFollowingCommandLine() throws Exception {
+		reader = readerOf("set one 0 0 20\r\n0123456789abcdefghij\r\nquit\r\n");
+		reader.readLine();
+
+		assertThat(reader.readData(20), equalTo(ascii("0123456789abcdefghij")));
+		reader.readLine();
+		assertTrue("Should read the line after data block", reader.isToken(0, ascii("quit")));
+	}
+
+	@Test
+	public void shouldReturnNullIfDataBlockIsNotFollowedByLineEnd() throws Exception {
+		reader = readerOf("set one 0 0 2\r\nabcd\r\n");
+		reader.readLine();
+
+		assertThat(reader.readData(2), nullValue());
+	}
+
+	@Test
+	public void shouldSkipDataBlock() throws Exception {
+		reader = readerOf("set one 0 0 40\r\n" + repeat('x', 40) + "\r\nquit\r\n");
+		reader.readLine();
+
+		reader.skipData(40);
+		reader.readLine();
+
+		assertTrue("Should read the line after skipped data block", reader.isToken(0, ascii("quit")));
+	}
+
+	@Test
+	public void shouldWriteTokenAsReceived() throws Exception {
+		reader = readerOf("get ключ\r\n");
+		reader.readLine();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		reader.writeToken(1, out);
+
+		assertThat(out.toString(StandardCharsets.UTF_8.name()), equalTo("ключ"));
+		assertThat(reader.getKey(1), equalTo("ключ"));
+	}
+
+	@Test
+	public void shouldRemoveLastTokenIfItMatches() throws Exception {
+		reader = readerOf("delete one noreply\r\n");
+		reader.readLine();
+
+		assertFalse("Should not remove the token which does not match", reader.removeLastToken(ascii("one")));
+		assertTrue("Should remove the matching token", reader.removeLastToken(ascii("noreply")));
+		assertThat(reader.getTokenCount(), equalTo(2));
+	}
+
+	@Test
+	public void shouldNotRemoveTheOnlyToken() throws Exception {
+		reader = readerOf("noreply\r\n");
+		reader.readLine();
+
+		assertFalse("Should not remove the command", reader.removeLastToken(ascii("noreply")));
+		assertThat(reader.getTokenCount(), equalTo(1));
+	}
+
+	@Test
+	public void shouldReportBufferedInputOfNextRequest() throws Exception {
+		reader = readerOf("get one\r\nget two\r\n");
+
+		reader.readLine();
+		assertTrue("Next request should be buffered", reader.hasBufferedInput());
+		reader.readLine();
+		assertFalse("No more requests should be buffered", reader.hasBufferedInput());
+	}
+
+	private static TextRequestReader readerOf(String requests) {
+		return new TextRequestReader(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), BUFFER_SIZE);
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static String repeat(char c, int count) {
+		StringBuilder sb = new StringBuilder(count);
+		for (int i = 0; i < count; i++) {
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+}
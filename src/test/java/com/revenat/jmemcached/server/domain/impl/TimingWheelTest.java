@@ -0,0 +1,112 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.ExpiringItem;
+
+public class TimingWheelTest {
+	private static final byte[] ANY_DATA = new byte[] {1, 2, 3};
+	private static final long TICK_MILLIS = 10L;
+
+	private TimingWheel wheel = new TimingWheel(TICK_MILLIS, 0L);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowNonPositiveTick() throws Exception {
+		new TimingWheel(0, 0L);
+	}
+
+	@Test
+	public void shouldNotReturnItemBeforeItsTtlPassed() throws Exception {
+		wheel.schedule(createItem("one", 55L));
+
+		assertThat(wheel.advance(50L), empty());
+	}
+
+	@Test
+	public void shouldReturnItemOnceItsTtlPassed() throws Exception {
+		ExpiringItem item = createItem("one", 55L);
+		wheel.schedule(item);
+
+		assertThat(wheel.advance(60L), contains(item));
+		assertThat(wheel.size(), equalTo(0));
+	}
+
+	@Test
+	public void shouldReturnItemWithTtlAlreadyPassedOnNextTick() throws Exception {
+		wheel.advance(100L);
+		ExpiringItem item = createItem("one", 20L);
+		wheel.schedule(item);
+
+		assertThat(wheel.advance(110L), contains(item));
+	}
+
+	@Test
+	public void shouldReturnItemsFromUpperWheelsInTime() throws Exception {
+		long[] ttls = {
+				TICK_MILLIS * 100,
+				TICK_MILLIS * 5_000,
+				TICK_MILLIS * 300_000,
+				TICK_MILLIS * 20_000_000 };
+		List<ExpiringItem> items = new ArrayList<>();
+		for (long ttl : ttls) {
+			ExpiringItem item = createItem("key-" + ttl, ttl);
+			items.add(item);
+			wheel.schedule(item);
+		}
+
+		for (int i = 0; i < ttls.length; i++) {
+			assertThat(wheel.advance(ttls[i]), empty());
+			assertThat(wheel.advance(ttls[i] + TICK_MILLIS), contains(items.get(i)));
+		}
+	}
+
+	@Test
+	public void shouldNotReturnCancelledItem() throws Exception {
+		ExpiringItem first = createItem("one", 55L);
+		ExpiringItem second = createItem("two", 55L);
+		wheel.schedule(first);
+		wheel.schedule(second);
+
+		wheel.cancel(first);
+		wheel.cancel(first);
+
+		assertThat(wheel.size(), equalTo(1));
+		assertThat(wheel.advance(1000L), contains(second));
+	}
+
+	@Test
+	public void shouldReturnAllItemsDueSinceLastAdvance() throws Exception {
+		ExpiringItem first = createItem("one", 15L);
+		ExpiringItem second = createItem("two", 700L);
+		ExpiringItem third = createItem("three", 5000L);
+		wheel.schedule(first);
+		wheel.schedule(second);
+		wheel.schedule(third);
+
+		assertThat(wheel.advance(1000L), containsInAnyOrder(first, second));
+	}
+
+	@Test
+	public void shouldAllowToClearWheel() throws Exception {
+		wheel.schedule(createItem("one", 55L));
+		wheel.schedule(createItem("two", 5500L));
+
+		wheel.clear();
+
+		assertThat(wheel.size(), equalTo(0));
+		assertThat(wheel.advance(10_000L), empty());
+	}
+
+	private static ExpiringItem createItem(String key, long expiresAt) {
+		return new ExpiringItem(key, expiresAt, ANY_DATA);
+	}
+}
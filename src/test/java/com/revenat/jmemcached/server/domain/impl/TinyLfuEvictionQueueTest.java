@@ -0,0 +1,103 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.revenat.jmemcached.server.domain.impl.DefaultServerStorage.EvictableItem;
+
+public class TinyLfuEvictionQueueTest {
+	private static final byte[] ANY_DATA = new byte[] {1, 2, 3};
+	private static final long ITEM_SIZE = createItem("key-0").size();
+
+	// window is too small for any item, so items enter main region right away
+	private TinyLfuEvictionQueue queue = new TinyLfuEvictionQueue(ITEM_SIZE * 3);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowToCreateWithoutBytes() throws Exception {
+		queue = new TinyLfuEvictionQueue(0);
+	}
+
+	@Test
+	public void shouldReturnNullIfNothingToEvict() throws Exception {
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldEvictItemsInInsertionOrderIfNoneWereUsed() throws Exception {
+		EvictableItem first = createItem("key-0");
+		EvictableItem second = createItem("key-1");
+		queue.add(first);
+		queue.add(second);
+
+		assertThat(queue.evict(), sameInstance(first));
+		assertThat(queue.evict(), sameInstance(second));
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldEvictNewItemUsedLessOftenThanMainVictim() throws Exception {
+		EvictableItem first = addUsedTimes("key-0", 3);
+		addUsedTimes("key-1", 3);
+		EvictableItem newItem = createItem("key-2");
+		queue.add(newItem);
+
+		assertThat(queue.evict(), sameInstance(newItem));
+		assertThat(queue.evict(), sameInstance(first));
+	}
+
+	@Test
+	public void shouldAdmitNewItemUsedMoreOftenThanMainVictim() throws Exception {
+		EvictableItem first = addUsedTimes("key-0", 3);
+		addUsedTimes("key-1", 3);
+		EvictableItem newItem = createItem("key-2");
+		queue.add(newItem);
+
+		touchTimes(newItem, 5);
+
+		assertThat(queue.evict(), sameInstance(first));
+	}
+
+	@Test
+	public void shouldNotEvictRemovedItem() throws Exception {
+		EvictableItem first = createItem("key-0");
+		EvictableItem second = createItem("key-1");
+		queue.add(first);
+		queue.add(second);
+
+		queue.remove(first);
+		queue.remove(first);
+
+		assertThat(queue.evict(), sameInstance(second));
+		assertThat(queue.evict(), nullValue());
+	}
+
+	@Test
+	public void shouldAllowToClearQueue() throws Exception {
+		queue.add(createItem("key-0"));
+		queue.add(createItem("key-1"));
+
+		queue.clear();
+
+		assertThat(queue.evict(), nullValue());
+	}
+
+	private EvictableItem addUsedTimes(String key, int times) {
+		EvictableItem item = createItem(key);
+		queue.add(item);
+		touchTimes(item, times);
+		return item;
+	}
+
+	private void touchTimes(EvictableItem item, int times) {
+		for (int i = 0; i < times; i++) {
+			queue.touch(item);
+		}
+	}
+
+	private static EvictableItem createItem(String key) {
+		return new EvictableItem(key, EvictableItem.NEVER_EXPIRES, ANY_DATA);
+	}
+}
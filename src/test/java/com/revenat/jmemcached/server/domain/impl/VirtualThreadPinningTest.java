@@ -0,0 +1,157 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import com.revenat.jmemcached.protocol.RequestWriter;
+import com.revenat.jmemcached.protocol.ResponseReader;
+import com.revenat.jmemcached.protocol.impl.RequestConverter;
+import com.revenat.jmemcached.protocol.impl.ResponseConverter;
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.ServerConnectionManager;
+import com.revenat.jmemcached.server.domain.WorkerThreadType;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.util.ContextInitializer;
+import ch.qos.logback.core.joran.spi.JoranException;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Serves several real loopback connections by virtual worker threads and checks
+ * with JFR that none of them pins its carrier thread while blocked somewhere on
+ * the request path. Clients send requests encoded by the protocol converters,
+ * and server logs them with the production logging configuration.
+ */
+public class VirtualThreadPinningTest {
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+	private static final String LOG_DIR_PROPERTY = "jmemcached.log.dir";
+	private static final int CONNECTION_COUNT = 16;
+	private static final int REQUESTS_PER_CONNECTION = 50;
+	private static final byte[] DATA = "value".getBytes(StandardCharsets.UTF_8);
+
+	@Rule
+	public TemporaryFolder logDir = new TemporaryFolder();
+
+	private ServerSocket serverSocket;
+	private ServerConnectionManager connectionManager;
+	private ClientConnectionHandlerFactory handlerFactory;
+
+	@Before
+	public void setUp() throws Exception {
+		configureLogging(getClass().getResource("/logback.xml"));
+		serverSocket = new ServerSocketFactory().createServerSocket(0);
+		connectionManager = new ServerConnectionManagerFactory(WorkerThreadType.VIRTUAL)
+				.createServerConnectionManager(1, 1);
+		handlerFactory = new ClientConnectionHandlerFactory(
+				new DefaultServerStorage(new DefaultDateTimeProvider(Clock.systemUTC()), 1000));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connectionManager.shutdown();
+		handlerFactory.close();
+		serverSocket.close();
+		configureLogging(null);
+	}
+
+	@Test
+	public void shouldNotPinCarrierThreadsWhileServingConnections() throws Exception {
+		List<RecordedEvent> pinnedEvents = new CopyOnWriteArrayList<>();
+		try (RecordingStream recording = new RecordingStream()) {
+			recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+			recording.onEvent(PINNED_EVENT, pinnedEvents::add);
+			recording.startAsync();
+
+			serveClients();
+
+			recording.stop();
+		}
+
+		assertThat(pinnedEvents, empty());
+	}
+
+	private void serveClients() throws Exception {
+		CountDownLatch clientsDone = new CountDownLatch(CONNECTION_COUNT);
+		for (int i = 0; i < CONNECTION_COUNT; i++) {
+			String keyPrefix = "client-" + i + "-key-";
+			Thread client = new Thread(() -> runClient(keyPrefix, clientsDone));
+			client.setDaemon(true);
+			client.start();
+			Socket clientSocket = serverSocket.accept();
+			connectionManager.establishConnection(handlerFactory.createClientConnectionHandler(clientSocket));
+		}
+		assertTrue("All clients should be served", clientsDone.await(10, TimeUnit.SECONDS));
+	}
+
+	private void runClient(String keyPrefix, CountDownLatch clientsDone) {
+		RequestWriter requestWriter = new RequestConverter();
+		ResponseReader responseReader = new ResponseConverter();
+		try (Socket socket = new Socket("localhost", serverSocket.getLocalPort())) {
+			OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			for (int i = 0; i < REQUESTS_PER_CONNECTION; i++) {
+				// give worker a chance to park while waiting for the next request
+				TimeUnit.MILLISECONDS.sleep(1);
+				Request request = i % 2 == 0 ? Request.withKeyAndData(Command.PUT, keyPrefix + i, DATA, null)
+						: Request.withKey(Command.GET, keyPrefix + (i - 1));
+				requestWriter.writeTo(out, request);
+				out.flush();
+				Status status = responseReader.readFrom(in).getStatus();
+				if (status != (i % 2 == 0 ? Status.ADDED : Status.GOTTEN)) {
+					// unexpected response is reported by the latch timeout
+					return;
+				}
+			}
+		} catch (IOException | InterruptedException e) {
+			// client failure is reported by the latch timeout
+			return;
+		}
+		clientsDone.countDown();
+	}
+
+	/**
+	 * Configures logging with the given configuration, writing log files to the
+	 * temporary folder, or restores the test configuration if it is
+	 * {@code null}.
+	 */
+	private void configureLogging(URL configuration) throws JoranException {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.reset();
+		if (configuration != null) {
+			context.putProperty(LOG_DIR_PROPERTY, logDir.getRoot().getAbsolutePath());
+			JoranConfigurator configurator = new JoranConfigurator();
+			configurator.setContext(context);
+			configurator.doConfigure(configuration);
+		} else {
+			new ContextInitializer(context).autoConfig();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.protocol.model.Command;
+import com.revenat.jmemcached.protocol.model.Request;
+import com.revenat.jmemcached.protocol.model.Response;
+import com.revenat.jmemcached.protocol.model.Status;
+import com.revenat.jmemcached.server.domain.CommandHandler;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class WriteLogCommandHandlerTest {
+	private static final long ANY_TTL = 10000;
+	private static final byte[] ANY_DATA = new byte[] {1, 2, 3};
+	private static final String ANY_KEY = "any key";
+
+	@Mock
+	private CommandHandler next;
+	@Mock
+	private WriteLog writeLog;
+
+	private WriteLog.Record record;
+	private WriteLogCommandHandler handler;
+
+	@Before
+	public void setUp() {
+		record = mock(WriteLog.Record.class);
+		when(writeLog.put(anyString(), any(), any(byte[].class))).thenReturn(record);
+		when(writeLog.remove(anyString())).thenReturn(record);
+		when(writeLog.clear()).thenReturn(record);
+		handler = new WriteLogCommandHandler(next, writeLog);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullWriteLog() throws Exception {
+		new WriteLogCommandHandler(next, null);
+	}
+
+	@Test
+	public void shouldLogPutAfterItHasBeenHandled() throws Exception {
+		Request request = Request.withKeyAndData(Command.PUT, ANY_KEY, ANY_DATA, ANY_TTL);
+		when(next.handle(request)).thenReturn(Response.empty(Status.ADDED));
+
+		Response response = handler.handle(request);
+
+		assertThat(response.getStatus(), equalTo(Status.ADDED));
+		InOrder inOrder = inOrder(next, writeLog);
+		inOrder.verify(next).handle(request);
+		inOrder.verify(writeLog).put(ANY_KEY, ANY_TTL, ANY_DATA);
+		inOrder.verify(writeLog).awaitDurable(record);
+	}
+
+	@Test
+	public void shouldLogPutWithoutTtl() throws Exception {
+		Request request = Request.withKeyAndData(Command.PUT, ANY_KEY, ANY_DATA, null);
+		when(next.handle(request)).thenReturn(Response.empty(Status.REPLACED));
+
+		handler.handle(request);
+
+		verify(writeLog).put(ANY_KEY, null, ANY_DATA);
+	}
+
+	@Test
+	public void shouldLogRemoveOfExistingItem() throws Exception {
+		Request request = Request.withKey(Command.REMOVE, ANY_KEY);
+		when(next.handle(request)).thenReturn(Response.empty(Status.REMOVED));
+
+		handler.handle(request);
+
+		verify(writeLog).remove(ANY_KEY);
+		verify(writeLog).awaitDurable(record);
+	}
+
+	@Test
+	public void shouldNotLogRemoveOfMissingItem() throws Exception {
+		Request request = Request.withKey(Command.REMOVE, ANY_KEY);
+		when(next.handle(request)).thenReturn(Response.empty(Status.NOT_FOUND));
+
+		Response response = handler.handle(request);
+
+		assertThat(response.getStatus(), equalTo(Status.NOT_FOUND));
+		verify(writeLog, never()).remove(anyString());
+	}
+
+	@Test
+	public void shouldLogClear() throws Exception {
+		Request request = Request.empty(Command.CLEAR);
+		when(next.handle(request)).thenReturn(Response.empty(Status.CLEARED));
+
+		handler.handle(request);
+
+		InOrder inOrder = inOrder(next, writeLog);
+		inOrder.verify(next).handle(request);
+		inOrder.verify(writeLog).clear();
+		inOrder.verify(writeLog).awaitDurable(record);
+	}
+
+	@Test
+	public void shouldNotLogGet() throws Exception {
+		Request request = Request.withKey(Command.GET, ANY_KEY);
+		Response expected = Response.withData(Status.GOTTEN, ANY_DATA);
+		when(next.handle(request)).thenReturn(expected);
+
+		Response response = handler.handle(request);
+
+		assertThat(response, sameInstance(expected));
+		verifyZeroInteractions(writeLog);
+	}
+}
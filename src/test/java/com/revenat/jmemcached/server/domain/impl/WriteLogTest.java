@@ -0,0 +1,236 @@
+package com.revenat.jmemcached.server.domain.impl;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.revenat.jmemcached.server.domain.DateTimeProvider;
+import com.revenat.jmemcached.server.domain.WriteLogSyncPolicy;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class WriteLogTest {
+	private static final byte[] ANY_DATA = new byte[] {1, 2, 3};
+	private static final int CLEAR_DATA_INTERVAL_MILLIS = 1000;
+	private static final int SYNC_INTERVAL_MILLIS = 1000;
+	private static final long NOW = 1_000_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private DateTimeProvider dateTimeProvider;
+
+	private Path file;
+	private DefaultServerStorage storage;
+	private DefaultServerStorage restoredStorage;
+
+	@Before
+	public void setUp() {
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(NOW);
+		file = folder.getRoot().toPath().resolve("storage.log");
+		storage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0, 4);
+		restoredStorage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS, 0, 4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		storage.close();
+		restoredStorage.close();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void shouldNotAllowToCreateWithNullFile() throws Exception {
+		new WriteLog(null, storage, dateTimeProvider, WriteLogSyncPolicy.ALWAYS, SYNC_INTERVAL_MILLIS);
+	}
+
+	@Test
+	public void shouldReplayNothingIfLogDoesNotExist() throws Exception {
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			assertThat(writeLog.open(), equalTo(0L));
+		}
+
+		assertThat(restoredStorage.getItemCount(), equalTo(0L));
+	}
+
+	@Test
+	public void shouldReplayLoggedMutations() throws Exception {
+		try (WriteLog writeLog = createWriteLog(storage, WriteLogSyncPolicy.ALWAYS)) {
+			writeLog.open();
+			writeLog.put("one", null, ANY_DATA);
+			writeLog.put("two", 5000L, new byte[] {4, 5});
+			writeLog.put("ключ", null, new byte[] {6});
+			writeLog.remove("one");
+			writeLog.awaitDurable(writeLog.put("three", null, ANY_DATA));
+		}
+
+		long replayedCount;
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			replayedCount = writeLog.open();
+		}
+
+		assertThat(replayedCount, equalTo(5L));
+		assertThat(restoredStorage.getItemCount(), equalTo(3L));
+		assertThat(restoredStorage.get("one").length, equalTo(0));
+		assertThat(restoredStorage.get("two"), equalTo(new byte[] {4, 5}));
+		assertThat(restoredStorage.get("ключ"), equalTo(new byte[] {6}));
+		assertThat(restoredStorage.get("three"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldReplayClearOfStorage() throws Exception {
+		try (WriteLog writeLog = createWriteLog(storage, WriteLogSyncPolicy.INTERVAL)) {
+			writeLog.open();
+			writeLog.put("one", null, ANY_DATA);
+			writeLog.clear();
+			writeLog.put("two", null, ANY_DATA);
+		}
+
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+		}
+
+		assertThat(restoredStorage.getItemCount(), equalTo(1L));
+		assertThat(restoredStorage.get("two"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldNotReplayExpiredItems() throws Exception {
+		try (WriteLog writeLog = createWriteLog(storage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+			writeLog.put("expiring", 1000L, ANY_DATA);
+			writeLog.put("lasting", 5000L, ANY_DATA);
+		}
+		when(dateTimeProvider.getCurrentTimeInMillis()).thenReturn(NOW + 2000L);
+
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+		}
+
+		assertThat(restoredStorage.getItemCount(), equalTo(1L));
+		assertThat(restoredStorage.get("lasting"), equalTo(ANY_DATA));
+	}
+
+	@Test
+	public void shouldDiscardTornRecordAtTheEndOfLog() throws Exception {
+		try (WriteLog writeLog = createWriteLog(storage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+			writeLog.put("one", null, ANY_DATA);
+			writeLog.put("two", null, ANY_DATA);
+		}
+		long fileSize = Files.size(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.setLength(fileSize - 2);
+		}
+
+		long replayedCount;
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			replayedCount = writeLog.open();
+			writeLog.put("three", null, ANY_DATA);
+		}
+		DefaultServerStorage reopenedStorage = new DefaultServerStorage(dateTimeProvider, CLEAR_DATA_INTERVAL_MILLIS);
+		try (WriteLog writeLog = createWriteLog(reopenedStorage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+		}
+
+		assertThat(replayedCount, equalTo(1L));
+		assertThat(restoredStorage.get("one"), equalTo(ANY_DATA));
+		assertThat(restoredStorage.get("two").length, equalTo(0));
+		assertThat(reopenedStorage.getItemCount(), equalTo(2L));
+		assertThat(reopenedStorage.get("three"), equalTo(ANY_DATA));
+		reopenedStorage.close();
+	}
+
+	@Test
+	public void shouldDiscardCorruptedRecordAndEverythingAfterIt() throws Exception {
+		try (WriteLog writeLog = createWriteLog(storage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+			writeLog.put("one", null, ANY_DATA);
+			writeLog.put("two", null, ANY_DATA);
+			writeLog.put("three", null, ANY_DATA);
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			// byte of the second record payload
+			long position = Files.size(file) / 2 + 2;
+			raf.seek(position);
+			raf.write(raf.read() ^ 0xFF);
+		}
+
+		long replayedCount;
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			replayedCount = writeLog.open();
+		}
+
+		assertThat(replayedCount, equalTo(1L));
+		assertThat(restoredStorage.get("one"), equalTo(ANY_DATA));
+		assertThat(restoredStorage.get("three").length, equalTo(0));
+	}
+
+	@Test
+	public void shouldCompactLogToLiveItems() throws Exception {
+		long minCompactionBytes = 4096;
+		try (WriteLog writeLog = new WriteLog(file, storage, dateTimeProvider, WriteLogSyncPolicy.ALWAYS,
+				SYNC_INTERVAL_MILLIS, minCompactionBytes)) {
+			writeLog.open();
+			for (int i = 0; i < 1000; i++) {
+				String key = "key-" + (i % 10);
+				storage.put(key, new byte[] {(byte) i});
+				writeLog.awaitDurable(writeLog.put(key, null, new byte[] {(byte) i}));
+			}
+		}
+		assertThat(Files.size(file), lessThan(4L * minCompactionBytes));
+		assertFalse(Files.exists(file.resolveSibling("storage.log.compact")));
+
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+		}
+
+		assertThat(restoredStorage.getItemCount(), equalTo(10L));
+		for (int i = 0; i < 10; i++) {
+			assertThat(restoredStorage.get("key-" + i), equalTo(storage.get("key-" + i)));
+		}
+	}
+
+	@Test
+	public void shouldNotLogMutationsAfterClose() throws Exception {
+		WriteLog writeLog = createWriteLog(storage, WriteLogSyncPolicy.ALWAYS);
+		writeLog.open();
+		writeLog.close();
+
+		writeLog.awaitDurable(writeLog.put("one", null, ANY_DATA));
+		writeLog.remove("one");
+
+		assertThat(writeLog.getDroppedCount(), equalTo(2L));
+		try (WriteLog reopenedLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			assertThat(reopenedLog.open(), equalTo(0L));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldNotReplayFileOfUnknownFormat() throws Exception {
+		Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+		try (WriteLog writeLog = createWriteLog(restoredStorage, WriteLogSyncPolicy.NEVER)) {
+			writeLog.open();
+		}
+	}
+
+	private WriteLog createWriteLog(DefaultServerStorage target, WriteLogSyncPolicy syncPolicy) {
+		return new WriteLog(file, target, dateTimeProvider, syncPolicy, SYNC_INTERVAL_MILLIS);
+	}
+}
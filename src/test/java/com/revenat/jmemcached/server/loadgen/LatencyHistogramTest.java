@@ -0,0 +1,89 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	private LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void shouldReturnZeroPercentilesIfEmpty() throws Exception {
+		assertThat(histogram.getValueAtPercentile(99), equalTo(0L));
+		assertThat(histogram.getTotalCount(), equalTo(0L));
+	}
+
+	@Test
+	public void shouldCountSmallValuesExactly() throws Exception {
+		for (int i = 1; i <= 1000; i++) {
+			histogram.recordValue(i);
+		}
+
+		assertThat(histogram.getValueAtPercentile(50), equalTo(500L));
+		assertThat(histogram.getValueAtPercentile(99), equalTo(990L));
+		assertThat(histogram.getValueAtPercentile(100), equalTo(1000L));
+	}
+
+	@Test
+	public void shouldKeepThreeSignificantDigitsOfLargeValues() throws Exception {
+		long value = 123_456_789L;
+		histogram.recordValue(value);
+
+		assertThat(histogram.getValueAtPercentile(50),
+				allOf(greaterThanOrEqualTo(value), lessThanOrEqualTo(value + value / 1000)));
+	}
+
+	@Test
+	public void shouldNotReportPercentileAboveMaxValue() throws Exception {
+		histogram.recordValue(1_000_001L);
+
+		assertThat(histogram.getValueAtPercentile(100), equalTo(1_000_001L));
+	}
+
+	@Test
+	public void shouldRecordNegativeValuesAsZero() throws Exception {
+		histogram.recordValue(-5);
+
+		assertThat(histogram.getValueAtPercentile(100), equalTo(0L));
+	}
+
+	@Test
+	public void shouldRecordLongMaxValue() throws Exception {
+		histogram.recordValue(Long.MAX_VALUE);
+
+		assertThat(histogram.getMaxValue(), equalTo(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void shouldAddValuesOfOtherHistogram() throws Exception {
+		LatencyHistogram other = new LatencyHistogram();
+		histogram.recordValue(10);
+		other.recordValue(20);
+		other.recordValue(30);
+
+		histogram.add(other);
+
+		assertThat(histogram.getTotalCount(), equalTo(3L));
+		assertThat(histogram.getValueAtPercentile(50), equalTo(20L));
+		assertThat(histogram.getMaxValue(), equalTo(30L));
+	}
+
+	@Test
+	public void shouldMapEveryIndexBackToValuesItHolds() throws Exception {
+		for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+			int index = LatencyHistogram.indexOf(value);
+
+			assertThat(LatencyHistogram.highestEquivalentValue(index), greaterThanOrEqualTo(value));
+			assertThat(LatencyHistogram.indexOf(LatencyHistogram.highestEquivalentValue(index)), equalTo(index));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowPercentileAbove100() throws Exception {
+		histogram.getValueAtPercentile(100.1);
+	}
+}
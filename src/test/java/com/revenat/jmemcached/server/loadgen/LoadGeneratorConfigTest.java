@@ -0,0 +1,70 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class LoadGeneratorConfigTest {
+
+	@Rule
+	public ExpectedException expected = ExpectedException.none();
+
+	@Test
+	public void shouldUseDefaultsIfNoArguments() throws Exception {
+		LoadGeneratorConfig config = LoadGeneratorConfig.parse();
+
+		assertThat(config.getHost(), equalTo("localhost"));
+		assertThat(config.getPort(), equalTo(9010));
+		assertThat(config.getReadPercent(), equalTo(90));
+		assertThat(config.isPrefill(), equalTo(true));
+	}
+
+	@Test
+	public void shouldParseArguments() throws Exception {
+		LoadGeneratorConfig config = LoadGeneratorConfig.parse("--connections=4", "--rate=500",
+				"--ttl-fraction=0.5", "--zipf=0", "--value-sizes=100:3,200", "--prefill=false");
+
+		assertThat(config.getConnectionCount(), equalTo(4));
+		assertThat(config.getTargetRate(), equalTo(500));
+		assertThat(config.getTtlFraction(), equalTo(0.5));
+		assertThat(config.getZipfSkew(), equalTo(0.0));
+		assertThat(config.valueSizes(), equalTo(new int[] {100, 200}));
+		assertThat(config.valueSizeWeights(), equalTo(new int[] {3, 1}));
+		assertThat(config.isPrefill(), equalTo(false));
+	}
+
+	@Test
+	public void shouldNotAllowUnknownOption() throws Exception {
+		expected.expect(IllegalArgumentException.class);
+		expected.expectMessage("Unknown option: threads");
+
+		LoadGeneratorConfig.parse("--threads=4");
+	}
+
+	@Test
+	public void shouldNotAllowArgumentWithoutValue() throws Exception {
+		expected.expect(IllegalArgumentException.class);
+		expected.expectMessage("should look like --name=value");
+
+		LoadGeneratorConfig.parse("--rate");
+	}
+
+	@Test
+	public void shouldNotAllowReadPercentAbove100() throws Exception {
+		expected.expect(IllegalArgumentException.class);
+		expected.expectMessage("read-percent should be between 0 and 100");
+
+		LoadGeneratorConfig.parse("--read-percent=101");
+	}
+
+	@Test
+	public void shouldNotAllowNonNumericRate() throws Exception {
+		expected.expect(IllegalArgumentException.class);
+		expected.expectMessage("rate should be a number");
+
+		LoadGeneratorConfig.parse("--rate=fast");
+	}
+}
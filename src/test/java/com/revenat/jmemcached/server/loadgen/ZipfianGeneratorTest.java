@@ -0,0 +1,51 @@
+package com.revenat.jmemcached.server.loadgen;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ZipfianGeneratorTest {
+	private static final int ITEM_COUNT = 1000;
+	private static final int SAMPLE_SIZE = 100_000;
+
+	private Random random = new Random(42);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowToCreateWithoutItems() throws Exception {
+		new ZipfianGenerator(0, 0.99);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAllowSkewOfOne() throws Exception {
+		new ZipfianGenerator(ITEM_COUNT, 1);
+	}
+
+	@Test
+	public void shouldGenerateIndexesWithinRange() throws Exception {
+		ZipfianGenerator generator = new ZipfianGenerator(ITEM_COUNT, 0.99);
+
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			assertThat(generator.nextIndex(random), allOf(greaterThanOrEqualTo(0), lessThan(ITEM_COUNT)));
+		}
+	}
+
+	@Test
+	public void shouldMakeLowerRanksMorePopular() throws Exception {
+		ZipfianGenerator generator = new ZipfianGenerator(ITEM_COUNT, 0.99);
+		int[] counts = new int[ITEM_COUNT];
+
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			counts[generator.nextRank(random)]++;
+		}
+
+		assertThat(counts[0], greaterThan(counts[1]));
+		assertThat(counts[1], greaterThan(counts[10]));
+		assertThat(counts[10], greaterThan(counts[ITEM_COUNT - 1]));
+	}
+}